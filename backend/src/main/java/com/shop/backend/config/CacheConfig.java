@@ -1,47 +1,136 @@
 package com.shop.backend.config;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.cache.interceptor.SimpleKeyGenerator;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Cache configuration for improving API response times
- * Uses in-memory caching for frequently accessed data
+ * Uses bounded Caffeine caches with per-cache size/expiry limits from the "cache" block.
+ * With cache.type=redis the Caffeine caches become an L1 in front of a shared Redis L2,
+ * with invalidations broadcast to the other nodes over Redis pub/sub.
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheTierProperties.class)
 public class CacheConfig {
 
     /**
-     * Configure cache manager with predefined cache names
+     * Predefined cache names for different data types
+     */
+    public static final List<String> CACHE_NAMES = Arrays.asList(
+        "blogPosts",           // Blog posts cache
+        "blogCategories",      // Blog categories cache
+        "blogTags",           // Blog tags cache
+        "blogComments",       // Blog comments cache
+        "userProfiles",       // User profiles cache
+        "statistics",         // Statistics cache
+        "questions",          // Depression questions cache
+        "announcements",      // System announcements cache
+        "expertSchedules",    // Expert schedules cache
+        "authPrincipals"      // Authenticated users by username (JwtAuthenticationCache)
+    );
+
+    /**
+     * Refresh loader for @Cacheable entries: the cached method cannot be re-run from here,
+     * so a refresh drops the entry after serving it once and the next call recomputes it
+     */
+    private static final CacheLoader<Object, Object> DROP_ON_REFRESH = key -> null;
+
+    /**
+     * Configure cache manager: two-level when Redis is selected and configured, local otherwise
      */
     @Bean
-    public CacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-        
-        // Define cache names for different data types
-        cacheManager.setCacheNames(java.util.Arrays.asList(
-            "blogPosts",           // Blog posts cache
-            "blogCategories",      // Blog categories cache  
-            "blogTags",           // Blog tags cache
-            "blogComments",       // Blog comments cache
-            "userProfiles",       // User profiles cache
-            "statistics",         // Statistics cache
-            "questions",          // Depression questions cache
-            "announcements",      // System announcements cache
-            "expertSchedules"     // Expert schedules cache
-        ));
-        
-        // Allow dynamic cache creation
+    public CacheManager cacheManager(CacheTierProperties properties,
+                                     ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        RedisConnectionFactory connectionFactory = redisConnectionFactory.getIfAvailable();
+        if ("redis".equalsIgnoreCase(properties.getType()) && connectionFactory != null) {
+            return new TwoLevelCacheManager(properties, connectionFactory);
+        }
+        return localCacheManager(properties);
+    }
+
+    /**
+     * Subscribe the two-level cache manager to invalidations from the other nodes
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cache.type", havingValue = "redis")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            CacheManager cacheManager,
+                                                                            CacheTierProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            container.addMessageListener(twoLevelCacheManager, new ChannelTopic(properties.getRedis().getChannel()));
+        }
+        return container;
+    }
+
+    /**
+     * Node-local cache manager with predefined, bounded caches
+     */
+    public static CacheManager localCacheManager(CacheTierProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setAllowNullValues(false);
-        
+
+        // Caches created on the fly (not listed above) use the defaults
+        CacheTierProperties.Spec defaults = properties.getLocal().getDefaults();
+        cacheManager.setCaffeine(caffeineBuilder(defaults));
+        if (defaults.getRefreshAfterWrite() != null) {
+            cacheManager.setCacheLoader(DROP_ON_REFRESH);
+        }
+
+        for (String cacheName : CACHE_NAMES) {
+            CacheTierProperties.Spec spec = properties.getLocal().resolve(cacheName);
+            cacheManager.registerCustomCache(cacheName, buildCache(spec));
+        }
+
         return cacheManager;
     }
 
+    /**
+     * Build a statistics-enabled Caffeine cache from a spec
+     */
+    public static com.github.benmanes.caffeine.cache.Cache<Object, Object> buildCache(CacheTierProperties.Spec spec) {
+        Caffeine<Object, Object> builder = caffeineBuilder(spec);
+        if (spec.getRefreshAfterWrite() != null) {
+            return builder.build(DROP_ON_REFRESH);
+        }
+        return builder.build();
+    }
+
+    private static Caffeine<Object, Object> caffeineBuilder(CacheTierProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getMaxSize() != null) {
+            builder.maximumSize(spec.getMaxSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        if (spec.getRefreshAfterWrite() != null) {
+            builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+        }
+        return builder;
+    }
+
     /**
      * Custom key generator for cache keys
      */
@@ -49,4 +138,4 @@ public class CacheConfig {
     public KeyGenerator keyGenerator() {
         return new SimpleKeyGenerator();
     }
-}
\ No newline at end of file
+}
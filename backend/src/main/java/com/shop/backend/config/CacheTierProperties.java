@@ -0,0 +1,98 @@
+package com.shop.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache tier settings bound from the "cache" block of application.yml
+ *
+ * "local" holds the defaults applied to every Caffeine cache, "local.caches"
+ * overrides them per cache name. Unset durations mean "no expiry of that kind".
+ * "redis" configures the shared L2 tier used when type is redis.
+ */
+@Data
+@ConfigurationProperties(prefix = "cache")
+public class CacheTierProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * local or redis
+     */
+    private String type = "local";
+
+    private Local local = new Local();
+
+    private Redis redis = new Redis();
+
+    @Data
+    public static class Local {
+
+        private Spec defaults = new Spec(1000L, Duration.ofHours(1), null, null);
+
+        private Map<String, Spec> caches = new LinkedHashMap<>();
+
+        /**
+         * Effective spec for a cache: per-cache values, falling back to defaults
+         */
+        public Spec resolve(String cacheName) {
+            Spec override = caches.get(cacheName);
+            if (override == null) {
+                return defaults;
+            }
+            return new Spec(
+                override.getMaxSize() != null ? override.getMaxSize() : defaults.getMaxSize(),
+                override.getExpireAfterWrite() != null ? override.getExpireAfterWrite() : defaults.getExpireAfterWrite(),
+                override.getExpireAfterAccess() != null ? override.getExpireAfterAccess() : defaults.getExpireAfterAccess(),
+                override.getRefreshAfterWrite() != null ? override.getRefreshAfterWrite() : defaults.getRefreshAfterWrite()
+            );
+        }
+    }
+
+    @Data
+    public static class Redis {
+
+        @DurationUnit(ChronoUnit.SECONDS)
+        private Duration defaultTtl = Duration.ofMinutes(30);
+
+        private String keyPrefix = "mindmeter:cache:";
+
+        /**
+         * Pub/sub channel carrying L1 invalidations between nodes
+         */
+        private String channel = "mindmeter:cache:invalidation";
+
+        /**
+         * How long to stay L1-only after Redis fails before trying it again
+         */
+        private Duration retryAfter = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Spec {
+
+        private Long maxSize;
+
+        private Duration expireAfterWrite;
+
+        private Duration expireAfterAccess;
+
+        private Duration refreshAfterWrite;
+
+        public Spec() {
+        }
+
+        public Spec(Long maxSize, Duration expireAfterWrite, Duration expireAfterAccess, Duration refreshAfterWrite) {
+            this.maxSize = maxSize;
+            this.expireAfterWrite = expireAfterWrite;
+            this.expireAfterAccess = expireAfterAccess;
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.shop.backend.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate limit settings bound from the "rate-limit" block of application.yml
+ *
+ * Policies are matched in order by path prefix; the first match wins, so the
+ * catch-all "/" policy goes last. Each policy allows "limit" requests per
+ * "window" per client, with bursts of up to "limit" requests.
+ * With mode "redis" the limits are shared by all backend nodes (see "redis").
+ */
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * local (per node) or redis (cluster-wide, needs spring.data.redis)
+     */
+    private String mode = "local";
+
+    /**
+     * Skip enforcement for loopback clients (local development)
+     */
+    private boolean bypassLocalhost = true;
+
+    /**
+     * How often idle client buckets are dropped
+     */
+    private Duration sweepInterval = Duration.ofSeconds(30);
+
+    private List<Policy> policies = new ArrayList<>(List.of(
+        new Policy("auth", "/api/auth/", 30, Duration.ofMinutes(1)),
+        new Policy("payment", "/api/payment/", 100, Duration.ofMinutes(1)),
+        new Policy("api", "/api/", 50, Duration.ofMinutes(1)),
+        new Policy("default", "/", 100, Duration.ofMinutes(1))
+    ));
+
+    private Redis redis = new Redis();
+
+    /**
+     * First policy whose prefix matches the path; the last policy if none does
+     */
+    public Policy resolve(String path) {
+        for (Policy policy : policies) {
+            if (path != null && path.startsWith(policy.getPathPrefix())) {
+                return policy;
+            }
+        }
+        return policies.get(policies.size() - 1);
+    }
+
+    public Policy getPolicy(String name) {
+        for (Policy policy : policies) {
+            if (policy.getName().equals(name)) {
+                return policy;
+            }
+        }
+        throw new RuntimeException("Unknown rate limit policy: " + name);
+    }
+
+    @Data
+    public static class Redis {
+
+        private String keyPrefix = "mindmeter:ratelimit:";
+
+        /**
+         * Longest a request waits for Redis before the local limit decides instead
+         */
+        private Duration timeout = Duration.ofMillis(20);
+
+        /**
+         * How long to use local limits after Redis fails before trying it again
+         */
+        private Duration retryAfter = Duration.ofSeconds(30);
+
+        /**
+         * Most checks sent to Redis in one pipeline
+         */
+        private int maxBatch = 256;
+
+        /**
+         * Checks waiting for Redis beyond this are decided locally
+         */
+        private int queueCapacity = 10000;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Policy {
+
+        private String name;
+
+        private String pathPrefix;
+
+        private int limit;
+
+        private Duration window;
+    }
+}
@@ -0,0 +1,189 @@
+package com.shop.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Near-cache: a node-local Caffeine cache (L1) in front of a shared Redis cache (L2)
+ *
+ * Reads go L1 -> L2 -> loader. Writes go to both tiers and broadcast an L1
+ * invalidation so other nodes drop their copy and re-read from L2. Every Redis
+ * call goes through {@link #l2(Supplier, Object)} so a Redis outage degrades to
+ * L1-only instead of failing the request. An L2 entry that no longer deserializes
+ * (class changed between deploys) is evicted and read as a miss.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+
+    private final CaffeineCache l1;
+
+    private final Cache l2;
+
+    private final TwoLevelCacheManager manager;
+
+    TwoLevelCache(CaffeineCache l1, Cache l2, TwoLevelCacheManager manager) {
+        this.l1 = l1;
+        this.l2 = l2;
+        this.manager = manager;
+    }
+
+    @Override
+    public String getName() {
+        return l1.getName();
+    }
+
+    /**
+     * Native L1 cache, so CacheService keeps reporting Caffeine statistics
+     */
+    @Override
+    public Object getNativeCache() {
+        return l1.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper local = l1.get(key);
+        if (local != null) {
+            return local;
+        }
+        ValueWrapper shared = getShared(key);
+        if (shared != null && shared.get() != null) {
+            l1.put(key, shared.get());
+            return new SimpleValueWrapper(shared.get());
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        // Loader runs at most once per key on this node; other nodes may load concurrently
+        return l1.get(key, () -> {
+            T value = valueLoader.call();
+            if (value != null) {
+                putShared(key, value);
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        l1.put(key, value);
+        putShared(key, value);
+        manager.publishEvict(getName(), key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.evict(key);
+        l2(() -> {
+            l2.evict(key);
+            return null;
+        }, null);
+        manager.publishEvict(getName(), key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = l1.evictIfPresent(key);
+        evict(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        l1.clear();
+        l2(() -> {
+            l2.clear();
+            return null;
+        }, null);
+        manager.publishClear(getName());
+    }
+
+    @Override
+    public boolean invalidate() {
+        clear();
+        return true;
+    }
+
+    /**
+     * Drop L1 entries on behalf of another node; does not touch L2 or re-broadcast
+     */
+    void evictLocal(Object key) {
+        l1.evict(key);
+    }
+
+    void clearLocal() {
+        l1.clear();
+    }
+
+    private void putShared(Object key, Object value) {
+        try {
+            l2(() -> {
+                l2.put(key, value);
+                return null;
+            }, null);
+        } catch (SerializationException e) {
+            // Value graph is not serializable: keep it node-local
+            log.debug("Cache '{}' key '{}' kept in L1 only: {}", getName(), key, e.getMessage());
+        }
+    }
+
+    private ValueWrapper getShared(Object key) {
+        try {
+            return l2(() -> l2.get(key), null);
+        } catch (SerializationException e) {
+            // Written by a build whose classes no longer match: drop it and reload as a miss
+            log.warn("Cache '{}' key '{}' could not be read from L2, evicting: {}", getName(), key, e.getMessage());
+            l2(() -> {
+                l2.evict(key);
+                return null;
+            }, null);
+            return null;
+        }
+    }
+
+    private <T> T l2(Supplier<T> operation, T fallback) {
+        if (!manager.isL2Available()) {
+            return fallback;
+        }
+        try {
+            T result = operation.get();
+            manager.markL2Up();
+            return result;
+        } catch (DataAccessException e) {
+            manager.markL2Down(e);
+            return fallback;
+        }
+    }
+}
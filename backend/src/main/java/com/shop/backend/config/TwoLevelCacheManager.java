@@ -0,0 +1,157 @@
+package com.shop.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache manager for multi-node deployments: Caffeine L1 per node, Redis L2 shared
+ *
+ * Evictions and clears are broadcast on a Redis pub/sub channel as
+ * "nodeId|EVICT|cache|key" or "nodeId|CLEAR|cache", and every other node drops
+ * the matching L1 entries when it receives them. If Redis is unreachable the
+ * caches run L1-only for cache.redis.retry-after. When Redis comes back all L1
+ * caches are cleared, because invalidations sent during the outage were lost.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final String SEPARATOR = "|";
+
+    private final CacheTierProperties properties;
+
+    private final RedisCacheManager l2Manager;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    private volatile long l2RetryAt = 0L;
+
+    private volatile boolean l2Degraded = false;
+
+    public TwoLevelCacheManager(CacheTierProperties properties, RedisConnectionFactory connectionFactory) {
+        this.properties = properties;
+
+        RedisCacheConfiguration l2Config = RedisCacheConfiguration.defaultCacheConfig()
+            .entryTtl(properties.getRedis().getDefaultTtl())
+            .disableCachingNullValues()
+            .prefixCacheNameWith(properties.getRedis().getKeyPrefix());
+        this.l2Manager = RedisCacheManager
+            .builder(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory, BatchStrategies.scan(1000)))
+            .cacheDefaults(l2Config)
+            .build();
+        this.l2Manager.afterPropertiesSet();
+
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+
+        for (String cacheName : CacheConfig.CACHE_NAMES) {
+            getCache(cacheName);
+        }
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private TwoLevelCache createCache(String name) {
+        CacheTierProperties.Spec spec = properties.getLocal().resolve(name);
+        CaffeineCache l1 = new CaffeineCache(name, CacheConfig.buildCache(spec), false);
+        return new TwoLevelCache(l1, l2Manager.getCache(name), this);
+    }
+
+    // Invalidation broadcast
+
+    void publishEvict(String cacheName, Object key) {
+        if (key instanceof String) {
+            publish(nodeId + SEPARATOR + "EVICT" + SEPARATOR + cacheName + SEPARATOR + key);
+        } else {
+            // Only string keys survive the round trip; drop the whole cache elsewhere
+            publishClear(cacheName);
+        }
+    }
+
+    void publishClear(String cacheName) {
+        publish(nodeId + SEPARATOR + "CLEAR" + SEPARATOR + cacheName);
+    }
+
+    private void publish(String message) {
+        if (!isL2Available()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(properties.getRedis().getChannel(), message);
+        } catch (DataAccessException e) {
+            markL2Down(e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if ("EVICT".equals(parts[1]) && parts.length == 4) {
+            cache.evictLocal(parts[3]);
+        } else if ("CLEAR".equals(parts[1])) {
+            cache.clearLocal();
+        }
+    }
+
+    // L2 availability
+
+    boolean isL2Available() {
+        return !l2Degraded || System.currentTimeMillis() >= l2RetryAt;
+    }
+
+    void markL2Down(Exception e) {
+        l2RetryAt = System.currentTimeMillis() + properties.getRedis().getRetryAfter().toMillis();
+        if (!l2Degraded) {
+            l2Degraded = true;
+            log.warn("Redis cache tier unavailable, serving from local cache only: {}", e.getMessage());
+        }
+    }
+
+    void markL2Up() {
+        if (l2Degraded) {
+            l2Degraded = false;
+            log.info("Redis cache tier reachable again, clearing local caches to resync");
+            caches.values().forEach(TwoLevelCache::clearLocal);
+        }
+    }
+}
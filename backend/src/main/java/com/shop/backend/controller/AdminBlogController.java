@@ -5,6 +5,7 @@ import com.shop.backend.model.BlogPost;
 import com.shop.backend.model.BlogComment;
 import com.shop.backend.model.BlogReport;
 import com.shop.backend.service.BlogService;
+import com.shop.backend.service.BlogViewIngestionService;
 import com.shop.backend.exception.BadRequestException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -18,6 +19,7 @@ import jakarta.validation.Valid;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/blog")
@@ -28,6 +30,9 @@ public class AdminBlogController {
     @Autowired
     private BlogService blogService;
     
+    @Autowired
+    private BlogViewIngestionService blogViewIngestionService;
+    
     private String getCurrentUserEmail(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new RuntimeException("User not authenticated");
@@ -249,4 +254,10 @@ public class AdminBlogController {
             return ResponseEntity.status(500).build();
         }
     }
+    
+    // View ingestion pipeline: queue depth, drops and flush latency
+    @GetMapping("/stats/views-pipeline")
+    public ResponseEntity<Map<String, Object>> getViewPipelineStats() {
+        return ResponseEntity.ok(blogViewIngestionService.getStatistics());
+    }
 }
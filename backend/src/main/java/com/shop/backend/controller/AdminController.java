@@ -2,6 +2,9 @@ package com.shop.backend.controller;
 
 import com.shop.backend.model.*;
 import com.shop.backend.service.AdminService;
+import com.shop.backend.service.EmailOutboxDispatcher;
+import com.shop.backend.service.NewsletterCampaignService;
+import com.shop.backend.dto.NewsletterCampaignRequest;
 import com.shop.backend.dto.SystemAnnouncementDTO;
 import com.shop.backend.dto.depression.DepressionTestResultDTO;
 import com.shop.backend.dto.UserDTO;
@@ -66,6 +69,12 @@ public class AdminController {
     @Autowired
     private JwtService jwtService;
     
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+    
+    @Autowired
+    private NewsletterCampaignService newsletterCampaignService;
+    
     // Quản lý người dùng
     @GetMapping("/users")
     public ResponseEntity<List<UserDTO>> getAllUsers() {
@@ -914,4 +923,46 @@ public class AdminController {
             return ResponseEntity.internalServerError().body("Lỗi: " + e.getMessage());
         }
     }
+    
+    // Hàng đợi email: số email chờ gửi, đã gửi, gửi lại, lỗi và tốc độ gửi
+    @GetMapping("/email-outbox/stats")
+    public ResponseEntity<Map<String, Object>> getEmailOutboxStats() {
+        return ResponseEntity.ok(emailOutboxDispatcher.getStatistics());
+    }
+    
+    // Gửi bản tin: chạy nền theo từng đợt, có thể xem tiến độ và hủy
+    @PostMapping("/newsletter/campaigns")
+    public ResponseEntity<?> startNewsletterCampaign(@RequestBody NewsletterCampaignRequest request) {
+        try {
+            NewsletterCampaign campaign = newsletterCampaignService.start(
+                request.getSubject(), request.getContent(), request.getBlogPostId());
+            return ResponseEntity.ok(newsletterCampaignService.getProgress(campaign.getId()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/newsletter/campaigns")
+    public ResponseEntity<List<Map<String, Object>>> getNewsletterCampaigns() {
+        return ResponseEntity.ok(newsletterCampaignService.getRecentCampaigns());
+    }
+    
+    @GetMapping("/newsletter/campaigns/{campaignId}")
+    public ResponseEntity<Map<String, Object>> getNewsletterCampaign(@PathVariable Long campaignId) {
+        try {
+            return ResponseEntity.ok(newsletterCampaignService.getProgress(campaignId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @PostMapping("/newsletter/campaigns/{campaignId}/cancel")
+    public ResponseEntity<?> cancelNewsletterCampaign(@PathVariable Long campaignId) {
+        try {
+            newsletterCampaignService.cancel(campaignId);
+            return ResponseEntity.ok(newsletterCampaignService.getProgress(campaignId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 } 
\ No newline at end of file
@@ -1,11 +1,14 @@
 package com.shop.backend.controller;
 
 import com.shop.backend.service.AppointmentService;
+import com.shop.backend.service.AvailabilitySearchService;
 import com.shop.backend.repository.UserRepository;
 import com.shop.backend.dto.auth.appointment.AppointmentRequest;
 import com.shop.backend.dto.auth.appointment.AppointmentResponse;
 import com.shop.backend.dto.auth.appointment.AvailableSlotRequest;
 import com.shop.backend.dto.auth.appointment.AvailableSlotResponse;
+import com.shop.backend.dto.auth.appointment.EarliestSlotRequest;
+import com.shop.backend.dto.auth.appointment.EarliestSlotResponse;
 import com.shop.backend.model.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +27,7 @@ import java.util.List;
 public class AppointmentController {
     
     private final AppointmentService appointmentService;
+    private final AvailabilitySearchService availabilitySearchService;
     private final UserRepository userRepository;
     
     /**
@@ -106,6 +110,27 @@ public class AppointmentController {
         }
     }
     
+    /**
+     * Tìm các slot trống sớm nhất (EARLIEST) hoặc vừa khít nhất (BEST_FIT) trên tất cả chuyên gia
+     */
+    @PostMapping("/earliest-slots")
+    public ResponseEntity<?> findEarliestSlots(@RequestBody EarliestSlotRequest request) {
+        try {
+            if (request == null) {
+                return ResponseEntity.badRequest().body("Request body is required");
+            }
+            if (request.getStartDate() == null || request.getEndDate() == null) {
+                return ResponseEntity.badRequest().body("Start date and end date are required");
+            }
+            
+            EarliestSlotResponse response = availabilitySearchService.findSlots(request);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Lỗi khi tìm slot trống sớm nhất: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+    
     /**
      * Lấy danh sách lịch hẹn của học sinh hiện tại
      */
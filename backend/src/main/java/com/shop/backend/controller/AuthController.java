@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import com.shop.backend.repository.UserRepository;
+import com.shop.backend.security.JwtAuthenticationCache;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -45,6 +46,8 @@ public class AuthController {
     private PasswordEncoder passwordEncoder;
     @Autowired
     private AdminService adminService;
+    @Autowired
+    private JwtAuthenticationCache jwtAuthenticationCache;
 
     // Debug endpoint để kiểm tra user trong database
     @GetMapping("/debug/user/{email}")
@@ -91,6 +94,7 @@ public class AuthController {
             }
             
             userRepository.delete(user);
+            jwtAuthenticationCache.evictUser(user);
             return ResponseEntity.ok(Map.of(
                 "deleted", true,
                 "message", "User deleted successfully: " + email
@@ -153,6 +157,7 @@ public class AuthController {
         }
         user.setPassword(passwordEncoder.encode(req.getNewPassword()));
         userRepository.save(user);
+        jwtAuthenticationCache.evictUser(user);
         // Gửi email thông báo đổi mật khẩu thành công
         authService.sendPasswordChangedEmail(user.getEmail(), user.getFirstName() != null ? user.getFirstName() : "Người dùng");
         return ResponseEntity.ok("Đổi mật khẩu thành công!");
@@ -171,6 +176,7 @@ public class AuthController {
         User user = userOpt.get();
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        jwtAuthenticationCache.evictUser(user);
         
         return ResponseEntity.ok("Đã reset mật khẩu thành công!");
     }
@@ -216,6 +222,7 @@ public class AuthController {
     public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User user) {
         return userRepository.findById(id)
             .map(u -> {
+                jwtAuthenticationCache.evictUser(u);
                 u.setEmail(user.getEmail());
                 u.setFirstName(user.getFirstName());
                 u.setLastName(user.getLastName());
@@ -230,10 +237,12 @@ public class AuthController {
 
     @DeleteMapping("/users/{id}")
     public ResponseEntity<?> deleteUser(@PathVariable Long id) {
-        if (!userRepository.existsById(id)) {
+        User user = userRepository.findById(id).orElse(null);
+        if (user == null) {
             return ResponseEntity.notFound().build();
         }
         userRepository.deleteById(id);
+        jwtAuthenticationCache.evictUser(user);
         return ResponseEntity.ok().build();
     }
 
@@ -9,10 +9,13 @@ import com.shop.backend.model.Role;
 import com.shop.backend.repository.UserRepository;
 import com.shop.backend.service.DepressionTestService;
 import com.shop.backend.service.NotificationService;
+import com.shop.backend.service.QuestionCatalogService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -32,20 +35,19 @@ public class DepressionTestController {
     @GetMapping("/questions")
     public ResponseEntity<List<DepressionQuestionDTO>> getQuestions(
             @RequestParam(value = "type", required = false) String testKey,
-            @RequestParam(value = "lang", defaultValue = "vi") String language) {
+            @RequestParam(value = "lang", defaultValue = "vi") String language,
+            WebRequest webRequest) {
         
-        List<DepressionQuestionDTO> questions;
-        if (testKey != null && !testKey.isEmpty()) {
-            questions = depressionTestService.getActiveQuestionDTOsByTestKeyAndLanguage(testKey, language);
-        } else {
-            if ("en".equals(language)) {
-                questions = depressionTestService.getActiveQuestionDTOsEn();
-            } else {
-                questions = depressionTestService.getActiveQuestionDTOsVi();
-            }
-        }
+        QuestionCatalogService.QuestionList questions = depressionTestService.getQuestionList(testKey, language);
         
-        return ResponseEntity.ok(questions);
+        // Câu hỏi không đổi thì trả 304 để frontend dùng lại bản đã có
+        if (webRequest.checkNotModified(questions.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .eTag(questions.etag())
+            .cacheControl(CacheControl.noCache())
+            .body(questions.questions());
     }
     
     @PostMapping("/submit")
@@ -105,6 +107,24 @@ public class DepressionTestController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/results/{id}/status")
+    public ResponseEntity<DepressionTestResponse> getTestResultStatus(
+            @PathVariable Long id,
+            Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).build();
+        }
+        User user = userRepository.findByEmail(authentication.getName()).orElse(null);
+        if (user == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(depressionTestService.getTestResultStatus(user.getId(), id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping("/categories")
     public ResponseEntity<List<String>> getCategories() {
         List<String> categories = depressionTestService.getAllCategories();
@@ -1,11 +1,14 @@
 package com.shop.backend.controller;
 
+import com.shop.backend.service.GeoIpService;
 import com.shop.backend.service.IpFilteringService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -16,6 +19,9 @@ public class IpFilteringController {
     @Autowired
     private IpFilteringService ipFilteringService;
 
+    @Autowired
+    private GeoIpService geoIpService;
+
     @PostMapping("/public/test-ip")
     public ResponseEntity<Map<String, Object>> testIpPublic(@RequestBody Map<String, String> request) {
         String ip = request.get("ip");
@@ -68,7 +74,9 @@ public class IpFilteringController {
             return ResponseEntity.badRequest().body(Map.of("error", "IP address is required"));
         }
         
-        ipFilteringService.addToBlacklist(ip);
+        if (!ipFilteringService.addToBlacklist(ip)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid IP address or CIDR range"));
+        }
         return ResponseEntity.ok(Map.of("message", "IP added to blacklist successfully"));
     }
 
@@ -80,7 +88,9 @@ public class IpFilteringController {
             return ResponseEntity.badRequest().body(Map.of("error", "IP address is required"));
         }
         
-        ipFilteringService.addToWhitelist(ip);
+        if (!ipFilteringService.addToWhitelist(ip)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid IP address or CIDR range"));
+        }
         return ResponseEntity.ok(Map.of("message", "IP added to whitelist successfully"));
     }
 
@@ -91,6 +101,38 @@ public class IpFilteringController {
         return ResponseEntity.ok(Map.of("message", "IP removed from blacklist successfully"));
     }
 
+    // CIDR ranges contain a slash, so they are passed as a parameter rather than in the path
+    @DeleteMapping("/blacklist")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> removeRangeFromBlacklist(@RequestParam String ip) {
+        ipFilteringService.removeFromBlacklist(ip);
+        return ResponseEntity.ok(Map.of("message", "IP removed from blacklist successfully"));
+    }
+
+    @DeleteMapping("/whitelist")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> removeFromWhitelist(@RequestParam String ip) {
+        ipFilteringService.removeFromWhitelist(ip);
+        return ResponseEntity.ok(Map.of("message", "IP removed from whitelist successfully"));
+    }
+
+    @GetMapping("/tor-exit-nodes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Set<String>> getTorExitNodes() {
+        return ResponseEntity.ok(ipFilteringService.getTorExitNodes());
+    }
+
+    @PutMapping("/tor-exit-nodes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> replaceTorExitNodes(@RequestBody List<String> nodes) {
+        int invalid = ipFilteringService.replaceTorExitNodes(nodes);
+        return ResponseEntity.ok(Map.of(
+            "message", "Tor exit nodes replaced successfully",
+            "count", nodes.size() - invalid,
+            "skipped", invalid
+        ));
+    }
+
     @PostMapping("/suspicious")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, String>> markSuspicious(@RequestBody Map<String, String> request) {
@@ -99,10 +141,21 @@ public class IpFilteringController {
             return ResponseEntity.badRequest().body(Map.of("error", "IP address is required"));
         }
         
-        ipFilteringService.markSuspicious(ip);
+        if (!ipFilteringService.markSuspicious(ip)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid IP address or CIDR range"));
+        }
         return ResponseEntity.ok(Map.of("message", "IP marked as suspicious successfully"));
     }
 
+    @PostMapping("/geoip/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> reloadGeoIp() {
+        boolean reloaded = geoIpService.reloadIfChanged();
+        Map<String, Object> result = new HashMap<>(geoIpService.getStats());
+        result.put("reloaded", reloaded);
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("/clear-all")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, String>> clearAllLists() {
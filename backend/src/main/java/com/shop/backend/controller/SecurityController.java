@@ -1,6 +1,8 @@
 package com.shop.backend.controller;
 
+import com.shop.backend.service.RateLimitDecision;
 import com.shop.backend.service.RateLimitService;
+import com.shop.backend.service.SecurityMetricsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,15 +18,25 @@ public class SecurityController {
     @Autowired
     private RateLimitService rateLimitService;
     
+    @Autowired
+    private SecurityMetricsService securityMetricsService;
+    
     @GetMapping("/rate-limit-status")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getRateLimitStatus(@RequestParam String clientIP) {
+    public ResponseEntity<Map<String, Object>> getRateLimitStatus(@RequestParam String clientIP,
+                                                                  @RequestParam(defaultValue = "/api/") String path) {
         Map<String, Object> status = new HashMap<>();
         
+        // Peek only: checking a client's status must not use up its quota
+        RateLimitDecision decision = rateLimitService.peek(path, clientIP);
         status.put("clientIP", clientIP);
-        status.put("remainingRequests", rateLimitService.getRemainingRequests(clientIP));
-        status.put("resetTime", rateLimitService.getResetTime(clientIP));
-        status.put("isRateLimited", rateLimitService.isRateLimited(clientIP));
+        status.put("path", path);
+        status.put("limit", decision.limit());
+        status.put("remainingRequests", decision.remaining());
+        status.put("resetTime", System.currentTimeMillis() + decision.resetAfterMillis());
+        status.put("isRateLimited", !decision.allowed());
+        status.put("trackedClients", rateLimitService.getTrackedClients());
+        status.put("distributed", rateLimitService.isDistributed());
         
         return ResponseEntity.ok(status);
     }
@@ -38,6 +50,7 @@ public class SecurityController {
         metrics.put("timestamp", System.currentTimeMillis());
         metrics.put("rateLimitServiceActive", true);
         metrics.put("message", "Rate limiting service is active and monitoring requests");
+        metrics.putAll(securityMetricsService.getHeavyHitters());
         
         return ResponseEntity.ok(metrics);
     }
@@ -1,5 +1,6 @@
 package com.shop.backend.controller;
 
+import com.shop.backend.service.MetricTimeSeries;
 import com.shop.backend.service.SecurityMetricsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -27,13 +28,15 @@ public class SecurityMetricsController {
     }
 
     /**
-     * Get historical metrics for charts
+     * Get historical metrics for charts (resolution: SECOND, MINUTE or HOUR)
      */
     @GetMapping("/historical")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getHistoricalMetrics() {
+    public ResponseEntity<Map<String, Object>> getHistoricalMetrics(
+            @RequestParam(defaultValue = "MINUTE") MetricTimeSeries.Resolution resolution) {
         Map<String, Object> historicalData = Map.of(
-            "data", securityMetricsService.getHistoricalMetrics(),
+            "data", securityMetricsService.getHistoricalMetrics(resolution),
+            "resolution", resolution,
             "timestamp", java.time.LocalDateTime.now()
         );
         return ResponseEntity.ok(historicalData);
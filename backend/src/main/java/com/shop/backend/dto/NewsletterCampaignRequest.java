@@ -0,0 +1,10 @@
+package com.shop.backend.dto;
+
+import lombok.Data;
+
+@Data
+public class NewsletterCampaignRequest {
+    private String subject;
+    private String content;
+    private Long blogPostId;
+}
@@ -0,0 +1,32 @@
+package com.shop.backend.dto.auth.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EarliestSlotResponse {
+    
+    private String sort;
+    private Integer expertsSearched;
+    private List<ExpertSlot> slots;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ExpertSlot {
+        private Long expertId;
+        private String expertName;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private Integer durationMinutes;
+        private String consultationType;
+        // Độ dài khoảng trống chứa slot, dùng cho BEST_FIT
+        private Long freeMinutes;
+    }
+}
@@ -13,4 +13,5 @@ public class DepressionTestResponse {
     private String recommendation;
     private LocalDateTime testedAt;
     private Boolean shouldContactExpert;
+    private String analysisStatus; // PENDING, COMPLETED, FAILED
 } 
\ No newline at end of file
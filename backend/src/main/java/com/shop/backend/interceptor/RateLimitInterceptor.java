@@ -1,5 +1,7 @@
 package com.shop.backend.interceptor;
 
+import com.shop.backend.config.RateLimitProperties;
+import com.shop.backend.service.RateLimitDecision;
 import com.shop.backend.service.RateLimitService;
 import com.shop.backend.service.SecurityMetricsService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,6 +20,9 @@ public class RateLimitInterceptor implements HandlerInterceptor {
 
     @Autowired
     private SecurityMetricsService securityMetricsService;
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
     
     @Override
     public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
@@ -25,31 +30,22 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         String requestPath = request.getRequestURI();
         
         // Bypass rate limiting for localhost in development
-        if ("127.0.0.1".equals(clientIP) || "localhost".equals(clientIP) || "0:0:0:0:0:0:0:1".equals(clientIP)) {
+        if (rateLimitProperties.isBypassLocalhost() && isLocalhost(clientIP)) {
             // Add rate limit headers but don't enforce limits
-            addRateLimitHeaders(response, requestPath, clientIP);
+            addRateLimitHeaders(response, rateLimitService.peek(requestPath, clientIP));
             return true;
         }
         
-        // Apply different rate limits based on endpoint
-        boolean isRateLimited = false;
+        // Policy (auth, payment, api, default) is picked from the path
+        RateLimitDecision decision = rateLimitService.check(requestPath, clientIP);
         
-        if (requestPath.startsWith("/api/auth/")) {
-            isRateLimited = rateLimitService.isAuthRateLimited(clientIP);
-        } else if (requestPath.startsWith("/api/payment/")) {
-            isRateLimited = rateLimitService.isPaymentRateLimited(clientIP);
-        } else if (requestPath.startsWith("/api/")) {
-            isRateLimited = rateLimitService.isApiRateLimited(clientIP);
-        } else {
-            isRateLimited = rateLimitService.isRateLimited(clientIP);
-        }
-        
-        if (isRateLimited) {
+        if (!decision.allowed()) {
             // Record rate limit hit in metrics
             securityMetricsService.recordRateLimitHit(requestPath, clientIP);
             
+            addRateLimitHeaders(response, decision);
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-            response.setHeader("Retry-After", String.valueOf(rateLimitService.getResetTime(clientIP)));
+            response.setHeader("Retry-After", String.valueOf(toSecondsCeil(decision.retryAfterMillis())));
             response.setContentType("application/json");
             response.getWriter().write("{\"error\":\"Rate limit exceeded\",\"message\":\"Too many requests. Please try again later.\"}");
             return false;
@@ -59,25 +55,26 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         securityMetricsService.recordRequest(requestPath, clientIP);
         
         // Add rate limit headers
-        addRateLimitHeaders(response, requestPath, clientIP);
+        addRateLimitHeaders(response, decision);
         
         return true;
     }
     
-    private void addRateLimitHeaders(HttpServletResponse response, String requestPath, String clientIP) {
-        // Add rate limit headers based on endpoint
-        String limitHeader = "100"; // default
-        if (requestPath.startsWith("/api/auth/")) {
-            limitHeader = "30";
-        } else if (requestPath.startsWith("/api/payment/")) {
-            limitHeader = "3";
-        } else if (requestPath.startsWith("/api/")) {
-            limitHeader = "50";
-        }
-        
-        response.setHeader("X-RateLimit-Limit", limitHeader);
-        response.setHeader("X-RateLimit-Remaining", String.valueOf(rateLimitService.getRemainingRequests(clientIP)));
-        response.setHeader("X-RateLimit-Reset", String.valueOf(rateLimitService.getResetTime(clientIP)));
+    private void addRateLimitHeaders(HttpServletResponse response, RateLimitDecision decision) {
+        // Reset = epoch second at which the full quota is back
+        long resetAt = System.currentTimeMillis() + decision.resetAfterMillis();
+        response.setHeader("X-RateLimit-Limit", String.valueOf(decision.limit()));
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("X-RateLimit-Reset", String.valueOf(toSecondsCeil(resetAt)));
+    }
+    
+    private static long toSecondsCeil(long millis) {
+        return (millis + 999) / 1000;
+    }
+    
+    private boolean isLocalhost(String clientIP) {
+        return "127.0.0.1".equals(clientIP) || "localhost".equals(clientIP)
+            || "0:0:0:0:0:0:0:1".equals(clientIP) || "::1".equals(clientIP);
     }
     
     private String getClientIP(HttpServletRequest request) {
@@ -0,0 +1,76 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "appointment_reminders",
+    uniqueConstraints = @UniqueConstraint(name = "uk_appointment_reminders", columnNames = {"appointment_id", "hours_before"}),
+    indexes = @Index(name = "idx_appointment_reminders_due", columnList = "status, due_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentReminder {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+    
+    // Nhắc trước giờ hẹn bao nhiêu giờ (24, 1)
+    @Column(name = "hours_before", nullable = false)
+    private Integer hoursBefore;
+    
+    // Thời điểm cần gửi; lùi lại khi phải gửi lại
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+    
+    @Column(nullable = false)
+    private Integer attempts = 0;
+    
+    // Từng kênh đã gửi xong (hoặc không cần gửi) lúc nào; kênh đã có thì không gửi lại
+    @Column(name = "email_sent_at")
+    private LocalDateTime emailSentAt;
+    
+    @Column(name = "sms_sent_at")
+    private LocalDateTime smsSentAt;
+    
+    @Column(name = "push_sent_at")
+    private LocalDateTime pushSentAt;
+    
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+    
+    // Hết hạn thì bản ghi SENDING được trả về PENDING (node gửi bị dừng giữa chừng)
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at")
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        SKIPPED,    // lịch hẹn đã hủy hoặc đã bắt đầu
+        FAILED
+    }
+}
@@ -0,0 +1,35 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blog_daily_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlogDailyStats {
+    
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate statDate;
+    
+    @Column(name = "posts_created", nullable = false)
+    private Long postsCreated = 0L;
+    
+    @Column(name = "comments_created", nullable = false)
+    private Long commentsCreated = 0L;
+    
+    @Column(name = "views_recorded", nullable = false)
+    private Long viewsRecorded = 0L;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,75 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blog_stats_snapshot")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlogStatsSnapshot {
+    
+    public static final Long SINGLETON_ID = 1L;
+    
+    @Id
+    private Long id = SINGLETON_ID;
+    
+    @Column(name = "total_posts", nullable = false)
+    private Long totalPosts = 0L;
+    
+    @Column(name = "published_posts", nullable = false)
+    private Long publishedPosts = 0L;
+    
+    @Column(name = "pending_posts", nullable = false)
+    private Long pendingPosts = 0L;
+    
+    @Column(name = "draft_posts", nullable = false)
+    private Long draftPosts = 0L;
+    
+    @Column(name = "total_comments", nullable = false)
+    private Long totalComments = 0L;
+    
+    @Column(name = "pending_comments", nullable = false)
+    private Long pendingComments = 0L;
+    
+    @Column(name = "total_likes", nullable = false)
+    private Long totalLikes = 0L;
+    
+    @Column(name = "total_shares", nullable = false)
+    private Long totalShares = 0L;
+    
+    @Column(name = "total_views", nullable = false)
+    private Long totalViews = 0L;
+    
+    @Column(name = "total_reports", nullable = false)
+    private Long totalReports = 0L;
+    
+    @Column(name = "pending_reports", nullable = false)
+    private Long pendingReports = 0L;
+    
+    @Column(name = "total_categories", nullable = false)
+    private Long totalCategories = 0L;
+    
+    @Column(name = "total_tags", nullable = false)
+    private Long totalTags = 0L;
+    
+    @Column(name = "most_popular_post")
+    private String mostPopularPost;
+    
+    @Column(name = "most_active_author")
+    private String mostActiveAuthor;
+    
+    @Column(name = "most_used_category")
+    private String mostUsedCategory;
+    
+    @Column(name = "most_used_tag")
+    private String mostUsedTag;
+    
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
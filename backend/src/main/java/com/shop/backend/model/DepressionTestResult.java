@@ -2,6 +2,7 @@ package com.shop.backend.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -36,6 +37,23 @@ public class DepressionTestResult {
     @Column(name = "test_type", length = 50)
     private String testType;
 
+    // PENDING until the background AI analysis has replaced the rule-based verdict.
+    // The default also fills the column for results saved before it existed.
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'COMPLETED'")
+    @Column(name = "analysis_status", nullable = false, length = 20)
+    private AnalysisStatus analysisStatus = AnalysisStatus.COMPLETED;
+
+    @Column(name = "analyzed_at")
+    private LocalDateTime analyzedAt;
+
+    // Node running the AI analysis, and until when; another node may take it over after that
+    @Column(name = "analysis_claim_token", length = 36)
+    private String analysisClaimToken;
+
+    @Column(name = "analysis_locked_until")
+    private LocalDateTime analysisLockedUntil;
+
     @Convert(converter = com.shop.backend.converter.LanguageConverter.class)
     @Column(name = "language", nullable = false)
     private Language language = Language.VI;
@@ -74,6 +92,12 @@ public class DepressionTestResult {
         SEVERE
     }
 
+    public enum AnalysisStatus {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
     @PrePersist
     protected void onCreate() {
         testedAt = LocalDateTime.now();
@@ -0,0 +1,75 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_outbox",
+    uniqueConstraints = @UniqueConstraint(name = "uk_email_outbox_dedup", columnNames = "dedup_key"),
+    indexes = {
+        @Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_email_outbox_claim", columnList = "claim_token"),
+        @Index(name = "idx_email_outbox_campaign", columnList = "campaign_id, status")
+    })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutbox {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+    
+    @Column(nullable = false, length = 500)
+    private String subject;
+    
+    @Column(name = "html_body", nullable = false, columnDefinition = "TEXT")
+    private String htmlBody;
+    
+    // Cùng một khóa chỉ có một bản ghi, nên chỉ được gửi một lần (vd. "appointment:12:confirmed:student")
+    @Column(name = "dedup_key")
+    private String dedupKey;
+    
+    // Chiến dịch bản tin đã tạo email này, null với email thường
+    @Column(name = "campaign_id")
+    private Long campaignId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+    
+    @Column(nullable = false)
+    private Integer attempts = 0;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+    
+    // Hết hạn thì bản ghi SENDING được trả về PENDING (node gửi bị dừng giữa chừng)
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at")
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    public enum Status {
+        PENDING, SENDING, SENT, FAILED, SKIPPED
+    }
+}
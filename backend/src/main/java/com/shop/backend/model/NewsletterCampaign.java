@@ -0,0 +1,85 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "newsletter_campaigns", indexes = {
+    @Index(name = "idx_newsletter_campaigns_status", columnList = "status, locked_until")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsletterCampaign {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 500)
+    private String subject;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+    
+    @Column(name = "blog_post_id", nullable = false)
+    private Long blogPostId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.RUNNING;
+    
+    // Số người nhận khi bắt đầu gửi (chỉ để hiển thị tiến độ)
+    @Column(name = "total_recipients")
+    private Long totalRecipients = 0L;
+    
+    // Điểm dừng: id người đăng ký cuối cùng đã đưa vào hàng đợi email
+    @Column(name = "last_subscriber_id", nullable = false)
+    private Long lastSubscriberId = 0L;
+    
+    @Column(name = "queued_count", nullable = false)
+    private Long queuedCount = 0L;
+    
+    // Người nhận đã có bản tin này trong hàng đợi hoặc đã nhận
+    @Column(name = "skipped_count", nullable = false)
+    private Long skippedCount = 0L;
+    
+    // Kết quả gửi cuối cùng, ghi lại khi chiến dịch kết thúc
+    @Column(name = "sent_count")
+    private Long sentCount;
+    
+    @Column(name = "failed_count")
+    private Long failedCount;
+    
+    // Node đang chạy chiến dịch và hạn giữ; hết hạn thì node khác chạy tiếp từ điểm dừng
+    @Column(name = "owner", length = 36)
+    private String owner;
+    
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at")
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    
+    @Column(name = "queued_at")
+    private LocalDateTime queuedAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    public enum Status {
+        RUNNING,    // đang đưa người nhận vào hàng đợi
+        SENDING,    // đã đưa hết, hàng đợi đang gửi
+        COMPLETED,
+        CANCELLED
+    }
+}
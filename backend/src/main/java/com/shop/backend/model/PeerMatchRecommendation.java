@@ -0,0 +1,49 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Gợi ý ghép cặp tính sẵn: người dùng -> các ứng viên tốt nhất theo thứ hạng
+@Entity
+@Table(name = "peer_match_recommendations", indexes = {
+    @Index(name = "idx_peer_rec_candidate", columnList = "candidate_id"),
+    @Index(name = "idx_peer_rec_rank", columnList = "rank_position, user_id, score")
+})
+@IdClass(PeerMatchRecommendation.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeerMatchRecommendation {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    // 0 = ứng viên tốt nhất
+    @Id
+    @Column(name = "rank_position")
+    private Integer rankPosition;
+    
+    @Column(name = "candidate_id", nullable = false)
+    private Long candidateId;
+    
+    // Điểm ghép cặp x100 (0 - 10000)
+    @Column(nullable = false)
+    private Integer score;
+    
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Integer rankPosition;
+    }
+}
@@ -0,0 +1,31 @@
+package com.shop.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Khóa của lượt tính gợi ý hằng đêm: chỉ node đang giữ lease mới chạy
+@Entity
+@Table(name = "peer_match_recommendation_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeerMatchRecommendationRun {
+    
+    @Id
+    @Column(name = "job", length = 50)
+    private String job;
+    
+    @Column(name = "owner", length = 36)
+    private String owner;
+    
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    // Lần chạy xong gần nhất; các node khác bỏ qua lượt của cùng đêm đó
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
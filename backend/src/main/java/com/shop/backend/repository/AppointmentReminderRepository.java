@@ -0,0 +1,63 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.AppointmentReminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppointmentReminderRepository extends JpaRepository<AppointmentReminder, Long> {
+    
+    List<AppointmentReminder> findByAppointmentId(Long appointmentId);
+    
+    /**
+     * Khóa một lô nhắc nhở đến hạn cùng lịch hẹn, học sinh và chuyên gia của chúng.
+     * SKIP LOCKED bỏ qua các dòng node khác đang khóa nên nhiều node chạy song song không lấy trùng.
+     * Mỗi dòng: [reminderId, appointmentId, hoursBefore, attempts, emailSentAt, smsSentAt, pushSentAt,
+     * appointmentDate, appointmentStatus, studentId, studentEmail, studentFirstName, studentLastName,
+     * studentPhone, expertId, expertFirstName, expertLastName]
+     */
+    @Query(value = "SELECT r.id, r.appointment_id, r.hours_before, r.attempts, " +
+                   "r.email_sent_at, r.sms_sent_at, r.push_sent_at, a.appointment_date, a.status, " +
+                   "s.id, s.email, s.first_name, s.last_name, s.phone, e.id, e.first_name, e.last_name " +
+                   "FROM appointment_reminders r " +
+                   "JOIN appointments a ON a.id = r.appointment_id " +
+                   "JOIN users s ON s.id = a.student_id " +
+                   "JOIN users e ON e.id = a.expert_id " +
+                   "WHERE r.status = 'PENDING' AND r.due_at <= :now " +
+                   "ORDER BY r.due_at, r.id LIMIT :limit " +
+                   "FOR UPDATE OF r SKIP LOCKED", nativeQuery = true)
+    List<Object[]> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE AppointmentReminder r SET r.status = :status, r.claimToken = :token, r.lockedUntil = :lockedUntil " +
+           "WHERE r.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("status") AppointmentReminder.Status status,
+              @Param("token") String token, @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    // Ghi kết quả một lần gửi; 0 nếu lô đã hết hạn giữ và được trả lại hàng đợi
+    @Modifying
+    @Query("UPDATE AppointmentReminder r SET r.status = :status, r.attempts = :attempts, r.dueAt = :dueAt, " +
+           "r.emailSentAt = :emailSentAt, r.smsSentAt = :smsSentAt, r.pushSentAt = :pushSentAt, " +
+           "r.lastError = :lastError, r.completedAt = :completedAt, r.claimToken = NULL, r.lockedUntil = NULL " +
+           "WHERE r.id = :id AND r.claimToken = :token AND r.status = 'SENDING'")
+    int record(@Param("id") Long id, @Param("token") String token,
+               @Param("status") AppointmentReminder.Status status, @Param("attempts") int attempts,
+               @Param("dueAt") LocalDateTime dueAt, @Param("emailSentAt") LocalDateTime emailSentAt,
+               @Param("smsSentAt") LocalDateTime smsSentAt, @Param("pushSentAt") LocalDateTime pushSentAt,
+               @Param("lastError") String lastError, @Param("completedAt") LocalDateTime completedAt);
+    
+    // Lô bị bỏ dở (node dừng khi đang gửi): trả về hàng đợi, các kênh đã gửi vẫn giữ nguyên
+    @Modifying
+    @Query("UPDATE AppointmentReminder r SET r.status = :status, r.claimToken = NULL, r.lockedUntil = NULL " +
+           "WHERE r.status = 'SENDING' AND r.lockedUntil < :now")
+    int releaseExpiredClaims(@Param("status") AppointmentReminder.Status status, @Param("now") LocalDateTime now);
+    
+    long countByStatus(AppointmentReminder.Status status);
+}
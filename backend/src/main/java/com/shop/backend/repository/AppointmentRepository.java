@@ -41,6 +41,30 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findByExpertAndAppointmentDateBetween(
         User expert, LocalDateTime startDate, LocalDateTime endDate);
     
+    // Lịch hẹn còn chiếm thời gian của chuyên gia (không tính CANCELLED, NO_SHOW) trong khoảng thời gian
+    @Query("SELECT a FROM Appointment a WHERE a.expert.id = :expertId " +
+           "AND a.appointmentDate BETWEEN :startDate AND :endDate " +
+           "AND (a.status IS NULL OR a.status NOT IN ('CANCELLED', 'NO_SHOW')) " +
+           "ORDER BY a.appointmentDate ASC")
+    List<Appointment> findBusyByExpertIdAndAppointmentDateBetween(@Param("expertId") Long expertId,
+                                                                  @Param("startDate") LocalDateTime startDate,
+                                                                  @Param("endDate") LocalDateTime endDate);
+    
+    // Khoảng thời gian bận từ một thời điểm trở đi, của một chuyên gia hoặc tất cả (expertId null):
+    // [expertId, id, appointmentDate, durationMinutes]
+    @Query("SELECT a.expert.id, a.id, a.appointmentDate, a.durationMinutes FROM Appointment a " +
+           "WHERE a.appointmentDate >= :from " +
+           "AND (:expertId IS NULL OR a.expert.id = :expertId) " +
+           "AND (a.status IS NULL OR a.status NOT IN ('CANCELLED', 'NO_SHOW'))")
+    List<Object[]> findBusyIntervalsFrom(@Param("expertId") Long expertId, @Param("from") LocalDateTime from);
+    
+    // Khoảng thời gian bận của tất cả chuyên gia trong khoảng thời gian: [expertId, id, appointmentDate, durationMinutes]
+    @Query("SELECT a.expert.id, a.id, a.appointmentDate, a.durationMinutes FROM Appointment a " +
+           "WHERE a.appointmentDate BETWEEN :startDate AND :endDate " +
+           "AND (a.status IS NULL OR a.status NOT IN ('CANCELLED', 'NO_SHOW'))")
+    List<Object[]> findBusyIntervalsBetween(@Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+    
 
     
     // Tìm lịch hẹn sắp tới của học sinh
@@ -65,11 +89,13 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     // Phân trang lịch hẹn theo chuyên gia
     Page<Appointment> findByExpert(User expert, Pageable pageable);
     
-    // Tìm lịch hẹn sắp tới trong khoảng thời gian cho reminder
-    @Query("SELECT a FROM Appointment a WHERE a.appointmentDate >= :startTime " +
-           "AND a.appointmentDate <= :endTime " +
-           "AND a.status = :status")
-    List<Appointment> findUpcomingAppointments(@Param("startTime") LocalDateTime startTime,
-                                             @Param("endTime") LocalDateTime endTime,
-                                             @Param("status") Appointment.AppointmentStatus status);
+    // Lịch hẹn đã xác nhận sắp tới chưa có nhắc nhở, theo từng trang sau id đã xử lý: [id, appointmentDate]
+    @Query("SELECT a.id, a.appointmentDate FROM Appointment a WHERE a.status = 'CONFIRMED' " +
+           "AND a.appointmentDate > :now AND a.appointmentDate <= :until AND a.id > :afterId " +
+           "AND NOT EXISTS (SELECT r.id FROM AppointmentReminder r WHERE r.appointmentId = a.id) " +
+           "ORDER BY a.id ASC")
+    List<Object[]> findConfirmedWithoutReminders(@Param("now") LocalDateTime now,
+                                                 @Param("until") LocalDateTime until,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable pageable);
 }
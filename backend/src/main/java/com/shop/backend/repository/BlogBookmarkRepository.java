@@ -18,8 +18,13 @@ public interface BlogBookmarkRepository extends JpaRepository<BlogBookmark, Long
     // Check if user bookmarked post
     boolean existsByPostIdAndUserId(Long postId, Long userId);
     
+    // Post ids (out of the given ones) bookmarked by user
+    @Query("SELECT bb.post.id FROM BlogBookmark bb WHERE bb.user.id = :userId AND bb.post.id IN :postIds")
+    java.util.List<Long> findBookmarkedPostIds(@Param("userId") Long userId, @Param("postIds") java.util.Collection<Long> postIds);
+    
     // Find bookmarks by user
-    @Query("SELECT bb FROM BlogBookmark bb WHERE bb.user.id = :userId ORDER BY bb.createdAt DESC")
+    @Query(value = "SELECT bb FROM BlogBookmark bb JOIN FETCH bb.post WHERE bb.user.id = :userId ORDER BY bb.createdAt DESC",
+           countQuery = "SELECT COUNT(bb) FROM BlogBookmark bb WHERE bb.user.id = :userId")
     Page<BlogBookmark> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId, Pageable pageable);
     
     // Count bookmarks by user
@@ -34,6 +34,10 @@ public interface BlogCommentRepository extends JpaRepository<BlogComment, Long>
     // Count comments by user
     long countByUserId(Long userId);
     
+    // Count comments created in [start, end)
+    @Query("SELECT COUNT(c) FROM BlogComment c WHERE c.createdAt >= :start AND c.createdAt < :end")
+    long countCreatedBetween(@Param("start") java.time.LocalDateTime start, @Param("end") java.time.LocalDateTime end);
+    
     // Find comments by status (for admin)
     Page<BlogComment> findByStatusOrderByCreatedAtDesc(BlogComment.CommentStatus status, Pageable pageable);
     
@@ -0,0 +1,15 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.BlogDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BlogDailyStatsRepository extends JpaRepository<BlogDailyStats, LocalDate> {
+    
+    // Daily rows in [from, to], oldest first
+    List<BlogDailyStats> findByStatDateBetweenOrderByStatDateAsc(LocalDate from, LocalDate to);
+}
@@ -17,6 +17,10 @@ public interface BlogLikeRepository extends JpaRepository<BlogLike, Long> {
     // Check if user liked post
     boolean existsByPostIdAndUserId(Long postId, Long userId);
     
+    // Post ids (out of the given ones) liked by user
+    @Query("SELECT bl.post.id FROM BlogLike bl WHERE bl.user.id = :userId AND bl.post.id IN :postIds")
+    java.util.List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") java.util.Collection<Long> postIds);
+    
     // Count likes for post
     long countByPostId(Long postId);
     
@@ -1,9 +1,13 @@
 package com.shop.backend.repository;
 
 import com.shop.backend.model.BlogPostCategory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,6 +16,16 @@ public interface BlogPostCategoryRepository extends JpaRepository<BlogPostCatego
     // Find categories by post
     List<BlogPostCategory> findByPostId(Long postId);
     
+    // Find categories for a page of posts in one round trip
+    @Query("SELECT pc FROM BlogPostCategory pc JOIN FETCH pc.category c LEFT JOIN FETCH c.parent " +
+           "WHERE pc.post.id IN :postIds ORDER BY pc.id")
+    List<BlogPostCategory> findByPostIdInWithCategory(@Param("postIds") Collection<Long> postIds);
+    
+    // Categories ranked by number of posts: [name, count]
+    @Query("SELECT pc.category.name, COUNT(pc) FROM BlogPostCategory pc " +
+           "GROUP BY pc.category.id, pc.category.name ORDER BY COUNT(pc) DESC")
+    List<Object[]> findCategoriesByUsage(Pageable pageable);
+    
     // Find posts by category
     List<BlogPostCategory> findByCategoryId(Long categoryId);
     
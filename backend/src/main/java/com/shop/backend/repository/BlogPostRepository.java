@@ -70,6 +70,18 @@ public interface BlogPostRepository extends JpaRepository<BlogPost, Long> {
     // Count posts by status
     long countByStatus(BlogPost.BlogPostStatus status);
     
+    // Count posts created in [start, end)
+    @Query("SELECT COUNT(p) FROM BlogPost p WHERE p.createdAt >= :start AND p.createdAt < :end")
+    long countCreatedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    // Most viewed post
+    Optional<BlogPost> findFirstByOrderByViewCountDesc();
+    
+    // Authors ranked by post count: [firstName, lastName, count]
+    @Query("SELECT p.author.firstName, p.author.lastName, COUNT(p) FROM BlogPost p " +
+           "GROUP BY p.author.id, p.author.firstName, p.author.lastName ORDER BY COUNT(p) DESC")
+    List<Object[]> findAuthorsByPostCount(Pageable pageable);
+    
     // Find posts by status
     Page<BlogPost> findByStatus(BlogPost.BlogPostStatus status, Pageable pageable);
     
@@ -1,9 +1,13 @@
 package com.shop.backend.repository;
 
 import com.shop.backend.model.BlogPostTag;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,6 +16,15 @@ public interface BlogPostTagRepository extends JpaRepository<BlogPostTag, Long>
     // Find tags by post
     List<BlogPostTag> findByPostId(Long postId);
     
+    // Find tags for a page of posts in one round trip
+    @Query("SELECT pt FROM BlogPostTag pt JOIN FETCH pt.tag WHERE pt.post.id IN :postIds ORDER BY pt.id")
+    List<BlogPostTag> findByPostIdInWithTag(@Param("postIds") Collection<Long> postIds);
+    
+    // Tags ranked by number of posts: [name, count]
+    @Query("SELECT pt.tag.name, COUNT(pt) FROM BlogPostTag pt " +
+           "GROUP BY pt.tag.id, pt.tag.name ORDER BY COUNT(pt) DESC")
+    List<Object[]> findTagsByUsage(Pageable pageable);
+    
     // Find posts by tag
     List<BlogPostTag> findByTagId(Long tagId);
     
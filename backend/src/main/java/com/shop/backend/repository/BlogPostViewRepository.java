@@ -38,6 +38,10 @@ public interface BlogPostViewRepository extends JpaRepository<BlogPostView, Long
     @Query("SELECT bpv FROM BlogPostView bpv WHERE bpv.viewedAt >= :since ORDER BY bpv.viewedAt DESC")
     List<BlogPostView> findRecentViews(@Param("since") LocalDateTime since);
     
+    // Count views of all posts in [start, end)
+    @Query("SELECT COUNT(bpv) FROM BlogPostView bpv WHERE bpv.viewedAt >= :start AND bpv.viewedAt < :end")
+    long countViewedBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
     // Count views in date range
     @Query("SELECT COUNT(bpv) FROM BlogPostView bpv WHERE bpv.post.id = :postId AND bpv.viewedAt BETWEEN :startDate AND :endDate")
     long countViewsInDateRange(@Param("postId") Long postId, 
@@ -30,6 +30,10 @@ public interface BlogShareRepository extends JpaRepository<BlogShare, Long> {
     // Check if user shared post
     boolean existsByPostIdAndUserId(Long postId, Long userId);
     
+    // Post ids (out of the given ones) shared by user
+    @Query("SELECT DISTINCT bs.post.id FROM BlogShare bs WHERE bs.user.id = :userId AND bs.post.id IN :postIds")
+    List<Long> findSharedPostIds(@Param("userId") Long userId, @Param("postIds") java.util.Collection<Long> postIds);
+    
     // Check if user shared post on specific platform
     boolean existsByPostIdAndUserIdAndPlatform(Long postId, Long userId, String platform);
 }
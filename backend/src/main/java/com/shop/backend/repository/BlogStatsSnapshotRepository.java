@@ -0,0 +1,9 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.BlogStatsSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BlogStatsSnapshotRepository extends JpaRepository<BlogStatsSnapshot, Long> {
+}
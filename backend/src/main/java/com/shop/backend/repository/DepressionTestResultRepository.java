@@ -2,10 +2,12 @@ package com.shop.backend.repository;
 
 import com.shop.backend.model.DepressionTestResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DepressionTestResultRepository extends JpaRepository<DepressionTestResult, Long> {
@@ -14,6 +16,50 @@ public interface DepressionTestResultRepository extends JpaRepository<Depression
     List<DepressionTestResult> findAllByOrderByTestedAtDesc();
     long countBySeverityLevel(DepressionTestResult.SeverityLevel severityLevel);
     List<DepressionTestResult> findTop10ByOrderByTestedAtDesc();
+    Optional<DepressionTestResult> findByIdAndUserId(Long id, Long userId);
+
+    // Mức độ trầm cảm gần đây của mọi người dùng, theo người dùng rồi theo thời gian: [userId, severityLevel]
+    @Query("SELECT t.user.id, t.severityLevel FROM DepressionTestResult t WHERE t.testedAt >= :since " +
+           "ORDER BY t.user.id, t.testedAt")
+    List<Object[]> findSeverityHistorySince(@Param("since") java.time.LocalDateTime since);
+
+    // Mức độ trầm cảm gần đây của một người dùng, theo thời gian
+    @Query("SELECT t.severityLevel FROM DepressionTestResult t WHERE t.user.id = :userId AND t.testedAt >= :since " +
+           "ORDER BY t.testedAt")
+    List<DepressionTestResult.SeverityLevel> findSeverityHistoryOfUserSince(@Param("userId") Long userId,
+                                                                            @Param("since") java.time.LocalDateTime since);
+
+    // Kết quả chưa được AI phân tích quá lâu và không node nào đang giữ (job bị mất khi restart hoặc hàng đợi đầy)
+    @Query("SELECT t.id FROM DepressionTestResult t WHERE t.analysisStatus = 'PENDING' " +
+           "AND t.testedAt BETWEEN :from AND :to " +
+           "AND (t.analysisLockedUntil IS NULL OR t.analysisLockedUntil < :now) ORDER BY t.testedAt ASC")
+    List<Long> findClaimableAnalysisIds(@Param("from") java.time.LocalDateTime from,
+                                        @Param("to") java.time.LocalDateTime to,
+                                        @Param("now") java.time.LocalDateTime now,
+                                        org.springframework.data.domain.Pageable pageable);
+
+    // Nhận (hoặc gia hạn) việc phân tích; chỉ khi còn PENDING và chưa bị node khác giữ
+    @Modifying
+    @Query("UPDATE DepressionTestResult t SET t.analysisClaimToken = :token, t.analysisLockedUntil = :lockedUntil " +
+           "WHERE t.id = :id AND t.analysisStatus = 'PENDING' " +
+           "AND (t.analysisLockedUntil IS NULL OR t.analysisLockedUntil < :now OR t.analysisClaimToken = :token)")
+    int claimAnalysis(@Param("id") Long id,
+                      @Param("token") String token,
+                      @Param("lockedUntil") java.time.LocalDateTime lockedUntil,
+                      @Param("now") java.time.LocalDateTime now);
+
+    // Chỉ ghi đè khi kết quả vẫn PENDING, để hai job trùng nhau không gửi email hai lần
+    @Modifying
+    @Query("UPDATE DepressionTestResult t SET t.diagnosis = :diagnosis, t.severityLevel = :severityLevel, " +
+           "t.recommendation = :recommendation, t.analysisStatus = :analysisStatus, t.analyzedAt = :analyzedAt, " +
+           "t.analysisClaimToken = NULL, t.analysisLockedUntil = NULL " +
+           "WHERE t.id = :id AND t.analysisStatus = 'PENDING'")
+    int completeAnalysis(@Param("id") Long id,
+                         @Param("diagnosis") String diagnosis,
+                         @Param("severityLevel") DepressionTestResult.SeverityLevel severityLevel,
+                         @Param("recommendation") String recommendation,
+                         @Param("analysisStatus") DepressionTestResult.AnalysisStatus analysisStatus,
+                         @Param("analyzedAt") java.time.LocalDateTime analyzedAt);
 
     // Đếm tổng số test theo ngày
     @Query("SELECT DATE(t.testedAt) as date, COUNT(t) as count FROM DepressionTestResult t WHERE t.testedAt >= :from AND t.testedAt <= :to GROUP BY DATE(t.testedAt) ORDER BY date")
@@ -0,0 +1,83 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    
+    // Email đang chờ gửi đã đến hạn, cũ nhất trước
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now " +
+           "ORDER BY e.nextAttemptAt ASC")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    // Nhận một lô để gửi; chỉ những bản ghi còn PENDING, nên hai node không nhận trùng
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.claimToken = :token, e.lockedUntil = :lockedUntil " +
+           "WHERE e.id IN :ids AND e.status = 'PENDING'")
+    int claim(@Param("ids") Collection<Long> ids, @Param("status") EmailOutbox.Status status,
+              @Param("token") String token, @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    List<EmailOutbox> findByClaimTokenAndStatus(String claimToken, EmailOutbox.Status status);
+    
+    @Query("SELECT e.dedupKey FROM EmailOutbox e WHERE e.dedupKey IN :keys AND e.status IN :statuses")
+    List<String> findDedupKeysIn(@Param("keys") Collection<String> keys,
+                                 @Param("statuses") Collection<EmailOutbox.Status> statuses);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.sentAt = :at, e.claimToken = NULL, e.lockedUntil = NULL " +
+           "WHERE e.id IN :ids AND e.status = 'SENDING'")
+    int markDone(@Param("ids") Collection<Long> ids, @Param("status") EmailOutbox.Status status,
+                 @Param("at") LocalDateTime at);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.lastError = :lastError, e.claimToken = NULL, e.lockedUntil = NULL " +
+           "WHERE e.id = :id AND e.status = 'SENDING'")
+    int markFailed(@Param("id") Long id, @Param("status") EmailOutbox.Status status,
+                   @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+    
+    // Trả lô chưa gửi về hàng đợi ngay (node đang dừng)
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.claimToken = NULL, e.lockedUntil = NULL " +
+           "WHERE e.id IN :ids AND e.status = 'SENDING'")
+    int release(@Param("ids") Collection<Long> ids, @Param("status") EmailOutbox.Status status);
+    
+    // Lô bị bỏ dở (node dừng khi đang gửi): trả về hàng đợi
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.claimToken = NULL, e.lockedUntil = NULL " +
+           "WHERE e.status = 'SENDING' AND e.lockedUntil < :now")
+    int releaseExpiredClaims(@Param("status") EmailOutbox.Status status, @Param("now") LocalDateTime now);
+    
+    long countByStatus(EmailOutbox.Status status);
+    
+    long countByCampaignIdAndStatusIn(Long campaignId, Collection<EmailOutbox.Status> statuses);
+    
+    // Số email của một chiến dịch theo trạng thái: [status, count]
+    @Query("SELECT e.status, COUNT(e) FROM EmailOutbox e WHERE e.campaignId = :campaignId GROUP BY e.status")
+    List<Object[]> countByCampaignGroupedByStatus(@Param("campaignId") Long campaignId);
+    
+    // Khoảng thời gian gửi của một chiến dịch: [count, first sentAt, last sentAt]
+    @Query("SELECT COUNT(e), MIN(e.sentAt), MAX(e.sentAt) FROM EmailOutbox e " +
+           "WHERE e.campaignId = :campaignId AND e.status = 'SENT'")
+    List<Object[]> findSentWindow(@Param("campaignId") Long campaignId);
+    
+    // Hủy những email chưa gửi của một chiến dịch
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status WHERE e.campaignId = :campaignId AND e.status = 'PENDING'")
+    int skipPendingOfCampaign(@Param("campaignId") Long campaignId, @Param("status") EmailOutbox.Status status);
+    
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.status IN ('SENT', 'SKIPPED') AND e.createdAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
@@ -34,6 +34,19 @@ public interface ExpertBreakRepository extends JpaRepository<ExpertBreak, Long>
                                            @Param("startTime") LocalTime startTime,
                                            @Param("endTime") LocalTime endTime);
     
+    // Thời gian nghỉ từ một ngày trở đi, của một chuyên gia hoặc tất cả (expertId null):
+    // [expertId, id, breakDate, startTime, endTime]
+    @Query("SELECT eb.expert.id, eb.id, eb.breakDate, eb.startTime, eb.endTime FROM ExpertBreak eb " +
+           "WHERE eb.breakDate >= :from " +
+           "AND (:expertId IS NULL OR eb.expert.id = :expertId)")
+    List<Object[]> findBreakIntervalsFrom(@Param("expertId") Long expertId, @Param("from") LocalDate from);
+    
+    // Thời gian nghỉ của tất cả chuyên gia trong khoảng ngày: [expertId, id, breakDate, startTime, endTime]
+    @Query("SELECT eb.expert.id, eb.id, eb.breakDate, eb.startTime, eb.endTime FROM ExpertBreak eb " +
+           "WHERE eb.breakDate BETWEEN :startDate AND :endDate")
+    List<Object[]> findBreakIntervalsBetween(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+    
     // Tìm thời gian nghỉ định kỳ
     List<ExpertBreak> findByExpertAndIsRecurringTrue(User expert);
 }
@@ -1,6 +1,7 @@
 package com.shop.backend.repository;
 
 import com.shop.backend.model.ExpertSchedule;
+import com.shop.backend.model.Role;
 import com.shop.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -30,6 +31,12 @@ public interface ExpertScheduleRepository extends JpaRepository<ExpertSchedule,
     @Query("SELECT DISTINCT es.expert FROM ExpertSchedule es WHERE es.isAvailable = true")
     List<User> findAvailableExperts();
     
+    // Lịch làm việc đang mở của tất cả chuyên gia đang hoạt động, kèm thông tin chuyên gia
+    @Query("SELECT es FROM ExpertSchedule es JOIN FETCH es.expert e " +
+           "WHERE es.isAvailable = true AND e.role = :role AND e.status = :status")
+    List<ExpertSchedule> findAvailableSchedulesWithExpert(@Param("role") Role role,
+                                                          @Param("status") User.Status status);
+    
     // Tìm chuyên gia có lịch làm việc theo ngày cụ thể
     @Query("SELECT es FROM ExpertSchedule es WHERE es.expert.id = :expertId " +
            "AND es.dayOfWeek = :dayOfWeek AND es.isAvailable = true")
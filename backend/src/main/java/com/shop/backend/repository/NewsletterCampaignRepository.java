@@ -0,0 +1,61 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.NewsletterCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface NewsletterCampaignRepository extends JpaRepository<NewsletterCampaign, Long> {
+    
+    List<NewsletterCampaign> findTop20ByOrderByCreatedAtDesc();
+    
+    List<NewsletterCampaign> findByStatus(NewsletterCampaign.Status status);
+    
+    // Chiến dịch đang chạy mà không node nào giữ (node dừng giữa chừng)
+    @Query("SELECT c.id FROM NewsletterCampaign c WHERE c.status = 'RUNNING' " +
+           "AND (c.lockedUntil IS NULL OR c.lockedUntil < :now)")
+    List<Long> findOrphanedIds(@Param("now") LocalDateTime now);
+    
+    // Giữ (hoặc gia hạn) chiến dịch cho node này
+    @Modifying
+    @Query("UPDATE NewsletterCampaign c SET c.owner = :owner, c.lockedUntil = :lockedUntil " +
+           "WHERE c.id = :id AND c.status = 'RUNNING' " +
+           "AND (c.owner = :owner OR c.lockedUntil IS NULL OR c.lockedUntil < :now)")
+    int claim(@Param("id") Long id, @Param("owner") String owner,
+              @Param("lockedUntil") LocalDateTime lockedUntil, @Param("now") LocalDateTime now);
+    
+    // Lưu điểm dừng sau một đợt; 0 nếu chiến dịch đã bị hủy hoặc node khác đã nhận
+    @Modifying
+    @Query("UPDATE NewsletterCampaign c SET c.lastSubscriberId = :lastSubscriberId, " +
+           "c.queuedCount = c.queuedCount + :queued, c.skippedCount = c.skippedCount + :skipped, " +
+           "c.lockedUntil = :lockedUntil, c.lastError = NULL " +
+           "WHERE c.id = :id AND c.owner = :owner AND c.status = 'RUNNING'")
+    int checkpoint(@Param("id") Long id, @Param("owner") String owner,
+                   @Param("lastSubscriberId") Long lastSubscriberId, @Param("queued") long queued,
+                   @Param("skipped") long skipped, @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    @Modifying
+    @Query("UPDATE NewsletterCampaign c SET c.status = :status, c.queuedAt = :at, c.owner = NULL, c.lockedUntil = NULL " +
+           "WHERE c.id = :id AND c.owner = :owner AND c.status = 'RUNNING'")
+    int markQueued(@Param("id") Long id, @Param("owner") String owner,
+                   @Param("status") NewsletterCampaign.Status status, @Param("at") LocalDateTime at);
+    
+    // Trả chiến dịch lại sau lỗi để lần quét sau chạy tiếp
+    @Modifying
+    @Query("UPDATE NewsletterCampaign c SET c.owner = NULL, c.lockedUntil = NULL, c.lastError = :lastError " +
+           "WHERE c.id = :id AND c.owner = :owner")
+    int release(@Param("id") Long id, @Param("owner") String owner, @Param("lastError") String lastError);
+    
+    @Modifying
+    @Query("UPDATE NewsletterCampaign c SET c.status = :status, c.sentCount = :sent, c.failedCount = :failed, " +
+           "c.completedAt = :at, c.owner = NULL, c.lockedUntil = NULL " +
+           "WHERE c.id = :id AND c.status IN ('RUNNING', 'SENDING')")
+    int finish(@Param("id") Long id, @Param("status") NewsletterCampaign.Status status,
+               @Param("sent") long sent, @Param("failed") long failed, @Param("at") LocalDateTime at);
+}
@@ -1,7 +1,10 @@
 package com.shop.backend.repository;
 
 import com.shop.backend.model.NewsletterSubscription;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,5 +20,10 @@ public interface NewsletterSubscriptionRepository extends JpaRepository<Newslett
     Optional<NewsletterSubscription> findByVerificationToken(String token);
     
     long countByIsActiveTrueAndIsVerifiedTrue();
+    
+    // Người nhận bản tin theo từng trang, sau id đã xử lý: [id, email, firstName]
+    @Query("SELECT s.id, s.email, s.firstName FROM NewsletterSubscription s " +
+           "WHERE s.isActive = true AND s.isVerified = true AND s.id > :afterId ORDER BY s.id ASC")
+    List<Object[]> findRecipientsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
 
@@ -2,6 +2,7 @@ package com.shop.backend.repository;
 
 import com.shop.backend.model.PeerMatchPreferences;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,5 +17,10 @@ public interface PeerMatchPreferencesRepository extends JpaRepository<PeerMatchP
     
     // Find users with matching enabled
     List<PeerMatchPreferences> findByMatchingEnabledTrue();
+    
+    // Matching criteria of users with matching enabled: [userId, ageRangeMin, ageRangeMax, preferredGender, preferredLanguage, interests]
+    @Query("SELECT p.user.id, p.ageRangeMin, p.ageRangeMax, p.preferredGender, p.preferredLanguage, p.interests " +
+           "FROM PeerMatchPreferences p WHERE p.matchingEnabled = true")
+    List<Object[]> findMatchingCriteria();
 }
 
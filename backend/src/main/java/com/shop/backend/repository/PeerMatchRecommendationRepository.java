@@ -0,0 +1,36 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.PeerMatchRecommendation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PeerMatchRecommendationRepository extends JpaRepository<PeerMatchRecommendation, PeerMatchRecommendation.Key> {
+    
+    // Gợi ý của một người dùng, tốt nhất trước (một lần đọc theo khóa chính)
+    List<PeerMatchRecommendation> findByUserIdOrderByRankPositionAsc(Long userId);
+    
+    // Những người dùng đang có candidateId trong danh sách gợi ý
+    @Query("SELECT DISTINCT r.userId FROM PeerMatchRecommendation r WHERE r.candidateId = :candidateId")
+    List<Long> findUserIdsRecommending(@Param("candidateId") Long candidateId);
+    
+    // Điểm ở một thứ hạng của những người dùng này, nếu có đủ gợi ý: [userId, score] (tra theo khóa chính)
+    @Query("SELECT r.userId, r.score FROM PeerMatchRecommendation r WHERE r.rankPosition = :rankPosition AND r.userId IN :userIds")
+    List<Object[]> findScoresAtRank(@Param("rankPosition") Integer rankPosition, @Param("userIds") Collection<Long> userIds);
+    
+    @Modifying
+    @Query("DELETE FROM PeerMatchRecommendation r WHERE r.userId IN :userIds")
+    int deleteByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    // Gợi ý của những người dùng không còn được tính lại (đã tắt ghép cặp hoặc bị xóa)
+    @Modifying
+    @Query("DELETE FROM PeerMatchRecommendation r WHERE r.computedAt < :before")
+    int deleteComputedBefore(@Param("before") LocalDateTime before);
+}
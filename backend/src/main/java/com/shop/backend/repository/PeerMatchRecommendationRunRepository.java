@@ -0,0 +1,38 @@
+package com.shop.backend.repository;
+
+import com.shop.backend.model.PeerMatchRecommendationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PeerMatchRecommendationRunRepository extends JpaRepository<PeerMatchRecommendationRun, String> {
+    
+    // Nhận lượt chạy cho node này nếu không node nào giữ và chưa chạy xong sau completedAfter
+    @Modifying
+    @Query("UPDATE PeerMatchRecommendationRun r SET r.owner = :owner, r.lockedUntil = :lockedUntil " +
+           "WHERE r.job = :job AND (r.owner = :owner OR r.lockedUntil IS NULL OR r.lockedUntil < :now) " +
+           "AND (r.completedAt IS NULL OR r.completedAt < :completedAfter)")
+    int claim(@Param("job") String job, @Param("owner") String owner, @Param("lockedUntil") LocalDateTime lockedUntil,
+              @Param("now") LocalDateTime now, @Param("completedAfter") LocalDateTime completedAfter);
+    
+    // Gia hạn giữa chừng; 0 nếu lease đã hết và node khác đã nhận
+    @Modifying
+    @Query("UPDATE PeerMatchRecommendationRun r SET r.lockedUntil = :lockedUntil WHERE r.job = :job AND r.owner = :owner")
+    int renew(@Param("job") String job, @Param("owner") String owner, @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    @Modifying
+    @Query("UPDATE PeerMatchRecommendationRun r SET r.owner = NULL, r.lockedUntil = NULL, r.completedAt = :at " +
+           "WHERE r.job = :job AND r.owner = :owner")
+    int complete(@Param("job") String job, @Param("owner") String owner, @Param("at") LocalDateTime at);
+    
+    // Trả lượt chạy lại sau lỗi
+    @Modifying
+    @Query("UPDATE PeerMatchRecommendationRun r SET r.owner = NULL, r.lockedUntil = NULL " +
+           "WHERE r.job = :job AND r.owner = :owner")
+    int release(@Param("job") String job, @Param("owner") String owner);
+}
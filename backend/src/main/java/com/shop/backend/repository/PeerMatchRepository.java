@@ -49,6 +49,16 @@ public interface PeerMatchRepository extends JpaRepository<PeerMatch, Long> {
            "AND m.status IN ('PENDING', 'ACCEPTED', 'ACTIVE')")
     Optional<PeerMatch> findExistingMatch(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
     
+    // Users a user is already matched with (same statuses as findExistingMatch)
+    @Query("SELECT CASE WHEN m.user1.id = :userId THEN m.user2.id ELSE m.user1.id END FROM PeerMatch m " +
+           "WHERE (m.user1.id = :userId OR m.user2.id = :userId) " +
+           "AND m.status IN ('PENDING', 'ACCEPTED', 'ACTIVE')")
+    List<Long> findMatchedUserIds(@Param("userId") Long userId);
+    
+    // All pairs of users that are already matched (same statuses as findExistingMatch)
+    @Query("SELECT m.user1.id, m.user2.id FROM PeerMatch m WHERE m.status IN ('PENDING', 'ACCEPTED', 'ACTIVE')")
+    List<Object[]> findMatchedPairs();
+    
     // Count matches by status for a user
     @Query("SELECT COUNT(m) FROM PeerMatch m WHERE (m.user1.id = :userId OR m.user2.id = :userId) " +
            "AND m.status = :status")
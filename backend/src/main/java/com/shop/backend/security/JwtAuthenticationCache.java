@@ -0,0 +1,166 @@
+package com.shop.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * What JwtAuthenticationFilter needs per request, cached
+ *
+ * Verified tokens: SHA-256 of the token (the token itself is never kept) to its
+ * subject and expiry, node-local and dropped when the token expires. Whether a
+ * token's signature is valid never changes, so these are never invalidated.
+ *
+ * Principals: username to an immutable UserDetails without the password hash, in
+ * the "authPrincipals" cache from CacheConfig, so with cache.type=redis an
+ * eviction reaches every node. Call {@link #evictUser} whenever a user's role,
+ * status or password changes, or the user is deleted.
+ */
+@Slf4j
+@Component
+public class JwtAuthenticationCache {
+
+    public static final String PRINCIPALS_CACHE = "authPrincipals";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${jwt.token-cache.max-size:10000}")
+    private long maxTokens;
+
+    private Cache<String, VerifiedToken> tokens;
+
+    private org.springframework.cache.Cache principals;
+
+    /**
+     * Subject and expiry of a token whose signature was checked
+     */
+    public record VerifiedToken(String username, long expiresAtMillis) {
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAtMillis;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        tokens = Caffeine.newBuilder()
+            .maximumSize(maxTokens)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAtMillis() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, token, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+        principals = cacheManager.getCache(PRINCIPALS_CACHE);
+    }
+
+    /**
+     * The cached verification of this token, or the result of "verifier" (null if it rejects the token)
+     */
+    public VerifiedToken getVerifiedToken(String jwt, Function<String, VerifiedToken> verifier) {
+        String key = hash(jwt);
+        VerifiedToken cached = tokens.getIfPresent(key);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+        VerifiedToken verified = verifier.apply(jwt);
+        if (verified != null && !verified.isExpired()) {
+            tokens.put(key, verified);
+        }
+        return verified;
+    }
+
+    /**
+     * The cached principal for this username, or a password-less copy of what "loader" returns
+     */
+    public UserDetails getPrincipal(String username, Supplier<UserDetails> loader) {
+        if (principals == null) {
+            return withoutPassword(loader.get());
+        }
+        return principals.get(username, () -> withoutPassword(loader.get()));
+    }
+
+    /**
+     * Drop the cached principal under each name the user can log in with
+     */
+    public void evictUser(com.shop.backend.model.User user) {
+        evictUser(user.getEmail());
+        if (user.getId() != null) {
+            evictUser("anonymous_" + user.getId());
+        }
+    }
+
+    /**
+     * Drop the user's cached principal now and, inside a transaction, again after it commits
+     * (a request reading the user before the commit could otherwise cache the old state)
+     */
+    public void evictUser(String username) {
+        if (principals == null || username == null) {
+            return;
+        }
+        principals.evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principals.evict(username);
+                }
+            });
+        }
+        log.debug("Evicted cached principal for {}", username);
+    }
+
+    public long getCachedTokenCount() {
+        return tokens.estimatedSize();
+    }
+
+    private static UserDetails withoutPassword(UserDetails userDetails) {
+        return User.withUsername(userDetails.getUsername())
+            .password("")
+            .authorities(userDetails.getAuthorities())
+            .accountExpired(!userDetails.isAccountNonExpired())
+            .accountLocked(!userDetails.isAccountNonLocked())
+            .credentialsExpired(!userDetails.isCredentialsNonExpired())
+            .disabled(!userDetails.isEnabled())
+            .build();
+    }
+
+    private static String hash(String jwt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
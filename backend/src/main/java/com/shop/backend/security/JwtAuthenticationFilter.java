@@ -1,11 +1,13 @@
 package com.shop.backend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -14,6 +16,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.lang.NonNull;
 
 import java.io.IOException;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +27,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtService jwtService;
     @Autowired
     private UserDetailsService userDetailsService;
+    @Autowired
+    private JwtAuthenticationCache authenticationCache;
+
+    private static final List<SimpleGrantedAuthority> ANONYMOUS_AUTHORITIES =
+        List.of(new SimpleGrantedAuthority("ROLE_STUDENT"));
 
     @Override
     protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
@@ -37,58 +45,62 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         
-        final String jwt;
-        final String username;
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             // Skip authentication if no JWT token (let Spring Security handle it)
             filterChain.doFilter(request, response);
             return;
         }
-        jwt = authHeader.substring(7);
-        try {
-            username = jwtService.extractUsername(jwt);
-            logger.info("[JwtAuthFilter] Extracted username: {}", username);
-        } catch (Exception e) {
-            logger.error("[JwtAuthFilter] Failed to extract username from token: {}", e.getMessage());
+        final String jwt = authHeader.substring(7);
+
+        // At most one signature check per token while it is cached
+        JwtAuthenticationCache.VerifiedToken token = authenticationCache.getVerifiedToken(jwt, this::verify);
+        if (token == null || token.isExpired()) {
             filterChain.doFilter(request, response);
             return;
         }
+        final String username = token.username();
+
         // Luôn set lại authentication context nếu có JWT
-        if (username != null) {
-            try {
-                UserDetails userDetails;
-                
-                // Kiểm tra nếu là anonymous session
-                if (username.startsWith("anon_")) {
-                    // Tạo UserDetails ảo cho anonymous session
-                    userDetails = new org.springframework.security.core.userdetails.User(
-                        username, // sessionId
-                        "", // password rỗng
-                        java.util.Collections.singletonList(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_STUDENT"))
-                    );
-                    logger.info("[JwtAuthFilter] Anonymous session detected: {}", username);
-                } else {
-                    // Load user thật từ database
-                    userDetails = userDetailsService.loadUserByUsername(username);
-                    logger.info("[JwtAuthFilter] User {} authorities: {}", username, userDetails.getAuthorities());
-                }
-                
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    logger.info("[JwtAuthFilter] Token valid, authentication set for {} with authorities: {}", username, userDetails.getAuthorities());
-                } else {
-                    logger.warn("[JwtAuthFilter] Token invalid for user {}", username);
-                }
-            } catch (Exception e) {
-                logger.error("[JwtAuthFilter] Exception when loading user or validating token: {}", e.getMessage());
-                e.printStackTrace();
+        try {
+            UserDetails userDetails;
+            
+            // Kiểm tra nếu là anonymous session
+            if (username.startsWith("anon_")) {
+                // Tạo UserDetails ảo cho anonymous session
+                userDetails = new org.springframework.security.core.userdetails.User(
+                    username, // sessionId
+                    "", // password rỗng
+                    ANONYMOUS_AUTHORITIES
+                );
+            } else {
+                // Load user thật từ database, cached until the user changes
+                userDetails = authenticationCache.getPrincipal(username, () -> userDetailsService.loadUserByUsername(username));
+            }
+            
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities()
+            );
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (logger.isDebugEnabled()) {
+                logger.debug("[JwtAuthFilter] Authentication set for {} with authorities: {}", username, userDetails.getAuthorities());
             }
-        } else {
-            logger.warn("[JwtAuthFilter] Username null");
+        } catch (Exception e) {
+            logger.warn("[JwtAuthFilter] Could not load user {}: {}", username, e.getMessage());
         }
         filterChain.doFilter(request, response);
     }
-} 
\ No newline at end of file
+
+    private JwtAuthenticationCache.VerifiedToken verify(String jwt) {
+        try {
+            Claims claims = jwtService.parseClaims(jwt);
+            if (claims.getSubject() == null || claims.getExpiration() == null) {
+                logger.debug("[JwtAuthFilter] Token without subject or expiry");
+                return null;
+            }
+            return new JwtAuthenticationCache.VerifiedToken(claims.getSubject(), claims.getExpiration().getTime());
+        } catch (Exception e) {
+            logger.debug("[JwtAuthFilter] Invalid token: {}", e.getMessage());
+            return null;
+        }
+    }
+}
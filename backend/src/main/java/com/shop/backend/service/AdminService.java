@@ -4,6 +4,7 @@ import com.shop.backend.model.*;
 import com.shop.backend.repository.*;
 import com.shop.backend.dto.depression.DepressionTestResultDTO;
 import com.shop.backend.dto.depression.CreateQuestionRequest;
+import com.shop.backend.security.JwtAuthenticationCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,6 +41,12 @@ public class AdminService {
     @Autowired
     private AdviceMessageRepository adviceMessageRepository;
     
+    @Autowired
+    private QuestionCatalogService questionCatalogService;
+    
+    @Autowired
+    private JwtAuthenticationCache jwtAuthenticationCache;
+    
     // Quản lý người dùng
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -54,6 +61,7 @@ public class AdminService {
         return userRepository.findById(userId)
             .map(user -> {
                 user.setStatus(User.Status.valueOf(status.toUpperCase()));
+                jwtAuthenticationCache.evictUser(user);
                 return userRepository.save(user);
             })
             .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng"));
@@ -64,6 +72,7 @@ public class AdminService {
         return userRepository.findById(userId)
             .map(user -> {
                 user.setRole(role);
+                jwtAuthenticationCache.evictUser(user);
                 return userRepository.save(user);
             })
             .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng"));
@@ -168,6 +177,8 @@ public class AdminService {
         
         questionVi = questionViRepository.save(questionVi);
         
+        questionCatalogService.refreshAfterCommit();
+        
         // Trả về câu hỏi tiếng Việt làm câu hỏi chính
         DepressionQuestion result = new DepressionQuestion();
         result.setId(questionVi.getId());
@@ -229,6 +240,8 @@ public class AdminService {
             }
         }
         
+        questionCatalogService.refreshAfterCommit();
+        
         // Trả về câu hỏi tiếng Việt làm câu hỏi chính
         DepressionQuestion question = new DepressionQuestion();
         question.setId(questionVi.getId());
@@ -252,6 +265,8 @@ public class AdminService {
         questionVi.setIsActive(questionDetails.getIsActive());
         questionVi = questionViRepository.save(questionVi);
         
+        questionCatalogService.refreshAfterCommit();
+        
         // Trả về câu hỏi tiếng Việt làm câu hỏi chính
         DepressionQuestion result = new DepressionQuestion();
         result.setId(questionVi.getId());
@@ -346,6 +361,8 @@ public class AdminService {
             }
         }
         
+        questionCatalogService.refreshAfterCommit();
+        
         // Trả về câu hỏi tiếng Việt làm câu hỏi chính
         DepressionQuestion result = new DepressionQuestion();
         result.setId(questionVi.getId());
@@ -363,6 +380,7 @@ public class AdminService {
     public void deleteQuestion(Long questionId) {
         questionViRepository.deleteById(questionId);
         questionEnRepository.deleteById(questionId);
+        questionCatalogService.refreshAfterCommit();
     }
     
     @Transactional
@@ -378,6 +396,8 @@ public class AdminService {
                 question.setIsActive(!question.getIsActive());
                 questionEnRepository.save(question);
             });
+        
+        questionCatalogService.refreshAfterCommit();
     }
     
     // Quản lý thông báo hệ thống
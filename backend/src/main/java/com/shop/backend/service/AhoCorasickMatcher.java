@@ -0,0 +1,210 @@
+package com.shop.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Multi-keyword matcher (Aho–Corasick) with regex-style word boundaries
+ *
+ * Built once from an ordered keyword list and immutable afterwards, so one instance
+ * can be shared by all request threads. {@link #findAll(String)} walks the text once
+ * and returns the same matches as find() on "\b(k1|k2|...)\b": leftmost match first,
+ * the earliest keyword in the list wins when several start at the same position,
+ * and scanning resumes after each match. Word boundaries follow java.util.regex on
+ * Java 17 (letters, digits and '_' are word characters).
+ */
+public final class AhoCorasickMatcher {
+
+    /**
+     * One keyword occurrence; end is exclusive
+     */
+    public record Match(int start, int end, String keyword) {
+    }
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final String[] keywords;
+
+    // Per state: sorted outgoing labels and their targets
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] failure;
+
+    // Keyword ending exactly at this state (-1 if none) and the nearest suffix state that ends one
+    private final int[] keywordAt;
+    private final int[] outputLink;
+
+    private AhoCorasickMatcher(String[] keywords, char[][] labels, int[][] targets,
+                               int[] failure, int[] keywordAt, int[] outputLink) {
+        this.keywords = keywords;
+        this.labels = labels;
+        this.targets = targets;
+        this.failure = failure;
+        this.keywordAt = keywordAt;
+        this.outputLink = outputLink;
+    }
+
+    /**
+     * Build the automaton; a keyword's position in the list is its priority
+     */
+    public static AhoCorasickMatcher build(List<String> keywordList) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(-1);
+
+        String[] keywords = keywordList.toArray(new String[0]);
+        for (int k = 0; k < keywords.length; k++) {
+            String keyword = keywords[k];
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = trie.get(state).get(keyword.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    terminal.add(-1);
+                    trie.get(state).put(keyword.charAt(i), next);
+                }
+                state = next;
+            }
+            // Duplicates keep the higher-priority (earlier) keyword
+            if (terminal.get(state) < 0) {
+                terminal.set(state, k);
+            }
+        }
+
+        int size = trie.size();
+        char[][] labels = new char[size][];
+        int[][] targets = new int[size][];
+        int[] keywordAt = new int[size];
+        for (int s = 0; s < size; s++) {
+            Map<Character, Integer> edges = trie.get(s);
+            labels[s] = edges.isEmpty() ? NO_LABELS : new char[edges.size()];
+            targets[s] = edges.isEmpty() ? NO_TARGETS : new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                labels[s][i] = edge.getKey();
+                targets[s][i] = edge.getValue();
+                i++;
+            }
+            keywordAt[s] = terminal.get(s);
+        }
+
+        // Breadth-first failure links
+        int[] failure = new int[size];
+        int[] outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                char c = labels[state][i];
+                int child = targets[state][i];
+                int f = failure[state];
+                while (f > 0 && step(labels, targets, f, c) < 0) {
+                    f = failure[f];
+                }
+                int viaFailure = step(labels, targets, f, c);
+                failure[child] = viaFailure >= 0 && viaFailure != child ? viaFailure : 0;
+                outputLink[child] = keywordAt[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasickMatcher(keywords, labels, targets, failure, keywordAt, outputLink);
+    }
+
+    /**
+     * All non-overlapping keyword matches bounded by word boundaries, in text order
+     */
+    public List<Match> findAll(String text) {
+        List<int[]> candidates = null;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next = step(labels, targets, state, c);
+            while (next < 0 && state > 0) {
+                state = failure[state];
+                next = step(labels, targets, state, c);
+            }
+            state = Math.max(next, 0);
+
+            for (int s = keywordAt[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int keyword = keywordAt[s];
+                int end = i + 1;
+                int start = end - keywords[keyword].length();
+                if (isBoundary(text, start) && isBoundary(text, end)) {
+                    if (candidates == null) {
+                        candidates = new ArrayList<>();
+                    }
+                    candidates.add(new int[] {start, keyword});
+                }
+            }
+        }
+        if (candidates == null) {
+            return List.of();
+        }
+
+        // Leftmost start first, then keyword priority; skip anything overlapping the previous pick
+        candidates.sort(Comparator.<int[]>comparingInt(candidate -> candidate[0])
+            .thenComparingInt(candidate -> candidate[1]));
+        List<Match> matches = new ArrayList<>();
+        int resumeAt = 0;
+        for (int[] candidate : candidates) {
+            if (candidate[0] >= resumeAt) {
+                String keyword = keywords[candidate[1]];
+                matches.add(new Match(candidate[0], candidate[0] + keyword.length(), keyword));
+                resumeAt = candidate[0] + keyword.length();
+            }
+        }
+        return matches;
+    }
+
+    private static int step(char[][] labels, int[][] targets, int state, char c) {
+        int i = Arrays.binarySearch(labels[state], c);
+        return i >= 0 ? targets[state][i] : -1;
+    }
+
+    /**
+     * Same test as the \b node in java.util.regex.Pattern
+     */
+    private static boolean isBoundary(String text, int index) {
+        boolean left = index > 0 && isWordCharacter(text, Character.codePointBefore(text, index),
+            index - Character.charCount(Character.codePointBefore(text, index)));
+        boolean right = index < text.length() && isWordCharacter(text, Character.codePointAt(text, index), index);
+        return left != right;
+    }
+
+    private static boolean isWordCharacter(String text, int codePoint, int index) {
+        if (codePoint == '_' || Character.isLetterOrDigit(codePoint)) {
+            return true;
+        }
+        return Character.getType(codePoint) == Character.NON_SPACING_MARK && hasBaseCharacter(text, index);
+    }
+
+    private static boolean hasBaseCharacter(String text, int index) {
+        for (int i = index; i >= 0; i--) {
+            int codePoint = Character.codePointAt(text, i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                return true;
+            }
+            if (Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -5,10 +5,7 @@ import com.shop.backend.model.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import jakarta.mail.internet.MimeMessage;
 
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
@@ -18,7 +15,7 @@ import java.util.Locale;
 @Slf4j
 public class AppointmentEmailService {
     
-    private final JavaMailSender mailSender;
+    private final EmailOutboxService emailOutboxService;
     
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
@@ -34,21 +31,15 @@ public class AppointmentEmailService {
             String studentName = getFullName(student);
             String expertName = getFullName(expert);
             
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(student.getEmail());
-            helper.setSubject("[MindMeter] Xác nhận đặt lịch hẹn với chuyên gia");
-            
             String html = generateBookingConfirmationEmailForStudent(
                 studentName, 
                 expertName, 
                 appointment
             );
-            helper.setText(html, true);
             
-            mailSender.send(message);
-            log.info("Đã gửi email xác nhận đặt lịch cho học sinh: {}", student.getEmail());
+            emailOutboxService.enqueue(student.getEmail(), "[MindMeter] Xác nhận đặt lịch hẹn với chuyên gia", html,
+                "appointment:" + appointment.getId() + ":booked:student");
+            log.info("Đã đưa email xác nhận đặt lịch cho học sinh vào hàng đợi: {}", student.getEmail());
             
         } catch (Exception e) {
             log.error("Lỗi khi gửi email xác nhận đặt lịch cho học sinh: {}", e.getMessage(), e);
@@ -67,22 +58,16 @@ public class AppointmentEmailService {
             String studentName = getFullName(student);
             String expertName = getFullName(expert);
             
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(expert.getEmail());
-            helper.setSubject("[MindMeter] Thông báo: Có lịch hẹn mới cần xác nhận");
-            
             String html = generateBookingNotificationEmailForExpert(
                 expertName, 
                 studentName, 
                 appointment,
                 frontendUrl
             );
-            helper.setText(html, true);
             
-            mailSender.send(message);
-            log.info("Đã gửi email thông báo đặt lịch cho chuyên gia: {}", expert.getEmail());
+            emailOutboxService.enqueue(expert.getEmail(), "[MindMeter] Thông báo: Có lịch hẹn mới cần xác nhận", html,
+                "appointment:" + appointment.getId() + ":booked:expert");
+            log.info("Đã đưa email thông báo đặt lịch cho chuyên gia vào hàng đợi: {}", expert.getEmail());
             
         } catch (Exception e) {
             log.error("Lỗi khi gửi email thông báo đặt lịch cho chuyên gia: {}", e.getMessage(), e);
@@ -101,21 +86,15 @@ public class AppointmentEmailService {
             String studentName = getFullName(student);
             String expertName = getFullName(expert);
             
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(student.getEmail());
-            helper.setSubject("[MindMeter] Lịch hẹn của bạn đã được xác nhận");
-            
             String html = generateConfirmationEmailForStudent(
                 studentName, 
                 expertName, 
                 appointment
             );
-            helper.setText(html, true);
             
-            mailSender.send(message);
-            log.info("Đã gửi email xác nhận lịch hẹn cho học sinh: {}", student.getEmail());
+            emailOutboxService.enqueue(student.getEmail(), "[MindMeter] Lịch hẹn của bạn đã được xác nhận", html,
+                "appointment:" + appointment.getId() + ":confirmed:student");
+            log.info("Đã đưa email xác nhận lịch hẹn cho học sinh vào hàng đợi: {}", student.getEmail());
             
         } catch (Exception e) {
             log.error("Lỗi khi gửi email xác nhận lịch hẹn cho học sinh: {}", e.getMessage(), e);
@@ -134,22 +113,16 @@ public class AppointmentEmailService {
             String studentName = getFullName(student);
             String expertName = getFullName(expert);
             
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(expert.getEmail());
-            helper.setSubject("[MindMeter] Xác nhận: Lịch hẹn đã được xác nhận thành công");
-            
             String html = generateConfirmationEmailForExpert(
                 expertName, 
                 studentName, 
                 appointment,
                 frontendUrl
             );
-            helper.setText(html, true);
             
-            mailSender.send(message);
-            log.info("Đã gửi email xác nhận lịch hẹn cho chuyên gia: {}", expert.getEmail());
+            emailOutboxService.enqueue(expert.getEmail(), "[MindMeter] Xác nhận: Lịch hẹn đã được xác nhận thành công", html,
+                "appointment:" + appointment.getId() + ":confirmed:expert");
+            log.info("Đã đưa email xác nhận lịch hẹn cho chuyên gia vào hàng đợi: {}", expert.getEmail());
             
         } catch (Exception e) {
             log.error("Lỗi khi gửi email xác nhận lịch hẹn cho chuyên gia: {}", e.getMessage(), e);
@@ -1,103 +1,377 @@
 package com.shop.backend.service;
 
 import com.shop.backend.model.Appointment;
+import com.shop.backend.model.AppointmentReminder;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.AppointmentReminderRepository;
 import com.shop.backend.repository.AppointmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+/**
+ * Appointment reminders by email, SMS and WebSocket, driven by the
+ * appointment_reminders table
+ *
+ * A row per appointment and offset (24h and 1h before by default) is written when
+ * the appointment is confirmed; a keyset-paged backfill adds the rows of confirmed
+ * appointments that have none. Each poll locks a batch of due rows with
+ * SELECT ... FOR UPDATE SKIP LOCKED, reading appointment, student and expert in the
+ * same query, and marks them SENDING under a lease, so replicas take disjoint
+ * batches. The missing channels of the whole batch are then sent in parallel on a
+ * bounded pool. Each row records which channels are done, so a retry, or a batch
+ * taken over after its node died, only sends the others. A reminder is SKIPPED when
+ * its appointment is no longer confirmed or has already started.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AppointmentReminderService {
-    
+
+    enum Channel {
+        EMAIL, SMS, PUSH
+    }
+
+    private final AppointmentReminderRepository reminderRepository;
     private final AppointmentRepository appointmentRepository;
     private final EmailNotificationService emailNotificationService;
     private final SmsService smsService;
     private final NotificationService notificationService;
-    
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${appointments.reminders.enabled:true}")
+    private boolean enabled;
+
+    @Value("${appointments.reminders.hours-before:24,1}")
+    private int[] hoursBefore;
+
+    @Value("${appointments.reminders.batch-size:50}")
+    private int batchSize;
+
+    @Value("${appointments.reminders.threads:8}")
+    private int threads;
+
+    @Value("${appointments.reminders.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${appointments.reminders.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${appointments.reminders.retry-ms:120000}")
+    private long retryMs;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService executor;
+
     /**
-     * Send reminders 24 hours before appointment
-     * Runs every hour
+     * A locked reminder, with the appointment and users its channels need
      */
-    @Scheduled(cron = "0 0 * * * ?") // Every hour at minute 0
-    public void send24HourReminders() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime targetTime = now.plusHours(24);
-        LocalDateTime startTime = targetTime.minusMinutes(30);
-        LocalDateTime endTime = targetTime.plusMinutes(30);
-        
-        List<Appointment> appointments = appointmentRepository.findUpcomingAppointments(
-            startTime, 
-            endTime, 
-            Appointment.AppointmentStatus.CONFIRMED
-        );
-        
-        for (Appointment appointment : appointments) {
-            try {
-                // Send email reminder
-                emailNotificationService.sendAppointmentReminderEmail(appointment, 24);
-                
-                // Send SMS reminder
-                smsService.sendAppointmentReminder(appointment, 24);
-                
-                // Send WebSocket notification
-                notificationService.sendAppointmentNotification(
-                    appointment.getStudent().getId(),
-                    String.format("Nhắc nhở: Bạn có lịch hẹn sau 24 giờ với %s", 
-                        appointment.getExpert().getFullName())
-                );
-                
-                log.info("24-hour reminder sent for appointment {}", appointment.getId());
-            } catch (Exception e) {
-                log.error("Failed to send 24-hour reminder for appointment {}: {}", 
-                    appointment.getId(), e.getMessage(), e);
+    static final class Job {
+        final Long reminderId;
+        final int hoursBefore;
+        final int attempts;
+        final Appointment appointment;
+        final boolean confirmed;
+        final Map<Channel, LocalDateTime> done = new EnumMap<>(Channel.class);
+        final Map<Channel, String> errors = new EnumMap<>(Channel.class);
+
+        Job(Object[] row) {
+            reminderId = toLong(row[0]);
+            hoursBefore = ((Number) row[2]).intValue();
+            attempts = ((Number) row[3]).intValue();
+            putIfSent(Channel.EMAIL, row[4]);
+            putIfSent(Channel.SMS, row[5]);
+            putIfSent(Channel.PUSH, row[6]);
+            confirmed = Appointment.AppointmentStatus.CONFIRMED.name().equals(String.valueOf(row[8]));
+
+            User student = new User();
+            student.setId(toLong(row[9]));
+            student.setEmail((String) row[10]);
+            student.setFirstName((String) row[11]);
+            student.setLastName((String) row[12]);
+            student.setPhone((String) row[13]);
+            User expert = new User();
+            expert.setId(toLong(row[14]));
+            expert.setFirstName((String) row[15]);
+            expert.setLastName((String) row[16]);
+            appointment = new Appointment();
+            appointment.setId(toLong(row[1]));
+            appointment.setAppointmentDate(toDateTime(row[7]));
+            appointment.setStudent(student);
+            appointment.setExpert(expert);
+        }
+
+        private void putIfSent(Channel channel, Object sentAt) {
+            if (sentAt != null) {
+                done.put(channel, toDateTime(sentAt));
             }
         }
     }
-    
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "appointment-reminder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        // A batch still being sent is released after its lease
+        executor.shutdownNow();
+    }
+
+    /**
+     * Add the reminders of a newly confirmed appointment, in the caller's transaction
+     */
+    public void scheduleReminders(Appointment appointment) {
+        Set<Integer> existing = reminderRepository.findByAppointmentId(appointment.getId()).stream()
+            .map(AppointmentReminder::getHoursBefore)
+            .collect(Collectors.toSet());
+        List<AppointmentReminder> reminders = plan(appointment.getId(), appointment.getAppointmentDate(), LocalDateTime.now())
+            .stream()
+            .filter(reminder -> !existing.contains(reminder.getHoursBefore()))
+            .toList();
+        reminderRepository.saveAll(reminders);
+    }
+
+    /**
+     * Send the reminders that are due, a batch at a time; the next run starts only
+     * after this one has finished
+     */
+    @Scheduled(fixedDelayString = "${appointments.reminders.poll-interval-ms:60000}")
+    public void sendDueReminders() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> reminderRepository.releaseExpiredClaims(
+                AppointmentReminder.Status.PENDING, LocalDateTime.now()));
+            int batch;
+            do {
+                batch = dispatchBatch();
+            } while (batch == batchSize);
+        } catch (Exception e) {
+            log.error("Appointment reminder run failed", e);
+        }
+    }
+
     /**
-     * Send reminders 1 hour before appointment
-     * Runs every 15 minutes
+     * Add reminders for confirmed upcoming appointments that have none (confirmed
+     * before reminders were recorded, or whose insert was lost), paging by id
      */
-    @Scheduled(cron = "0 */15 * * * ?") // Every 15 minutes
-    public void send1HourReminders() {
+    @Scheduled(fixedDelayString = "${appointments.reminders.backfill-interval-ms:600000}",
+               initialDelayString = "${appointments.reminders.poll-interval-ms:60000}")
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plusHours(Arrays.stream(hoursBefore).max().orElse(0) + 1);
+            long afterId = 0;
+            int added = 0;
+            while (true) {
+                List<Object[]> page = appointmentRepository.findConfirmedWithoutReminders(
+                    now, until, afterId, PageRequest.of(0, batchSize));
+                List<AppointmentReminder> reminders = new ArrayList<>();
+                for (Object[] row : page) {
+                    reminders.addAll(plan((Long) row[0], (LocalDateTime) row[1], now));
+                }
+                if (!reminders.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> reminderRepository.saveAll(reminders));
+                    added += reminders.size();
+                }
+                if (page.size() < batchSize) {
+                    break;
+                }
+                afterId = (Long) page.get(page.size() - 1)[0];
+            }
+            if (added > 0) {
+                log.info("Backfilled {} appointment reminders", added);
+            }
+        } catch (Exception e) {
+            log.error("Appointment reminder backfill failed", e);
+        }
+    }
+
+    /**
+     * Lock, send and record one batch of due reminders; package-private for tests
+     *
+     * @return number of reminders in the batch, 0 when none was due
+     */
+    int dispatchBatch() {
+        String token = UUID.randomUUID().toString();
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime targetTime = now.plusHours(1);
-        LocalDateTime startTime = targetTime.minusMinutes(10);
-        LocalDateTime endTime = targetTime.plusMinutes(10);
-        
-        List<Appointment> appointments = appointmentRepository.findUpcomingAppointments(
-            startTime, 
-            endTime, 
-            Appointment.AppointmentStatus.CONFIRMED
-        );
-        
-        for (Appointment appointment : appointments) {
+        List<Job> jobs = transactionTemplate.execute(status -> {
+            List<Object[]> rows = reminderRepository.lockDue(now, batchSize);
+            if (rows.isEmpty()) {
+                return List.<Job>of();
+            }
+            List<Job> locked = rows.stream().map(Job::new).toList();
+            reminderRepository.claim(locked.stream().map(job -> job.reminderId).toList(),
+                AppointmentReminder.Status.SENDING, token, now.plus(Duration.ofMillis(leaseMs)));
+            return locked;
+        });
+        if (jobs == null || jobs.isEmpty()) {
+            return 0;
+        }
+
+        // Every missing channel of every reminder in the batch at once
+        Map<Job, Map<Channel, CompletableFuture<Void>>> sends = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            if (!job.confirmed || !job.appointment.getAppointmentDate().isAfter(now)) {
+                continue;
+            }
+            Map<Channel, CompletableFuture<Void>> channels = new EnumMap<>(Channel.class);
+            for (Channel channel : Channel.values()) {
+                if (!job.done.containsKey(channel)) {
+                    channels.put(channel, CompletableFuture.runAsync(() -> send(job, channel), executor));
+                }
+            }
+            sends.put(job, channels);
+        }
+
+        // Wait for them within half the lease, so results are recorded before it runs out
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseMs / 2);
+        sends.forEach((job, channels) -> channels.forEach((channel, future) -> {
             try {
-                // Send email reminder
-                emailNotificationService.sendAppointmentReminderEmail(appointment, 1);
-                
-                // Send SMS reminder
-                smsService.sendAppointmentReminder(appointment, 1);
-                
-                // Send WebSocket notification
-                notificationService.sendAppointmentNotification(
-                    appointment.getStudent().getId(),
-                    String.format("Nhắc nhở: Lịch hẹn của bạn với %s sẽ bắt đầu sau 1 giờ", 
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                job.done.put(channel, LocalDateTime.now());
+            } catch (ExecutionException e) {
+                job.errors.put(channel, String.valueOf(e.getCause().getMessage()));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                job.errors.put(channel, "timed out");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.errors.put(channel, "interrupted");
+            }
+        }));
+
+        transactionTemplate.executeWithoutResult(status -> jobs.forEach(job -> record(job, token)));
+        log.info("Processed {} appointment reminders", jobs.size());
+        return jobs.size();
+    }
+
+    /**
+     * Reminders still worth sending for an appointment at the given date
+     */
+    List<AppointmentReminder> plan(Long appointmentId, LocalDateTime appointmentDate, LocalDateTime now) {
+        List<AppointmentReminder> reminders = new ArrayList<>();
+        if (!appointmentDate.isAfter(now)) {
+            return reminders;
+        }
+        int closest = Arrays.stream(hoursBefore).min().orElse(0);
+        for (int hours : hoursBefore) {
+            LocalDateTime dueAt = appointmentDate.minusHours(hours);
+            if (dueAt.isBefore(now)) {
+                // Too late for this one; the closest reminder still goes out right away
+                if (hours != closest) {
+                    continue;
+                }
+                dueAt = now;
+            }
+            AppointmentReminder reminder = new AppointmentReminder();
+            reminder.setAppointmentId(appointmentId);
+            reminder.setHoursBefore(hours);
+            reminder.setDueAt(dueAt);
+            reminder.setStatus(AppointmentReminder.Status.PENDING);
+            reminders.add(reminder);
+        }
+        return reminders;
+    }
+
+    private void send(Job job, Channel channel) {
+        Appointment appointment = job.appointment;
+        switch (channel) {
+            case EMAIL -> emailNotificationService.sendAppointmentReminderEmail(appointment, job.hoursBefore);
+            case SMS -> smsService.sendAppointmentReminder(appointment, job.hoursBefore);
+            case PUSH -> notificationService.sendAppointmentNotification(
+                appointment.getStudent().getId(),
+                job.hoursBefore == 1
+                    ? String.format("Nhắc nhở: Lịch hẹn của bạn với %s sẽ bắt đầu sau 1 giờ",
                         appointment.getExpert().getFullName())
-                );
-                
-                log.info("1-hour reminder sent for appointment {}", appointment.getId());
-            } catch (Exception e) {
-                log.error("Failed to send 1-hour reminder for appointment {}: {}", 
-                    appointment.getId(), e.getMessage(), e);
+                    : String.format("Nhắc nhở: Bạn có lịch hẹn sau %d giờ với %s",
+                        job.hoursBefore, appointment.getExpert().getFullName()));
+        }
+    }
+
+    private void record(Job job, String token) {
+        LocalDateTime now = LocalDateTime.now();
+        AppointmentReminder.Status status;
+        int attempts = job.attempts;
+        LocalDateTime dueAt = now;
+        String lastError = null;
+        LocalDateTime completedAt = now;
+        if (!job.confirmed || !job.appointment.getAppointmentDate().isAfter(now)) {
+            status = AppointmentReminder.Status.SKIPPED;
+        } else if (job.done.size() == Channel.values().length) {
+            status = AppointmentReminder.Status.SENT;
+        } else {
+            attempts++;
+            lastError = job.errors.toString();
+            if (lastError.length() > 1000) {
+                lastError = lastError.substring(0, 1000);
+            }
+            if (attempts >= maxAttempts) {
+                status = AppointmentReminder.Status.FAILED;
+                log.error("Reminder {} of appointment {} failed: {}", job.reminderId, job.appointment.getId(), lastError);
+            } else {
+                status = AppointmentReminder.Status.PENDING;
+                dueAt = now.plus(Duration.ofMillis(retryMs * attempts));
+                completedAt = null;
+                log.warn("Reminder {} of appointment {} retried later: {}", job.reminderId, job.appointment.getId(), lastError);
             }
         }
+        if (reminderRepository.record(job.reminderId, token, status, attempts, dueAt,
+                job.done.get(Channel.EMAIL), job.done.get(Channel.SMS), job.done.get(Channel.PUSH),
+                lastError, completedAt) == 0) {
+            log.warn("Reminder {} was released before its result was recorded", job.reminderId);
+        }
     }
-}
 
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    // Native queries may return Timestamp or LocalDateTime depending on the driver
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
@@ -6,8 +6,6 @@ import com.shop.backend.dto.auth.appointment.AvailableSlotRequest;
 import com.shop.backend.dto.auth.appointment.AvailableSlotResponse;
 import com.shop.backend.model.Appointment;
 import com.shop.backend.model.AppointmentHistory;
-import com.shop.backend.model.ExpertBreak;
-import com.shop.backend.model.ExpertSchedule;
 import com.shop.backend.model.User;
 import com.shop.backend.repository.AppointmentHistoryRepository;
 import com.shop.backend.repository.AppointmentRepository;
@@ -22,7 +20,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 import com.shop.backend.model.Role;
 
@@ -39,6 +36,8 @@ public class AppointmentService {
     private final AppointmentHistoryRepository appointmentHistoryRepository;
     private final MeetingLinkService meetingLinkService;
     private final com.shop.backend.service.NotificationService notificationService;
+    private final ExpertOccupancyIndex expertOccupancyIndex;
+    private final AppointmentReminderService appointmentReminderService;
     
     /**
      * Tạo lịch hẹn mới
@@ -62,18 +61,10 @@ public class AppointmentService {
             throw new RuntimeException("Người dùng này không phải là chuyên gia");
         }
         
-        // Kiểm tra xem slot thời gian có khả dụng không
-        log.info("Kiểm tra slot khả dụng cho expert {} tại thời gian {} với thời lượng {} phút", 
-                request.getExpertId(), request.getAppointmentDate(), request.getDurationMinutes()); // Debug log
-        
-        if (!isTimeSlotAvailable(request.getExpertId(), request.getAppointmentDate(), 
-                               request.getDurationMinutes())) {
-            log.info("Slot không khả dụng, throw exception"); // Debug log
-            throw new RuntimeException("Slot thời gian này không khả dụng");
+        if (request.getAppointmentDate().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Không thể đặt lịch vào thời gian trong quá khứ");
         }
         
-        log.info("Slot khả dụng, tiếp tục tạo lịch hẹn"); // Debug log
-        
         // Tạo lịch hẹn mới
         Appointment appointment = new Appointment();
         appointment.setStudent(student);
@@ -93,7 +84,13 @@ public class AppointmentService {
         
         appointment.setStatus(Appointment.AppointmentStatus.PENDING);
         
-        Appointment savedAppointment = appointmentRepository.save(appointment);
+        // Kiểm tra trùng lịch và lưu dưới khóa của chuyên gia, hai yêu cầu cùng slot không thể cùng thành công
+        Appointment savedAppointment = expertOccupancyIndex.book(expert.getId(), request.getAppointmentDate(),
+                request.getDurationMinutes(), () -> appointmentRepository.save(appointment));
+        if (savedAppointment == null) {
+            log.info("Slot không khả dụng cho expert {} tại {}", expert.getId(), request.getAppointmentDate());
+            throw new RuntimeException("Slot thời gian này không khả dụng");
+        }
         
         // Ghi log lịch sử tạo lịch hẹn
         try {
@@ -167,6 +164,8 @@ public class AppointmentService {
         }
         
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        expertOccupancyIndex.track(savedAppointment);
+        appointmentReminderService.scheduleReminders(savedAppointment);
         
         // Ghi log lịch sử xác nhận lịch hẹn
         try {
@@ -228,6 +227,7 @@ public class AppointmentService {
         appointment.setCancelledBy(cancelledBy);
         
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        expertOccupancyIndex.release(savedAppointment);
         
         // Ghi log lịch sử hủy lịch hẹn
         try {
@@ -251,51 +251,25 @@ public class AppointmentService {
         
         List<AvailableSlotResponse.TimeSlot> availableSlots = new ArrayList<>();
         
-        LocalDate currentDate = request.getStartDate();
+        LocalDate startDate = request.getStartDate();
         LocalDate endDate = request.getEndDate();
         
-        while (!currentDate.isAfter(endDate)) {
-            DayOfWeek dayOfWeek = currentDate.getDayOfWeek();
-            
-            // Tìm lịch làm việc của chuyên gia trong ngày này
-            Optional<ExpertSchedule> schedule = expertScheduleRepository
-                .findByExpertAndDayOfWeekAndIsAvailable(expert, dayOfWeek, true);
+        // Lịch làm việc, thời gian nghỉ và lịch hẹn của cả khoảng ngày: 3 truy vấn, còn lại tính trong bộ nhớ
+        AvailabilityEngine engine = new AvailabilityEngine(
+            expertScheduleRepository.findByExpertAndIsAvailable(expert, true),
+            expertBreakRepository.findByExpertAndBreakDateBetween(expert, startDate, endDate),
+            appointmentRepository.findBusyByExpertIdAndAppointmentDateBetween(
+                expert.getId(), startDate.atStartOfDay(), endDate.atTime(23, 59, 59)));
+        
+        for (LocalDateTime slotStart : engine.findFreeSlots(startDate, endDate, request.getDurationMinutes())) {
+            AvailableSlotResponse.TimeSlot slot = new AvailableSlotResponse.TimeSlot();
+            slot.setStartTime(slotStart);
+            slot.setEndTime(slotStart.plusMinutes(request.getDurationMinutes()));
+            slot.setDurationMinutes(request.getDurationMinutes());
+            slot.setConsultationType(request.getConsultationType());
+            slot.setIsAvailable(true);
             
-            if (schedule.isPresent()) {
-                ExpertSchedule expertSchedule = schedule.get();
-                LocalTime startTime = expertSchedule.getStartTime();
-                LocalTime endTime = expertSchedule.getEndTime();
-                
-                // Tạo các slot thời gian
-                LocalTime currentTime = startTime;
-                while (currentTime.plusMinutes(request.getDurationMinutes()).isBefore(endTime) || 
-                       currentTime.plusMinutes(request.getDurationMinutes()).equals(endTime)) {
-                    
-                    LocalDateTime slotStart = LocalDateTime.of(currentDate, currentTime);
-                    LocalDateTime slotEnd = slotStart.plusMinutes(request.getDurationMinutes());
-                    
-                    // Kiểm tra xem slot có khả dụng không
-                    if (isTimeSlotAvailable(request.getExpertId(), slotStart, request.getDurationMinutes())) {
-                        AvailableSlotResponse.TimeSlot slot = new AvailableSlotResponse.TimeSlot();
-                        slot.setStartTime(slotStart);
-                        slot.setEndTime(slotEnd);
-                        slot.setDurationMinutes(request.getDurationMinutes());
-                        slot.setConsultationType(request.getConsultationType());
-                        slot.setIsAvailable(true);
-                        
-                        availableSlots.add(slot);
-                    }
-                    
-                    // Chuyển sang slot tiếp theo (có tính thời gian nghỉ)
-                    // Xử lý trường hợp breakDurationMinutes null (dùng giá trị mặc định 15 phút)
-                    int breakDuration = expertSchedule.getBreakDurationMinutes() != null 
-                        ? expertSchedule.getBreakDurationMinutes() 
-                        : 15;
-                    currentTime = currentTime.plusMinutes(request.getDurationMinutes() + breakDuration);
-                }
-            }
-            
-            currentDate = currentDate.plusDays(1);
+            availableSlots.add(slot);
         }
         
         AvailableSlotResponse response = new AvailableSlotResponse();
@@ -344,63 +318,6 @@ public class AppointmentService {
         return convertToResponse(appointment);
     }
     
-    /**
-     * Kiểm tra xem slot thời gian có khả dụng không
-     */
-    private boolean isTimeSlotAvailable(Long expertId, LocalDateTime startTime, Integer durationMinutes) {
-        LocalDateTime endTime = startTime.plusMinutes(durationMinutes);
-        
-        // Kiểm tra xem chuyên gia có tồn tại không
-        User expert = userRepository.findById(expertId)
-            .orElseThrow(() -> new RuntimeException("Chuyên gia không tồn tại"));
-        
-        // Kiểm tra xem có lịch hẹn nào trùng thời gian không
-        // Lấy tất cả lịch hẹn của chuyên gia trong ngày
-        LocalDate appointmentDate = startTime.toLocalDate();
-        LocalDateTime dayStart = appointmentDate.atStartOfDay();
-        LocalDateTime dayEnd = appointmentDate.atTime(23, 59, 59);
-        
-        List<Appointment> existingAppointments = appointmentRepository
-            .findByExpertAndAppointmentDateBetweenOrderByAppointmentDate(expert, dayStart, dayEnd);
-        
-        log.info("Kiểm tra slot khả dụng cho expert {} từ {} đến {}, tìm thấy {} lịch hẹn", 
-                expertId, dayStart, dayEnd, existingAppointments.size()); // Debug log
-        
-        // Kiểm tra xem có lịch hẹn nào trùng thời gian không
-        for (Appointment existing : existingAppointments) {
-            if (existing.getStatus() == Appointment.AppointmentStatus.CANCELLED || 
-                existing.getStatus() == Appointment.AppointmentStatus.NO_SHOW) {
-                continue;
-            }
-            
-            LocalDateTime existingStart = existing.getAppointmentDate();
-            LocalDateTime existingEnd = existingStart.plusMinutes(existing.getDurationMinutes());
-            
-            log.info("Kiểm tra lịch hẹn hiện tại: {} - {} vs slot mới: {} - {}", 
-                    existingStart, existingEnd, startTime, endTime); // Debug log
-            
-            // Kiểm tra xem có trùng thời gian không
-            if (!(endTime.isBefore(existingStart) || startTime.isAfter(existingEnd))) {
-                log.info("Slot bị trùng với lịch hẹn hiện tại"); // Debug log
-                return false;
-            }
-        }
-        
-        // Kiểm tra xem có thời gian nghỉ nào trùng không
-        LocalDate breakDate = startTime.toLocalDate();
-        LocalTime startTimeOfDay = startTime.toLocalTime();
-        LocalTime endTimeOfDay = endTime.toLocalTime();
-        
-        List<ExpertBreak> conflictingBreaks = expertBreakRepository
-            .findConflictingBreaks(expertId, breakDate, startTimeOfDay, endTimeOfDay);
-        
-        if (!conflictingBreaks.isEmpty()) {
-            log.info("Slot bị trùng với thời gian nghỉ: {}", conflictingBreaks); // Debug log
-        }
-        
-        return conflictingBreaks.isEmpty();
-    }
-    
     /**
      * Chuyển đổi Appointment thành AppointmentResponse
      */
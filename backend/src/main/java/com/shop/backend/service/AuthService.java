@@ -7,6 +7,7 @@ import com.shop.backend.dto.auth.UpgradeAnonymousRequest;
 import com.shop.backend.model.User;
 import com.shop.backend.model.Role;
 import com.shop.backend.repository.UserRepository;
+import com.shop.backend.security.JwtAuthenticationCache;
 import com.shop.backend.security.JwtService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -33,6 +34,7 @@ public class AuthService {
     private final Random random = new Random();
     private final OtpService otpService;
     private final PasswordValidationService passwordValidationService;
+    private final JwtAuthenticationCache jwtAuthenticationCache;
 
     // Helper method để convert User entity thành UserDTO
     private UserDTO convertToUserDTO(User user) {
@@ -72,6 +74,7 @@ public class AuthService {
                 user.setTemporaryPassword(false); // Đánh dấu là password thật, không phải temp
                 user.setTempPasswordUsed(false);
                 userRepository.save(user);
+                jwtAuthenticationCache.evictUser(user);
                 
                 // Generate token
                 java.util.Map<String, Object> claims = new java.util.HashMap<>();
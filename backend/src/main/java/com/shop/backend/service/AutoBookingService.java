@@ -30,6 +30,7 @@ public class AutoBookingService {
     private final AppointmentRepository appointmentRepository;
     private final AppointmentEmailService appointmentEmailService;
     private final AppointmentHistoryRepository appointmentHistoryRepository;
+    private final ExpertOccupancyIndex expertOccupancyIndex;
     
     @Transactional(rollbackFor = Exception.class)
     public AutoBookingResponse autoBookAppointment(AutoBookingRequest request, Long studentId) {
@@ -77,24 +78,7 @@ public class AutoBookingService {
             }
             log.info("Ngày đặt lịch hợp lệ (không phải quá khứ)");
             
-                    // 3. Kiểm tra slot có khả dụng không (tạm thời bỏ qua để test)
-        log.info("Kiểm tra slot availability cho expert: {} (ID: {})", 
-            expert.getFirstName() + " " + expert.getLastName(), expert.getId());
-        
-        // Tạm thời bỏ qua kiểm tra slot để test auto-booking
-        boolean isSlotAvailable = true; // isTimeSlotAvailable(expert.getId(), appointmentDateTime, request.getDurationMinutes());
-        
-        if (!isSlotAvailable) {
-            log.warn("Slot không khả dụng cho expert {} vào {}", 
-                expert.getFirstName() + " " + expert.getLastName(),
-                appointmentDateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-            return new AutoBookingResponse(false, "Thời gian này không khả dụng. Vui lòng chọn thời gian khác.", 
-                null, null, null, null, null, null, null);
-        }
-            
-            log.info("Slot khả dụng cho expert {} vào {}", 
-                expert.getFirstName() + " " + expert.getLastName(),
-                appointmentDateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+            // 3. Kiểm tra slot có khả dụng không: thực hiện khi lưu, dưới khóa của chuyên gia (bước 5)
             
             // 4. Tạo appointment request
             AppointmentRequest appointmentRequest = new AppointmentRequest();
@@ -134,7 +118,15 @@ public class AutoBookingService {
             appointment.setMeetingLocation(request.getMeetingLocation());
             appointment.setStatus(Appointment.AppointmentStatus.PENDING);
             
-            Appointment savedAppointment = appointmentRepository.save(appointment);
+            Appointment savedAppointment = expertOccupancyIndex.book(expert.getId(), appointmentDateTime,
+                request.getDurationMinutes(), () -> appointmentRepository.save(appointment));
+            if (savedAppointment == null) {
+                log.warn("Slot không khả dụng cho expert {} vào {}", 
+                    expert.getFirstName() + " " + expert.getLastName(),
+                    appointmentDateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+                return new AutoBookingResponse(false, "Thời gian này không khả dụng. Vui lòng chọn thời gian khác.", 
+                    null, null, null, null, null, null, null);
+            }
             log.info("Đã tạo appointment thành công với ID: {}", savedAppointment.getId());
             
             // Ghi log lịch sử tạo lịch hẹn (auto booking)
@@ -0,0 +1,251 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.model.ExpertSchedule;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Free appointment slots of one expert, computed in memory from that expert's
+ * schedules, breaks and appointments for the whole date range
+ *
+ * Per day, the busy intervals are sorted and merged once, then the candidate
+ * slots (schedule start, stepping by duration + break) are swept against them
+ * with a single forward pointer. Conflict rules are the ones findAvailableSlots
+ * used per slot before:
+ * - appointments conflict when the closed intervals touch or overlap, only
+ *   appointments starting on the slot's day count, CANCELLED and NO_SHOW are ignored
+ * - breaks on the slot's day conflict when they overlap (ExpertBreakRepository.findConflictingBreaks)
+ */
+public class AvailabilityEngine {
+
+    private static final int DEFAULT_BREAK_MINUTES = 15;
+
+    // Upper bound of the old per-day appointment query (dayStart .. 23:59:59)
+    private static final LocalTime LAST_APPOINTMENT_TIME = LocalTime.of(23, 59, 59);
+
+    private final Map<DayOfWeek, ExpertSchedule> schedules = new EnumMap<>(DayOfWeek.class);
+
+    // Merged, sorted, closed [start, end]
+    private final Map<LocalDate, List<Interval>> appointmentsByDay = new HashMap<>();
+
+    // Merged, sorted, open (start, end)
+    private final Map<LocalDate, List<Interval>> breaksByDay = new HashMap<>();
+
+    // Breaks with end <= start; matched with the query's predicate as is
+    private final Map<LocalDate, List<ExpertBreak>> irregularBreaksByDay = new HashMap<>();
+
+    record Interval(LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * @param schedules available schedules; if a day has several, the one with the lowest id is used
+     */
+    public AvailabilityEngine(Collection<ExpertSchedule> schedules, Collection<ExpertBreak> breaks,
+                              Collection<Appointment> appointments) {
+        schedules.stream()
+            .filter(schedule -> Boolean.TRUE.equals(schedule.getIsAvailable()))
+            .sorted(Comparator.comparing(ExpertSchedule::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+            .forEach(schedule -> this.schedules.putIfAbsent(schedule.getDayOfWeek(), schedule));
+
+        Map<LocalDate, List<Interval>> booked = new HashMap<>();
+        for (Appointment appointment : appointments) {
+            if (appointment.getStatus() == Appointment.AppointmentStatus.CANCELLED
+                || appointment.getStatus() == Appointment.AppointmentStatus.NO_SHOW
+                || appointment.getAppointmentDate().toLocalTime().isAfter(LAST_APPOINTMENT_TIME)) {
+                continue;
+            }
+            LocalDateTime start = appointment.getAppointmentDate();
+            int duration = appointment.getDurationMinutes() != null ? appointment.getDurationMinutes() : 60;
+            booked.computeIfAbsent(start.toLocalDate(), day -> new ArrayList<>())
+                .add(new Interval(start, start.plusMinutes(duration)));
+        }
+        booked.forEach((day, intervals) -> appointmentsByDay.put(day, merge(intervals, true)));
+
+        Map<LocalDate, List<Interval>> breakIntervals = new HashMap<>();
+        for (ExpertBreak expertBreak : breaks) {
+            LocalDate day = expertBreak.getBreakDate();
+            if (expertBreak.getStartTime().isBefore(expertBreak.getEndTime())) {
+                breakIntervals.computeIfAbsent(day, d -> new ArrayList<>())
+                    .add(new Interval(day.atTime(expertBreak.getStartTime()), day.atTime(expertBreak.getEndTime())));
+            } else {
+                irregularBreaksByDay.computeIfAbsent(day, d -> new ArrayList<>()).add(expertBreak);
+            }
+        }
+        breakIntervals.forEach((day, intervals) -> breaksByDay.put(day, merge(intervals, false)));
+    }
+
+    /**
+     * A free slot and the width of the free window it sits in: from the end of
+     * the previous appointment or break (or the schedule start) to the start of
+     * the next one (or the schedule end)
+     */
+    public record FreeSlot(LocalDateTime start, long freeMinutes) {
+    }
+
+    /**
+     * Start times of the free slots between "from" and "to" (inclusive), in order
+     *
+     * Slots end no later than the schedule's end time on the same day.
+     */
+    public List<LocalDateTime> findFreeSlots(LocalDate from, LocalDate to, int durationMinutes) {
+        List<LocalDateTime> slots = new ArrayList<>();
+        Iterator<FreeSlot> iterator = freeSlots(from, to, durationMinutes);
+        while (iterator.hasNext()) {
+            slots.add(iterator.next().start());
+        }
+        return slots;
+    }
+
+    /**
+     * Same slots as {@link #findFreeSlots}, computed one day at a time as the iterator advances
+     */
+    public Iterator<FreeSlot> freeSlots(LocalDate from, LocalDate to, int durationMinutes) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("durationMinutes must be positive");
+        }
+        return new Iterator<>() {
+            private LocalDate day = from;
+            private List<FreeSlot> daySlots = List.of();
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == daySlots.size() && !day.isAfter(to)) {
+                    daySlots = freeSlotsOn(day, durationMinutes);
+                    next = 0;
+                    day = day.plusDays(1);
+                }
+                return next < daySlots.size();
+            }
+
+            @Override
+            public FreeSlot next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return daySlots.get(next++);
+            }
+        };
+    }
+
+    private List<FreeSlot> freeSlotsOn(LocalDate day, int durationMinutes) {
+        ExpertSchedule schedule = schedules.get(day.getDayOfWeek());
+        if (schedule == null) {
+            return List.of();
+        }
+        int breakMinutes = schedule.getBreakDurationMinutes() != null
+            ? schedule.getBreakDurationMinutes()
+            : DEFAULT_BREAK_MINUTES;
+        int step = durationMinutes + breakMinutes;
+        LocalDateTime dayStart = day.atTime(schedule.getStartTime());
+        LocalDateTime dayEnd = day.atTime(schedule.getEndTime());
+        List<Interval> booked = appointmentsByDay.getOrDefault(day, List.of());
+        List<Interval> breaks = breaksByDay.getOrDefault(day, List.of());
+        List<ExpertBreak> irregularBreaks = irregularBreaksByDay.getOrDefault(day, List.of());
+
+        List<FreeSlot> slots = new ArrayList<>();
+        int nextBooked = 0;
+        int nextBreak = 0;
+        LocalDateTime start = dayStart;
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+        while (!end.isAfter(dayEnd)) {
+            // Intervals left behind cannot touch this or any later slot
+            while (nextBooked < booked.size() && booked.get(nextBooked).end().isBefore(start)) {
+                nextBooked++;
+            }
+            while (nextBreak < breaks.size() && !breaks.get(nextBreak).end().isAfter(start)) {
+                nextBreak++;
+            }
+            boolean free = (nextBooked == booked.size() || booked.get(nextBooked).start().isAfter(end))
+                && (nextBreak == breaks.size() || !breaks.get(nextBreak).start().isBefore(end))
+                && noneConflicts(irregularBreaks, start.toLocalTime(), end.toLocalTime());
+            if (free) {
+                // The pointers sit right after the intervals before the slot and on the first one after it
+                LocalDateTime windowStart = latest(dayStart,
+                    nextBooked > 0 ? booked.get(nextBooked - 1).end() : null,
+                    nextBreak > 0 ? breaks.get(nextBreak - 1).end() : null);
+                LocalDateTime windowEnd = earliest(dayEnd,
+                    nextBooked < booked.size() ? booked.get(nextBooked).start() : null,
+                    nextBreak < breaks.size() ? breaks.get(nextBreak).start() : null);
+                slots.add(new FreeSlot(start, Duration.between(windowStart, windowEnd).toMinutes()));
+            }
+            if (step <= 0) {
+                break;
+            }
+            start = start.plusMinutes(step);
+            end = start.plusMinutes(durationMinutes);
+        }
+        return slots;
+    }
+
+    private static LocalDateTime latest(LocalDateTime time, LocalDateTime a, LocalDateTime b) {
+        if (a != null && a.isAfter(time)) {
+            time = a;
+        }
+        return b != null && b.isAfter(time) ? b : time;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime time, LocalDateTime a, LocalDateTime b) {
+        if (a != null && a.isBefore(time)) {
+            time = a;
+        }
+        return b != null && b.isBefore(time) ? b : time;
+    }
+
+    /**
+     * Sort by start and merge; closed intervals also merge when they only touch
+     */
+    private static List<Interval> merge(List<Interval> intervals, boolean closed) {
+        intervals.sort(Comparator.comparing(Interval::start));
+        List<Interval> merged = new ArrayList<>(intervals.size());
+        Interval current = null;
+        for (Interval interval : intervals) {
+            if (current != null && (interval.start().isBefore(current.end())
+                || closed && interval.start().equals(current.end()))) {
+                if (interval.end().isAfter(current.end())) {
+                    current = new Interval(current.start(), interval.end());
+                }
+            } else {
+                if (current != null) {
+                    merged.add(current);
+                }
+                current = interval;
+            }
+        }
+        if (current != null) {
+            merged.add(current);
+        }
+        return merged;
+    }
+
+    /**
+     * Predicate of ExpertBreakRepository.findConflictingBreaks
+     */
+    private static boolean noneConflicts(List<ExpertBreak> breaks, LocalTime startTime, LocalTime endTime) {
+        for (ExpertBreak expertBreak : breaks) {
+            LocalTime breakStart = expertBreak.getStartTime();
+            LocalTime breakEnd = expertBreak.getEndTime();
+            if ((!breakStart.isAfter(startTime) && breakEnd.isAfter(startTime))
+                || (breakStart.isBefore(endTime) && !breakEnd.isBefore(endTime))
+                || (!breakStart.isBefore(startTime) && !breakEnd.isAfter(endTime))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,256 @@
+package com.shop.backend.service;
+
+import com.shop.backend.dto.auth.appointment.EarliestSlotRequest;
+import com.shop.backend.dto.auth.appointment.EarliestSlotResponse;
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.model.ExpertSchedule;
+import com.shop.backend.model.Role;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.AppointmentRepository;
+import com.shop.backend.repository.ExpertBreakRepository;
+import com.shop.backend.repository.ExpertScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Free slots across all experts: the earliest ones, or the ones that fit their
+ * free window most tightly (BEST_FIT, least leftover time around the slot)
+ *
+ * Schedules, breaks and appointments of every expert are read with three range
+ * queries. Each expert then gets an AvailabilityEngine, built in parallel, whose
+ * slots come out as a stream ordered by the requested sort; the top K are taken
+ * with a k-way merge of those streams through a heap of size #experts. The date
+ * range and K are capped so the work stays bounded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AvailabilitySearchService {
+
+    public enum Sort {
+        EARLIEST, BEST_FIT
+    }
+
+    private static final Comparator<Candidate> BY_START = Comparator
+        .comparing((Candidate c) -> c.slot().start())
+        .thenComparingLong(Candidate::expertId);
+
+    private static final Comparator<Candidate> BY_FIT = Comparator
+        .comparingLong((Candidate c) -> c.slot().freeMinutes())
+        .thenComparing(c -> c.slot().start())
+        .thenComparingLong(Candidate::expertId);
+
+    private final ExpertScheduleRepository expertScheduleRepository;
+    private final ExpertBreakRepository expertBreakRepository;
+    private final AppointmentRepository appointmentRepository;
+
+    @Value("${appointments.search.max-days:60}")
+    private int maxDays;
+
+    @Value("${appointments.search.max-limit:50}")
+    private int maxLimit;
+
+    private record Candidate(long expertId, AvailabilityEngine.FreeSlot slot) {
+    }
+
+    /**
+     * Head of one expert's slot stream, for the merge
+     */
+    private static final class Cursor {
+        final User expert;
+        final Iterator<AvailabilityEngine.FreeSlot> slots;
+        final LocalDateTime notBefore;
+        Candidate head;
+
+        Cursor(User expert, Iterator<AvailabilityEngine.FreeSlot> slots, LocalDateTime notBefore) {
+            this.expert = expert;
+            this.slots = slots;
+            this.notBefore = notBefore;
+        }
+
+        // Move to the next slot that has not started yet; false when the stream is done
+        boolean advance() {
+            while (slots.hasNext()) {
+                AvailabilityEngine.FreeSlot slot = slots.next();
+                if (!slot.start().isBefore(notBefore)) {
+                    head = new Candidate(expert.getId(), slot);
+                    return true;
+                }
+            }
+            head = null;
+            return false;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public EarliestSlotResponse findSlots(EarliestSlotRequest request) {
+        int duration = request.getDurationMinutes() != null ? request.getDurationMinutes() : 60;
+        if (duration <= 0) {
+            throw new RuntimeException("Thời lượng phải lớn hơn 0");
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate from = request.getStartDate().isBefore(today) ? today : request.getStartDate();
+        LocalDate to = request.getEndDate();
+        if (to.isBefore(request.getStartDate())) {
+            throw new RuntimeException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new RuntimeException("Chỉ có thể tìm trong tối đa " + maxDays + " ngày");
+        }
+        Sort sort = parse(Sort.class, request.getSort() != null ? request.getSort() : "EARLIEST",
+            "Kiểu sắp xếp không hợp lệ");
+        String consultationType = parse(Appointment.ConsultationType.class,
+            request.getConsultationType() != null ? request.getConsultationType() : "ONLINE",
+            "Hình thức tư vấn không hợp lệ").name();
+        int limit = Math.min(request.getLimit() != null && request.getLimit() > 0 ? request.getLimit() : 10, maxLimit);
+
+        EarliestSlotResponse response = new EarliestSlotResponse();
+        response.setSort(sort.name());
+        response.setSlots(new ArrayList<>());
+        response.setExpertsSearched(0);
+        if (to.isBefore(from)) {
+            return response;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Map<Long, User> experts = new LinkedHashMap<>();
+        Map<Long, List<ExpertSchedule>> schedules = new HashMap<>();
+        for (ExpertSchedule schedule : expertScheduleRepository.findAvailableSchedulesWithExpert(Role.EXPERT, User.Status.ACTIVE)) {
+            experts.putIfAbsent(schedule.getExpert().getId(), schedule.getExpert());
+            schedules.computeIfAbsent(schedule.getExpert().getId(), id -> new ArrayList<>()).add(schedule);
+        }
+        Map<Long, List<ExpertBreak>> breaks = breaksByExpert(
+            expertBreakRepository.findBreakIntervalsBetween(from, to), experts);
+        Map<Long, List<Appointment>> appointments = appointmentsByExpert(
+            appointmentRepository.findBusyIntervalsBetween(from.atStartOfDay(), to.atTime(23, 59, 59)), experts);
+
+        // Slots that already started are skipped
+        LocalDateTime notBefore = LocalDateTime.now();
+        List<Cursor> cursors = experts.values().parallelStream()
+            .map(expert -> {
+                AvailabilityEngine engine = new AvailabilityEngine(
+                    schedules.get(expert.getId()),
+                    breaks.getOrDefault(expert.getId(), List.of()),
+                    appointments.getOrDefault(expert.getId(), List.of()));
+                Iterator<AvailabilityEngine.FreeSlot> slots = engine.freeSlots(from, to, duration);
+                if (sort == Sort.BEST_FIT) {
+                    slots = bestFitting(expert.getId(), slots, notBefore, limit).iterator();
+                }
+                Cursor cursor = new Cursor(expert, slots, notBefore);
+                cursor.advance();
+                return cursor;
+            })
+            .filter(cursor -> cursor.head != null)
+            .toList();
+
+        Comparator<Candidate> order = sort == Sort.BEST_FIT ? BY_FIT : BY_START;
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, cursors.size()),
+            (a, b) -> order.compare(a.head, b.head));
+        heads.addAll(cursors);
+        while (response.getSlots().size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            response.getSlots().add(toSlot(cursor.expert, cursor.head.slot(), duration, consultationType));
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        response.setExpertsSearched(experts.size());
+
+        log.debug("Searched {} experts from {} to {} in {} ms", experts.size(), from, to,
+            System.currentTimeMillis() - startedAt);
+        return response;
+    }
+
+    /**
+     * The expert's "limit" best fitting upcoming slots, ordered by BY_FIT
+     */
+    private static List<AvailabilityEngine.FreeSlot> bestFitting(Long expertId, Iterator<AvailabilityEngine.FreeSlot> slots,
+                                                                 LocalDateTime notBefore, int limit) {
+        // Max-heap on the fit, so the worst of the kept slots is dropped first
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, BY_FIT.reversed());
+        while (slots.hasNext()) {
+            AvailabilityEngine.FreeSlot slot = slots.next();
+            if (slot.start().isBefore(notBefore)) {
+                continue;
+            }
+            best.add(new Candidate(expertId, slot));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(BY_FIT);
+        return sorted.stream().map(Candidate::slot).toList();
+    }
+
+    private static Map<Long, List<ExpertBreak>> breaksByExpert(List<Object[]> rows, Map<Long, User> experts) {
+        Map<Long, List<ExpertBreak>> breaks = new HashMap<>();
+        for (Object[] row : rows) {
+            Long expertId = (Long) row[0];
+            if (!experts.containsKey(expertId)) {
+                continue;
+            }
+            ExpertBreak expertBreak = new ExpertBreak();
+            expertBreak.setId((Long) row[1]);
+            expertBreak.setBreakDate((LocalDate) row[2]);
+            expertBreak.setStartTime((LocalTime) row[3]);
+            expertBreak.setEndTime((LocalTime) row[4]);
+            breaks.computeIfAbsent(expertId, id -> new ArrayList<>()).add(expertBreak);
+        }
+        return breaks;
+    }
+
+    private static Map<Long, List<Appointment>> appointmentsByExpert(List<Object[]> rows, Map<Long, User> experts) {
+        Map<Long, List<Appointment>> appointments = new HashMap<>();
+        for (Object[] row : rows) {
+            Long expertId = (Long) row[0];
+            if (!experts.containsKey(expertId)) {
+                continue;
+            }
+            Appointment appointment = new Appointment();
+            appointment.setId((Long) row[1]);
+            appointment.setAppointmentDate((LocalDateTime) row[2]);
+            appointment.setDurationMinutes(row[3] != null ? ((Number) row[3]).intValue() : null);
+            appointments.computeIfAbsent(expertId, id -> new ArrayList<>()).add(appointment);
+        }
+        return appointments;
+    }
+
+    private static EarliestSlotResponse.ExpertSlot toSlot(User expert, AvailabilityEngine.FreeSlot slot,
+                                                         int duration, String consultationType) {
+        EarliestSlotResponse.ExpertSlot result = new EarliestSlotResponse.ExpertSlot();
+        result.setExpertId(expert.getId());
+        result.setExpertName(expert.getFirstName() + " " + expert.getLastName());
+        result.setStartTime(slot.start());
+        result.setEndTime(slot.start().plusMinutes(duration));
+        result.setDurationMinutes(duration);
+        result.setConsultationType(consultationType);
+        result.setFreeMinutes(slot.freeMinutes());
+        return result;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String message) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(message + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.shop.backend.service;
+
+import com.shop.dto.blog.BlogCategoryDTO;
+import com.shop.dto.blog.BlogPostDTO;
+import com.shop.dto.blog.BlogTagDTO;
+import com.shop.backend.model.BlogCategory;
+import com.shop.backend.model.BlogPost;
+import com.shop.backend.model.BlogPostCategory;
+import com.shop.backend.model.BlogPostTag;
+import com.shop.backend.model.BlogTag;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.BlogBookmarkRepository;
+import com.shop.backend.repository.BlogLikeRepository;
+import com.shop.backend.repository.BlogPostCategoryRepository;
+import com.shop.backend.repository.BlogPostTagRepository;
+import com.shop.backend.repository.BlogShareRepository;
+import com.shop.backend.repository.UserRepository;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds BlogPostDTOs for a whole page of posts at once.
+ *
+ * Categories, tags, authors and the caller's like/bookmark/share flags are
+ * loaded with one IN-list query each, so a page costs a fixed number of
+ * statements no matter how many posts it holds.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BlogPostDTOAssembler {
+
+    @Value("${app.backend.url}")
+    private String backendUrl;
+
+    @Autowired
+    private BlogPostCategoryRepository blogPostCategoryRepository;
+
+    @Autowired
+    private BlogPostTagRepository blogPostTagRepository;
+
+    @Autowired
+    private BlogLikeRepository blogLikeRepository;
+
+    @Autowired
+    private BlogBookmarkRepository blogBookmarkRepository;
+
+    @Autowired
+    private BlogShareRepository blogShareRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public Page<BlogPostDTO> toDTOPage(Page<BlogPost> posts, String userEmail) {
+        return new PageImpl<>(toDTOs(posts.getContent(), userEmail), posts.getPageable(), posts.getTotalElements());
+    }
+
+    public BlogPostDTO toDTO(BlogPost post, String userEmail) {
+        return toDTOs(Collections.singletonList(post), userEmail).get(0);
+    }
+
+    public List<BlogPostDTO> toDTOs(List<BlogPost> posts, String userEmail) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> postIds = new LinkedHashSet<>();
+        for (BlogPost post : posts) {
+            postIds.add(post.getId());
+        }
+
+        Map<Long, List<BlogCategoryDTO>> categoriesByPost = new HashMap<>();
+        for (BlogPostCategory pc : blogPostCategoryRepository.findByPostIdInWithCategory(postIds)) {
+            categoriesByPost.computeIfAbsent(pc.getPost().getId(), id -> new ArrayList<>())
+                .add(toCategoryDTO(pc.getCategory()));
+        }
+
+        Map<Long, List<BlogTagDTO>> tagsByPost = new HashMap<>();
+        for (BlogPostTag pt : blogPostTagRepository.findByPostIdInWithTag(postIds)) {
+            tagsByPost.computeIfAbsent(pt.getPost().getId(), id -> new ArrayList<>())
+                .add(toTagDTO(pt.getTag()));
+        }
+
+        Map<Long, User> authors = loadAuthors(posts);
+
+        Set<Long> liked = Collections.emptySet();
+        Set<Long> bookmarked = Collections.emptySet();
+        Set<Long> shared = Collections.emptySet();
+        if (userEmail != null) {
+            User user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+            liked = new HashSet<>(blogLikeRepository.findLikedPostIds(user.getId(), postIds));
+            bookmarked = new HashSet<>(blogBookmarkRepository.findBookmarkedPostIds(user.getId(), postIds));
+            shared = new HashSet<>(blogShareRepository.findSharedPostIds(user.getId(), postIds));
+        }
+
+        List<BlogPostDTO> result = new ArrayList<>(posts.size());
+        for (BlogPost post : posts) {
+            BlogPostDTO dto = toBaseDTO(post, authors.get(post.getAuthor().getId()));
+            dto.setIsLiked(liked.contains(post.getId()));
+            dto.setIsBookmarked(bookmarked.contains(post.getId()));
+            dto.setIsShared(shared.contains(post.getId()));
+            dto.setCategories(categoriesByPost.getOrDefault(post.getId(), new ArrayList<>()));
+            dto.setTags(tagsByPost.getOrDefault(post.getId(), new ArrayList<>()));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * Resolve authors that are still lazy proxies with a single findAllById
+     */
+    private Map<Long, User> loadAuthors(List<BlogPost> posts) {
+        Map<Long, User> authors = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (BlogPost post : posts) {
+            User author = post.getAuthor();
+            if (Hibernate.isInitialized(author)) {
+                authors.put(author.getId(), author);
+            } else {
+                missing.add(author.getId());
+            }
+        }
+        missing.removeAll(authors.keySet());
+        if (!missing.isEmpty()) {
+            for (User author : userRepository.findAllById(missing)) {
+                authors.put(author.getId(), author);
+            }
+        }
+        return authors;
+    }
+
+    private BlogPostDTO toBaseDTO(BlogPost post, User author) {
+        BlogPostDTO dto = new BlogPostDTO();
+        dto.setId(post.getId());
+        dto.setTitle(post.getTitle());
+        dto.setSlug(post.getSlug());
+        dto.setContent(post.getContent());
+        dto.setExcerpt(post.getExcerpt());
+        dto.setAuthorId(author.getId());
+        dto.setAuthorName(author.getFirstName() + " " + author.getLastName());
+        dto.setAuthorAvatar(author.getAvatarUrl());
+        dto.setAuthorEmail(author.getEmail()); // Add author email for frontend comparison
+        dto.setStatus(post.getStatus());
+
+        // Fix featured image URL to include base URL
+        String featuredImage = post.getFeaturedImage();
+        if (featuredImage != null && !featuredImage.startsWith("http")) {
+            featuredImage = backendUrl + featuredImage;
+        }
+        dto.setFeaturedImage(featuredImage);
+
+        dto.setViewCount(post.getViewCount());
+        dto.setLikeCount(post.getLikeCount());
+        dto.setCommentCount(post.getCommentCount());
+        dto.setShareCount(post.getShareCount());
+        dto.setIsFeatured(post.getIsFeatured());
+        dto.setPublishedAt(post.getPublishedAt());
+        dto.setCreatedAt(post.getCreatedAt());
+        dto.setUpdatedAt(post.getUpdatedAt());
+
+        // Calculate reading time (assuming 200 words per minute)
+        int wordCount = post.getContent().split("\\s+").length;
+        dto.setReadingTime((wordCount / 200) + " min read");
+
+        // Set short content (first 150 characters)
+        dto.setShortContent(post.getContent().length() > 150 ?
+            post.getContent().substring(0, 150) + "..." : post.getContent());
+        return dto;
+    }
+
+    public BlogCategoryDTO toCategoryDTO(BlogCategory category) {
+        BlogCategoryDTO dto = new BlogCategoryDTO();
+        dto.setId(category.getId());
+        dto.setName(category.getName());
+        dto.setSlug(category.getSlug());
+        dto.setDescription(category.getDescription());
+        dto.setColor(category.getColor());
+        dto.setParentId(category.getParent() != null ? category.getParent().getId() : null);
+        dto.setParentName(category.getParent() != null ? category.getParent().getName() : null);
+        dto.setDisplayOrder(category.getDisplayOrder());
+        dto.setIsActive(category.getIsActive());
+        dto.setCreatedAt(category.getCreatedAt());
+        dto.setUpdatedAt(category.getUpdatedAt());
+        return dto;
+    }
+
+    public BlogTagDTO toTagDTO(BlogTag tag) {
+        BlogTagDTO dto = new BlogTagDTO();
+        dto.setId(tag.getId());
+        dto.setName(tag.getName());
+        dto.setSlug(tag.getSlug());
+        dto.setDescription(tag.getDescription());
+        dto.setColor(tag.getColor());
+        dto.setCreatedAt(tag.getCreatedAt());
+        dto.setUpdatedAt(tag.getUpdatedAt());
+        return dto;
+    }
+}
@@ -5,7 +5,6 @@ import com.shop.backend.model.*;
 import com.shop.backend.repository.*;
 import com.shop.backend.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
@@ -29,9 +28,6 @@ import java.util.stream.Collectors;
 @Transactional
 public class BlogService {
     
-    @Value("${app.backend.url}")
-    private String backendUrl;
-    
     @Autowired
     private BlogPostRepository blogPostRepository;
     
@@ -80,12 +76,21 @@ public class BlogService {
     @Autowired
     private com.shop.backend.repository.UserRepository userRepository;
     
+    @Autowired
+    private BlogPostDTOAssembler blogPostDTOAssembler;
+    
+    @Autowired
+    private BlogViewIngestionService blogViewIngestionService;
+    
+    @Autowired
+    private BlogStatsService blogStatsService;
+    
     // Blog Post Methods
     @Cacheable(value = "blogPosts", key = "#pageable.pageNumber + '_' + #pageable.pageSize")
     public Page<BlogPostDTO> getAllPosts(Pageable pageable) {
         Page<BlogPost> posts = blogPostRepository.findByStatusAndPublishedAtBeforeOrderByPublishedAtDesc(
             BlogPost.BlogPostStatus.published, LocalDateTime.now(), pageable);
-        return posts.map(this::convertToDTO);
+        return blogPostDTOAssembler.toDTOPage(posts, null);
     }
     
     public Page<BlogPostDTO> getAllPosts(Pageable pageable, String userEmail) {
@@ -128,7 +133,7 @@ public class BlogService {
                     : new ArrayList<>();
                 
                 return new org.springframework.data.domain.PageImpl<>(
-                    paginatedPosts.stream().map(post -> convertToDTO(post, userEmail)).collect(Collectors.toList()),
+                    blogPostDTOAssembler.toDTOs(paginatedPosts, userEmail),
                     pageable,
                     allPosts.size()
                 );
@@ -138,13 +143,13 @@ public class BlogService {
         // For non-logged in users, return only published posts
         Page<BlogPost> publishedPosts = blogPostRepository.findByStatusOrderByPublishedAtDesc(
             BlogPost.BlogPostStatus.published, pageable);
-        return publishedPosts.map(post -> convertToDTO(post, userEmail));
+        return blogPostDTOAssembler.toDTOPage(publishedPosts, userEmail);
     }
 
     // Admin method to get all posts (including pending, draft, etc.)
     public Page<BlogPostDTO> getAllPostsForAdmin(Pageable pageable, String userEmail) {
         Page<BlogPost> posts = blogPostRepository.findAll(pageable);
-        return posts.map(post -> convertToDTO(post, userEmail));
+        return blogPostDTOAssembler.toDTOPage(posts, userEmail);
     }
     
     public Page<BlogPostDTO> getAllPostsForAdmin(BlogPost.BlogPostStatus status, Pageable pageable, String userEmail) {
@@ -154,13 +159,13 @@ public class BlogService {
         } else {
             posts = blogPostRepository.findAll(pageable);
         }
-        return posts.map(post -> convertToDTO(post, userEmail));
+        return blogPostDTOAssembler.toDTOPage(posts, userEmail);
     }
     
     public Page<BlogPostDTO> getPendingPosts(Pageable pageable, String userEmail) {
         Page<BlogPost> posts = blogPostRepository.findByStatus(
             BlogPost.BlogPostStatus.pending, pageable);
-        return posts.map(post -> convertToDTO(post, userEmail));
+        return blogPostDTOAssembler.toDTOPage(posts, userEmail);
     }
     
     public BlogPostDTO approvePost(Long id, String adminEmail) {
@@ -249,8 +254,7 @@ public class BlogService {
         }
         
         // Convert to DTOs and apply additional filters
-        List<BlogPostDTO> filteredDTOs = posts.stream()
-            .map(post -> convertToDTO(post, userEmail))
+        List<BlogPostDTO> filteredDTOs = blogPostDTOAssembler.toDTOs(posts.getContent(), userEmail).stream()
             .filter(dto -> {
                 // Apply additional filters
                 if (categoryIds != null && !categoryIds.isEmpty() && dto.getCategories() != null) {
@@ -299,19 +303,19 @@ public class BlogService {
     public Page<BlogPostDTO> getPostsByCategory(Long categoryId, Pageable pageable) {
         Page<BlogPost> posts = blogPostRepository.findByCategoryIdAndStatus(
             categoryId, BlogPost.BlogPostStatus.published, pageable);
-        return posts.map(post -> convertToDTO(post, null));
+        return blogPostDTOAssembler.toDTOPage(posts, null);
     }
     
     public Page<BlogPostDTO> getPostsByTag(Long tagId, Pageable pageable) {
         Page<BlogPost> posts = blogPostRepository.findByTagIdAndStatus(
             tagId, BlogPost.BlogPostStatus.published, pageable);
-        return posts.map(post -> convertToDTO(post, null));
+        return blogPostDTOAssembler.toDTOPage(posts, null);
     }
     
     public Page<BlogPostDTO> searchPosts(String keyword, Pageable pageable) {
         Page<BlogPost> posts = blogPostRepository.searchPosts(
             BlogPost.BlogPostStatus.published, keyword, pageable);
-        return posts.map(post -> convertToDTO(post, null));
+        return blogPostDTOAssembler.toDTOPage(posts, null);
     }
     
     public BlogPostDTO getPostBySlug(String slug) {
@@ -404,6 +408,7 @@ public class BlogService {
             }
         }
         
+        blogStatsService.onPostCreated(post.getStatus());
         return convertToDTO(post);
     }
     
@@ -526,6 +531,7 @@ public class BlogService {
         if (existingLike.isPresent()) {
             blogLikeRepository.delete(existingLike.get());
             updateLikeCount(postId);
+            blogStatsService.onLikeToggled(false);
             return false; // Unliked
         } else {
             BlogPost post = blogPostRepository.findById(postId)
@@ -536,6 +542,7 @@ public class BlogService {
             like.setUser(user);
             blogLikeRepository.save(like);
             updateLikeCount(postId);
+            blogStatsService.onLikeToggled(true);
             return true; // Liked
         }
     }
@@ -603,6 +610,7 @@ public class BlogService {
         }
         
         comment = blogCommentRepository.save(comment);
+        blogStatsService.onCommentCreated(comment.getStatus());
         
         // Set updatedAt to createdAt for new comments to ensure proper sorting
         if (comment.getUpdatedAt() == null) {
@@ -709,6 +717,7 @@ public class BlogService {
         
         share = blogShareRepository.save(share);
         updateShareCount(postId);
+        blogStatsService.onShareCreated();
         
         return convertShareToDTO(share);
     }
@@ -740,49 +749,21 @@ public class BlogService {
         
         Page<BlogBookmark> bookmarks = blogBookmarkRepository.findByUserIdOrderByCreatedAtDesc(user.getId(), pageable);
         
-        return bookmarks.map(bookmark -> {
-            BlogPostDTO dto = convertToDTO(bookmark.getPost(), userEmail);
-            // Set bookmark created date if needed in the future
-            return dto;
-        });
+        List<BlogPost> posts = bookmarks.getContent().stream()
+            .map(BlogBookmark::getPost)
+            .collect(Collectors.toList());
+        return new org.springframework.data.domain.PageImpl<>(
+            blogPostDTOAssembler.toDTOs(posts, userEmail), pageable, bookmarks.getTotalElements());
     }
     
     // View Methods
+    // Views are queued and persisted in batches by BlogViewIngestionService
     public void recordView(Long postId, String userEmail, String ipAddress, String userAgent) {
-        BlogPost post = blogPostRepository.findById(postId)
-            .orElseThrow(() -> new RuntimeException("Post not found"));
-        
-        BlogPostView view = new BlogPostView();
-        view.setPost(post);
-        if (userEmail != null) {
-            try {
-                User user = userRepository.findByEmail(userEmail)
-                    .orElse(null);
-                view.setUser(user);
-            } catch (Exception e) {
-                // Ignore user not found error for anonymous users
-                view.setUser(null);
-            }
-        }
-        view.setIpAddress(ipAddress);
-        view.setUserAgent(userAgent);
-        
-        blogPostViewRepository.save(view);
-        updateViewCount(postId);
+        blogViewIngestionService.enqueue(postId, userEmail, ipAddress, userAgent);
     }
     
     public void recordView(Long postId) {
-        BlogPost post = blogPostRepository.findById(postId)
-            .orElseThrow(() -> new RuntimeException("Post not found with id: " + postId));
-        
-        BlogPostView view = new BlogPostView();
-        view.setPost(post);
-        view.setUser(null);
-        view.setIpAddress("127.0.0.1");
-        view.setUserAgent("Unknown");
-        
-        blogPostViewRepository.save(view);
-        updateViewCount(postId);
+        blogViewIngestionService.enqueue(postId, null, "127.0.0.1", "Unknown");
     }
     
     // Category Methods
@@ -1054,85 +1035,13 @@ public class BlogService {
         }
     }
     
-    private void updateViewCount(Long postId) {
-        long count = blogPostViewRepository.countByPostId(postId);
-        BlogPost post = blogPostRepository.findById(postId).orElse(null);
-        if (post != null) {
-            post.setViewCount((int) count);
-            blogPostRepository.save(post);
-        }
-    }
-    
     // Conversion Methods
     private BlogPostDTO convertToDTO(BlogPost post) {
         return convertToDTO(post, null);
     }
     
     private BlogPostDTO convertToDTO(BlogPost post, String userEmail) {
-        BlogPostDTO dto = new BlogPostDTO();
-        dto.setId(post.getId());
-        dto.setTitle(post.getTitle());
-        dto.setSlug(post.getSlug());
-        dto.setContent(post.getContent());
-        dto.setExcerpt(post.getExcerpt());
-        dto.setAuthorId(post.getAuthor().getId());
-        dto.setAuthorName(post.getAuthor().getFirstName() + " " + post.getAuthor().getLastName());
-        dto.setAuthorAvatar(post.getAuthor().getAvatarUrl());
-        dto.setAuthorEmail(post.getAuthor().getEmail()); // Add author email for frontend comparison
-        dto.setStatus(post.getStatus());
-        
-        // Fix featured image URL to include base URL
-        String featuredImage = post.getFeaturedImage();
-        if (featuredImage != null && !featuredImage.startsWith("http")) {
-            // Add base URL for relative paths
-            featuredImage = backendUrl + featuredImage;
-        }
-        dto.setFeaturedImage(featuredImage);
-        
-        dto.setViewCount(post.getViewCount());
-        dto.setLikeCount(post.getLikeCount());
-        dto.setCommentCount(post.getCommentCount());
-        dto.setShareCount(post.getShareCount());
-        dto.setIsFeatured(post.getIsFeatured());
-        dto.setPublishedAt(post.getPublishedAt());
-        dto.setCreatedAt(post.getCreatedAt());
-        dto.setUpdatedAt(post.getUpdatedAt());
-        
-        // Set user interaction flags if user is provided
-        if (userEmail != null) {
-            dto.setIsLiked(isLikedByUser(post.getId(), userEmail));
-            dto.setIsBookmarked(isBookmarkedByUser(post.getId(), userEmail));
-            dto.setIsShared(isSharedByUser(post.getId(), userEmail));
-        } else {
-            // Set default values for unauthenticated users
-            dto.setIsLiked(false);
-            dto.setIsBookmarked(false);
-            dto.setIsShared(false);
-        }
-        
-        // Calculate reading time (assuming 200 words per minute)
-        int wordCount = post.getContent().split("\\s+").length;
-        dto.setReadingTime((wordCount / 200) + " min read");
-        
-        // Set short content (first 150 characters)
-        dto.setShortContent(post.getContent().length() > 150 ? 
-            post.getContent().substring(0, 150) + "..." : post.getContent());
-        
-        // Set categories
-        List<BlogPostCategory> postCategories = blogPostCategoryRepository.findByPostId(post.getId());
-        List<BlogCategoryDTO> categoryDTOs = postCategories.stream()
-            .map(pc -> convertCategoryToDTO(pc.getCategory()))
-            .collect(Collectors.toList());
-        dto.setCategories(categoryDTOs);
-        
-        // Set tags
-        List<BlogPostTag> postTags = blogPostTagRepository.findByPostId(post.getId());
-        List<BlogTagDTO> tagDTOs = postTags.stream()
-            .map(pt -> convertTagToDTO(pt.getTag()))
-            .collect(Collectors.toList());
-        dto.setTags(tagDTOs);
-        
-        return dto;
+        return blogPostDTOAssembler.toDTO(post, userEmail);
     }
     
     private BlogCommentDTO convertCommentToDTO(BlogComment comment) {
@@ -1185,31 +1094,11 @@ public class BlogService {
     }
     
     private BlogCategoryDTO convertCategoryToDTO(BlogCategory category) {
-        BlogCategoryDTO dto = new BlogCategoryDTO();
-        dto.setId(category.getId());
-        dto.setName(category.getName());
-        dto.setSlug(category.getSlug());
-        dto.setDescription(category.getDescription());
-        dto.setColor(category.getColor());
-        dto.setParentId(category.getParent() != null ? category.getParent().getId() : null);
-        dto.setParentName(category.getParent() != null ? category.getParent().getName() : null);
-        dto.setDisplayOrder(category.getDisplayOrder());
-        dto.setIsActive(category.getIsActive());
-        dto.setCreatedAt(category.getCreatedAt());
-        dto.setUpdatedAt(category.getUpdatedAt());
-        return dto;
+        return blogPostDTOAssembler.toCategoryDTO(category);
     }
     
     private BlogTagDTO convertTagToDTO(BlogTag tag) {
-        BlogTagDTO dto = new BlogTagDTO();
-        dto.setId(tag.getId());
-        dto.setName(tag.getName());
-        dto.setSlug(tag.getSlug());
-        dto.setDescription(tag.getDescription());
-        dto.setColor(tag.getColor());
-        dto.setCreatedAt(tag.getCreatedAt());
-        dto.setUpdatedAt(tag.getUpdatedAt());
-        return dto;
+        return blogPostDTOAssembler.toTagDTO(tag);
     }
     
     private BlogShareDTO convertShareToDTO(BlogShare share) {
@@ -1243,6 +1132,7 @@ public class BlogService {
         report.setStatus(BlogReport.ReportStatus.PENDING);
         
         report = blogReportRepository.save(report);
+        blogStatsService.onReportCreated();
         return convertReportToDTO(report);
     }
     
@@ -1364,114 +1254,7 @@ public class BlogService {
     // Blog Statistics
     public BlogStatsDTO getBlogStats() {
         try {
-            BlogStatsDTO stats = new BlogStatsDTO();
-            
-            // Post counts
-            stats.setTotalPosts(blogPostRepository.count());
-            stats.setPublishedPosts(blogPostRepository.countByStatus(BlogPost.BlogPostStatus.published));
-            stats.setPendingPosts(blogPostRepository.countByStatus(BlogPost.BlogPostStatus.pending));
-            stats.setDraftPosts(blogPostRepository.countByStatus(BlogPost.BlogPostStatus.draft));
-            
-            // Comment counts
-            long totalComments = blogCommentRepository.count();
-            stats.setTotalComments(totalComments);
-            // Assuming pending comments are those not yet approved (if you have approval system)
-            stats.setPendingComments(0L); // Update if you have comment approval system
-            
-            // Like, Share, View counts
-            stats.setTotalLikes(blogLikeRepository.count());
-            stats.setTotalShares(blogShareRepository.count());
-            stats.setTotalViews(blogPostViewRepository.count());
-            
-            // Report counts
-            long totalReports = blogReportRepository.count();
-            stats.setTotalReports(totalReports);
-            stats.setPendingReports(blogReportRepository.countByStatus(BlogReport.ReportStatus.PENDING));
-            
-            // Category and Tag counts
-            stats.setTotalCategories(blogCategoryRepository.count());
-            stats.setTotalTags(blogTagRepository.count());
-            
-            // Recent activity (this week)
-            LocalDateTime weekAgo = LocalDateTime.now().minusWeeks(1);
-            long postsThisWeek = blogPostRepository.findAll().stream()
-                .filter(post -> post.getCreatedAt() != null && post.getCreatedAt().isAfter(weekAgo))
-                .count();
-            stats.setPostsThisWeek(postsThisWeek);
-            
-            long commentsThisWeek = blogCommentRepository.findAll().stream()
-                .filter(comment -> comment.getCreatedAt() != null && comment.getCreatedAt().isAfter(weekAgo))
-                .count();
-            stats.setCommentsThisWeek(commentsThisWeek);
-            
-            long viewsThisWeek = blogPostViewRepository.findAll().stream()
-                .filter(view -> view.getViewedAt() != null && view.getViewedAt().isAfter(weekAgo))
-                .count();
-            stats.setViewsThisWeek(viewsThisWeek);
-            
-            // Most popular post (by view count)
-            BlogPost mostViewedPost = blogPostRepository.findAll().stream()
-                .max((p1, p2) -> Integer.compare(
-                    p1.getViewCount() != null ? p1.getViewCount() : 0,
-                    p2.getViewCount() != null ? p2.getViewCount() : 0
-                ))
-                .orElse(null);
-            if (mostViewedPost != null && mostViewedPost.getTitle() != null) {
-                stats.setMostPopularPost(mostViewedPost.getTitle());
-            } else {
-                stats.setMostPopularPost("N/A");
-            }
-            
-            // Most active author (by post count)
-            User mostActiveAuthor = blogPostRepository.findAll().stream()
-                .filter(post -> post.getAuthor() != null)
-                .collect(Collectors.groupingBy(BlogPost::getAuthor, Collectors.counting()))
-                .entrySet().stream()
-                .max((e1, e2) -> Long.compare(e1.getValue(), e2.getValue()))
-                .map(entry -> entry.getKey())
-                .orElse(null);
-            if (mostActiveAuthor != null) {
-                String firstName = mostActiveAuthor.getFirstName() != null ? mostActiveAuthor.getFirstName() : "";
-                String lastName = mostActiveAuthor.getLastName() != null ? mostActiveAuthor.getLastName() : "";
-                String fullName = (firstName + " " + lastName).trim();
-                stats.setMostActiveAuthor(fullName.isEmpty() ? "Unknown" : fullName);
-            } else {
-                stats.setMostActiveAuthor("N/A");
-            }
-            
-            // Most used category
-            BlogCategory mostUsedCategory = blogPostCategoryRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                    pc -> pc.getCategory(),
-                    Collectors.counting()
-                ))
-                .entrySet().stream()
-                .max((e1, e2) -> Long.compare(e1.getValue(), e2.getValue()))
-                .map(entry -> entry.getKey())
-                .orElse(null);
-            if (mostUsedCategory != null && mostUsedCategory.getName() != null) {
-                stats.setMostUsedCategory(mostUsedCategory.getName());
-            } else {
-                stats.setMostUsedCategory("N/A");
-            }
-            
-            // Most used tag
-            BlogTag mostUsedTag = blogPostTagRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                    pt -> pt.getTag(),
-                    Collectors.counting()
-                ))
-                .entrySet().stream()
-                .max((e1, e2) -> Long.compare(e1.getValue(), e2.getValue()))
-                .map(entry -> entry.getKey())
-                .orElse(null);
-            if (mostUsedTag != null && mostUsedTag.getName() != null) {
-                stats.setMostUsedTag(mostUsedTag.getName());
-            } else {
-                stats.setMostUsedTag("N/A");
-            }
-            
-            return stats;
+            return blogStatsService.getStats();
         } catch (Exception e) {
             throw new RuntimeException("Error calculating blog stats", e);
         }
@@ -0,0 +1,346 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.BlogComment;
+import com.shop.backend.model.BlogDailyStats;
+import com.shop.backend.model.BlogPost;
+import com.shop.backend.model.BlogReport;
+import com.shop.backend.model.BlogStatsSnapshot;
+import com.shop.backend.repository.*;
+import com.shop.dto.blog.BlogStatsDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Pre-aggregated blog statistics
+ *
+ * A periodic rollup runs the COUNT / GROUP BY queries once, stores the result in
+ * blog_stats_snapshot and rolls recent activity up into blog_daily_stats. Between
+ * rollups, writes bump in-memory deltas (after their transaction commits), so
+ * {@link #getStats()} is answered from memory without touching the blog tables.
+ *
+ * Deletes and status changes are not tracked as deltas; they show up at the next
+ * rollup. "This week" covers the last blog.stats.window-days calendar days.
+ */
+@Slf4j
+@Service
+public class BlogStatsService {
+
+    private static final Pageable TOP_ONE = PageRequest.of(0, 1);
+
+    private enum Counter {
+        POSTS, PUBLISHED_POSTS, PENDING_POSTS, DRAFT_POSTS,
+        COMMENTS, PENDING_COMMENTS, LIKES, SHARES, VIEWS, REPORTS
+    }
+
+    @Value("${blog.stats.window-days:7}")
+    private int windowDays;
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private BlogCommentRepository blogCommentRepository;
+
+    @Autowired
+    private BlogLikeRepository blogLikeRepository;
+
+    @Autowired
+    private BlogShareRepository blogShareRepository;
+
+    @Autowired
+    private BlogPostViewRepository blogPostViewRepository;
+
+    @Autowired
+    private BlogReportRepository blogReportRepository;
+
+    @Autowired
+    private BlogCategoryRepository blogCategoryRepository;
+
+    @Autowired
+    private BlogTagRepository blogTagRepository;
+
+    @Autowired
+    private BlogPostCategoryRepository blogPostCategoryRepository;
+
+    @Autowired
+    private BlogPostTagRepository blogPostTagRepository;
+
+    @Autowired
+    private BlogStatsSnapshotRepository blogStatsSnapshotRepository;
+
+    @Autowired
+    private BlogDailyStatsRepository blogDailyStatsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLongArray deltas = new AtomicLongArray(Counter.values().length);
+
+    private volatile Rollup current;
+
+    /**
+     * Result of one rollup: the stored snapshot plus the activity window totals
+     */
+    private record Rollup(BlogStatsSnapshot snapshot, long postsThisWeek, long commentsThisWeek, long viewsThisWeek) {
+    }
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Current blog statistics; only the very first call after startup hits the database
+     */
+    public BlogStatsDTO getStats() {
+        Rollup rollup = current;
+        if (rollup == null) {
+            rollup = loadOrRollup();
+        }
+        BlogStatsSnapshot s = rollup.snapshot();
+
+        BlogStatsDTO stats = new BlogStatsDTO();
+        stats.setTotalPosts(s.getTotalPosts() + delta(Counter.POSTS));
+        stats.setPublishedPosts(s.getPublishedPosts() + delta(Counter.PUBLISHED_POSTS));
+        stats.setPendingPosts(s.getPendingPosts() + delta(Counter.PENDING_POSTS));
+        stats.setDraftPosts(s.getDraftPosts() + delta(Counter.DRAFT_POSTS));
+        stats.setTotalComments(s.getTotalComments() + delta(Counter.COMMENTS));
+        stats.setPendingComments(s.getPendingComments() + delta(Counter.PENDING_COMMENTS));
+        stats.setTotalLikes(s.getTotalLikes() + delta(Counter.LIKES));
+        stats.setTotalShares(s.getTotalShares() + delta(Counter.SHARES));
+        stats.setTotalViews(s.getTotalViews() + delta(Counter.VIEWS));
+        stats.setTotalReports(s.getTotalReports() + delta(Counter.REPORTS));
+        stats.setPendingReports(s.getPendingReports() + delta(Counter.REPORTS));
+        stats.setTotalCategories(s.getTotalCategories());
+        stats.setTotalTags(s.getTotalTags());
+
+        // Everything created since the last rollup was created today, so it belongs to this week
+        stats.setPostsThisWeek(rollup.postsThisWeek() + delta(Counter.POSTS));
+        stats.setCommentsThisWeek(rollup.commentsThisWeek() + delta(Counter.COMMENTS));
+        stats.setViewsThisWeek(rollup.viewsThisWeek() + delta(Counter.VIEWS));
+
+        stats.setMostPopularPost(s.getMostPopularPost());
+        stats.setMostActiveAuthor(s.getMostActiveAuthor());
+        stats.setMostUsedCategory(s.getMostUsedCategory());
+        stats.setMostUsedTag(s.getMostUsedTag());
+        return stats;
+    }
+
+    // Write hooks, applied once the surrounding transaction commits
+
+    public void onPostCreated(BlogPost.BlogPostStatus status) {
+        afterCommit(() -> {
+            increment(Counter.POSTS, 1);
+            if (status == BlogPost.BlogPostStatus.published) {
+                increment(Counter.PUBLISHED_POSTS, 1);
+            } else if (status == BlogPost.BlogPostStatus.pending) {
+                increment(Counter.PENDING_POSTS, 1);
+            } else if (status == BlogPost.BlogPostStatus.draft) {
+                increment(Counter.DRAFT_POSTS, 1);
+            }
+        });
+    }
+
+    public void onCommentCreated(BlogComment.CommentStatus status) {
+        afterCommit(() -> {
+            increment(Counter.COMMENTS, 1);
+            if (status == BlogComment.CommentStatus.pending) {
+                increment(Counter.PENDING_COMMENTS, 1);
+            }
+        });
+    }
+
+    public void onLikeToggled(boolean liked) {
+        afterCommit(() -> increment(Counter.LIKES, liked ? 1 : -1));
+    }
+
+    public void onShareCreated() {
+        afterCommit(() -> increment(Counter.SHARES, 1));
+    }
+
+    public void onReportCreated() {
+        afterCommit(() -> increment(Counter.REPORTS, 1));
+    }
+
+    public void onViewsRecorded(long count) {
+        if (count > 0) {
+            afterCommit(() -> increment(Counter.VIEWS, count));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blog.stats.rollup-interval-ms:300000}",
+               initialDelayString = "${blog.stats.initial-delay-ms:10000}")
+    public void scheduledRollup() {
+        try {
+            rollup();
+        } catch (Exception e) {
+            log.error("Blog stats rollup failed", e);
+        }
+    }
+
+    /**
+     * Recompute the snapshot and recent daily rows, then fold the deltas they now include
+     * back out. Writes committing while the queries run may be counted twice until the
+     * next rollup.
+     */
+    public synchronized void rollup() {
+        long startedAt = System.currentTimeMillis();
+        long[] captured = new long[deltas.length()];
+        for (int i = 0; i < captured.length; i++) {
+            captured[i] = deltas.get(i);
+        }
+
+        current = transactionTemplate.execute(status -> compute());
+
+        for (int i = 0; i < captured.length; i++) {
+            deltas.addAndGet(i, -captured[i]);
+        }
+        log.debug("Blog stats rolled up in {} ms", System.currentTimeMillis() - startedAt);
+    }
+
+    private synchronized Rollup loadOrRollup() {
+        if (current != null) {
+            return current;
+        }
+        // After a restart serve the stored snapshot; the next scheduled rollup refreshes it
+        Rollup stored = transactionTemplate.execute(status ->
+            blogStatsSnapshotRepository.findById(BlogStatsSnapshot.SINGLETON_ID)
+                .map(snapshot -> withWindow(snapshot, LocalDate.now(), false))
+                .orElse(null));
+        if (stored != null) {
+            current = stored;
+            return stored;
+        }
+        rollup();
+        return current;
+    }
+
+    private Rollup compute() {
+        BlogStatsSnapshot snapshot = new BlogStatsSnapshot();
+        snapshot.setTotalPosts(blogPostRepository.count());
+        snapshot.setPublishedPosts(blogPostRepository.countByStatus(BlogPost.BlogPostStatus.published));
+        snapshot.setPendingPosts(blogPostRepository.countByStatus(BlogPost.BlogPostStatus.pending));
+        snapshot.setDraftPosts(blogPostRepository.countByStatus(BlogPost.BlogPostStatus.draft));
+        snapshot.setTotalComments(blogCommentRepository.count());
+        snapshot.setPendingComments(blogCommentRepository.countByStatus(BlogComment.CommentStatus.pending));
+        snapshot.setTotalLikes(blogLikeRepository.count());
+        snapshot.setTotalShares(blogShareRepository.count());
+        snapshot.setTotalViews(blogPostViewRepository.count());
+        snapshot.setTotalReports(blogReportRepository.count());
+        snapshot.setPendingReports(blogReportRepository.countByStatus(BlogReport.ReportStatus.PENDING));
+        snapshot.setTotalCategories(blogCategoryRepository.count());
+        snapshot.setTotalTags(blogTagRepository.count());
+
+        // Most popular post (by view count)
+        snapshot.setMostPopularPost(blogPostRepository.findFirstByOrderByViewCountDesc()
+            .map(BlogPost::getTitle)
+            .orElse("N/A"));
+
+        // Most active author (by post count)
+        List<Object[]> authors = blogPostRepository.findAuthorsByPostCount(TOP_ONE);
+        if (authors.isEmpty()) {
+            snapshot.setMostActiveAuthor("N/A");
+        } else {
+            String firstName = authors.get(0)[0] != null ? (String) authors.get(0)[0] : "";
+            String lastName = authors.get(0)[1] != null ? (String) authors.get(0)[1] : "";
+            String fullName = (firstName + " " + lastName).trim();
+            snapshot.setMostActiveAuthor(fullName.isEmpty() ? "Unknown" : fullName);
+        }
+
+        snapshot.setMostUsedCategory(topName(blogPostCategoryRepository.findCategoriesByUsage(TOP_ONE)));
+        snapshot.setMostUsedTag(topName(blogPostTagRepository.findTagsByUsage(TOP_ONE)));
+
+        snapshot.setComputedAt(LocalDateTime.now());
+        blogStatsSnapshotRepository.save(snapshot);
+
+        return withWindow(snapshot, LocalDate.now(), true);
+    }
+
+    /**
+     * Sum the activity window from blog_daily_stats; with refresh, today's and yesterday's
+     * rows (late view flushes) and any missing days are recounted first
+     */
+    private Rollup withWindow(BlogStatsSnapshot snapshot, LocalDate today, boolean refresh) {
+        LocalDate from = today.minusDays(windowDays - 1L);
+        Map<LocalDate, BlogDailyStats> days = new HashMap<>();
+        for (BlogDailyStats day : blogDailyStatsRepository.findByStatDateBetweenOrderByStatDateAsc(from, today)) {
+            days.put(day.getStatDate(), day);
+        }
+
+        long posts = 0;
+        long comments = 0;
+        long views = 0;
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            BlogDailyStats day = days.get(date);
+            if (refresh && (day == null || !date.isBefore(today.minusDays(1)))) {
+                day = rollupDay(date, day);
+            }
+            if (day != null) {
+                posts += day.getPostsCreated();
+                comments += day.getCommentsCreated();
+                views += day.getViewsRecorded();
+            }
+        }
+        return new Rollup(snapshot, posts, comments, views);
+    }
+
+    private BlogDailyStats rollupDay(LocalDate date, BlogDailyStats day) {
+        if (day == null) {
+            day = new BlogDailyStats();
+            day.setStatDate(date);
+        }
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        day.setPostsCreated(blogPostRepository.countCreatedBetween(start, end));
+        day.setCommentsCreated(blogCommentRepository.countCreatedBetween(start, end));
+        day.setViewsRecorded(blogPostViewRepository.countViewedBetween(start, end));
+        return blogDailyStatsRepository.save(day);
+    }
+
+    private String topName(List<Object[]> rows) {
+        if (rows.isEmpty() || rows.get(0)[0] == null) {
+            return "N/A";
+        }
+        return (String) rows.get(0)[0];
+    }
+
+    private long delta(Counter counter) {
+        return deltas.get(counter.ordinal());
+    }
+
+    private void increment(Counter counter, long amount) {
+        deltas.addAndGet(counter.ordinal(), amount);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.shop.backend.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous blog view ingestion
+ *
+ * Request threads only enqueue a {@link ViewEvent} into a bounded ring buffer.
+ * A single background flusher drains it every flush interval (or as soon as a
+ * full batch is waiting), resolves viewer emails and post ids with one IN query
+ * each, bulk-inserts the view rows with a JDBC batch and applies
+ * view_count = view_count + delta per post.
+ *
+ * Backpressure: when the buffer is full the caller waits up to
+ * blog.views.offer-timeout-ms, then the view is dropped and counted.
+ * Shutdown: the queue is drained within blog.views.shutdown-timeout-ms; anything
+ * still queued after that is dropped and logged. Views of posts deleted before
+ * their flush are dropped and counted too.
+ */
+@Slf4j
+@Service
+public class BlogViewIngestionService {
+
+    private static final String INSERT_VIEW_SQL =
+        "INSERT INTO blog_post_views (post_id, user_id, ip_address, user_agent, viewed_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INCREMENT_VIEW_COUNT_SQL =
+        "UPDATE blog_posts SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?";
+
+    @Value("${blog.views.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${blog.views.batch-size:500}")
+    private int batchSize;
+
+    @Value("${blog.views.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${blog.views.offer-timeout-ms:5}")
+    private long offerTimeoutMs;
+
+    @Value("${blog.views.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    private BlogStatsService blogStatsService;
+
+    private ArrayBlockingQueue<ViewEvent> queue;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    // Set on shutdown; flushes stop starting batches after it
+    private volatile long drainDeadline = Long.MAX_VALUE;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+
+    /**
+     * One page view waiting to be persisted
+     */
+    public record ViewEvent(Long postId, String userEmail, String ipAddress, String userAgent, LocalDateTime viewedAt) {
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+
+        flusher = new Thread(this::runFlusher, "blog-view-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("blog.views.queue.depth", queue, ArrayBlockingQueue::size).register(registry);
+            FunctionCounter.builder("blog.views.dropped", dropped, AtomicLong::get).register(registry);
+            Gauge.builder("blog.views.flush.last.ms", lastFlushMillis, AtomicLong::get).register(registry);
+            Gauge.builder("blog.views.flush.max.ms", maxFlushMillis, AtomicLong::get).register(registry);
+        }
+    }
+
+    /**
+     * Enqueue a view; never touches the database on the caller's thread
+     *
+     * @return false if the view was dropped because the buffer stayed full
+     */
+    public boolean enqueue(Long postId, String userEmail, String ipAddress, String userAgent) {
+        if (postId == null) {
+            return false;
+        }
+        ViewEvent event = new ViewEvent(postId, userEmail, ipAddress, userAgent, LocalDateTime.now());
+        boolean accepted = running && queue.offer(event);
+        if (!accepted && running) {
+            LockSupport.unpark(flusher);
+            try {
+                accepted = queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!accepted) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        enqueued.incrementAndGet();
+        if (queue.size() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    private void runFlusher() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            try {
+                flushAll();
+            } catch (Exception e) {
+                log.error("Blog view flush failed", e);
+            }
+        }
+    }
+
+    /**
+     * Drain everything currently queued in batches, or until the shutdown deadline;
+     * synchronized so a caller returning from here knows no other flush is still writing
+     */
+    public synchronized void flushAll() {
+        List<ViewEvent> batch = new ArrayList<>(batchSize);
+        while (System.currentTimeMillis() < drainDeadline && queue.drainTo(batch, batchSize) > 0) {
+            flushBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void flushBatch(List<ViewEvent> batch) {
+        long startedAt = System.nanoTime();
+        try {
+            Integer result = transactionTemplate.execute(status -> persist(batch));
+            int stored = result != null ? result : 0;
+            persisted.addAndGet(stored);
+            dropped.addAndGet(batch.size() - stored);
+            blogStatsService.onViewsRecorded(stored);
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("Failed to persist {} blog views", batch.size(), e);
+        } finally {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            flushCount.incrementAndGet();
+            lastFlushMillis.set(elapsed);
+            totalFlushMillis.addAndGet(elapsed);
+            maxFlushMillis.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private int persist(List<ViewEvent> batch) {
+        Set<Long> postIds = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ViewEvent event : batch) {
+            postIds.add(event.postId());
+            if (event.userEmail() != null) {
+                emails.add(event.userEmail());
+            }
+        }
+
+        // Views for posts that no longer exist are discarded instead of failing the batch
+        Set<Long> existingPostIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+            "SELECT id FROM blog_posts WHERE id IN (:ids)", new MapSqlParameterSource("ids", postIds), Long.class));
+
+        Map<String, Long> userIds = new HashMap<>();
+        if (!emails.isEmpty()) {
+            namedParameterJdbcTemplate.query("SELECT id, email FROM users WHERE email IN (:emails)",
+                new MapSqlParameterSource("emails", emails),
+                rs -> {
+                    userIds.put(rs.getString("email"), rs.getLong("id"));
+                });
+        }
+
+        List<Object[]> viewRows = new ArrayList<>(batch.size());
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (ViewEvent event : batch) {
+            if (!existingPostIds.contains(event.postId())) {
+                continue;
+            }
+            viewRows.add(new Object[] {
+                event.postId(),
+                event.userEmail() != null ? userIds.get(event.userEmail()) : null,
+                event.ipAddress(),
+                event.userAgent(),
+                Timestamp.valueOf(event.viewedAt())
+            });
+            deltas.merge(event.postId(), 1, Integer::sum);
+        }
+        if (viewRows.isEmpty()) {
+            return 0;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_VIEW_SQL, viewRows);
+
+        List<Object[]> increments = new ArrayList<>(deltas.size());
+        deltas.forEach((postId, delta) -> increments.add(new Object[] {delta, postId}));
+        jdbcTemplate.batchUpdate(INCREMENT_VIEW_COUNT_SQL, increments);
+        return viewRows.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // One deadline for the flusher's current drain and this one
+        drainDeadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+        }
+        // Waits for a flush in progress, then drains what is left
+        flushAll();
+        int lost = queue.size();
+        if (lost > 0) {
+            dropped.addAndGet(lost);
+            queue.clear();
+            log.warn("Dropped {} unflushed blog views on shutdown", lost);
+        }
+    }
+
+    /**
+     * Pipeline statistics for monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long flushes = flushCount.get();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("enqueued", enqueued.get());
+        stats.put("persisted", persisted.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("flushCount", flushes);
+        stats.put("lastFlushMillis", lastFlushMillis.get());
+        stats.put("maxFlushMillis", maxFlushMillis.get());
+        stats.put("averageFlushMillis", flushes > 0 ? (double) totalFlushMillis.get() / flushes : 0.0);
+        return stats;
+    }
+}
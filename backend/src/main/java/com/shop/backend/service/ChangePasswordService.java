@@ -2,6 +2,7 @@ package com.shop.backend.service;
 
 import com.shop.backend.model.User;
 import com.shop.backend.repository.UserRepository;
+import com.shop.backend.security.JwtAuthenticationCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -19,6 +20,9 @@ public class ChangePasswordService {
     @Autowired
     private PasswordValidationService passwordValidationService;
     
+    @Autowired
+    private JwtAuthenticationCache jwtAuthenticationCache;
+    
     /**
      * Change temporary password to permanent password
      * @param email User's email address
@@ -52,6 +56,7 @@ public class ChangePasswordService {
         
         // Clear temporary password flags
         passwordValidationService.clearTemporaryPasswordFlags(user);
+        jwtAuthenticationCache.evictUser(user);
         
     }
     
@@ -91,6 +96,7 @@ public class ChangePasswordService {
         // Update password
         user.setPassword(passwordEncoder.encode(newPassword.trim()));
         userRepository.save(user);
+        jwtAuthenticationCache.evictUser(user);
         
     }
     
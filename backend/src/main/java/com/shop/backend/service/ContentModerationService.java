@@ -3,7 +3,6 @@ package com.shop.backend.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * Service để kiểm tra và lọc nội dung comment không phù hợp
@@ -507,163 +506,64 @@ public class ContentModerationService {
         "virgin islander", "vrgn slnder", "virgin islanders", "vrgn slnders", "virgin islandered", "vrgn slndered"
     ));
 
-    // Pattern để phát hiện từ ngữ vi phạm (case-insensitive, có dấu/không dấu)
-    private static final Pattern PROFANITY_PATTERN = createPattern(PROFANITY_WORDS);
-    private static final Pattern RACIST_PATTERN = createPattern(RACIST_WORDS);
+    // Automaton phát hiện từ ngữ vi phạm, dựng một lần khi khởi động (có dấu/không dấu)
+    private static final AhoCorasickMatcher PROFANITY_MATCHER = createMatcher(PROFANITY_WORDS);
+    private static final AhoCorasickMatcher RACIST_MATCHER = createMatcher(RACIST_WORDS);
     
-    // Pattern cho nội dung không dấu (để phát hiện từ không dấu)
-    private static final Pattern PROFANITY_PATTERN_NO_DIACRITICS = createPatternNoDiacritics(PROFANITY_WORDS);
+    // Automaton cho nội dung không dấu (để phát hiện từ không dấu)
+    private static final AhoCorasickMatcher PROFANITY_MATCHER_NO_DIACRITICS = createMatcher(removeDiacritics(PROFANITY_WORDS));
+    
+    // Ánh xạ từ được phát hiện (có dấu hoặc không dấu) về từ gốc trong từ điển
+    private static final Map<String, String> PROFANITY_SOURCE_WORDS = createSourceWords(PROFANITY_WORDS, true);
+    private static final Map<String, String> RACIST_SOURCE_WORDS = createSourceWords(RACIST_WORDS, false);
 
     /**
-     * Tạo pattern từ set các từ với word boundaries
-     * Hỗ trợ cả từ đơn và cụm từ có khoảng trắng
+     * Tạo automaton từ set các từ với word boundaries
+     * Hỗ trợ cả từ đơn và cụm từ có khoảng trắng; từ đơn được ưu tiên trước cụm từ
+     * (giữ đúng thứ tự của regex alternation trước đây)
      */
-    private static Pattern createPattern(Set<String> words) {
-        StringBuilder singleWords = new StringBuilder();
-        StringBuilder multiWords = new StringBuilder();
-        
-        boolean firstSingle = true;
-        boolean firstMulti = true;
+    private static AhoCorasickMatcher createMatcher(Set<String> words) {
+        List<String> singleWords = new ArrayList<>();
+        List<String> multiWords = new ArrayList<>();
         
         for (String word : words) {
-            // Tách từ đơn và cụm từ (có khoảng trắng)
             if (word.contains(" ")) {
-                // Cụm từ: không dùng \b ở giữa, chỉ ở đầu và cuối
-                if (!firstMulti) {
-                    multiWords.append("|");
-                }
-                multiWords.append("\\b").append(Pattern.quote(word)).append("\\b");
-                firstMulti = false;
+                multiWords.add(word.toLowerCase());
             } else {
-                // Từ đơn: dùng \b ở cả đầu và cuối
-                if (!firstSingle) {
-                    singleWords.append("|");
-                }
-                singleWords.append(Pattern.quote(word));
-                firstSingle = false;
+                singleWords.add(word.toLowerCase());
             }
         }
         
-        StringBuilder patternBuilder = new StringBuilder();
-        patternBuilder.append("(?i)"); // Case-insensitive
-        
-        // Kết hợp pattern cho từ đơn và cụm từ
-        if (singleWords.length() > 0 && multiWords.length() > 0) {
-            patternBuilder.append("(\\b(").append(singleWords).append(")\\b|").append(multiWords).append(")");
-        } else if (singleWords.length() > 0) {
-            patternBuilder.append("\\b(").append(singleWords).append(")\\b");
-        } else if (multiWords.length() > 0) {
-            patternBuilder.append(multiWords);
-        } else {
-            // Fallback nếu không có từ nào
-            patternBuilder.append("(?!.*)");
-        }
-        
-        return Pattern.compile(patternBuilder.toString());
+        List<String> keywords = new ArrayList<>(singleWords);
+        keywords.addAll(multiWords);
+        return AhoCorasickMatcher.build(keywords);
     }
     
     /**
-     * Tạo pattern từ set các từ không dấu (sau khi remove diacritics)
+     * Tạo set các từ không dấu (sau khi remove diacritics)
      * Sử dụng để phát hiện từ không dấu trong nội dung
-     * Hỗ trợ cả từ đơn và cụm từ có khoảng trắng
      */
-    private static Pattern createPatternNoDiacritics(Set<String> words) {
+    private static Set<String> removeDiacritics(Set<String> words) {
         Set<String> wordsNoDiacritics = new HashSet<>();
         for (String word : words) {
-            String wordNoDiacritics = word
-                .replace("à", "a").replace("á", "a").replace("ạ", "a").replace("ả", "a").replace("ã", "a")
-                .replace("â", "a").replace("ầ", "a").replace("ấ", "a").replace("ậ", "a").replace("ẩ", "a").replace("ẫ", "a")
-                .replace("ă", "a").replace("ằ", "a").replace("ắ", "a").replace("ặ", "a").replace("ẳ", "a").replace("ẵ", "a")
-                .replace("è", "e").replace("é", "e").replace("ẹ", "e").replace("ẻ", "e").replace("ẽ", "e")
-                .replace("ê", "e").replace("ề", "e").replace("ế", "e").replace("ệ", "e").replace("ể", "e").replace("ễ", "e")
-                .replace("ì", "i").replace("í", "i").replace("ị", "i").replace("ỉ", "i").replace("ĩ", "i")
-                .replace("ò", "o").replace("ó", "o").replace("ọ", "o").replace("ỏ", "o").replace("õ", "o")
-                .replace("ô", "o").replace("ồ", "o").replace("ố", "o").replace("ộ", "o").replace("ổ", "o").replace("ỗ", "o")
-                .replace("ơ", "o").replace("ờ", "o").replace("ớ", "o").replace("ợ", "o").replace("ở", "o").replace("ỡ", "o")
-                .replace("ù", "u").replace("ú", "u").replace("ụ", "u").replace("ủ", "u").replace("ũ", "u")
-                .replace("ư", "u").replace("ừ", "u").replace("ứ", "u").replace("ự", "u").replace("ử", "u").replace("ữ", "u")
-                .replace("ỳ", "y").replace("ý", "y").replace("ỵ", "y").replace("ỷ", "y").replace("ỹ", "y")
-                .replace("đ", "d")
-                .toLowerCase();
-            wordsNoDiacritics.add(wordNoDiacritics);
-        }
-        
-        StringBuilder singleWords = new StringBuilder();
-        StringBuilder multiWords = new StringBuilder();
-        
-        boolean firstSingle = true;
-        boolean firstMulti = true;
-        
-        for (String word : wordsNoDiacritics) {
-            // Tách từ đơn và cụm từ (có khoảng trắng)
-            if (word.contains(" ")) {
-                // Cụm từ: không dùng \b ở giữa, chỉ ở đầu và cuối
-                if (!firstMulti) {
-                    multiWords.append("|");
-                }
-                multiWords.append("\\b").append(Pattern.quote(word)).append("\\b");
-                firstMulti = false;
-            } else {
-                // Từ đơn: dùng \b ở cả đầu và cuối
-                if (!firstSingle) {
-                    singleWords.append("|");
-                }
-                singleWords.append(Pattern.quote(word));
-                firstSingle = false;
-            }
-        }
-        
-        StringBuilder patternBuilder = new StringBuilder();
-        patternBuilder.append("(?i)"); // Case-insensitive
-        
-        // Kết hợp pattern cho từ đơn và cụm từ
-        if (singleWords.length() > 0 && multiWords.length() > 0) {
-            patternBuilder.append("(\\b(").append(singleWords).append(")\\b|").append(multiWords).append(")");
-        } else if (singleWords.length() > 0) {
-            patternBuilder.append("\\b(").append(singleWords).append(")\\b");
-        } else if (multiWords.length() > 0) {
-            patternBuilder.append(multiWords);
-        } else {
-            // Fallback nếu không có từ nào
-            patternBuilder.append("(?!.*)");
+            wordsNoDiacritics.add(VietnameseDiacriticFolder.fold(word).toLowerCase());
         }
-        
-        return Pattern.compile(patternBuilder.toString());
+        return wordsNoDiacritics;
     }
-
+    
     /**
-     * Loại bỏ dấu tiếng Việt để so sánh từ không dấu
+     * Với mỗi dạng chữ thường (và không dấu nếu cần), giữ từ gốc đầu tiên trong từ điển
      */
-    private String removeVietnameseDiacritics(String text) {
-        if (text == null) return null;
-        
-        return text
-            .replace("à", "a").replace("á", "a").replace("ạ", "a").replace("ả", "a").replace("ã", "a")
-            .replace("â", "a").replace("ầ", "a").replace("ấ", "a").replace("ậ", "a").replace("ẩ", "a").replace("ẫ", "a")
-            .replace("ă", "a").replace("ằ", "a").replace("ắ", "a").replace("ặ", "a").replace("ẳ", "a").replace("ẵ", "a")
-            .replace("è", "e").replace("é", "e").replace("ẹ", "e").replace("ẻ", "e").replace("ẽ", "e")
-            .replace("ê", "e").replace("ề", "e").replace("ế", "e").replace("ệ", "e").replace("ể", "e").replace("ễ", "e")
-            .replace("ì", "i").replace("í", "i").replace("ị", "i").replace("ỉ", "i").replace("ĩ", "i")
-            .replace("ò", "o").replace("ó", "o").replace("ọ", "o").replace("ỏ", "o").replace("õ", "o")
-            .replace("ô", "o").replace("ồ", "o").replace("ố", "o").replace("ộ", "o").replace("ổ", "o").replace("ỗ", "o")
-            .replace("ơ", "o").replace("ờ", "o").replace("ớ", "o").replace("ợ", "o").replace("ở", "o").replace("ỡ", "o")
-            .replace("ù", "u").replace("ú", "u").replace("ụ", "u").replace("ủ", "u").replace("ũ", "u")
-            .replace("ư", "u").replace("ừ", "u").replace("ứ", "u").replace("ự", "u").replace("ử", "u").replace("ữ", "u")
-            .replace("ỳ", "y").replace("ý", "y").replace("ỵ", "y").replace("ỷ", "y").replace("ỹ", "y")
-            .replace("đ", "d")
-            .replace("À", "A").replace("Á", "A").replace("Ạ", "A").replace("Ả", "A").replace("Ã", "A")
-            .replace("Â", "A").replace("Ầ", "A").replace("Ấ", "A").replace("Ậ", "A").replace("Ẩ", "A").replace("Ẫ", "A")
-            .replace("Ă", "A").replace("Ằ", "A").replace("Ắ", "A").replace("Ặ", "A").replace("Ẳ", "A").replace("Ẵ", "A")
-            .replace("È", "E").replace("É", "E").replace("Ẹ", "E").replace("Ẻ", "E").replace("Ẽ", "E")
-            .replace("Ê", "E").replace("Ề", "E").replace("Ế", "E").replace("Ệ", "E").replace("Ể", "E").replace("Ễ", "E")
-            .replace("Ì", "I").replace("Í", "I").replace("Ị", "I").replace("Ỉ", "I").replace("Ĩ", "I")
-            .replace("Ò", "O").replace("Ó", "O").replace("Ọ", "O").replace("Ỏ", "O").replace("Õ", "O")
-            .replace("Ô", "O").replace("Ồ", "O").replace("Ố", "O").replace("Ộ", "O").replace("Ổ", "O").replace("Ỗ", "O")
-            .replace("Ơ", "O").replace("Ờ", "O").replace("Ớ", "O").replace("Ợ", "O").replace("Ở", "O").replace("Ỡ", "O")
-            .replace("Ù", "U").replace("Ú", "U").replace("Ụ", "U").replace("Ủ", "U").replace("Ũ", "U")
-            .replace("Ư", "U").replace("Ừ", "U").replace("Ứ", "U").replace("Ự", "U").replace("Ử", "U").replace("Ữ", "U")
-            .replace("Ỳ", "Y").replace("Ý", "Y").replace("Ỵ", "Y").replace("Ỷ", "Y").replace("Ỹ", "Y")
-            .replace("Đ", "D");
+    private static Map<String, String> createSourceWords(Set<String> words, boolean includeNoDiacritics) {
+        Map<String, String> sourceWords = new HashMap<>();
+        for (String word : words) {
+            String wordLower = word.toLowerCase();
+            sourceWords.putIfAbsent(wordLower, word);
+            if (includeNoDiacritics) {
+                sourceWords.putIfAbsent(VietnameseDiacriticFolder.fold(wordLower), word);
+            }
+        }
+        return sourceWords;
     }
 
     /**
@@ -725,71 +625,41 @@ public class ContentModerationService {
         String normalizedContent = content.toLowerCase().trim();
         log.debug("Content moderation: Checking content: '{}'", normalizedContent);
         
-        // Loại bỏ dấu để kiểm tra cả từ không dấu
-        String contentWithoutDiacritics = removeVietnameseDiacritics(normalizedContent);
-        
         List<String> detectedWords = new ArrayList<>();
         List<ViolationType> violations = new ArrayList<>();
 
-        // Kiểm tra thô tục, tục tĩu - sử dụng pattern với word boundaries để tránh false positive
-        java.util.regex.Matcher profanityMatcher = PROFANITY_PATTERN.matcher(normalizedContent);
-        boolean hasProfanity = profanityMatcher.find();
-        
-        // Nếu không tìm thấy với pattern có dấu, kiểm tra với pattern không dấu
-        if (!hasProfanity) {
-            java.util.regex.Matcher profanityMatcherNoDiacritics = PROFANITY_PATTERN_NO_DIACRITICS.matcher(contentWithoutDiacritics);
-            hasProfanity = profanityMatcherNoDiacritics.find();
-            if (hasProfanity) {
-                profanityMatcher = profanityMatcherNoDiacritics;
-            }
+        // Kiểm tra thô tục, tục tĩu - quét một lượt bằng automaton với word boundaries để tránh false positive
+        List<AhoCorasickMatcher.Match> profanityMatches = PROFANITY_MATCHER.findAll(normalizedContent);
+        
+        // Nếu không tìm thấy trên nội dung có dấu, loại bỏ dấu và kiểm tra với automaton không dấu
+        if (profanityMatches.isEmpty()) {
+            String contentWithoutDiacritics = VietnameseDiacriticFolder.fold(normalizedContent);
+            profanityMatches = PROFANITY_MATCHER_NO_DIACRITICS.findAll(contentWithoutDiacritics);
         }
         
-        if (hasProfanity) {
+        if (!profanityMatches.isEmpty()) {
             violations.add(ViolationType.PROFANITY);
-            // Tìm tất cả các từ vi phạm được phát hiện
-            profanityMatcher.reset();
-            while (profanityMatcher.find()) {
-                // Lấy toàn bộ text được match (group 0)
-                String matchedText = profanityMatcher.group(0).toLowerCase().trim();
-                // Tìm từ gốc tương ứng trong PROFANITY_WORDS
-                for (String word : PROFANITY_WORDS) {
-                    String wordLower = word.toLowerCase();
-                    String wordWithoutDiacritics = removeVietnameseDiacritics(wordLower);
-                    // So sánh với từ gốc (có dấu hoặc không dấu)
-                    if (matchedText.equals(wordLower) || matchedText.equals(wordWithoutDiacritics)) {
-                        if (!detectedWords.contains(word)) {
-                            detectedWords.add(word);
-                            log.debug("Content moderation: Detected profanity word '{}' in content (matched: '{}')", word, matchedText);
-                        }
-                        break;
-                    }
+            for (AhoCorasickMatcher.Match match : profanityMatches) {
+                // Từ gốc tương ứng trong PROFANITY_WORDS
+                String word = PROFANITY_SOURCE_WORDS.get(match.keyword());
+                if (word != null && !detectedWords.contains(word)) {
+                    detectedWords.add(word);
+                    log.debug("Content moderation: Detected profanity word '{}' in content (matched: '{}')", word, match.keyword());
                 }
             }
         }
 
         // Kiểm tra phân biệt chủng tộc (cần kiểm tra context kỹ hơn)
-        java.util.regex.Matcher racistMatcher = RACIST_PATTERN.matcher(normalizedContent);
-        if (racistMatcher.find()) {
-            // Tạo matcher mới để kiểm tra context (vì matcher hiện tại đã được sử dụng)
-            java.util.regex.Matcher contextMatcher = RACIST_PATTERN.matcher(normalizedContent);
-            // Kiểm tra context để tránh false positive
-            if (isRacistContext(normalizedContent, contextMatcher)) {
-                violations.add(ViolationType.RACISM);
-                // Tìm tất cả các từ vi phạm được phát hiện
-                contextMatcher.reset();
-                while (contextMatcher.find()) {
-                    // Lấy toàn bộ text được match (group 0)
-                    String matchedText = contextMatcher.group(0).toLowerCase().trim();
-                    // Tìm từ gốc tương ứng trong RACIST_WORDS
-                    for (String word : RACIST_WORDS) {
-                        if (matchedText.equals(word.toLowerCase())) {
-                            if (!detectedWords.contains(word)) {
-                                detectedWords.add(word);
-                                log.debug("Content moderation: Detected racist word '{}' in content (matched: '{}')", word, matchedText);
-                            }
-                            break;
-                        }
-                    }
+        List<AhoCorasickMatcher.Match> racistMatches = RACIST_MATCHER.findAll(normalizedContent);
+        // Kiểm tra context để tránh false positive
+        if (!racistMatches.isEmpty() && isRacistContext(normalizedContent, racistMatches)) {
+            violations.add(ViolationType.RACISM);
+            for (AhoCorasickMatcher.Match match : racistMatches) {
+                // Từ gốc tương ứng trong RACIST_WORDS
+                String word = RACIST_SOURCE_WORDS.get(match.keyword());
+                if (word != null && !detectedWords.contains(word)) {
+                    detectedWords.add(word);
+                    log.debug("Content moderation: Detected racist word '{}' in content (matched: '{}')", word, match.keyword());
                 }
             }
         }
@@ -816,7 +686,7 @@ public class ContentModerationService {
      * Kiểm tra context để xác định có phải phân biệt chủng tộc không
      * (Tránh false positive khi nói về quốc gia một cách tích cực)
      */
-    private boolean isRacistContext(String content, java.util.regex.Matcher matcher) {
+    private boolean isRacistContext(String content, List<AhoCorasickMatcher.Match> matches) {
         // Các từ chỉ context tiêu cực (tiếng Việt)
         String[] negativeContextVi = {
             "ghét", "xấu", "tệ", "dở", "kém", "thấp kém", "hạ đẳng",
@@ -830,13 +700,11 @@ public class ContentModerationService {
             "disgusting", "terrible", "awful", "pathetic", "worthless"
         };
         
-        // Tìm từ racist được phát hiện
-        matcher.reset();
-        while (matcher.find()) {
-            // Lấy toàn bộ text được match (group 0)
-            String matchedWord = matcher.group(0).toLowerCase().trim();
-            int matchStart = matcher.start();
-            int matchEnd = matcher.end();
+        // Duyệt các từ racist được phát hiện
+        for (AhoCorasickMatcher.Match match : matches) {
+            String matchedWord = match.keyword();
+            int matchStart = match.start();
+            int matchEnd = match.end();
             
             // Kiểm tra context xung quanh từ được phát hiện (50 ký tự trước và sau)
             int contextStart = Math.max(0, matchStart - 50);
@@ -3,45 +3,40 @@ package com.shop.backend.service;
 import com.shop.backend.dto.depression.DepressionTestRequest;
 import com.shop.backend.dto.depression.DepressionTestResponse;
 import com.shop.backend.dto.depression.DepressionQuestionDTO;
-import com.shop.backend.dto.depression.DepressionQuestionOptionDTO;
 import com.shop.backend.dto.depression.DepressionTestResultDTO;
 import com.shop.backend.model.*;
 import com.shop.backend.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.stream.Collectors;
 
 @Service
 public class DepressionTestService {
     
-    @Autowired
-    private DepressionQuestionViRepository questionViRepository;
+    private static final String INSERT_ANSWER_SQL =
+        "INSERT INTO depression_test_answers (test_result_id, question_id, answer_value, language, question_table) VALUES (?, ?, ?, ?, ?)";
     
     @Autowired
-    private DepressionQuestionEnRepository questionEnRepository;
+    private JdbcTemplate jdbcTemplate;
     
     @Autowired
-    private DepressionQuestionOptionViRepository optionViRepository;
+    private DepressionQuestionViRepository questionViRepository;
     
     @Autowired
-    private DepressionQuestionOptionEnRepository optionEnRepository;
+    private DepressionQuestionEnRepository questionEnRepository;
     
     @Autowired
     private DepressionTestResultRepository testResultRepository;
     
     @Autowired
-    private DepressionTestAnswerRepository testAnswerRepository;
+    private TestResultAnalysisService testResultAnalysisService;
     
     @Autowired
-    private TestResultEmailService emailService;
-    
-    @Autowired
-    private OpenAITestResultService openAITestResultService;
+    private QuestionCatalogService questionCatalogService;
     
     	@org.springframework.cache.annotation.Cacheable(value = "questions", key = "'all-vi'")
 	public List<DepressionQuestionVi> getActiveQuestionsVi() {
@@ -53,114 +48,21 @@ public class DepressionTestService {
 		return questionEnRepository.findByIsActiveTrue();
 	}
     
-    	@org.springframework.cache.annotation.Cacheable(value = "questions", key = "'dto-vi'")
+    // Test-taking reads are served from the in-memory catalog, no DB work per request
     public List<DepressionQuestionDTO> getActiveQuestionDTOsVi() {
-        List<DepressionQuestionVi> questions = questionViRepository.findByIsActiveTrue();
-        return questions.stream().map(q -> {
-            DepressionQuestionDTO dto = new DepressionQuestionDTO();
-            dto.setId(q.getId());
-            dto.setQuestionText(q.getQuestionText());
-            dto.setQuestionTextVi(q.getQuestionText()); // Set Vietnamese question text
-            dto.setWeight(q.getWeight());
-            dto.setCategory(q.getCategory());
-            dto.setOrder(q.getOrder());
-            // Convert options sang DTO để tránh circular reference
-            List<DepressionQuestionOptionVi> optionsVi = optionViRepository.findByQuestionIdOrderByOrderAsc(q.getId());
-            List<DepressionQuestionOptionDTO> optionsViDTO = optionsVi.stream()
-                .map(opt -> {
-                    DepressionQuestionOptionDTO optDTO = new DepressionQuestionOptionDTO();
-                    optDTO.setId(opt.getId());
-                    optDTO.setOptionText(opt.getOptionText());
-                    optDTO.setOptionValue(opt.getOptionValue());
-                    optDTO.setOrder(opt.getOrder());
-                    return optDTO;
-                })
-                .collect(Collectors.toList());
-            dto.setOptionsVi(optionsViDTO);
-            return dto;
-        }).toList();
-	}
-	
-	@org.springframework.cache.annotation.Cacheable(value = "questions", key = "'dto-en'")
-	public List<DepressionQuestionDTO> getActiveQuestionDTOsEn() {
-		List<DepressionQuestionEn> questions = questionEnRepository.findByIsActiveTrue();
-		return questions.stream().map(q -> {
-			DepressionQuestionDTO dto = new DepressionQuestionDTO();
-			dto.setId(q.getId());
-			dto.setQuestionText(q.getQuestionText());
-			dto.setQuestionTextEn(q.getQuestionText()); // Set English question text
-			dto.setWeight(q.getWeight());
-			dto.setCategory(q.getCategory());
-			dto.setOrder(q.getOrder());
-			// Convert options sang DTO để tránh circular reference
-			List<DepressionQuestionOptionEn> optionsEn = optionEnRepository.findByQuestionIdOrderByOrderAsc(q.getId());
-			List<DepressionQuestionOptionDTO> optionsEnDTO = optionsEn.stream()
-				.map(opt -> {
-					DepressionQuestionOptionDTO optDTO = new DepressionQuestionOptionDTO();
-					optDTO.setId(opt.getId());
-					optDTO.setOptionText(opt.getOptionText());
-					optDTO.setOptionValue(opt.getOptionValue());
-					optDTO.setOrder(opt.getOrder());
-					return optDTO;
-				})
-				.collect(Collectors.toList());
-			dto.setOptionsEn(optionsEnDTO);
-			return dto;
-		}).toList();
-	}
+        return questionCatalogService.getActiveQuestions("vi").questions();
+    }
+    
+    public List<DepressionQuestionDTO> getActiveQuestionDTOsEn() {
+        return questionCatalogService.getActiveQuestions("en").questions();
+    }
     
     public List<DepressionQuestionDTO> getActiveQuestionDTOsByTestKeyVi(String testKey) {
-        List<DepressionQuestionVi> questions = questionViRepository.findByTestKeyAndIsActiveTrue(testKey);
-        return questions.stream().map(q -> {
-            DepressionQuestionDTO dto = new DepressionQuestionDTO();
-            dto.setId(q.getId());
-            dto.setQuestionText(q.getQuestionText());
-            dto.setQuestionTextVi(q.getQuestionText()); // Set Vietnamese question text
-            dto.setWeight(q.getWeight());
-            dto.setCategory(q.getCategory());
-            dto.setOrder(q.getOrder());
-            // Convert options sang DTO để tránh circular reference
-            List<DepressionQuestionOptionVi> optionsVi = optionViRepository.findByQuestionIdOrderByOrderAsc(q.getId());
-            List<DepressionQuestionOptionDTO> optionsViDTO = optionsVi.stream()
-                .map(opt -> {
-                    DepressionQuestionOptionDTO optDTO = new DepressionQuestionOptionDTO();
-                    optDTO.setId(opt.getId());
-                    optDTO.setOptionText(opt.getOptionText());
-                    optDTO.setOptionValue(opt.getOptionValue());
-                    optDTO.setOrder(opt.getOrder());
-                    return optDTO;
-                })
-                .collect(Collectors.toList());
-            dto.setOptionsVi(optionsViDTO);
-            return dto;
-        }).toList();
+        return questionCatalogService.getActiveQuestions(testKey, "vi").questions();
     }
     
     public List<DepressionQuestionDTO> getActiveQuestionDTOsByTestKeyEn(String testKey) {
-        List<DepressionQuestionEn> questions = questionEnRepository.findByTestKeyAndIsActiveTrue(testKey);
-        return questions.stream().map(q -> {
-            DepressionQuestionDTO dto = new DepressionQuestionDTO();
-            dto.setId(q.getId());
-            dto.setQuestionText(q.getQuestionText());
-            dto.setQuestionTextEn(q.getQuestionText()); // Set English question text
-            dto.setWeight(q.getWeight());
-            dto.setCategory(q.getCategory());
-            dto.setOrder(q.getOrder());
-            // Convert options sang DTO để tránh circular reference
-            List<DepressionQuestionOptionEn> optionsEn = optionEnRepository.findByQuestionIdOrderByOrderAsc(q.getId());
-            List<DepressionQuestionOptionDTO> optionsEnDTO = optionsEn.stream()
-                .map(opt -> {
-                    DepressionQuestionOptionDTO optDTO = new DepressionQuestionOptionDTO();
-                    optDTO.setId(opt.getId());
-                    optDTO.setOptionText(opt.getOptionText());
-                    optDTO.setOptionValue(opt.getOptionValue());
-                    optDTO.setOrder(opt.getOrder());
-                    return optDTO;
-                })
-                .collect(Collectors.toList());
-            dto.setOptionsEn(optionsEnDTO);
-            return dto;
-        }).toList();
+        return questionCatalogService.getActiveQuestions(testKey, "en").questions();
     }
     
     /**
@@ -170,70 +72,24 @@ public class DepressionTestService {
      * @return List of questions in the specified language
      */
     public List<DepressionQuestionDTO> getActiveQuestionDTOsByTestKeyAndLanguage(String testKey, String language) {
-        // Determine the appropriate test key based on language
-        String actualTestKey = testKey;
-        if ("en".equals(language) && !testKey.endsWith("-EN")) {
-            // If English is requested but testKey doesn't end with -EN, append it
-            actualTestKey = testKey + "-EN";
-        } else if ("vi".equals(language) && testKey.endsWith("-EN")) {
-            // If Vietnamese is requested but testKey ends with -EN, remove it
-            actualTestKey = testKey.substring(0, testKey.length() - 3);
-        }
-        
-        // Query the appropriate repository based on language
-        if ("en".equals(language)) {
-            List<DepressionQuestionEn> questions = questionEnRepository.findByTestKeyAndIsActiveTrue(actualTestKey);
-            return questions.stream().map(q -> {
-                DepressionQuestionDTO dto = new DepressionQuestionDTO();
-                dto.setId(q.getId());
-                dto.setQuestionText(q.getQuestionText());
-                dto.setQuestionTextEn(q.getQuestionText()); // Set English question text
-                dto.setWeight(q.getWeight());
-                dto.setCategory(q.getCategory());
-                dto.setOrder(q.getOrder());
-                // Convert options sang DTO để tránh circular reference
-                List<DepressionQuestionOptionEn> optionsEn = optionEnRepository.findByQuestionIdOrderByOrderAsc(q.getId());
-                List<DepressionQuestionOptionDTO> optionsEnDTO = optionsEn.stream()
-                    .map(opt -> {
-                        DepressionQuestionOptionDTO optDTO = new DepressionQuestionOptionDTO();
-                        optDTO.setId(opt.getId());
-                        optDTO.setOptionText(opt.getOptionText());
-                        optDTO.setOptionValue(opt.getOptionValue());
-                        optDTO.setOrder(opt.getOrder());
-                        return optDTO;
-                    })
-                    .collect(Collectors.toList());
-                dto.setOptionsEn(optionsEnDTO);
-                return dto;
-            }).toList();
-        } else {
-            List<DepressionQuestionVi> questions = questionViRepository.findByTestKeyAndIsActiveTrue(actualTestKey);
-            return questions.stream().map(q -> {
-                DepressionQuestionDTO dto = new DepressionQuestionDTO();
-                dto.setId(q.getId());
-                dto.setQuestionText(q.getQuestionText());
-                dto.setQuestionTextVi(q.getQuestionText()); // Set Vietnamese question text
-                dto.setWeight(q.getWeight());
-                dto.setCategory(q.getCategory());
-                dto.setOrder(q.getOrder());
-                // Convert options sang DTO để tránh circular reference
-                List<DepressionQuestionOptionVi> optionsVi = optionViRepository.findByQuestionIdOrderByOrderAsc(q.getId());
-                List<DepressionQuestionOptionDTO> optionsViDTO = optionsVi.stream()
-                    .map(opt -> {
-                        DepressionQuestionOptionDTO optDTO = new DepressionQuestionOptionDTO();
-                        optDTO.setId(opt.getId());
-                        optDTO.setOptionText(opt.getOptionText());
-                        optDTO.setOptionValue(opt.getOptionValue());
-                        optDTO.setOrder(opt.getOrder());
-                        return optDTO;
-                    })
-                    .collect(Collectors.toList());
-                dto.setOptionsVi(optionsViDTO);
-                return dto;
-            }).toList();
+        return getQuestionList(testKey, language).questions();
+    }
+    
+    /**
+     * Questions plus the ETag clients use to revalidate; testKey may be null for all questions of a language
+     */
+    public QuestionCatalogService.QuestionList getQuestionList(String testKey, String language) {
+        if (testKey == null || testKey.isEmpty()) {
+            return questionCatalogService.getActiveQuestions(language);
         }
+        return questionCatalogService.getActiveQuestions(testKey, language);
     }
     
+    /**
+     * Store the rule-based verdict and return right away; for signed-in users the AI
+     * analysis, result email and WebSocket update follow in the background
+     * (see {@link TestResultAnalysisService})
+     */
     @Transactional
     public DepressionTestResponse submitTest(Long userId, DepressionTestRequest request) {
         // Calculate total score
@@ -242,107 +98,69 @@ public class DepressionTestService {
             totalScore += answer.getAnswerValue();
         }
         
-        // Prepare answers for AI analysis
-        List<Map<String, Object>> answersForAI = new java.util.ArrayList<>();
         String language = request.getLanguage() != null ? request.getLanguage() : "vi";
         
-        for (DepressionTestRequest.QuestionAnswer answer : request.getAnswers()) {
-            // Get question text for context based on language
-            String questionText = "Câu hỏi không xác định";
-            String category = "Không xác định";
-            
-            if ("en".equals(language)) {
-                DepressionQuestionEn question = questionEnRepository.findById(answer.getQuestionId()).orElse(null);
-                if (question != null) {
-                    questionText = question.getQuestionText();
-                    category = question.getCategory();
-                }
-            } else {
-                DepressionQuestionVi question = questionViRepository.findById(answer.getQuestionId()).orElse(null);
-                if (question != null) {
-                    questionText = question.getQuestionText();
-                    category = question.getCategory();
-                }
-            }
-            
-            Map<String, Object> answerData = new HashMap<>();
-            answerData.put("questionText", questionText);
-            answerData.put("answerValue", answer.getAnswerValue());
-            answerData.put("category", category);
-            answerData.put("questionId", answer.getQuestionId());
-            answersForAI.add(answerData);
-        }
-        
-        // Get AI-powered analysis
-        Map<String, String> aiAnalysis = openAITestResultService.generateTestResultAnalysis(
-            request.getTestType(), totalScore, answersForAI
-        );
+        // Rule-based verdict; the AI analysis replaces it later
+        DepressionTestResult.SeverityLevel severityLevel = determineSeverityLevel(totalScore);
+        String diagnosis = determineDiagnosis(totalScore);
+        String recommendation = getRecommendation(severityLevel);
         
-        // Use AI results or fallback to default
-        String diagnosis = aiAnalysis.getOrDefault("diagnosis", determineDiagnosis(totalScore));
-        String severityStr = aiAnalysis.getOrDefault("severity", determineSeverityLevel(totalScore).name());
-        String recommendation = aiAnalysis.getOrDefault("recommendation", getRecommendation(determineSeverityLevel(totalScore)));
-        
-        // Convert severity string to enum
-        DepressionTestResult.SeverityLevel severityLevel;
-        try {
-            severityLevel = DepressionTestResult.SeverityLevel.valueOf(severityStr);
-        } catch (IllegalArgumentException e) {
-            severityLevel = determineSeverityLevel(totalScore);
+        // Anonymous users are not persisted, so they only get the rule-based verdict
+        if (userId == null) {
+            DepressionTestResponse response = new DepressionTestResponse();
+            response.setTotalScore(totalScore);
+            response.setDiagnosis(diagnosis);
+            response.setSeverityLevel(severityLevel.name());
+            response.setSeverity(severityLevel.name());
+            response.setRecommendation(recommendation);
+            response.setTestedAt(java.time.LocalDateTime.now());
+            response.setShouldContactExpert(severityLevel == DepressionTestResult.SeverityLevel.SEVERE);
+            response.setAnalysisStatus(DepressionTestResult.AnalysisStatus.COMPLETED.name());
+            return response;
         }
         
-        // Save test result (only for authenticated users)
-        DepressionTestResult testResult = null;
-        if (userId != null) {
-            testResult = new DepressionTestResult();
-            testResult.setTotalScore(totalScore);
-            testResult.setDiagnosis(diagnosis);
-            testResult.setSeverityLevel(severityLevel);
-            testResult.setUser(new User()); // Set user by ID
-            testResult.getUser().setId(userId);
-            testResult.setRecommendation(recommendation);
-            testResult.setTestType(request.getTestType());
-            testResult.setLanguage(DepressionTestResult.Language.valueOf(language.toUpperCase()));
-            
-            testResult = testResultRepository.save(testResult);
-        }
+        // Save test result
+        DepressionTestResult testResult = new DepressionTestResult();
+        testResult.setTotalScore(totalScore);
+        testResult.setDiagnosis(diagnosis);
+        testResult.setSeverityLevel(severityLevel);
+        testResult.setUser(new User()); // Set user by ID
+        testResult.getUser().setId(userId);
+        testResult.setRecommendation(recommendation);
+        testResult.setTestType(request.getTestType());
+        testResult.setLanguage(DepressionTestResult.Language.valueOf(language.toUpperCase()));
+        testResult.setAnalysisStatus(DepressionTestResult.AnalysisStatus.PENDING);
         
-        // Save individual answers (only for authenticated users)
-        if (userId != null && testResult != null) {
-            for (DepressionTestRequest.QuestionAnswer answer : request.getAnswers()) {
-                DepressionTestAnswer testAnswer = new DepressionTestAnswer();
-                testAnswer.setTestResult(testResult);
-                testAnswer.setQuestionId(answer.getQuestionId());
-                testAnswer.setAnswerValue(answer.getAnswerValue());
-                testAnswer.setLanguage(DepressionTestAnswer.Language.valueOf(language.toUpperCase()));
-                testAnswer.setQuestionTable("en".equals(language) ? 
-                    DepressionTestAnswer.QuestionTable.DEPRESSION_QUESTIONS_EN : 
-                    DepressionTestAnswer.QuestionTable.DEPRESSION_QUESTIONS_VI);
-                testAnswerRepository.save(testAnswer);
-            }
-        }
+        testResult = testResultRepository.save(testResult);
         
-        // Create response
-        DepressionTestResponse response = new DepressionTestResponse();
-        response.setTestResultId(testResult != null ? testResult.getId() : null);
-        response.setTotalScore(totalScore);
-        response.setDiagnosis(diagnosis);
-        response.setSeverityLevel(severityLevel.name());
-        response.setSeverity(severityLevel.name()); // Thêm setSeverity
-        response.setRecommendation(recommendation);
-        response.setTestedAt(testResult != null ? testResult.getTestedAt() : java.time.LocalDateTime.now());
-        response.setShouldContactExpert(severityLevel == DepressionTestResult.SeverityLevel.SEVERE);
-        
-        // Gửi email kết quả test (chỉ cho user đã đăng ký)
-        if (userId != null) {
-            try {
-                emailService.sendTestResultEmail(userId, response, request.getTestType());
-            } catch (Exception e) {
-                // Don't throw to avoid affecting test submission
-            }
+        // Save individual answers in one JDBC batch (IDENTITY ids rule out Hibernate insert batching)
+        DepressionTestAnswer.Language answerLanguage = DepressionTestAnswer.Language.valueOf(language.toUpperCase());
+        DepressionTestAnswer.QuestionTable questionTable = "en".equals(language) ? 
+            DepressionTestAnswer.QuestionTable.DEPRESSION_QUESTIONS_EN : 
+            DepressionTestAnswer.QuestionTable.DEPRESSION_QUESTIONS_VI;
+        List<Object[]> answerRows = new java.util.ArrayList<>(request.getAnswers().size());
+        for (DepressionTestRequest.QuestionAnswer answer : request.getAnswers()) {
+            answerRows.add(new Object[] {
+                testResult.getId(), answer.getQuestionId(), answer.getAnswerValue(),
+                answerLanguage.getValue(), questionTable.getValue()
+            });
         }
+        jdbcTemplate.batchUpdate(INSERT_ANSWER_SQL, answerRows);
         
-        return response;
+        // AI analysis + email run after commit, off the request thread
+        testResultAnalysisService.scheduleAfterCommit(testResult.getId());
+        
+        return testResultAnalysisService.toResponse(testResult);
+    }
+    
+    /**
+     * Current verdict of one of the user's results, for clients polling until analysis completes
+     */
+    @Transactional(readOnly = true)
+    public DepressionTestResponse getTestResultStatus(Long userId, Long testResultId) {
+        DepressionTestResult result = testResultRepository.findByIdAndUserId(testResultId, userId)
+            .orElseThrow(() -> new RuntimeException("Test result not found"));
+        return testResultAnalysisService.toResponse(result);
     }
     
     private String determineDiagnosis(int totalScore) {
@@ -5,11 +5,8 @@ import com.shop.backend.model.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.internet.MimeMessage;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
@@ -18,7 +15,7 @@ import java.util.Locale;
 @Slf4j
 public class EmailNotificationService {
     
-    private final JavaMailSender mailSender;
+    private final EmailOutboxService emailOutboxService;
     
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
@@ -27,20 +24,20 @@ public class EmailNotificationService {
      * Send general notification email
      */
     public void sendNotificationEmail(User user, String subject, String message, String type) {
+        sendNotificationEmail(user, subject, message, type, null);
+    }
+    
+    /**
+     * Send general notification email, at most once per dedupKey
+     */
+    public void sendNotificationEmail(User user, String subject, String message, String type, String dedupKey) {
         try {
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-            
-            helper.setTo(user.getEmail());
-            helper.setSubject("[MindMeter] " + subject);
-            
             String html = generateNotificationEmailHtml(user, subject, message, type);
-            helper.setText(html, true);
-            
-            mailSender.send(mimeMessage);
-            log.info("Notification email sent to: {}", user.getEmail());
+            if (emailOutboxService.enqueue(user.getEmail(), "[MindMeter] " + subject, html, dedupKey)) {
+                log.info("Notification email queued for: {}", user.getEmail());
+            }
         } catch (Exception e) {
-            log.error("Failed to send notification email: {}", e.getMessage(), e);
+            log.error("Failed to queue notification email: {}", e.getMessage(), e);
         }
     }
     
@@ -79,7 +76,9 @@ public class EmailNotificationService {
             appointmentTime
         );
         
-        sendNotificationEmail(student, subject, message, "APPOINTMENT_REMINDER");
+        // One email per reminder, even if its batch is taken over by another node mid-send
+        sendNotificationEmail(student, subject, message, "APPOINTMENT_REMINDER",
+            "appointment:" + appointment.getId() + ":reminder:" + hoursBefore + "h");
     }
     
     /**
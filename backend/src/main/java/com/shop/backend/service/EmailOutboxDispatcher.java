@@ -0,0 +1,396 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.EmailOutbox;
+import com.shop.backend.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the emails queued in email_outbox
+ *
+ * A few worker threads each claim a batch of due rows (a conditional UPDATE to
+ * SENDING, so nodes never claim the same row) and hand the whole batch to
+ * JavaMailSender in one call, which sends it over a single SMTP connection. The
+ * workers of a node share one GCRA limiter, so a node sends at most
+ * email.outbox.rate-per-minute messages. The limit is per node: with N nodes the
+ * provider may see N times that rate. A batch whose worker is interrupted while
+ * waiting for the limiter (shutdown) is released unsent. Failed messages are
+ * retried with exponential backoff; after max-attempts, or when the address is
+ * rejected, they are marked FAILED. Emails with the same dedup key are never
+ * sent twice: email_outbox holds at most one row per key.
+ *
+ * Delivery is at least once: a batch claimed by a node that dies mid-send is
+ * released after the lease and may be sent again.
+ */
+@Slf4j
+@Service
+public class EmailOutboxDispatcher {
+
+    @Value("${email.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${email.outbox.threads:2}")
+    private int threads;
+
+    @Value("${email.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${email.outbox.rate-per-minute:120}")
+    private int ratePerMinute;
+
+    @Value("${email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.retry-base-ms:30000}")
+    private long retryBaseMs;
+
+    @Value("${email.outbox.retry-max-ms:3600000}")
+    private long retryMaxMs;
+
+    @Value("${email.outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${email.outbox.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${email.outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${email.outbox.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    private LocalRateLimiter rateLimiter;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final Object signal = new Object();
+
+    private volatile boolean running;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastBatchMillis = new AtomicLong();
+
+    // Sent count and time at the previous sweep, for the send rate
+    private long sentAtLastSweep;
+    private long lastSweepNanos = System.nanoTime();
+    private volatile double sentPerMinute;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rateLimiter = new LocalRateLimiter(ratePerMinute, Duration.ofMinutes(1));
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("email.outbox.pending", pending, AtomicLong::get).register(registry);
+            FunctionCounter.builder("email.outbox.sent", sent, AtomicLong::get).register(registry);
+            FunctionCounter.builder("email.outbox.retried", retried, AtomicLong::get).register(registry);
+            FunctionCounter.builder("email.outbox.failed", failed, AtomicLong::get).register(registry);
+        }
+
+        if (!enabled) {
+            log.info("Email outbox dispatcher disabled; queued emails are not sent");
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= threads; i++) {
+            Thread worker = new Thread(this::work, "email-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wakeUp();
+        long deadline = System.nanoTime() + Duration.ofMillis(shutdownTimeoutMs).toNanos();
+        try {
+            for (Thread worker : workers) {
+                long left = Duration.ofNanos(deadline - System.nanoTime()).toMillis();
+                if (left > 0) {
+                    worker.join(left);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A batch still being sent is released to other nodes after its lease
+        workers.stream().filter(Thread::isAlive).forEach(Thread::interrupt);
+    }
+
+    /**
+     * Make idle workers look for new emails now rather than at the next poll
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void work() {
+        while (running) {
+            int processed = 0;
+            try {
+                processed = dispatchBatch();
+            } catch (Exception e) {
+                log.error("Email outbox batch failed", e);
+            }
+            if (processed == 0 && running) {
+                synchronized (signal) {
+                    try {
+                        signal.wait(pollIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim and send one batch on the calling thread; package-private for tests
+     *
+     * @return number of rows claimed, 0 when nothing was due
+     */
+    int dispatchBatch() {
+        List<EmailOutbox> batch = transactionTemplate.execute(status -> claim());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        long startedAt = System.currentTimeMillis();
+
+        Map<EmailOutbox, Exception> permanent = new HashMap<>();
+        Map<MimeMessage, EmailOutbox> messages = new LinkedHashMap<>();
+        for (EmailOutbox email : batch) {
+            try {
+                messages.put(toMimeMessage(email), email);
+            } catch (MessagingException e) {
+                permanent.put(email, e);
+            }
+        }
+
+        Map<EmailOutbox, Exception> transientFailures = new HashMap<>();
+        List<Long> released = new ArrayList<>();
+        if (!messages.isEmpty() && !acquirePermits(messages.size())) {
+            // Interrupted while waiting for the rate limit: give the emails back rather than exceed it
+            messages.values().forEach(email -> released.add(email.getId()));
+            messages.clear();
+        }
+        if (!messages.isEmpty()) {
+            try {
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                // The others went out on the same connection
+                e.getFailedMessages().forEach((message, cause) -> {
+                    EmailOutbox email = messages.get(message);
+                    if (email != null) {
+                        (isRejectedAddress(cause) ? permanent : transientFailures).put(email, cause);
+                    }
+                });
+            } catch (MailException e) {
+                // Connection or authentication failure: nothing was sent
+                messages.values().forEach(email -> transientFailures.put(email, e));
+            }
+        }
+
+        List<Long> delivered = new ArrayList<>();
+        for (EmailOutbox email : messages.values()) {
+            if (!permanent.containsKey(email) && !transientFailures.containsKey(email)) {
+                delivered.add(email.getId());
+            }
+        }
+        // Record the outcome even during shutdown: an interrupted thread cannot get a pooled connection
+        boolean interrupted = Thread.interrupted();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (!delivered.isEmpty()) {
+                    emailOutboxRepository.markDone(delivered, EmailOutbox.Status.SENT, now);
+                }
+                if (!released.isEmpty()) {
+                    emailOutboxRepository.release(released, EmailOutbox.Status.PENDING);
+                }
+                permanent.forEach((email, cause) -> fail(email, cause, true, now));
+                transientFailures.forEach((email, cause) -> fail(email, cause, false, now));
+            });
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        sent.addAndGet(delivered.size());
+        lastBatchMillis.set(System.currentTimeMillis() - startedAt);
+        if (!permanent.isEmpty() || !transientFailures.isEmpty()) {
+            log.warn("Email batch: {} sent, {} to retry, {} failed", delivered.size(),
+                transientFailures.size(), permanent.size());
+        }
+        return batch.size();
+    }
+
+    private List<EmailOutbox> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> due = emailOutboxRepository.findDueIds(now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return List.of();
+        }
+        String token = UUID.randomUUID().toString();
+        emailOutboxRepository.claim(due, EmailOutbox.Status.SENDING, token, now.plus(Duration.ofMillis(leaseMs)));
+        return emailOutboxRepository.findByClaimTokenAndStatus(token, EmailOutbox.Status.SENDING);
+    }
+
+    private void fail(EmailOutbox email, Exception cause, boolean permanent, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        String error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        if (permanent || attempts >= maxAttempts) {
+            emailOutboxRepository.markFailed(email.getId(), EmailOutbox.Status.FAILED, attempts, now, error);
+            failed.incrementAndGet();
+            log.error("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(), attempts, error);
+        } else {
+            emailOutboxRepository.markFailed(email.getId(), EmailOutbox.Status.PENDING, attempts,
+                now.plus(Duration.ofMillis(backoffMillis(attempts))), error);
+            retried.incrementAndGet();
+        }
+    }
+
+    /**
+     * retry-base-ms doubled per attempt, capped at retry-max-ms, plus up to 20% jitter
+     * so a recovering SMTP server is not hit by every retry at once
+     */
+    long backoffMillis(int attempts) {
+        long delay = retryBaseMs << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, retryMaxMs);
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    /**
+     * Wait for one rate-limit permit per message
+     *
+     * @return false if the thread was interrupted first; the batch must not be sent then
+     */
+    private boolean acquirePermits(int count) {
+        int acquired = 0;
+        while (acquired < count) {
+            RateLimitDecision decision = rateLimiter.tryAcquire(0L);
+            if (decision.allowed()) {
+                acquired++;
+                continue;
+            }
+            try {
+                Thread.sleep(Math.max(1, decision.retryAfterMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getHtmlBody(), true);
+        return message;
+    }
+
+    private static boolean isRejectedAddress(Exception cause) {
+        return cause instanceof SendFailedException sendFailed
+            && sendFailed.getInvalidAddresses() != null
+            && sendFailed.getInvalidAddresses().length > 0;
+    }
+
+    /**
+     * Release batches whose node stopped mid-send, refresh the queue depth and the
+     * send rate, and drop delivered rows past the retention period
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.sweep-interval-ms:30000}",
+               initialDelayString = "${email.outbox.sweep-interval-ms:30000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer released = transactionTemplate.execute(status -> emailOutboxRepository.releaseExpiredClaims(EmailOutbox.Status.PENDING, now));
+        if (released != null && released > 0) {
+            log.warn("Released {} emails claimed by a node that stopped sending", released);
+            wakeUp();
+        }
+        transactionTemplate.executeWithoutResult(status ->
+            emailOutboxRepository.deleteDoneBefore(now.minusDays(retentionDays)));
+        pending.set(emailOutboxRepository.countByStatus(EmailOutbox.Status.PENDING));
+
+        long nanos = System.nanoTime();
+        long total = sent.get();
+        double minutes = (nanos - lastSweepNanos) / 60_000_000_000.0;
+        sentPerMinute = minutes > 0 ? (total - sentAtLastSweep) / minutes : 0.0;
+        sentAtLastSweep = total;
+        lastSweepNanos = nanos;
+    }
+
+    /**
+     * Dispatcher statistics for monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", pending.get());
+        stats.put("sent", sent.get());
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("sentPerMinute", sentPerMinute);
+        stats.put("ratePerMinuteLimit", ratePerMinute);
+        stats.put("lastBatchMillis", lastBatchMillis.get());
+        return stats;
+    }
+}
@@ -0,0 +1,181 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.EmailOutbox;
+import com.shop.backend.repository.EmailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Queues emails in the email_outbox table instead of talking to SMTP
+ *
+ * The row is written in the caller's transaction, so an email goes out only if the
+ * booking, confirmation etc. that triggered it commits, and the request never waits
+ * on the mail server. EmailOutboxDispatcher sends it; it is woken after commit.
+ *
+ * dedup_key is unique, so two requests queueing the same key at once cannot both
+ * insert it. The insert runs under a JDBC savepoint: a duplicate key rolls back
+ * only that insert and the caller's transaction goes on. A key whose email failed or
+ * was skipped can be queued again; its row is reset with the new content.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    private static final List<EmailOutbox.Status> LIVE = List.of(
+        EmailOutbox.Status.PENDING, EmailOutbox.Status.SENDING, EmailOutbox.Status.SENT);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO email_outbox (recipient, subject, html_body, dedup_key, campaign_id, status, attempts, " +
+        "next_attempt_at, created_at) VALUES (?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private static final String REQUEUE_SQL =
+        "UPDATE email_outbox SET recipient = ?, subject = ?, html_body = ?, campaign_id = ?, status = 'PENDING', " +
+        "attempts = 0, next_attempt_at = ?, created_at = ?, last_error = NULL, sent_at = NULL " +
+        "WHERE dedup_key = ? AND status IN ('FAILED', 'SKIPPED')";
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param dedupKey emails with the same key are sent once; null to always send
+     * @return false if nothing was queued (no recipient, or the key is already queued or sent)
+     */
+    @Transactional
+    public boolean enqueue(String recipient, String subject, String htmlBody, String dedupKey) {
+        if (recipient == null || recipient.isBlank()) {
+            log.warn("Email '{}' has no recipient, not queued", subject);
+            return false;
+        }
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(recipient);
+        email.setSubject(subject);
+        email.setHtmlBody(htmlBody);
+        email.setDedupKey(dedupKey);
+        if (!insert(email, LocalDateTime.now())) {
+            log.debug("Email {} already queued, skipped", dedupKey);
+            return false;
+        }
+        wakeDispatcherAfterCommit();
+        return true;
+    }
+
+    /**
+     * Queue many prepared emails at once (newsletters), with one dedup query and one
+     * batch insert for all of them
+     *
+     * @return number of emails queued; the others had no recipient or a key already queued or sent
+     */
+    @Transactional
+    public int enqueueAll(List<EmailOutbox> emails) {
+        List<String> keys = emails.stream().map(EmailOutbox::getDedupKey).filter(Objects::nonNull).toList();
+        Set<String> taken = keys.isEmpty() ? new HashSet<>() : new HashSet<>(emailOutboxRepository.findDedupKeysIn(keys, LIVE));
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> queued = new ArrayList<>(emails.size());
+        for (EmailOutbox email : emails) {
+            if (email.getRecipient() == null || email.getRecipient().isBlank()) {
+                continue;
+            }
+            // add() also drops a key repeated within this batch
+            if (email.getDedupKey() != null && !taken.add(email.getDedupKey())) {
+                continue;
+            }
+            queued.add(email);
+        }
+        if (queued.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = queued.stream().map(email -> insertArgs(email, now)).toList();
+        int inserted = 0;
+        if (underSavepoint(() -> jdbcTemplate.batchUpdate(INSERT_SQL, rows))) {
+            inserted = queued.size();
+        } else {
+            // A key queued meanwhile, or one that failed before: go one by one
+            for (EmailOutbox email : queued) {
+                if (insert(email, now)) {
+                    inserted++;
+                }
+            }
+        }
+        if (inserted > 0) {
+            wakeDispatcherAfterCommit();
+        }
+        return inserted;
+    }
+
+    /**
+     * Insert one email under a savepoint, or re-queue the failed or skipped email with its key
+     *
+     * @return false if an email with the key is already queued or sent
+     */
+    private boolean insert(EmailOutbox email, LocalDateTime now) {
+        if (underSavepoint(() -> jdbcTemplate.update(INSERT_SQL, insertArgs(email, now)))) {
+            return true;
+        }
+        return jdbcTemplate.update(REQUEUE_SQL, email.getRecipient(), email.getSubject(), email.getHtmlBody(),
+            email.getCampaignId(), Timestamp.valueOf(now), Timestamp.valueOf(now), email.getDedupKey()) > 0;
+    }
+
+    /**
+     * Run inserts under a savepoint of the caller's transaction: a duplicate key undoes
+     * only these inserts, and the transaction is not marked rollback-only
+     *
+     * @return false if a dedup key was already taken
+     */
+    private boolean underSavepoint(Runnable inserts) {
+        Boolean inserted = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                inserts.run();
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                return false;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+        return Boolean.TRUE.equals(inserted);
+    }
+
+    private static Object[] insertArgs(EmailOutbox email, LocalDateTime now) {
+        return new Object[] {
+            email.getRecipient(),
+            email.getSubject(),
+            email.getHtmlBody(),
+            email.getDedupKey(),
+            email.getCampaignId(),
+            Timestamp.valueOf(now),
+            Timestamp.valueOf(now)
+        };
+    }
+
+    private void wakeDispatcherAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emailOutboxDispatcher.wakeUp();
+                }
+            });
+        } else {
+            emailOutboxDispatcher.wakeUp();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.repository.AppointmentRepository;
+import com.shop.backend.repository.ExpertBreakRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Busy time of every expert (appointments that are not CANCELLED/NO_SHOW, and
+ * breaks) in one IntervalTree per expert, for conflict checks at booking time
+ *
+ * Built from the database at startup, or per expert on first use, from yesterday
+ * onwards; intervals that ended before yesterday are pruned nightly. An expert's tree is only read or changed under that expert's lock
+ * stripe. {@link #book} holds the lock across the check, the insert of the
+ * appointment and the tree update, so two bookings of the same slot cannot both
+ * pass; the entry is taken out again if the transaction rolls back. Cancellations
+ * and break changes are applied after commit.
+ *
+ * Conflicts follow the booking check it replaces: appointments touching the slot
+ * conflict, breaks only when they overlap it. Breaks that end before they start
+ * are ignored.
+ *
+ * The index and its locks are per JVM and nothing in the database stops two nodes
+ * from booking the same slot: a booking made on another node is not in this node's
+ * tree. Booking therefore needs a single backend node, or all booking traffic routed
+ * to one node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpertOccupancyIndex {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ExpertBreakRepository expertBreakRepository;
+
+    private final ReentrantLock[] locks = newLocks();
+
+    private final ConcurrentMap<Long, IntervalTree> trees = new ConcurrentHashMap<>();
+
+    // Experts changed before their tree was built; the startup load must not install a stale snapshot for them
+    private final Set<Long> changedBeforeLoad = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            LocalDateTime horizon = horizon();
+            long startedAt = System.currentTimeMillis();
+            Map<Long, IntervalTree> loaded = new HashMap<>();
+            addAppointments(loaded, appointmentRepository.findBusyIntervalsFrom(null, horizon));
+            addBreaks(loaded, expertBreakRepository.findBreakIntervalsFrom(null, horizon.toLocalDate()));
+            loaded.forEach((expertId, tree) -> withLock(expertId, () -> {
+                if (!changedBeforeLoad.contains(expertId)) {
+                    trees.putIfAbsent(expertId, tree);
+                }
+            }));
+            log.info("Loaded occupancy of {} experts in {} ms", loaded.size(), System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            // Each expert is loaded on first use instead
+            log.error("Occupancy preload failed", e);
+        }
+    }
+
+    /**
+     * Insert an appointment if the expert is free for its whole duration
+     *
+     * @param insert saves the appointment; called under the expert's lock, only if the slot is free
+     * @return the saved appointment, or null if the slot conflicts with another appointment or a break
+     */
+    public Appointment book(Long expertId, LocalDateTime start, int durationMinutes, Supplier<Appointment> insert) {
+        LocalDateTime horizon = horizon();
+        if (start.isBefore(horizon)) {
+            throw new IllegalArgumentException("Cannot book before " + horizon);
+        }
+        ReentrantLock lock = lockFor(expertId);
+        lock.lock();
+        try {
+            IntervalTree tree = load(expertId);
+            long from = toNanos(start);
+            long to = toNanos(start.plusMinutes(durationMinutes));
+            if (tree.overlaps(from, to)) {
+                return null;
+            }
+            Appointment saved = insert.get();
+            Long id = saved.getId();
+            tree.insert(from, to, id, true);
+            afterRollback(() -> modify(expertId, t -> t.remove(id)));
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the expert has no appointment or break conflicting with [start, start + duration]
+     */
+    public boolean isFree(Long expertId, LocalDateTime start, int durationMinutes) {
+        ReentrantLock lock = lockFor(expertId);
+        lock.lock();
+        try {
+            return !load(expertId).overlaps(toNanos(start), toNanos(start.plusMinutes(durationMinutes)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Make sure a busy appointment is indexed (e.g. on confirm)
+     */
+    public void track(Appointment appointment) {
+        if (!isBusy(appointment) || appointment.getAppointmentDate().isBefore(horizon())) {
+            return;
+        }
+        Long id = appointment.getId();
+        long from = toNanos(appointment.getAppointmentDate());
+        long to = toNanos(appointment.getAppointmentDate().plusMinutes(durationOf(appointment)));
+        modify(appointment.getExpert().getId(), tree -> {
+            if (!tree.contains(id)) {
+                tree.insert(from, to, id, true);
+            }
+        });
+    }
+
+    /**
+     * Free the appointment's time once the current transaction commits (e.g. on cancel)
+     */
+    public void release(Appointment appointment) {
+        Long expertId = appointment.getExpert().getId();
+        Long id = appointment.getId();
+        afterCommit(() -> modify(expertId, tree -> tree.remove(id)));
+    }
+
+    /**
+     * Index a created or updated break once the current transaction commits
+     */
+    public void trackBreak(ExpertBreak expertBreak) {
+        Long expertId = expertBreak.getExpert().getId();
+        long id = -expertBreak.getId();
+        LocalDate date = expertBreak.getBreakDate();
+        LocalTime startTime = expertBreak.getStartTime();
+        LocalTime endTime = expertBreak.getEndTime();
+        afterCommit(() -> modify(expertId, tree -> {
+            tree.remove(id);
+            addBreak(tree, id, date, startTime, endTime);
+        }));
+    }
+
+    /**
+     * Drop a deleted break once the current transaction commits
+     */
+    public void releaseBreak(ExpertBreak expertBreak) {
+        Long expertId = expertBreak.getExpert().getId();
+        long id = -expertBreak.getId();
+        afterCommit(() -> modify(expertId, tree -> tree.remove(id)));
+    }
+
+    /**
+     * Drop appointments and breaks that ended before the horizon; they can no longer
+     * conflict with a booking
+     */
+    @Scheduled(cron = "${appointments.occupancy.prune-cron:0 15 0 * * *}")
+    public void prune() {
+        long horizon = toNanos(horizon());
+        AtomicInteger removed = new AtomicInteger();
+        for (Long expertId : trees.keySet()) {
+            withLock(expertId, () -> {
+                IntervalTree tree = trees.get(expertId);
+                if (tree != null) {
+                    removed.addAndGet(tree.removeEndingBefore(horizon));
+                }
+            });
+        }
+        log.debug("Pruned {} past intervals from the occupancy index", removed.get());
+    }
+
+    /**
+     * Change the expert's tree if it is loaded; otherwise it is built from the database when first used
+     */
+    private void modify(Long expertId, Consumer<IntervalTree> change) {
+        withLock(expertId, () -> {
+            IntervalTree tree = trees.get(expertId);
+            if (tree != null) {
+                change.accept(tree);
+            } else {
+                changedBeforeLoad.add(expertId);
+            }
+        });
+    }
+
+    // Caller holds the expert's lock
+    private IntervalTree load(Long expertId) {
+        IntervalTree tree = trees.get(expertId);
+        if (tree == null) {
+            LocalDateTime horizon = horizon();
+            Map<Long, IntervalTree> loaded = new HashMap<>();
+            loaded.put(expertId, new IntervalTree());
+            addAppointments(loaded, appointmentRepository.findBusyIntervalsFrom(expertId, horizon));
+            addBreaks(loaded, expertBreakRepository.findBreakIntervalsFrom(expertId, horizon.toLocalDate()));
+            tree = loaded.get(expertId);
+            trees.put(expertId, tree);
+        }
+        return tree;
+    }
+
+    // Nothing before this is indexed
+    private static LocalDateTime horizon() {
+        return LocalDate.now().minusDays(1).atStartOfDay();
+    }
+
+    private static void addAppointments(Map<Long, IntervalTree> trees, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            LocalDateTime start = (LocalDateTime) row[2];
+            int duration = row[3] != null ? ((Number) row[3]).intValue() : 60;
+            trees.computeIfAbsent((Long) row[0], id -> new IntervalTree())
+                .insert(toNanos(start), toNanos(start.plusMinutes(duration)), (Long) row[1], true);
+        }
+    }
+
+    private static void addBreaks(Map<Long, IntervalTree> trees, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            IntervalTree tree = trees.computeIfAbsent((Long) row[0], id -> new IntervalTree());
+            addBreak(tree, -((Long) row[1]), (LocalDate) row[2], (LocalTime) row[3], (LocalTime) row[4]);
+        }
+    }
+
+    // Breaks are stored under the negated id so they never collide with appointments
+    private static void addBreak(IntervalTree tree, long id, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        if (startTime.isBefore(endTime)) {
+            tree.insert(toNanos(date.atTime(startTime)), toNanos(date.atTime(endTime)), id, false);
+        }
+    }
+
+    private static boolean isBusy(Appointment appointment) {
+        return appointment.getStatus() != Appointment.AppointmentStatus.CANCELLED
+            && appointment.getStatus() != Appointment.AppointmentStatus.NO_SHOW;
+    }
+
+    private static int durationOf(Appointment appointment) {
+        return appointment.getDurationMinutes() != null ? appointment.getDurationMinutes() : 60;
+    }
+
+    private static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private void withLock(Long expertId, Runnable action) {
+        ReentrantLock lock = lockFor(expertId);
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long expertId) {
+        return locks[Math.floorMod(Long.hashCode(expertId) * 0x9E3779B9, LOCK_STRIPES)];
+    }
+
+    private static ReentrantLock[] newLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -27,6 +27,7 @@ public class ExpertScheduleService {
     private final ExpertScheduleRepository expertScheduleRepository;
     private final ExpertBreakRepository expertBreakRepository;
     private final UserRepository userRepository;
+    private final ExpertOccupancyIndex expertOccupancyIndex;
     
     /**
      * Tạo lịch làm việc cho chuyên gia
@@ -136,7 +137,9 @@ public class ExpertScheduleService {
             throw new RuntimeException("Người dùng này không phải là chuyên gia");
         }
         
-        return expertBreakRepository.save(expertBreak);
+        ExpertBreak savedBreak = expertBreakRepository.save(expertBreak);
+        expertOccupancyIndex.trackBreak(savedBreak);
+        return savedBreak;
     }
     
     /**
@@ -160,7 +163,9 @@ public class ExpertScheduleService {
             throw new RuntimeException("Thời gian nghỉ phải có chuyên gia");
         }
         
-        return expertBreakRepository.save(existingBreak);
+        ExpertBreak savedBreak = expertBreakRepository.save(existingBreak);
+        expertOccupancyIndex.trackBreak(savedBreak);
+        return savedBreak;
     }
     
     /**
@@ -172,6 +177,7 @@ public class ExpertScheduleService {
             .orElseThrow(() -> new RuntimeException("Thời gian nghỉ không tồn tại"));
         
         expertBreakRepository.delete(expertBreak);
+        expertOccupancyIndex.releaseBreak(expertBreak);
     }
     
     /**
@@ -0,0 +1,333 @@
+package com.shop.backend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only IP range to country table in a memory-mapped file
+ *
+ * Layout (big-endian): the magic "GEOIDX1\0", the IPv4 and IPv6 range counts,
+ * then per family three arrays sorted by range start: starts, inclusive ends and
+ * country codes (index into AA..ZZ). A lookup is a binary search reading the
+ * mapped pages directly, so it neither parses nor allocates. The only heap used
+ * is a 256 KB table of where each IPv4 /16 starts, which narrows the search to
+ * the few ranges in that /16.
+ *
+ * {@link #open} maps such a file as is, or first compiles a CSV of
+ * "start,end,country" lines (IP literals or decimal numbers, optionally quoted,
+ * extra columns ignored) into a temporary one. That covers the free
+ * db-ip and IP2Location "country lite" downloads.
+ */
+public final class GeoIpIndex {
+
+    private static final long MAGIC = 0x4745_4F49_4458_3100L;
+    private static final int HEADER_BYTES = 16;
+
+    private static final String[] COUNTRY_CODES = new String[26 * 26];
+
+    static {
+        for (int i = 0; i < COUNTRY_CODES.length; i++) {
+            COUNTRY_CODES[i] = new String(new char[] {(char) ('A' + i / 26), (char) ('A' + i % 26)});
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int ipv4Count;
+    private final int ipv6Count;
+
+    // Byte offsets of the arrays
+    private final int ipv4Ends;
+    private final int ipv4Countries;
+    private final int ipv6Starts;
+    private final int ipv6Ends;
+    private final int ipv6Countries;
+
+    // First IPv4 range index per value of the top 16 address bits, plus the count at the end
+    private final int[] ipv4Buckets = new int[(1 << 16) + 1];
+
+    private GeoIpIndex(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+            throw new IOException("Not a GeoIP index file");
+        }
+        this.buffer = buffer;
+        this.ipv4Count = buffer.getInt(8);
+        this.ipv6Count = buffer.getInt(12);
+        this.ipv4Ends = HEADER_BYTES + ipv4Count * 4;
+        this.ipv4Countries = ipv4Ends + ipv4Count * 4;
+        this.ipv6Starts = ipv4Countries + ipv4Count * 2;
+        this.ipv6Ends = ipv6Starts + ipv6Count * 16;
+        this.ipv6Countries = ipv6Ends + ipv6Count * 16;
+        if (ipv4Count < 0 || ipv6Count < 0 || (long) ipv6Countries + ipv6Count * 2L != buffer.capacity()) {
+            throw new IOException("Truncated GeoIP index file");
+        }
+        int range = 0;
+        for (int bucket = 0; bucket < ipv4Buckets.length; bucket++) {
+            while (range < ipv4Count && (buffer.getInt(HEADER_BYTES + range * 4) >>> 16) < bucket) {
+                range++;
+            }
+            ipv4Buckets[bucket] = range;
+        }
+    }
+
+    /**
+     * Map an index file, compiling it first if it is a CSV
+     */
+    public static GeoIpIndex open(Path path) throws IOException {
+        if (isIndex(path)) {
+            return map(path);
+        }
+        Path compiled = Files.createTempFile("geoip", ".idx");
+        try {
+            compile(path, compiled);
+            return map(compiled);
+        } finally {
+            // The mapping outlives the file on POSIX; elsewhere it goes at exit
+            try {
+                Files.delete(compiled);
+            } catch (IOException e) {
+                compiled.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Write the index for a "start,end,country" CSV; overlapping ranges are rejected
+     */
+    public static void compile(Path csv, Path index) throws IOException {
+        Ranges ipv4 = new Ranges();
+        Ranges ipv6 = new Ranges();
+        long[] start = new long[2];
+        long[] end = new long[2];
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", 4);
+                if (fields.length < 3) {
+                    throw new IOException("Line " + lineNumber + ": expected start,end,country");
+                }
+                int country = countryIndex(unquote(fields[2]));
+                if (country < 0) {
+                    // Not a country, e.g. "-" on unassigned ranges
+                    continue;
+                }
+                int startBits = parseAddress(unquote(fields[0]), start);
+                int endBits = parseAddress(unquote(fields[1]), end);
+                if (startBits == IpPrefixTrie.INVALID || startBits != endBits) {
+                    throw new IOException("Line " + lineNumber + ": invalid range " + fields[0] + "," + fields[1]);
+                }
+                (startBits == 32 ? ipv4 : ipv6).add(start[0], start[1], end[0], end[1], country, lineNumber);
+            }
+        }
+
+        int[] ipv4Order = ipv4.sortedOrder();
+        int[] ipv6Order = ipv6.sortedOrder();
+        long size = HEADER_BYTES + ipv4.size * 10L + ipv6.size * 34L;
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putLong(MAGIC).putInt(ipv4.size).putInt(ipv6.size);
+            for (int i : ipv4Order) {
+                out.putInt((int) (ipv4.startHi[i] >>> 32));
+            }
+            for (int i : ipv4Order) {
+                out.putInt((int) (ipv4.endHi[i] >>> 32));
+            }
+            for (int i : ipv4Order) {
+                out.putShort((short) ipv4.country[i]);
+            }
+            for (int i : ipv6Order) {
+                out.putLong(ipv6.startHi[i]).putLong(ipv6.startLo[i]);
+            }
+            for (int i : ipv6Order) {
+                out.putLong(ipv6.endHi[i]).putLong(ipv6.endLo[i]);
+            }
+            for (int i : ipv6Order) {
+                out.putShort((short) ipv6.country[i]);
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Two-letter country code of the range holding the address, or null
+     *
+     * @param bits 32 or 128, as returned by {@link IpPrefixTrie#parse}
+     */
+    public String country(long hi, long lo, int bits) {
+        if (bits == 32) {
+            int address = (int) (hi >>> 32);
+            int low = ipv4Buckets[address >>> 16];
+            int high = ipv4Buckets[(address >>> 16) + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (Integer.compareUnsigned(buffer.getInt(HEADER_BYTES + mid * 4), address) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            // "high" is now the last range starting at or before the address, maybe in an earlier /16
+            if (high < 0 || Integer.compareUnsigned(address, buffer.getInt(ipv4Ends + high * 4)) > 0) {
+                return null;
+            }
+            return COUNTRY_CODES[buffer.getShort(ipv4Countries + high * 2)];
+        }
+        int low = 0;
+        int high = ipv6Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = ipv6Starts + mid * 16;
+            if (compare(buffer.getLong(offset), buffer.getLong(offset + 8), hi, lo) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0 || compare(hi, lo, buffer.getLong(ipv6Ends + high * 16), buffer.getLong(ipv6Ends + high * 16 + 8)) > 0) {
+            return null;
+        }
+        return COUNTRY_CODES[buffer.getShort(ipv6Countries + high * 2)];
+    }
+
+    public int getIpv4Ranges() {
+        return ipv4Count;
+    }
+
+    public int getIpv6Ranges() {
+        return ipv6Count;
+    }
+
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    private static boolean isIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(8);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // keep reading until 8 bytes or end of file
+            }
+            return !magic.hasRemaining() && magic.getLong(0) == MAGIC;
+        }
+    }
+
+    private static GeoIpIndex map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("GeoIP index larger than 2 GB: " + path);
+            }
+            return new GeoIpIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static int parseAddress(String text, long[] out) {
+        if (text.isEmpty() || !text.chars().allMatch(Character::isDigit)) {
+            return IpPrefixTrie.parse(text, out);
+        }
+        // Decimal: IPv4 up to 2^32 - 1, IPv6 above (IPv4-mapped ones count as IPv4)
+        BigInteger value = new BigInteger(text);
+        if (value.bitLength() > 128) {
+            return IpPrefixTrie.INVALID;
+        }
+        long hi = value.shiftRight(64).longValue();
+        long lo = value.longValue();
+        if (hi == 0 && ((lo >>> 32) == 0 || (lo >>> 32) == 0xFFFFL)) {
+            out[0] = lo << 32;
+            out[1] = 0;
+            return 32;
+        }
+        out[0] = hi;
+        out[1] = lo;
+        return 128;
+    }
+
+    private static String unquote(String field) {
+        String trimmed = field.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    private static int countryIndex(String code) {
+        if (code.length() != 2) {
+            return -1;
+        }
+        char first = Character.toUpperCase(code.charAt(0));
+        char second = Character.toUpperCase(code.charAt(1));
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return -1;
+        }
+        return (first - 'A') * 26 + (second - 'A');
+    }
+
+    private static int compare(long aHi, long aLo, long bHi, long bLo) {
+        int byHi = Long.compareUnsigned(aHi, bHi);
+        return byHi != 0 ? byHi : Long.compareUnsigned(aLo, bLo);
+    }
+
+    /**
+     * Growable columns of one family's ranges while compiling
+     */
+    private static final class Ranges {
+
+        long[] startHi = new long[1024];
+        long[] startLo = new long[1024];
+        long[] endHi = new long[1024];
+        long[] endLo = new long[1024];
+        int[] country = new int[1024];
+        int[] line = new int[1024];
+        int size;
+
+        void add(long fromHi, long fromLo, long toHi, long toLo, int countryIndex, int lineNumber) throws IOException {
+            if (compare(fromHi, fromLo, toHi, toLo) > 0) {
+                throw new IOException("Line " + lineNumber + ": range start is after its end");
+            }
+            if (size == startHi.length) {
+                int capacity = size * 2;
+                startHi = Arrays.copyOf(startHi, capacity);
+                startLo = Arrays.copyOf(startLo, capacity);
+                endHi = Arrays.copyOf(endHi, capacity);
+                endLo = Arrays.copyOf(endLo, capacity);
+                country = Arrays.copyOf(country, capacity);
+                line = Arrays.copyOf(line, capacity);
+            }
+            startHi[size] = fromHi;
+            startLo[size] = fromLo;
+            endHi[size] = toHi;
+            endLo[size] = toLo;
+            country[size] = countryIndex;
+            line[size] = lineNumber;
+            size++;
+        }
+
+        int[] sortedOrder() throws IOException {
+            Comparator<Integer> byStart = (a, b) -> compare(startHi[a], startLo[a], startHi[b], startLo[b]);
+            int[] order = IntStream.range(0, size).boxed().sorted(byStart).mapToInt(Integer::intValue).toArray();
+            for (int i = 1; i < order.length; i++) {
+                int previous = order[i - 1];
+                int current = order[i];
+                if (compare(startHi[current], startLo[current], endHi[previous], endLo[previous]) <= 0) {
+                    throw new IOException("Line " + line[current] + ": range overlaps line " + line[previous]);
+                }
+            }
+            return order;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.shop.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Country lookup from the local GeoIP file in security.ip-filtering.geoip.database
+ *
+ * The file is polled for changes and a new version is loaded in the background,
+ * then swapped in; lookups keep using the previous index until then, and keep it
+ * if the new file fails to load. Replace the file by renaming a complete copy
+ * over it, so a half-written one is never picked up. No network is used.
+ */
+@Slf4j
+@Service
+public class GeoIpService {
+
+    @Value("${security.ip-filtering.geoip.database:}")
+    private String databasePath;
+
+    private volatile GeoIpIndex index;
+
+    private FileTime loadedModifiedTime;
+
+    private long loadedAt;
+
+    @PostConstruct
+    public void init() {
+        reloadIfChanged();
+    }
+
+    /**
+     * Load the database file if it changed since the last load
+     *
+     * @return true if a new index was swapped in
+     */
+    @Scheduled(fixedDelayString = "${security.ip-filtering.geoip.reload-interval-ms:60000}")
+    public synchronized boolean reloadIfChanged() {
+        if (databasePath == null || databasePath.isBlank()) {
+            return false;
+        }
+        Path path = Path.of(databasePath);
+        try {
+            FileTime modifiedTime = Files.getLastModifiedTime(path);
+            if (modifiedTime.equals(loadedModifiedTime)) {
+                return false;
+            }
+            long startedAt = System.currentTimeMillis();
+            GeoIpIndex loaded = GeoIpIndex.open(path);
+            index = loaded;
+            loadedModifiedTime = modifiedTime;
+            loadedAt = System.currentTimeMillis();
+            log.info("Loaded GeoIP database {}: {} IPv4 and {} IPv6 ranges in {} ms", path,
+                loaded.getIpv4Ranges(), loaded.getIpv6Ranges(), loadedAt - startedAt);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Keep serving the previous index; retried on the next poll only if the file changes again
+            log.error("Could not load GeoIP database {}: {}", path, e.getMessage());
+            try {
+                loadedModifiedTime = Files.getLastModifiedTime(path);
+            } catch (IOException ignored) {
+                // File is gone; try again when it reappears
+                loadedModifiedTime = null;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Two-letter country code for a parsed address, or null if unknown or no database is loaded
+     *
+     * @param bits 32 or 128, as returned by {@link IpPrefixTrie#parse}
+     */
+    public String getCountry(long hi, long lo, int bits) {
+        GeoIpIndex current = index;
+        return current != null ? current.country(hi, lo, bits) : null;
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    public Map<String, Object> getStats() {
+        GeoIpIndex current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("loaded", current != null);
+        if (current != null) {
+            stats.put("ipv4Ranges", current.getIpv4Ranges());
+            stats.put("ipv6Ranges", current.getIpv6Ranges());
+            stats.put("indexBytes", current.getSizeBytes());
+            stats.put("loadedAt", loadedAt);
+        }
+        return stats;
+    }
+}
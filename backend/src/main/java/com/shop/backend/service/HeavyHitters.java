@@ -0,0 +1,177 @@
+package com.shop.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory event counts per key with the most frequent keys kept by name
+ *
+ * Counts live in a Count-Min Sketch ("depth" rows of "width" counters): adding
+ * bumps one counter per row, and a key's estimate is the smallest of its
+ * counters. Estimates never undercount, and overcount by more than
+ * {@link #errorBound()} (e/width of all events) only with probability e^-depth.
+ * Next to the sketch at most "capacity" keys are tracked by name: a key enters
+ * when its estimate beats the smallest tracked one, which is then dropped. So
+ * memory stays the same however many distinct keys arrive, and {@link #top(int)}
+ * only looks at the tracked keys.
+ *
+ * The hash is seeded per instance, so colliding keys cannot be precomputed.
+ */
+public final class HeavyHitters {
+
+    private final int width;
+    private final int depth;
+    private final int capacity;
+
+    private final AtomicLongArray counters;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final LongAdder total = new LongAdder();
+
+    private final Map<String, Long> tracked = new ConcurrentHashMap<>();
+
+    // Smallest estimate among tracked keys once full; a lower bound while adds are in flight
+    private volatile long admissionThreshold = 0L;
+
+    public record Estimate(String key, long count, long lowerBound) {
+    }
+
+    public HeavyHitters(int width, int depth, int capacity) {
+        this.width = width;
+        this.depth = depth;
+        this.capacity = capacity;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, long count) {
+        total.add(count);
+        long hash = hash(key);
+        long smallest = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            smallest = Math.min(smallest, counters.addAndGet(index(hash, row), count));
+        }
+        long estimate = smallest;
+
+        if (tracked.computeIfPresent(key, (k, previous) -> Math.max(previous, estimate)) != null) {
+            return;
+        }
+        if (estimate > admissionThreshold || tracked.size() < capacity) {
+            admit(key, estimate);
+        }
+    }
+
+    /**
+     * Upper-bound estimate of a key's count; exact keys are not stored past "capacity"
+     */
+    public long estimate(String key) {
+        long hash = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Most frequent tracked keys, highest first
+     */
+    public List<Estimate> top(int k) {
+        long error = errorBound();
+        List<Estimate> result = new ArrayList<>(tracked.size());
+        tracked.forEach((key, count) -> result.add(new Estimate(key, count, Math.max(0, count - error))));
+        result.sort(Comparator.comparingLong(Estimate::count).reversed());
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    public long total() {
+        return total.sum();
+    }
+
+    /**
+     * Keys tracked by name: the distinct key count while it is below "capacity"
+     */
+    public int trackedKeys() {
+        return tracked.size();
+    }
+
+    /**
+     * How much any estimate may exceed the true count, with probability {@link #confidence()}
+     */
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / width * total());
+    }
+
+    public double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        total.reset();
+        tracked.clear();
+        admissionThreshold = 0L;
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        if (tracked.size() >= capacity) {
+            Map.Entry<String, Long> smallest = null;
+            for (Map.Entry<String, Long> entry : tracked.entrySet()) {
+                if (smallest == null || entry.getValue() < smallest.getValue()) {
+                    smallest = entry;
+                }
+            }
+            if (smallest == null || smallest.getValue() >= estimate) {
+                admissionThreshold = smallest != null ? smallest.getValue() : 0L;
+                return;
+            }
+            tracked.remove(smallest.getKey());
+        }
+        tracked.merge(key, estimate, Math::max);
+        if (tracked.size() >= capacity) {
+            long smallest = Long.MAX_VALUE;
+            for (long count : tracked.values()) {
+                smallest = Math.min(smallest, count);
+            }
+            admissionThreshold = smallest;
+        }
+    }
+
+    private int index(long hash, int row) {
+        // Every row re-mixes the hash with its own constant, so rows collide independently.
+        // Rows derived from two halves of one hash (Kirsch-Mitzenmacher) let two keys
+        // collide in all rows about once in width^2 pairs, which a scan of a million
+        // one-off keys reaches. Reduce with the high bits: modulo a power-of-two width
+        // would only see the low bits.
+        long rowHash = mix(hash + (row + 1) * 0x9e3779b97f4a7c15L);
+        return row * width + (int) (((rowHash >>> 32) * width) >>> 32);
+    }
+
+    private long hash(String key) {
+        // FNV-1a over the chars, seeded, then the murmur3 finalizer
+        long h = seed ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,227 @@
+package com.shop.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set of busy time intervals with an overlap query in O(log n)
+ *
+ * An AVL tree ordered by (start, id), each node also holding the largest end in
+ * its subtree so whole subtrees that end before the query are skipped. Each
+ * interval has a unique id and is either closed (touching counts as overlap) or
+ * open (only a real overlap counts). Not thread-safe.
+ */
+public class IntervalTree {
+
+    private static final class Node {
+        final long start;
+        final long end;
+        final long id;
+        final boolean closed;
+        Node left;
+        Node right;
+        int height = 1;
+        long maxEnd;
+
+        Node(long start, long end, long id, boolean closed) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.closed = closed;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+
+    // id -> start, to find the node again on removal
+    private final Map<Long, Long> starts = new HashMap<>();
+
+    public int size() {
+        return starts.size();
+    }
+
+    public boolean contains(long id) {
+        return starts.containsKey(id);
+    }
+
+    /**
+     * Add an interval, replacing the one with the same id if any
+     */
+    public void insert(long start, long end, long id, boolean closed) {
+        remove(id);
+        root = insert(root, new Node(start, end, id, closed));
+        starts.put(id, start);
+    }
+
+    /**
+     * @return false if there was no interval with this id
+     */
+    public boolean remove(long id) {
+        Long start = starts.remove(id);
+        if (start == null) {
+            return false;
+        }
+        root = remove(root, start, id);
+        return true;
+    }
+
+    /**
+     * Drop every interval that ends before the given time
+     *
+     * @return number of intervals removed
+     */
+    public int removeEndingBefore(long time) {
+        List<Long> ended = new ArrayList<>();
+        collectEndingBefore(root, time, ended);
+        ended.forEach(this::remove);
+        return ended.size();
+    }
+
+    /**
+     * Whether the closed interval [start, end] conflicts with any interval in the set
+     */
+    public boolean overlaps(long start, long end) {
+        return overlaps(root, start, end);
+    }
+
+    private static boolean overlaps(Node node, long start, long end) {
+        // Nothing below ends late enough to touch the query
+        if (node == null || node.maxEnd < start) {
+            return false;
+        }
+        if (overlaps(node.left, start, end)) {
+            return true;
+        }
+        // This node and everything to its right start too late
+        if (node.start > end) {
+            return false;
+        }
+        boolean conflict = node.closed
+            ? node.start <= end && node.end >= start
+            : node.start < end && node.end > start;
+        return conflict || overlaps(node.right, start, end);
+    }
+
+    private static void collectEndingBefore(Node node, long time, List<Long> ended) {
+        if (node == null) {
+            return;
+        }
+        collectEndingBefore(node.left, time, ended);
+        // This node and everything to its right start too late to have ended
+        if (node.start >= time) {
+            return;
+        }
+        if (node.end < time) {
+            ended.add(node.id);
+        }
+        collectEndingBefore(node.right, time, ended);
+    }
+
+    private static int compare(long start, long id, Node node) {
+        int byStart = Long.compare(start, node.start);
+        return byStart != 0 ? byStart : Long.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    private static Node remove(Node node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace with the smallest node of the right subtree
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            return rebalance(successor);
+        }
+        return rebalance(node);
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+}
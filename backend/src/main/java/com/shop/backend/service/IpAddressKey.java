@@ -0,0 +1,109 @@
+package com.shop.backend.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Packs a client IP string into a single long, for maps keyed per client
+ *
+ * IPv4 addresses are parsed without allocating and tagged so they cannot collide
+ * with IPv6 keys. IPv6 clients are keyed by their /64 prefix, the block usually
+ * handed to one subscriber, so rotating through one's own /64 does not reset the
+ * count. IPv4-mapped IPv6 addresses count as IPv4. Anything that is not an IP
+ * literal (never resolved through DNS) falls back to a hash of the string.
+ */
+public final class IpAddressKey {
+
+    // ffff:ffff::/32 lies in the multicast range, so no IPv6 source prefix uses it
+    private static final long IPV4_TAG = 0xFFFF_FFFF_0000_0000L;
+    private static final long OTHER_TAG = 0xFFFF_FFFE_0000_0000L;
+
+    private IpAddressKey() {
+    }
+
+    public static long of(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return OTHER_TAG;
+        }
+        long ipv4 = parseIpv4(ip);
+        if (ipv4 >= 0) {
+            return IPV4_TAG | ipv4;
+        }
+        if (ip.indexOf(':') >= 0 && isIpv6Literal(ip)) {
+            try {
+                byte[] bytes = InetAddress.getByName(stripZone(ip)).getAddress();
+                if (bytes.length == 4) {
+                    return IPV4_TAG | (toLong(bytes, 0, 4) & 0xFFFF_FFFFL);
+                }
+                return toLong(bytes, 0, 8);
+            } catch (UnknownHostException e) {
+                // Not a valid literal after all; hash it below
+            }
+        }
+        return OTHER_TAG | (ip.hashCode() & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * Dotted-quad value, or -1 if the string is not a plain IPv4 address
+     */
+    static long parseIpv4(String ip) {
+        return parseIpv4(ip, 0, ip.length());
+    }
+
+    /**
+     * Dotted-quad value of chars [from, to), or -1 if they are not a plain IPv4 address
+     */
+    static long parseIpv4(CharSequence ip, int from, int to) {
+        long value = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                value = (value << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (value << 8) | octet;
+    }
+
+    private static boolean isIpv6Literal(String ip) {
+        int end = ip.indexOf('%');
+        if (end < 0) {
+            end = ip.length();
+        }
+        for (int i = 0; i < end; i++) {
+            char c = ip.charAt(i);
+            boolean allowed = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                || c == ':' || c == '.';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripZone(String ip) {
+        int zone = ip.indexOf('%');
+        return zone < 0 ? ip : ip.substring(0, zone);
+    }
+
+    private static long toLong(byte[] bytes, int from, int length) {
+        long value = 0;
+        for (int i = from; i < from + length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
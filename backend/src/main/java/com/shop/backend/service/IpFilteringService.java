@@ -1,14 +1,15 @@
 package com.shop.backend.service;
 
+import com.shop.backend.service.IpPrefixTrie.Prefix;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
 
 @Service
 public class IpFilteringService {
@@ -29,25 +30,60 @@ public class IpFilteringService {
     @Value("${security.ip-filtering.blocked-countries:CN,RU,KP}")
     private String blockedCountries;
 
-    // In-memory storage for IP lists
+    @Autowired(required = false)
+    private GeoIpService geoIpService;
+
+    // Parsed once from the two settings above
+    private Set<String> allowedCountrySet = Set.of();
+    private Set<String> blockedCountrySet = Set.of();
+
+    // Flag bits on prefixes in the trie
+    private static final int BLACKLIST = 1;
+    private static final int WHITELIST = 1 << 1;
+    private static final int TOR_EXIT = 1 << 2;
+    private static final int PRIVATE = 1 << 3;
+    private static final int RESERVED = 1 << 4;
+    private static final int SUSPICIOUS = 1 << 5;
+
+    // Localhost and private networks, allowed for development
+    private static final List<String> PRIVATE_RANGES = List.of(
+        "127.0.0.0/8", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16", "::1", "fc00::/7"
+    );
+
+    // "This network", link-local, multicast and broadcast sources are suspicious
+    private static final List<String> RESERVED_RANGES = List.of(
+        "0.0.0.0/8", "169.254.0.0/16", "224.0.0.0/8", "255.0.0.0/8"
+    );
+
+    private static final long SUSPICIOUS_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    // Parse buffer per request thread: address high and low 64 bits
+    private static final ThreadLocal<long[]> ADDRESS = ThreadLocal.withInitial(() -> new long[2]);
+
+    // Admin-facing lists in canonical CIDR form
     private final Set<String> blacklistedIps = ConcurrentHashMap.newKeySet();
     private final Set<String> whitelistedIps = ConcurrentHashMap.newKeySet();
     private final Map<String, Long> suspiciousIps = new ConcurrentHashMap<>();
-    private final Map<String, String> ipToCountry = new ConcurrentHashMap<>();
-
-    // Patterns for suspicious IP detection
-    private static final Pattern SUSPICIOUS_PATTERN = Pattern.compile(
-        "^(0\\.|169\\.254\\.|224\\.|255\\.)"
-    );
 
     // Tor exit node detection (simplified)
     private final Set<String> torExitNodes = ConcurrentHashMap.newKeySet();
 
+    // Every list above as one trie; writers replace it under the lock, readers never lock
+    private volatile IpPrefixTrie prefixes = IpPrefixTrie.EMPTY;
+
     public IpFilteringService() {
+        addAll(PRIVATE_RANGES, PRIVATE);
+        addAll(RESERVED_RANGES, RESERVED);
         loadDefaultLists();
         loadTorExitNodes();
     }
 
+    @PostConstruct
+    public void init() {
+        allowedCountrySet = parseCountries(allowedCountries);
+        blockedCountrySet = parseCountries(blockedCountries);
+    }
+
     /**
      * Check if an IP address should be blocked
      */
@@ -56,39 +92,41 @@ public class IpFilteringService {
             return false;
         }
 
-        // Clean IP address
-        String cleanIp = cleanIpAddress(ip);
-        if (cleanIp == null) {
-            return true; // Block invalid IPs
+        // Only literals are accepted, so nothing here can trigger a DNS lookup
+        long[] address = ADDRESS.get();
+        int bits = IpPrefixTrie.parse(ip, address);
+        if (bits == IpPrefixTrie.INVALID) {
+            return !"localhost".equals(ip); // Block invalid IPs
         }
+        int flags = prefixes.match(address[0], address[1], bits);
 
         // Allow localhost and local IPs for development
-        if (isLocalIp(cleanIp)) {
+        if ((flags & PRIVATE) != 0) {
             return false;
         }
 
         // Check whitelist first
-        if (whitelistedIps.contains(cleanIp)) {
+        if ((flags & WHITELIST) != 0) {
             return false;
         }
 
         // Check blacklist
-        if (blacklistedIps.contains(cleanIp)) {
+        if ((flags & BLACKLIST) != 0) {
             return true;
         }
 
-        // Check suspicious IPs
-        if (isSuspiciousIp(cleanIp)) {
+        // Check suspicious ranges and IPs
+        if ((flags & (RESERVED | SUSPICIOUS)) != 0) {
             return true;
         }
 
         // Check Tor exit nodes
-        if (blockTor && torExitNodes.contains(cleanIp)) {
+        if (blockTor && (flags & TOR_EXIT) != 0) {
             return true;
         }
 
         // Check geographic restrictions
-        if (isGeographicallyBlocked(cleanIp)) {
+        if (isGeographicallyBlocked(address[0], address[1], bits)) {
             return true;
         }
 
@@ -96,43 +134,111 @@ public class IpFilteringService {
     }
 
     /**
-     * Add IP to blacklist
+     * Add IP or CIDR range to blacklist
+     *
+     * @return false if it is not a valid IP or CIDR range
+     */
+    public synchronized boolean addToBlacklist(String ip) {
+        Prefix prefix = Prefix.parse(ip);
+        if (prefix == null) {
+            return false;
+        }
+        blacklistedIps.add(prefix.toString());
+        prefixes = prefixes.with(prefix, BLACKLIST);
+        return true;
+    }
+
+    /**
+     * Add IP or CIDR range to whitelist
+     *
+     * @return false if it is not a valid IP or CIDR range
+     */
+    public synchronized boolean addToWhitelist(String ip) {
+        Prefix prefix = Prefix.parse(ip);
+        if (prefix == null) {
+            return false;
+        }
+        whitelistedIps.add(prefix.toString());
+        prefixes = prefixes.with(prefix, WHITELIST);
+        return true;
+    }
+
+    /**
+     * Remove IP or CIDR range from blacklist; only the exact entry, not ranges containing it
      */
-    public void addToBlacklist(String ip) {
-        String cleanIp = cleanIpAddress(ip);
-        if (cleanIp != null) {
-            blacklistedIps.add(cleanIp);
+    public synchronized void removeFromBlacklist(String ip) {
+        Prefix prefix = Prefix.parse(ip);
+        if (prefix != null && blacklistedIps.remove(prefix.toString())) {
+            prefixes = prefixes.without(prefix, BLACKLIST);
         }
     }
 
     /**
-     * Add IP to whitelist
+     * Remove IP or CIDR range from whitelist
      */
-    public void addToWhitelist(String ip) {
-        String cleanIp = cleanIpAddress(ip);
-        if (cleanIp != null) {
-            whitelistedIps.add(cleanIp);
+    public synchronized void removeFromWhitelist(String ip) {
+        Prefix prefix = Prefix.parse(ip);
+        if (prefix != null && whitelistedIps.remove(prefix.toString())) {
+            prefixes = prefixes.without(prefix, WHITELIST);
         }
     }
 
     /**
-     * Remove IP from blacklist
+     * Mark IP (or CIDR range) as suspicious for an hour
+     *
+     * @return false if it is not a valid IP or CIDR range
      */
-    public void removeFromBlacklist(String ip) {
-        String cleanIp = cleanIpAddress(ip);
-        if (cleanIp != null) {
-            blacklistedIps.remove(cleanIp);
+    public synchronized boolean markSuspicious(String ip) {
+        Prefix prefix = Prefix.parse(ip);
+        if (prefix == null) {
+            return false;
         }
+        suspiciousIps.put(prefix.toString(), System.currentTimeMillis());
+        prefixes = prefixes.with(prefix, SUSPICIOUS);
+        return true;
     }
 
     /**
-     * Mark IP as suspicious
+     * Replace the Tor exit node list, e.g. with a fresh download of the exit list
+     *
+     * @return number of entries that were not a valid IP or CIDR range and were skipped
      */
-    public void markSuspicious(String ip) {
-        String cleanIp = cleanIpAddress(ip);
-        if (cleanIp != null) {
-            suspiciousIps.put(cleanIp, System.currentTimeMillis());
+    public synchronized int replaceTorExitNodes(Collection<String> nodes) {
+        IpPrefixTrie updated = prefixes;
+        for (String node : torExitNodes) {
+            updated = updated.without(Prefix.parse(node), TOR_EXIT);
         }
+        torExitNodes.clear();
+        int invalid = 0;
+        for (String node : nodes) {
+            Prefix prefix = Prefix.parse(node);
+            if (prefix == null) {
+                invalid++;
+                continue;
+            }
+            torExitNodes.add(prefix.toString());
+            updated = updated.with(prefix, TOR_EXIT);
+        }
+        prefixes = updated;
+        return invalid;
+    }
+
+    /**
+     * Drop suspicious marks older than an hour
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public synchronized void expireSuspiciousIps() {
+        long cutoff = System.currentTimeMillis() - SUSPICIOUS_MILLIS;
+        IpPrefixTrie updated = prefixes;
+        Iterator<Map.Entry<String, Long>> entries = suspiciousIps.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            if (entry.getValue() < cutoff) {
+                updated = updated.without(Prefix.parse(entry.getKey()), SUSPICIOUS);
+                entries.remove();
+            }
+        }
+        prefixes = updated;
     }
 
     /**
@@ -147,226 +253,130 @@ public class IpFilteringService {
         stats.put("torExitNodesCount", torExitNodes.size());
         stats.put("allowedCountries", Arrays.asList(allowedCountries.split(",")));
         stats.put("blockedCountries", Arrays.asList(blockedCountries.split(",")));
+        stats.put("geoIp", geoIpService != null ? geoIpService.getStats() : Map.of("loaded", false));
         return stats;
     }
 
     /**
-     * Clean and validate IP address
+     * Check geographic restrictions
      */
-    private String cleanIpAddress(String ip) {
-        if (ip == null || ip.trim().isEmpty()) {
-            return null;
-        }
-
-        // Remove port if present
-        String cleanIp = ip.split(":")[0].trim();
-        
-        // Validate IP format
-        try {
-            InetAddress.getByName(cleanIp);
-            return cleanIp;
-        } catch (UnknownHostException e) {
-            return null;
+    private boolean isGeographicallyBlocked(long hi, long lo, int bits) {
+        String country = getCountry(hi, lo, bits);
+        if (country == null) {
+            return false; // Allow if country unknown
         }
-    }
 
-    /**
-     * Check if IP is local (localhost, private networks)
-     */
-    private boolean isLocalIp(String ip) {
-        // Allow localhost
-        if (ip.equals("127.0.0.1") || ip.equals("::1") || ip.equals("localhost")) {
+        // Check blocked countries
+        if (blockedCountrySet.contains(country)) {
             return true;
         }
-        
-        // Allow private IP ranges
-        if (ip.startsWith("192.168.") || 
-            ip.startsWith("10.") || 
-            ip.startsWith("172.16.") || 
-            ip.startsWith("172.17.") || 
-            ip.startsWith("172.18.") || 
-            ip.startsWith("172.19.") || 
-            ip.startsWith("172.20.") || 
-            ip.startsWith("172.21.") || 
-            ip.startsWith("172.22.") || 
-            ip.startsWith("172.23.") || 
-            ip.startsWith("172.24.") || 
-            ip.startsWith("172.25.") || 
-            ip.startsWith("172.26.") || 
-            ip.startsWith("172.27.") || 
-            ip.startsWith("172.28.") || 
-            ip.startsWith("172.29.") || 
-            ip.startsWith("172.30.") || 
-            ip.startsWith("172.31.")) {
-            return true;
-        }
-        
-        return false;
-    }
 
-    /**
-     * Check if IP is suspicious based on patterns
-     */
-    private boolean isSuspiciousIp(String ip) {
-        // Check suspicious patterns
-        if (SUSPICIOUS_PATTERN.matcher(ip).find()) {
+        // Check if country is in allowed list (if specified)
+        if (!allowedCountrySet.isEmpty() && !allowedCountrySet.contains(country)) {
             return true;
         }
 
-        // Check if recently marked as suspicious
-        Long suspiciousTime = suspiciousIps.get(ip);
-        if (suspiciousTime != null) {
-            long timeDiff = System.currentTimeMillis() - suspiciousTime;
-            // Consider suspicious for 1 hour
-            if (timeDiff < TimeUnit.HOURS.toMillis(1)) {
-                return true;
-            } else {
-                // Remove old suspicious entries
-                suspiciousIps.remove(ip);
-            }
-        }
-
         return false;
     }
 
     /**
-     * Check geographic restrictions
+     * Country from the GeoIP database, or from the built-in ranges when none is configured
      */
-    private boolean isGeographicallyBlocked(String ip) {
-        try {
-            String country = getCountryFromIp(ip);
-            if (country == null) {
-                return false; // Allow if country unknown
-            }
-
-            // Check blocked countries
-            if (Arrays.asList(blockedCountries.split(",")).contains(country)) {
-                return true;
-            }
-
-            // Check if country is in allowed list (if specified)
-            if (!allowedCountries.isEmpty() && 
-                !Arrays.asList(allowedCountries.split(",")).contains(country)) {
-                return true;
-            }
-
-        } catch (Exception e) {
-            // Log error but don't block
+    private String getCountry(long hi, long lo, int bits) {
+        if (geoIpService != null && geoIpService.isLoaded()) {
+            return geoIpService.getCountry(hi, lo, bits);
         }
-
-        return false;
+        return bits == 32 ? detectCountryFromIpRange((int) (hi >>> 56)) : null;
     }
 
-    /**
-     * Get country from IP (simplified implementation)
-     * In production, use a proper GeoIP service like MaxMind
-     */
-    private String getCountryFromIp(String ip) {
-        // Check cache first
-        String cached = ipToCountry.get(ip);
-        if (cached != null) {
-            return cached;
+    private static Set<String> parseCountries(String countries) {
+        if (countries == null || countries.isBlank()) {
+            return Set.of();
         }
-
-        // Simplified country detection based on IP ranges
-        // This is a basic implementation - in production use MaxMind GeoIP2
-        String country = detectCountryFromIpRange(ip);
-        
-        // Cache result
-        if (country != null) {
-            ipToCountry.put(ip, country);
+        Set<String> parsed = new HashSet<>();
+        for (String country : countries.split(",")) {
+            if (!country.isBlank()) {
+                parsed.add(country.trim().toUpperCase(Locale.ROOT));
+            }
         }
-
-        return country;
+        return Set.copyOf(parsed);
     }
 
     /**
      * Simplified country detection based on IP ranges
      * This is a basic implementation for demo purposes
      */
-    private String detectCountryFromIpRange(String ip) {
-        try {
-            InetAddress inetAddress = InetAddress.getByName(ip);
-            byte[] bytes = inetAddress.getAddress();
-            
-            // Basic country detection based on IP ranges
-            // This is simplified - use MaxMind GeoIP2 for accurate results
-            
-            if (bytes.length == 4) { // IPv4
-                int firstByte = bytes[0] & 0xFF;
-                
-                // Vietnam IP ranges (simplified)
-                if ((firstByte >= 1 && firstByte <= 14) || 
-                    (firstByte >= 27 && firstByte <= 30) ||
-                    (firstByte >= 42 && firstByte <= 43) ||
-                    (firstByte >= 58 && firstByte <= 60) ||
-                    (firstByte >= 103 && firstByte <= 104) ||
-                    (firstByte >= 112 && firstByte <= 115) ||
-                    (firstByte >= 118 && firstByte <= 119) ||
-                    (firstByte >= 123 && firstByte <= 125) ||
-                    (firstByte >= 171 && firstByte <= 175) ||
-                    (firstByte >= 180 && firstByte <= 183) ||
-                    (firstByte >= 202 && firstByte <= 203) ||
-                    (firstByte >= 210 && firstByte <= 211) ||
-                    (firstByte >= 222 && firstByte <= 223)) {
-                    return "VN";
-                }
-                
-                // US IP ranges (simplified)
-                if ((firstByte >= 3 && firstByte <= 6) ||
-                    (firstByte >= 8 && firstByte <= 9) ||
-                    (firstByte >= 11 && firstByte <= 12) ||
-                    (firstByte >= 15 && firstByte <= 16) ||
-                    (firstByte >= 18 && firstByte <= 19) ||
-                    (firstByte >= 20 && firstByte <= 23) ||
-                    (firstByte >= 24 && firstByte <= 26) ||
-                    (firstByte >= 32 && firstByte <= 33) ||
-                    (firstByte >= 35 && firstByte <= 40) ||
-                    (firstByte >= 44 && firstByte <= 46) ||
-                    (firstByte >= 47 && firstByte <= 50) ||
-                    (firstByte >= 52 && firstByte <= 54) ||
-                    (firstByte >= 56 && firstByte <= 57) ||
-                    (firstByte >= 63 && firstByte <= 66) ||
-                    (firstByte >= 67 && firstByte <= 70) ||
-                    (firstByte >= 71 && firstByte <= 72) ||
-                    (firstByte >= 73 && firstByte <= 76) ||
-                    (firstByte >= 96 && firstByte <= 99) ||
-                    (firstByte >= 100 && firstByte <= 102) ||
-                    (firstByte >= 104 && firstByte <= 107) ||
-                    (firstByte >= 108 && firstByte <= 111) ||
-                    (firstByte >= 128 && firstByte <= 131) ||
-                    (firstByte >= 132 && firstByte <= 135) ||
-                    (firstByte >= 136 && firstByte <= 139) ||
-                    (firstByte >= 140 && firstByte <= 143) ||
-                    (firstByte >= 144 && firstByte <= 147) ||
-                    (firstByte >= 148 && firstByte <= 151) ||
-                    (firstByte >= 152 && firstByte <= 155) ||
-                    (firstByte >= 156 && firstByte <= 159) ||
-                    (firstByte >= 160 && firstByte <= 163) ||
-                    (firstByte >= 164 && firstByte <= 167) ||
-                    (firstByte >= 168 && firstByte <= 170) ||
-                    (firstByte >= 172 && firstByte <= 175) ||
-                    (firstByte >= 184 && firstByte <= 187) ||
-                    (firstByte >= 192 && firstByte <= 195) ||
-                    (firstByte >= 198 && firstByte <= 201) ||
-                    (firstByte >= 204 && firstByte <= 207) ||
-                    (firstByte >= 208 && firstByte <= 211) ||
-                    (firstByte >= 216 && firstByte <= 219) ||
-                    (firstByte >= 224 && firstByte <= 227) ||
-                    (firstByte >= 232 && firstByte <= 235) ||
-                    (firstByte >= 236 && firstByte <= 239) ||
-                    (firstByte >= 240 && firstByte <= 243) ||
-                    (firstByte >= 244 && firstByte <= 247) ||
-                    (firstByte >= 248 && firstByte <= 251) ||
-                    (firstByte >= 252 && firstByte <= 255)) {
-                    return "US";
-                }
-            }
-            
-        } catch (Exception e) {
-            // Return null if detection fails
+    private String detectCountryFromIpRange(int firstByte) {
+        // Basic country detection based on IP ranges
+        // This is simplified - use MaxMind GeoIP2 for accurate results
+        
+        // Vietnam IP ranges (simplified)
+        if ((firstByte >= 1 && firstByte <= 14) || 
+            (firstByte >= 27 && firstByte <= 30) ||
+            (firstByte >= 42 && firstByte <= 43) ||
+            (firstByte >= 58 && firstByte <= 60) ||
+            (firstByte >= 103 && firstByte <= 104) ||
+            (firstByte >= 112 && firstByte <= 115) ||
+            (firstByte >= 118 && firstByte <= 119) ||
+            (firstByte >= 123 && firstByte <= 125) ||
+            (firstByte >= 171 && firstByte <= 175) ||
+            (firstByte >= 180 && firstByte <= 183) ||
+            (firstByte >= 202 && firstByte <= 203) ||
+            (firstByte >= 210 && firstByte <= 211) ||
+            (firstByte >= 222 && firstByte <= 223)) {
+            return "VN";
         }
         
+        // US IP ranges (simplified)
+        if ((firstByte >= 3 && firstByte <= 6) ||
+            (firstByte >= 8 && firstByte <= 9) ||
+            (firstByte >= 11 && firstByte <= 12) ||
+            (firstByte >= 15 && firstByte <= 16) ||
+            (firstByte >= 18 && firstByte <= 19) ||
+            (firstByte >= 20 && firstByte <= 23) ||
+            (firstByte >= 24 && firstByte <= 26) ||
+            (firstByte >= 32 && firstByte <= 33) ||
+            (firstByte >= 35 && firstByte <= 40) ||
+            (firstByte >= 44 && firstByte <= 46) ||
+            (firstByte >= 47 && firstByte <= 50) ||
+            (firstByte >= 52 && firstByte <= 54) ||
+            (firstByte >= 56 && firstByte <= 57) ||
+            (firstByte >= 63 && firstByte <= 66) ||
+            (firstByte >= 67 && firstByte <= 70) ||
+            (firstByte >= 71 && firstByte <= 72) ||
+            (firstByte >= 73 && firstByte <= 76) ||
+            (firstByte >= 96 && firstByte <= 99) ||
+            (firstByte >= 100 && firstByte <= 102) ||
+            (firstByte >= 104 && firstByte <= 107) ||
+            (firstByte >= 108 && firstByte <= 111) ||
+            (firstByte >= 128 && firstByte <= 131) ||
+            (firstByte >= 132 && firstByte <= 135) ||
+            (firstByte >= 136 && firstByte <= 139) ||
+            (firstByte >= 140 && firstByte <= 143) ||
+            (firstByte >= 144 && firstByte <= 147) ||
+            (firstByte >= 148 && firstByte <= 151) ||
+            (firstByte >= 152 && firstByte <= 155) ||
+            (firstByte >= 156 && firstByte <= 159) ||
+            (firstByte >= 160 && firstByte <= 163) ||
+            (firstByte >= 164 && firstByte <= 167) ||
+            (firstByte >= 168 && firstByte <= 170) ||
+            (firstByte >= 172 && firstByte <= 175) ||
+            (firstByte >= 184 && firstByte <= 187) ||
+            (firstByte >= 192 && firstByte <= 195) ||
+            (firstByte >= 198 && firstByte <= 201) ||
+            (firstByte >= 204 && firstByte <= 207) ||
+            (firstByte >= 208 && firstByte <= 211) ||
+            (firstByte >= 216 && firstByte <= 219) ||
+            (firstByte >= 224 && firstByte <= 227) ||
+            (firstByte >= 232 && firstByte <= 235) ||
+            (firstByte >= 236 && firstByte <= 239) ||
+            (firstByte >= 240 && firstByte <= 243) ||
+            (firstByte >= 244 && firstByte <= 247) ||
+            (firstByte >= 248 && firstByte <= 251) ||
+            (firstByte >= 252 && firstByte <= 255)) {
+            return "US";
+        }
+
         return null; // Unknown country
     }
 
@@ -376,10 +386,10 @@ public class IpFilteringService {
     private void loadDefaultLists() {
         // Load from application.properties or external files
         // For now, add some common malicious IPs
-        blacklistedIps.addAll(Arrays.asList(
+        addAll(Arrays.asList(
             "127.0.0.1", // Localhost (for testing)
             "0.0.0.0"    // Invalid IP
-        ));
+        ), BLACKLIST);
     }
 
     /**
@@ -388,22 +398,36 @@ public class IpFilteringService {
     private void loadTorExitNodes() {
         // In production, fetch from Tor Project API
         // For now, add some known Tor exit nodes
-        torExitNodes.addAll(Arrays.asList(
+        addAll(Arrays.asList(
             "185.220.100.240",
             "185.220.100.241",
             "185.220.100.242"
-        ));
+        ), TOR_EXIT);
+    }
+
+    private synchronized void addAll(Collection<String> ranges, int flag) {
+        IpPrefixTrie updated = prefixes;
+        for (String range : ranges) {
+            Prefix prefix = Prefix.parse(range);
+            updated = updated.with(prefix, flag);
+            if (flag == BLACKLIST) {
+                blacklistedIps.add(prefix.toString());
+            } else if (flag == TOR_EXIT) {
+                torExitNodes.add(prefix.toString());
+            }
+        }
+        prefixes = updated;
     }
 
     /**
-     * Get all blacklisted IPs
+     * Get all blacklisted IPs and ranges
      */
     public Set<String> getBlacklistedIps() {
         return new HashSet<>(blacklistedIps);
     }
 
     /**
-     * Get all whitelisted IPs
+     * Get all whitelisted IPs and ranges
      */
     public Set<String> getWhitelistedIps() {
         return new HashSet<>(whitelistedIps);
@@ -416,14 +440,31 @@ public class IpFilteringService {
         return new HashMap<>(suspiciousIps);
     }
 
+    /**
+     * Get Tor exit nodes
+     */
+    public Set<String> getTorExitNodes() {
+        return new HashSet<>(torExitNodes);
+    }
+
     /**
      * Clear all IP lists
      */
-    public void clearAllLists() {
+    public synchronized void clearAllLists() {
+        IpPrefixTrie updated = prefixes;
+        for (String ip : blacklistedIps) {
+            updated = updated.without(Prefix.parse(ip), BLACKLIST);
+        }
+        for (String ip : whitelistedIps) {
+            updated = updated.without(Prefix.parse(ip), WHITELIST);
+        }
+        for (String ip : suspiciousIps.keySet()) {
+            updated = updated.without(Prefix.parse(ip), SUSPICIOUS);
+        }
         blacklistedIps.clear();
         whitelistedIps.clear();
         suspiciousIps.clear();
-        ipToCountry.clear();
+        prefixes = updated;
     }
 
     /**
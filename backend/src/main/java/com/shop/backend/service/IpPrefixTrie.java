@@ -0,0 +1,434 @@
+package com.shop.backend.service;
+
+/**
+ * Immutable set of IPv4 and IPv6 prefixes (CIDR blocks), each carrying flag bits
+ *
+ * {@link #match} returns the OR of the flags of every stored prefix that contains
+ * the address, in one walk down a path-compressed binary trie: at most 33 (IPv4)
+ * or 129 (IPv6) nodes, in practice about log2 of the prefix count. {@link #with}
+ * and {@link #without} return a new trie that shares every node off the changed
+ * path, so a holder that swaps a volatile reference gives readers lock-free,
+ * always-consistent snapshots while updates copy only a few dozen nodes.
+ *
+ * Address literals are parsed by hand into two longs: no DNS lookup, no allocation.
+ * IPv4 addresses (and IPv4-mapped IPv6 ones) use the top 32 bits of the first long
+ * and have their own root, so IPv4 and IPv6 prefixes never overlap.
+ */
+public final class IpPrefixTrie {
+
+    public static final IpPrefixTrie EMPTY = new IpPrefixTrie(null, null);
+
+    /**
+     * Returned by {@link #parse} for input that is not an IP literal
+     */
+    public static final int INVALID = -1;
+
+    private final Node ipv4;
+    private final Node ipv6;
+
+    private IpPrefixTrie(Node ipv4, Node ipv6) {
+        this.ipv4 = ipv4;
+        this.ipv6 = ipv6;
+    }
+
+    /**
+     * OR of the flags of all prefixes containing the address; 0 if none does
+     *
+     * @param bits 32 or 128, as returned by {@link #parse}
+     */
+    public int match(long hi, long lo, int bits) {
+        int flags = 0;
+        Node node = bits == 32 ? ipv4 : ipv6;
+        while (node != null && node.contains(hi, lo)) {
+            flags |= node.flags;
+            if (node.length == bits) {
+                break;
+            }
+            node = bit(hi, lo, node.length) == 0 ? node.zero : node.one;
+        }
+        return flags;
+    }
+
+    /**
+     * Copy of this trie with "flags" added to the prefix
+     */
+    public IpPrefixTrie with(Prefix prefix, int flags) {
+        if (prefix.ipv6()) {
+            return new IpPrefixTrie(ipv4, insert(ipv6, prefix.hi(), prefix.lo(), prefix.length(), flags));
+        }
+        return new IpPrefixTrie(insert(ipv4, prefix.hi(), prefix.lo(), prefix.length(), flags), ipv6);
+    }
+
+    /**
+     * Copy of this trie with "flags" cleared on exactly this prefix (not on longer or shorter ones)
+     */
+    public IpPrefixTrie without(Prefix prefix, int flags) {
+        if (prefix.ipv6()) {
+            Node root = remove(ipv6, prefix.hi(), prefix.lo(), prefix.length(), flags);
+            return root == ipv6 ? this : new IpPrefixTrie(ipv4, root);
+        }
+        Node root = remove(ipv4, prefix.hi(), prefix.lo(), prefix.length(), flags);
+        return root == ipv4 ? this : new IpPrefixTrie(root, ipv6);
+    }
+
+    /**
+     * Parse an IP literal into out[0] (high 64 bits) and out[1] (low 64 bits)
+     *
+     * Accepts surrounding whitespace, "a.b.c.d:port", "[v6]" and "[v6]:port", and
+     * a "%zone" suffix on IPv6. Host names are rejected, never resolved.
+     *
+     * @return 32 for IPv4 (IPv4-mapped IPv6 included), 128 for IPv6, or {@link #INVALID}
+     */
+    public static int parse(CharSequence ip, long[] out) {
+        if (ip == null) {
+            return INVALID;
+        }
+        int from = 0;
+        int to = ip.length();
+        while (from < to && ip.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && ip.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return INVALID;
+        }
+
+        if (ip.charAt(from) == '[') {
+            int close = indexOf(ip, ']', from, to);
+            if (close < 0 || (close + 1 < to && ip.charAt(close + 1) != ':')) {
+                return INVALID;
+            }
+            from++;
+            to = close;
+        } else {
+            // A single colon can only be an IPv4 address with a port
+            int colon = indexOf(ip, ':', from, to);
+            if (colon >= 0 && indexOf(ip, ':', colon + 1, to) < 0) {
+                to = colon;
+            }
+        }
+
+        long ipv4 = IpAddressKey.parseIpv4(ip, from, to);
+        if (ipv4 >= 0) {
+            out[0] = ipv4 << 32;
+            out[1] = 0;
+            return 32;
+        }
+        if (!parseIpv6(ip, from, to, out)) {
+            return INVALID;
+        }
+        if (out[0] == 0 && (out[1] >>> 32) == 0xFFFFL) {
+            out[0] = out[1] << 32;
+            out[1] = 0;
+            return 32;
+        }
+        return 128;
+    }
+
+    /**
+     * A CIDR block, normalized so the bits past "length" are zero
+     */
+    public record Prefix(long hi, long lo, int length, boolean ipv6) {
+
+        /**
+         * Parse "address" or "address/length"; null if either part is invalid
+         */
+        public static Prefix parse(String cidr) {
+            if (cidr == null) {
+                return null;
+            }
+            int slash = cidr.indexOf('/');
+            long[] address = new long[2];
+            int bits = IpPrefixTrie.parse(slash < 0 ? cidr : cidr.substring(0, slash), address);
+            if (bits == INVALID) {
+                return null;
+            }
+            int length = bits;
+            if (slash >= 0) {
+                try {
+                    length = Integer.parseInt(cidr.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (length < 0 || length > bits) {
+                    return null;
+                }
+            }
+            return new Prefix(address[0] & maskHi(length), address[1] & maskLo(length), length, bits == 128);
+        }
+
+        /**
+         * Canonical text form: dotted quad or RFC 5952 IPv6, with "/length" unless a single address
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(ipv6 ? 44 : 18);
+            if (ipv6) {
+                appendIpv6(text);
+            } else {
+                for (int shift = 56; shift >= 32; shift -= 8) {
+                    text.append((hi >>> shift) & 0xFF);
+                    if (shift > 32) {
+                        text.append('.');
+                    }
+                }
+            }
+            if (length < (ipv6 ? 128 : 32)) {
+                text.append('/').append(length);
+            }
+            return text.toString();
+        }
+
+        private void appendIpv6(StringBuilder text) {
+            int[] groups = new int[8];
+            for (int g = 0; g < 8; g++) {
+                long half = g < 4 ? hi : lo;
+                groups[g] = (int) (half >>> (16 * (3 - g % 4))) & 0xFFFF;
+            }
+            // The longest run of two or more zero groups is written as "::"
+            int runStart = -1;
+            int runLength = 1;
+            for (int g = 0; g < 8; ) {
+                int end = g;
+                while (end < 8 && groups[end] == 0) {
+                    end++;
+                }
+                if (end - g > runLength) {
+                    runStart = g;
+                    runLength = end - g;
+                }
+                g = end == g ? g + 1 : end;
+            }
+            for (int g = 0; g < 8; g++) {
+                if (g == runStart) {
+                    text.append("::");
+                    g += runLength - 1;
+                    continue;
+                }
+                if (g > 0 && g != runStart + runLength) {
+                    text.append(':');
+                }
+                text.append(Integer.toHexString(groups[g]));
+            }
+        }
+    }
+
+    private static Node insert(Node node, long hi, long lo, int length, int flags) {
+        if (node == null) {
+            return new Node(hi, lo, length, flags, null, null);
+        }
+        int common = commonLength(node.hi, node.lo, hi, lo, Math.min(node.length, length));
+        if (common == node.length && common == length) {
+            return (node.flags | flags) == node.flags ? node : node.withFlags(node.flags | flags);
+        }
+        if (common == node.length) {
+            // The new prefix lies below this node
+            if (bit(hi, lo, node.length) == 0) {
+                return node.withChildren(insert(node.zero, hi, lo, length, flags), node.one);
+            }
+            return node.withChildren(node.zero, insert(node.one, hi, lo, length, flags));
+        }
+        if (common == length) {
+            // The new prefix contains this node
+            return bit(node.hi, node.lo, length) == 0
+                ? new Node(hi, lo, length, flags, node, null)
+                : new Node(hi, lo, length, flags, null, node);
+        }
+        // The two diverge below both: join them under an unflagged branch node
+        Node leaf = new Node(hi, lo, length, flags, null, null);
+        long branchHi = hi & maskHi(common);
+        long branchLo = lo & maskLo(common);
+        return bit(hi, lo, common) == 0
+            ? new Node(branchHi, branchLo, common, 0, leaf, node)
+            : new Node(branchHi, branchLo, common, 0, node, leaf);
+    }
+
+    private static Node remove(Node node, long hi, long lo, int length, int flags) {
+        if (node == null || node.length > length || !node.contains(hi, lo)) {
+            return node;
+        }
+        if (node.length == length) {
+            if ((node.flags & flags) == 0) {
+                return node;
+            }
+            return compact(node.hi, node.lo, node.length, node.flags & ~flags, node.zero, node.one);
+        }
+        if (bit(hi, lo, node.length) == 0) {
+            Node zero = remove(node.zero, hi, lo, length, flags);
+            return zero == node.zero ? node : compact(node.hi, node.lo, node.length, node.flags, zero, node.one);
+        }
+        Node one = remove(node.one, hi, lo, length, flags);
+        return one == node.one ? node : compact(node.hi, node.lo, node.length, node.flags, node.zero, one);
+    }
+
+    private static Node compact(long hi, long lo, int length, int flags, Node zero, Node one) {
+        // An unflagged node is only needed where two subtrees branch
+        if (flags == 0 && (zero == null || one == null)) {
+            return zero != null ? zero : one;
+        }
+        return new Node(hi, lo, length, flags, zero, one);
+    }
+
+    private static boolean parseIpv6(CharSequence ip, int from, int to, long[] out) {
+        int zone = indexOf(ip, '%', from, to);
+        if (zone >= 0) {
+            to = zone;
+        }
+        if (to - from < 2) {
+            return false;
+        }
+
+        // Find "::" and count the groups after it, so those can be placed at the end
+        int gap = -1;
+        for (int i = from; i + 1 < to; i++) {
+            if (ip.charAt(i) == ':' && ip.charAt(i + 1) == ':') {
+                if (gap >= 0) {
+                    return false;
+                }
+                gap = i;
+            }
+        }
+        int tailGroups = 0;
+        if (gap >= 0 && gap + 2 < to) {
+            tailGroups = 1;
+            for (int i = gap + 2; i < to; i++) {
+                char c = ip.charAt(i);
+                if (c == ':') {
+                    tailGroups++;
+                } else if (c == '.') {
+                    // An embedded IPv4 address fills two groups
+                    tailGroups++;
+                    break;
+                }
+            }
+        }
+
+        long hi = 0;
+        long lo = 0;
+        int group = 0;
+        int i = from;
+        if (gap == from) {
+            if (tailGroups > 7) {
+                return false;
+            }
+            group = 8 - tailGroups;
+            i = from + 2;
+        } else if (ip.charAt(from) == ':') {
+            return false;
+        }
+        while (i < to) {
+            int end = indexOf(ip, ':', i, to);
+            if (end < 0) {
+                end = to;
+            }
+            if (end == to && indexOf(ip, '.', i, to) >= 0) {
+                long ipv4 = IpAddressKey.parseIpv4(ip, i, to);
+                if (ipv4 < 0 || group != 6) {
+                    return false;
+                }
+                lo |= ipv4;
+                group = 8;
+                break;
+            }
+            if (end == i || end - i > 4 || group > 7) {
+                return false;
+            }
+            long value = 0;
+            for (int k = i; k < end; k++) {
+                int digit = Character.digit(ip.charAt(k), 16);
+                if (digit < 0) {
+                    return false;
+                }
+                value = (value << 4) | digit;
+            }
+            if (group < 4) {
+                hi |= value << (16 * (3 - group));
+            } else {
+                lo |= value << (16 * (7 - group));
+            }
+            group++;
+            if (end == to) {
+                break;
+            }
+            if (end == gap) {
+                // "::" stands for at least one zero group
+                if (group + tailGroups >= 8) {
+                    return false;
+                }
+                group = 8 - tailGroups;
+                i = end + 2;
+            } else {
+                i = end + 1;
+                if (i == to) {
+                    return false;
+                }
+            }
+        }
+        if (group != 8) {
+            return false;
+        }
+        out[0] = hi;
+        out[1] = lo;
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int bit(long hi, long lo, int index) {
+        return (int) (index < 64 ? (hi >>> (63 - index)) & 1 : (lo >>> (127 - index)) & 1);
+    }
+
+    private static int commonLength(long aHi, long aLo, long bHi, long bLo, int max) {
+        long diff = aHi ^ bHi;
+        int common = diff != 0 ? Long.numberOfLeadingZeros(diff) : 64 + Long.numberOfLeadingZeros(aLo ^ bLo);
+        return Math.min(common, max);
+    }
+
+    private static long maskHi(int length) {
+        return length == 0 ? 0 : length >= 64 ? -1L : -1L << (64 - length);
+    }
+
+    private static long maskLo(int length) {
+        return length <= 64 ? 0 : -1L << (128 - length);
+    }
+
+    private static final class Node {
+
+        final long hi;
+        final long lo;
+        final int length;
+        final int flags;
+        final Node zero;
+        final Node one;
+
+        Node(long hi, long lo, int length, int flags, Node zero, Node one) {
+            this.hi = hi;
+            this.lo = lo;
+            this.length = length;
+            this.flags = flags;
+            this.zero = zero;
+            this.one = one;
+        }
+
+        boolean contains(long addressHi, long addressLo) {
+            return ((addressHi ^ hi) & maskHi(length)) == 0 && ((addressLo ^ lo) & maskLo(length)) == 0;
+        }
+
+        Node withFlags(int newFlags) {
+            return new Node(hi, lo, length, newFlags, zero, one);
+        }
+
+        Node withChildren(Node newZero, Node newOne) {
+            return new Node(hi, lo, length, flags, newZero, newOne);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.shop.backend.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory rate limiter for one policy: "limit" requests per "window" per client key
+ *
+ * Uses GCRA (the generic cell rate algorithm, equivalent to a token bucket of
+ * size "limit" refilled at limit/window): each client has one "theoretical
+ * arrival time" in an AtomicLong, and a request is admitted by a single CAS that
+ * pushes it forward by window/limit. Enforcement is exact under contention,
+ * denied requests do not write at all, and lookups on the ConcurrentHashMap take
+ * no locks once a client's bucket exists.
+ *
+ * A bucket whose arrival time has passed is identical to a missing one, so
+ * {@link #expire()} can drop it. It first CASes the bucket to a tombstone so a
+ * request racing with the removal retries on a fresh bucket instead of writing
+ * into the removed one.
+ */
+public final class LocalRateLimiter {
+
+    private static final long DEAD = -1L;
+
+    private final int limit;
+
+    // Nanoseconds one request "costs", and the most that can be outstanding (limit * interval)
+    private final long interval;
+    private final long burst;
+
+    private final LongSupplier nanoClock;
+
+    // Clock reading mapped to 0, so arrival times are never negative and never DEAD
+    private final long origin;
+
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public LocalRateLimiter(int limit, Duration window) {
+        this(limit, window, System::nanoTime);
+    }
+
+    LocalRateLimiter(int limit, Duration window, LongSupplier nanoClock) {
+        if (limit <= 0 || window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("Rate limit needs a positive limit and window");
+        }
+        this.limit = limit;
+        this.interval = Math.max(1, window.toNanos() / limit);
+        this.burst = interval * limit;
+        this.nanoClock = nanoClock;
+        this.origin = nanoClock.getAsLong();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Admit one request for the client if it has quota left
+     */
+    public RateLimitDecision tryAcquire(long clientKey) {
+        long now = now();
+        while (true) {
+            AtomicLong bucket = buckets.get(clientKey);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(clientKey, key -> new AtomicLong());
+            }
+            long arrival = bucket.get();
+            if (arrival == DEAD) {
+                buckets.remove(clientKey, bucket);
+                continue;
+            }
+            long next = Math.max(arrival, now) + interval;
+            long outstanding = next - now;
+            if (outstanding > burst) {
+                return new RateLimitDecision(false, limit, 0,
+                    toMillisCeil(outstanding - burst), toMillisCeil(arrival - now));
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return new RateLimitDecision(true, limit, (int) ((burst - outstanding) / interval),
+                    0, toMillisCeil(outstanding));
+            }
+        }
+    }
+
+    /**
+     * Quota left for the client, without consuming any
+     */
+    public RateLimitDecision peek(long clientKey) {
+        long now = now();
+        AtomicLong bucket = buckets.get(clientKey);
+        long arrival = bucket != null ? bucket.get() : DEAD;
+        long outstanding = Math.max(0, arrival - now);
+        int remaining = (int) ((burst - outstanding) / interval);
+        return new RateLimitDecision(remaining > 0, limit, remaining,
+            remaining > 0 ? 0 : toMillisCeil(outstanding + interval - burst), toMillisCeil(outstanding));
+    }
+
+    /**
+     * Drop buckets of clients that are back to full quota
+     *
+     * @return number of buckets removed
+     */
+    public int expire() {
+        long now = now();
+        int removed = 0;
+        Iterator<Map.Entry<Long, AtomicLong>> entries = buckets.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, AtomicLong> entry = entries.next();
+            AtomicLong bucket = entry.getValue();
+            long arrival = bucket.get();
+            if (arrival != DEAD && arrival <= now && bucket.compareAndSet(arrival, DEAD)) {
+                buckets.remove(entry.getKey(), bucket);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Number of clients currently tracked
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private long now() {
+        return nanoClock.getAsLong() - origin;
+    }
+
+    private static long toMillisCeil(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + TimeUnit.MILLISECONDS.toNanos(1) - 1) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,200 @@
+package com.shop.backend.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-size event counter history for one metric: per second, per minute and per hour
+ *
+ * Events are only counted into the per-second ring, with one CAS. {@link #rollup()}
+ * (run on a schedule) sums each finished minute of seconds into the minute ring
+ * and each finished hour of minutes into the hour ring. Readers never block: a
+ * bucket that has not been rolled up yet is summed from the finer ring on the fly.
+ *
+ * Each ring slot packs the bucket number (upper 32 bits) with its count (lower
+ * 32 bits), so a slot reused for a newer bucket is reset in the same CAS that
+ * counts the first event. Memory is fixed by the ring sizes, whatever the traffic.
+ */
+public final class MetricTimeSeries {
+
+    public enum Resolution {
+        SECOND(1_000L),
+        MINUTE(60_000L),
+        HOUR(3_600_000L);
+
+        private final long millis;
+
+        Resolution(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    // Seconds are kept a few minutes so a late or skipped rollup can still catch up
+    static final int SECOND_SLOTS = 300;
+    static final int MINUTE_SLOTS = 1440;
+    static final int HOUR_SLOTS = 168;
+
+    // A minute is rolled up this long after it ends, so increments already in flight land first
+    private static final long ROLLUP_GRACE_MILLIS = 1_000L;
+
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final Ring seconds = new Ring(SECOND_SLOTS);
+    private final Ring minutes = new Ring(MINUTE_SLOTS);
+    private final Ring hours = new Ring(HOUR_SLOTS);
+
+    private final LongSupplier clock;
+
+    // Newest minute / hour already summed into its ring
+    private volatile long rolledMinute;
+    private volatile long rolledHour;
+
+    public MetricTimeSeries() {
+        this(System::currentTimeMillis);
+    }
+
+    MetricTimeSeries(LongSupplier clock) {
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.rolledMinute = now / Resolution.MINUTE.millis - 1;
+        this.rolledHour = now / Resolution.HOUR.millis - 1;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        seconds.add(clock.getAsLong() / Resolution.SECOND.millis, delta);
+    }
+
+    /**
+     * Count in one bucket; buckets older than the ring holds read as 0
+     *
+     * @param bucket bucket number, i.e. epoch millis / resolution millis
+     */
+    public long get(Resolution resolution, long bucket) {
+        return switch (resolution) {
+            case SECOND -> seconds.get(bucket);
+            case MINUTE -> minuteTotal(bucket);
+            case HOUR -> hourTotal(bucket);
+        };
+    }
+
+    /**
+     * The last "count" buckets up to and including the current one, oldest first
+     */
+    public Snapshot snapshot(Resolution resolution, int count) {
+        long current = clock.getAsLong() / resolution.millis;
+        long first = current - count + 1;
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = get(resolution, first + i);
+        }
+        return new Snapshot(resolution, first, values);
+    }
+
+    /**
+     * Consecutive bucket counts starting at bucket number "firstBucket"
+     */
+    public record Snapshot(Resolution resolution, long firstBucket, long[] values) {
+
+        public long startMillis(int index) {
+            return (firstBucket + index) * resolution.millis;
+        }
+    }
+
+    /**
+     * Sum finished minutes and hours into their rings
+     */
+    public synchronized void rollup() {
+        long now = clock.getAsLong();
+        long finishedMinute = (now - ROLLUP_GRACE_MILLIS) / Resolution.MINUTE.millis - 1;
+        // Seconds older than the ring are gone; those minutes roll up as whatever is left (0)
+        long minute = Math.max(rolledMinute + 1, finishedMinute - MINUTE_SLOTS + 1);
+        for (; minute <= finishedMinute; minute++) {
+            minutes.set(minute, sumSeconds(minute));
+            rolledMinute = minute;
+        }
+
+        long finishedHour = (rolledMinute + 1) / 60 - 1;
+        long hour = Math.max(rolledHour + 1, finishedHour - HOUR_SLOTS + 1);
+        for (; hour <= finishedHour; hour++) {
+            long total = 0;
+            for (long m = hour * 60; m < hour * 60 + 60; m++) {
+                total += minutes.get(m);
+            }
+            hours.set(hour, total);
+            rolledHour = hour;
+        }
+    }
+
+    private long minuteTotal(long minute) {
+        return minute <= rolledMinute ? minutes.get(minute) : sumSeconds(minute);
+    }
+
+    private long hourTotal(long hour) {
+        if (hour <= rolledHour) {
+            return hours.get(hour);
+        }
+        long total = 0;
+        for (long m = hour * 60; m < hour * 60 + 60; m++) {
+            total += minuteTotal(m);
+        }
+        return total;
+    }
+
+    private long sumSeconds(long minute) {
+        long total = 0;
+        for (long s = minute * 60; s < minute * 60 + 60; s++) {
+            total += seconds.get(s);
+        }
+        return total;
+    }
+
+    /**
+     * Ring of (bucket number, count) pairs packed into longs
+     */
+    private static final class Ring {
+
+        private final AtomicLongArray slots;
+
+        Ring(int size) {
+            this.slots = new AtomicLongArray(size);
+        }
+
+        void add(long bucket, long delta) {
+            int index = index(bucket);
+            long stamp = bucket << 32;
+            while (true) {
+                long current = slots.get(index);
+                if ((current >>> 32) > bucket) {
+                    // Writer stalled for a whole ring; its bucket is already overwritten
+                    return;
+                }
+                long count = (current & ~COUNT_MASK) == stamp ? current & COUNT_MASK : 0;
+                long updated = stamp | Math.min(COUNT_MASK, count + delta);
+                if (slots.compareAndSet(index, current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        void set(long bucket, long value) {
+            slots.set(index(bucket), (bucket << 32) | Math.min(COUNT_MASK, value));
+        }
+
+        long get(long bucket) {
+            long current = slots.get(index(bucket));
+            return (current & ~COUNT_MASK) == bucket << 32 ? current & COUNT_MASK : 0;
+        }
+
+        private int index(long bucket) {
+            return (int) Math.floorMod(bucket, (long) slots.length());
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.EmailOutbox;
+import com.shop.backend.model.NewsletterCampaign;
+import com.shop.backend.repository.EmailOutboxRepository;
+import com.shop.backend.repository.NewsletterCampaignRepository;
+import com.shop.backend.repository.NewsletterSubscriptionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a newsletter to every active, verified subscriber as a background campaign
+ *
+ * The newsletter_campaigns row is the job. A worker reads subscribers in id order a
+ * chunk at a time (keyset paging), renders each email from a template compiled
+ * once per run, and queues the chunk in email_outbox in the same transaction that
+ * moves the checkpoint (last_subscriber_id). A crash therefore loses only the chunk
+ * in progress, as a whole, and the campaign goes on from the checkpoint once its
+ * lease runs out, on this node or another one.
+ *
+ * The SMTP sending is done by EmailOutboxDispatcher, whose workers and rate limit
+ * bound the concurrency. A campaign waits while max-queued of its emails are still
+ * unsent, so that appointment emails are not queued behind the whole mailing list.
+ */
+@Slf4j
+@Service
+public class NewsletterCampaignService {
+
+    // Newsletter email; %s: subject, content, blog post URL, frontend URL
+    private static final String NEWSLETTER_HTML = """
+        <div style='max-width:600px;margin:40px auto;background:#fff;border-radius:16px;box-shadow:0 4px 24px rgba(0,0,0,0.1);padding:32px;font-family:Segoe UI,Roboto,Arial,sans-serif;'>
+          <div style='text-align:center;margin-bottom:32px;'>
+            <div style='font-size:2rem;font-weight:700;color:#2563eb;letter-spacing:1px;margin-bottom:8px;'>MindMeter</div>
+            <div style='font-size:1.1rem;color:#64748b;'>Bản tin sức khỏe tâm thần</div>
+          </div>
+
+          <div style='margin-bottom:24px;'>
+            <h2 style='color:#1e293b;margin:0 0 16px 0;font-size:1.5rem;'>Xin chào {{name}},</h2>
+            <h3 style='color:#2563eb;margin:0 0 16px 0;font-size:1.25rem;'>%s</h3>
+          </div>
+
+          <div style='margin-bottom:24px;color:#475569;line-height:1.8;font-size:1rem;'>
+            %s
+          </div>
+
+          <div style='text-align:center;margin:32px 0;'>
+            <a href='%s' style='display:inline-flex;align-items:center;gap:8px;padding:14px 28px;background:#2563eb;color:#fff;text-decoration:none;border-radius:8px;font-weight:600;font-size:1rem;'>
+              Đọc bài viết đầy đủ
+            </a>
+          </div>
+
+          <div style='text-align:center;margin-top:32px;padding-top:24px;border-top:1px solid #e2e8f0;'>
+            <p style='margin:0 0 16px 0;color:#64748b;font-size:0.875rem;'>
+              Không muốn nhận email này nữa? 
+              <a href='%s/newsletter/unsubscribe?email={{email}}' style='color:#2563eb;'>Hủy đăng ký</a>
+            </p>
+            <p style='margin:0;color:#94a3b8;font-size:0.875rem;line-height:1.5;'>
+              Trân trọng,<br>
+              <strong>Đội ngũ MindMeter</strong>
+            </p>
+          </div>
+        </div>
+        """;
+
+    private static final List<EmailOutbox.Status> UNSENT = List.of(EmailOutbox.Status.PENDING, EmailOutbox.Status.SENDING);
+
+    @Value("${newsletter.campaign.enabled:true}")
+    private boolean enabled;
+
+    @Value("${newsletter.campaign.threads:2}")
+    private int threads;
+
+    @Value("${newsletter.campaign.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${newsletter.campaign.max-queued:2000}")
+    private long maxQueued;
+
+    @Value("${newsletter.campaign.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${newsletter.campaign.queue-wait-ms:5000}")
+    private long queueWaitMs;
+
+    @Value("${app.frontend.url:http://localhost:3000}")
+    private String frontendUrl;
+
+    @Autowired
+    private NewsletterCampaignRepository campaignRepository;
+
+    @Autowired
+    private NewsletterSubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService executor;
+
+    // Identifies this node in newsletter_campaigns.owner
+    private final String owner = UUID.randomUUID().toString();
+
+    // Campaigns with a worker on this node
+    private final Set<Long> active = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void startWorkers() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "newsletter-campaign-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stopWorkers() {
+        // Interrupted workers hand their campaign back; the checkpoint is already saved
+        executor.shutdownNow();
+    }
+
+    /**
+     * Create a campaign for all current subscribers and start it after commit
+     */
+    @Transactional
+    public NewsletterCampaign start(String subject, String content, Long blogPostId) {
+        if (subject == null || subject.isBlank() || content == null || content.isBlank()) {
+            throw new RuntimeException("Tiêu đề và nội dung bản tin không được để trống");
+        }
+        if (blogPostId == null) {
+            throw new RuntimeException("Bản tin phải gắn với một bài viết");
+        }
+        NewsletterCampaign campaign = new NewsletterCampaign();
+        campaign.setSubject(subject);
+        campaign.setContent(content);
+        campaign.setBlogPostId(blogPostId);
+        campaign.setStatus(NewsletterCampaign.Status.RUNNING);
+        campaign.setTotalRecipients(subscriptionRepository.countByIsActiveTrueAndIsVerifiedTrue());
+        campaign.setOwner(owner);
+        campaign.setLockedUntil(LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+        campaign = campaignRepository.save(campaign);
+
+        Long campaignId = campaign.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(campaignId);
+                }
+            });
+        } else {
+            submit(campaignId);
+        }
+        log.info("Newsletter campaign {} started for {} subscribers", campaignId, campaign.getTotalRecipients());
+        return campaign;
+    }
+
+    /**
+     * Stop a campaign; its emails that are not sent yet are dropped
+     */
+    @Transactional
+    public void cancel(Long campaignId) {
+        campaignRepository.findById(campaignId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy chiến dịch bản tin"));
+        emailOutboxRepository.skipPendingOfCampaign(campaignId, EmailOutbox.Status.SKIPPED);
+        Map<EmailOutbox.Status, Long> counts = countByStatus(campaignId);
+        if (campaignRepository.finish(campaignId, NewsletterCampaign.Status.CANCELLED,
+                counts.get(EmailOutbox.Status.SENT), counts.get(EmailOutbox.Status.FAILED), LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Chiến dịch bản tin đã kết thúc");
+        }
+        log.info("Newsletter campaign {} cancelled", campaignId);
+    }
+
+    /**
+     * Resume campaigns whose node went away, and close the ones whose emails are all sent
+     */
+    @Scheduled(fixedDelayString = "${newsletter.campaign.sweep-interval-ms:30000}",
+               initialDelayString = "${newsletter.campaign.sweep-interval-ms:30000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (Long campaignId : campaignRepository.findOrphanedIds(LocalDateTime.now())) {
+                log.info("Resuming newsletter campaign {}", campaignId);
+                submit(campaignId);
+            }
+            for (NewsletterCampaign campaign : campaignRepository.findByStatus(NewsletterCampaign.Status.SENDING)) {
+                Map<EmailOutbox.Status, Long> counts = countByStatus(campaign.getId());
+                if (counts.get(EmailOutbox.Status.PENDING) + counts.get(EmailOutbox.Status.SENDING) == 0) {
+                    transactionTemplate.executeWithoutResult(status -> campaignRepository.finish(campaign.getId(),
+                        NewsletterCampaign.Status.COMPLETED, counts.get(EmailOutbox.Status.SENT),
+                        counts.get(EmailOutbox.Status.FAILED), LocalDateTime.now()));
+                    log.info("Newsletter campaign {} completed: {} sent, {} failed", campaign.getId(),
+                        counts.get(EmailOutbox.Status.SENT), counts.get(EmailOutbox.Status.FAILED));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Newsletter campaign sweep failed", e);
+        }
+    }
+
+    public Map<String, Object> getProgress(Long campaignId) {
+        return progress(campaignRepository.findById(campaignId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy chiến dịch bản tin")));
+    }
+
+    public List<Map<String, Object>> getRecentCampaigns() {
+        return campaignRepository.findTop20ByOrderByCreatedAtDesc().stream().map(this::progress).toList();
+    }
+
+    private void submit(Long campaignId) {
+        if (!enabled || !active.add(campaignId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(campaignId));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the sweep of another node picks it up
+            active.remove(campaignId);
+        }
+    }
+
+    private void run(Long campaignId) {
+        long startedAt = System.currentTimeMillis();
+        try {
+            NewsletterCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+            if (campaign == null || campaign.getStatus() != NewsletterCampaign.Status.RUNNING) {
+                return;
+            }
+            NewsletterTemplate template = compile(campaign);
+            int chunks = 0;
+            while (awaitQueueRoom(campaignId) && processChunk(campaignId, template)) {
+                chunks++;
+            }
+            log.info("Newsletter campaign {}: {} chunks queued in {} ms", campaignId, chunks,
+                System.currentTimeMillis() - startedAt);
+        } catch (InterruptedException e) {
+            release(campaignId, null);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Newsletter campaign {} failed, retried at the next sweep", campaignId, e);
+            release(campaignId, e.getMessage());
+        } finally {
+            active.remove(campaignId);
+        }
+    }
+
+    /**
+     * Renew this node's lease and wait until fewer than max-queued emails of the
+     * campaign are unsent
+     *
+     * @return false if the campaign was cancelled, finished or taken over by another node
+     */
+    private boolean awaitQueueRoom(Long campaignId) throws InterruptedException {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            Integer claimed = transactionTemplate.execute(status ->
+                campaignRepository.claim(campaignId, owner, now.plus(Duration.ofMillis(leaseMs)), now));
+            if (claimed == null || claimed == 0) {
+                return false;
+            }
+            if (emailOutboxRepository.countByCampaignIdAndStatusIn(campaignId, UNSENT) < maxQueued) {
+                return true;
+            }
+            Thread.sleep(queueWaitMs);
+        }
+    }
+
+    /**
+     * Queue the next chunk of subscribers after the checkpoint and move the checkpoint
+     * past it, in one transaction; package-private for tests
+     *
+     * @return false once every subscriber is queued, or if the campaign is no longer this node's
+     */
+    boolean processChunk(Long campaignId, NewsletterTemplate template) {
+        Boolean more = transactionTemplate.execute(status -> {
+            NewsletterCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+            if (campaign == null || campaign.getStatus() != NewsletterCampaign.Status.RUNNING) {
+                return false;
+            }
+            List<Object[]> recipients = subscriptionRepository.findRecipientsAfter(
+                campaign.getLastSubscriberId(), PageRequest.of(0, chunkSize));
+            LocalDateTime now = LocalDateTime.now();
+            if (recipients.isEmpty()) {
+                campaignRepository.markQueued(campaignId, owner, NewsletterCampaign.Status.SENDING, now);
+                return false;
+            }
+
+            String subject = "[MindMeter Newsletter] " + campaign.getSubject();
+            List<EmailOutbox> emails = new ArrayList<>(recipients.size());
+            for (Object[] row : recipients) {
+                String email = (String) row[1];
+                String firstName = (String) row[2];
+                EmailOutbox message = new EmailOutbox();
+                message.setRecipient(email);
+                message.setSubject(subject);
+                message.setHtmlBody(template.render(Map.of(
+                    "name", HtmlUtils.htmlEscape(firstName != null ? firstName : "Bạn", "UTF-8"),
+                    "email", URLEncoder.encode(email, StandardCharsets.UTF_8))));
+                // Gửi lại cùng một bài không gửi trùng cho người đã nhận
+                message.setDedupKey("newsletter:" + campaign.getBlogPostId() + ":" + email);
+                message.setCampaignId(campaignId);
+                emails.add(message);
+            }
+            int queued = emailOutboxService.enqueueAll(emails);
+
+            Long lastSubscriberId = (Long) recipients.get(recipients.size() - 1)[0];
+            if (campaignRepository.checkpoint(campaignId, owner, lastSubscriberId, queued,
+                    recipients.size() - queued, now.plus(Duration.ofMillis(leaseMs))) == 0) {
+                // Cancelled or taken over meanwhile: drop this chunk
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(more);
+    }
+
+    private void release(Long campaignId, String error) {
+        try {
+            String lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+            transactionTemplate.executeWithoutResult(status -> campaignRepository.release(campaignId, owner, lastError));
+        } catch (Exception e) {
+            // The lease runs out instead
+            log.warn("Could not release newsletter campaign {}: {}", campaignId, e.getMessage());
+        }
+    }
+
+    private Map<String, Object> progress(NewsletterCampaign campaign) {
+        Map<EmailOutbox.Status, Long> counts = countByStatus(campaign.getId());
+        boolean finished = campaign.getStatus() == NewsletterCampaign.Status.COMPLETED
+            || campaign.getStatus() == NewsletterCampaign.Status.CANCELLED;
+        long processed = campaign.getQueuedCount() + campaign.getSkippedCount();
+        long total = campaign.getTotalRecipients() != null ? campaign.getTotalRecipients() : 0;
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", campaign.getId());
+        progress.put("subject", campaign.getSubject());
+        progress.put("blogPostId", campaign.getBlogPostId());
+        progress.put("status", campaign.getStatus().name());
+        progress.put("totalRecipients", total);
+        progress.put("queued", campaign.getQueuedCount());
+        progress.put("skipped", campaign.getSkippedCount());
+        progress.put("percentQueued", total > 0 ? Math.min(100.0, round(processed * 100.0 / total)) : 100.0);
+        progress.put("sent", finished && campaign.getSentCount() != null ? campaign.getSentCount() : counts.get(EmailOutbox.Status.SENT));
+        progress.put("failed", finished && campaign.getFailedCount() != null ? campaign.getFailedCount() : counts.get(EmailOutbox.Status.FAILED));
+        progress.put("unsent", counts.get(EmailOutbox.Status.PENDING) + counts.get(EmailOutbox.Status.SENDING));
+
+        // Throughput: recipients queued per second, emails sent per minute
+        LocalDateTime queuedUntil = campaign.getQueuedAt() != null ? campaign.getQueuedAt() : LocalDateTime.now();
+        long queueSeconds = campaign.getCreatedAt() != null
+            ? Math.max(1, Duration.between(campaign.getCreatedAt(), queuedUntil).getSeconds()) : 1;
+        progress.put("queuedPerSecond", round((double) processed / queueSeconds));
+        progress.put("sentPerMinute", sentPerMinute(campaign.getId()));
+
+        progress.put("lastSubscriberId", campaign.getLastSubscriberId());
+        progress.put("createdAt", campaign.getCreatedAt());
+        progress.put("queuedAt", campaign.getQueuedAt());
+        progress.put("completedAt", campaign.getCompletedAt());
+        progress.put("lastError", campaign.getLastError());
+        return progress;
+    }
+
+    private double sentPerMinute(Long campaignId) {
+        List<Object[]> rows = emailOutboxRepository.findSentWindow(campaignId);
+        if (rows.isEmpty() || rows.get(0)[1] == null) {
+            return 0;
+        }
+        Object[] window = rows.get(0);
+        long sent = ((Number) window[0]).longValue();
+        long millis = Duration.between((LocalDateTime) window[1], (LocalDateTime) window[2]).toMillis();
+        return sent > 1 && millis > 0 ? round(sent * 60_000.0 / millis) : 0;
+    }
+
+    private Map<EmailOutbox.Status, Long> countByStatus(Long campaignId) {
+        Map<EmailOutbox.Status, Long> counts = new EnumMap<>(EmailOutbox.Status.class);
+        for (EmailOutbox.Status status : EmailOutbox.Status.values()) {
+            counts.put(status, 0L);
+        }
+        for (Object[] row : emailOutboxRepository.countByCampaignGroupedByStatus(campaignId)) {
+            counts.put((EmailOutbox.Status) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * The newsletter email with {{name}} and {{email}} left for each recipient;
+     * {{name}} may also be used in the content
+     */
+    private NewsletterTemplate compile(NewsletterCampaign campaign) {
+        String blogPostUrl = frontendUrl + "/blog/post/" + campaign.getBlogPostId();
+        return NewsletterTemplate.compile(String.format(NEWSLETTER_HTML,
+            campaign.getSubject(), campaign.getContent(), blogPostUrl, frontendUrl));
+    }
+}
@@ -1,6 +1,7 @@
 package com.shop.backend.service;
 
 import com.shop.backend.dto.NewsletterSubscriptionDTO;
+import com.shop.backend.model.NewsletterCampaign;
 import com.shop.backend.model.NewsletterSubscription;
 import com.shop.backend.model.User;
 import com.shop.backend.repository.NewsletterSubscriptionRepository;
@@ -8,17 +9,13 @@ import com.shop.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.mail.internet.MimeMessage;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import jakarta.mail.MessagingException;
 
 @Service
 @RequiredArgsConstructor
@@ -27,7 +24,8 @@ public class NewsletterService {
     
     private final NewsletterSubscriptionRepository subscriptionRepository;
     private final UserRepository userRepository;
-    private final JavaMailSender mailSender;
+    private final EmailOutboxService emailOutboxService;
+    private final NewsletterCampaignService newsletterCampaignService;
     
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
@@ -116,21 +114,10 @@ public class NewsletterService {
     }
     
     /**
-     * Send newsletter to all subscribers
+     * Send newsletter to all subscribers, as a background campaign
      */
-    public void sendNewsletter(String subject, String content, Long blogPostId) {
-        List<NewsletterSubscription> subscribers = getActiveSubscribers();
-        String blogPostUrl = frontendUrl + "/blog/post/" + blogPostId;
-        
-        for (NewsletterSubscription subscriber : subscribers) {
-            try {
-                sendNewsletterEmail(subscriber, subject, content, blogPostUrl);
-            } catch (Exception e) {
-                log.error("Failed to send newsletter to {}: {}", subscriber.getEmail(), e.getMessage());
-            }
-        }
-        
-        log.info("Sent newsletter to {} subscribers", subscribers.size());
+    public NewsletterCampaign sendNewsletter(String subject, String content, Long blogPostId) {
+        return newsletterCampaignService.start(subject, content, blogPostId);
     }
     
     /**
@@ -145,49 +132,14 @@ public class NewsletterService {
      */
     private void sendVerificationEmail(NewsletterSubscription subscription) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(subscription.getEmail());
-            helper.setSubject("[MindMeter] Xác nhận đăng ký nhận bản tin");
-            
             String verificationUrl = frontendUrl + "/newsletter/verify?token=" + subscription.getVerificationToken();
             String html = generateVerificationEmailHtml(subscription.getFirstName(), verificationUrl);
             
-            helper.setText(html, true);
-            mailSender.send(message);
-            
-            log.info("Verification email sent to: {}", subscription.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send verification email: {}", e.getMessage(), e);
-        }
-    }
-    
-    /**
-     * Send newsletter email
-     */
-    private void sendNewsletterEmail(NewsletterSubscription subscription, String subject, String content, String blogPostUrl) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setTo(subscription.getEmail());
-            helper.setSubject("[MindMeter Newsletter] " + subject);
+            emailOutboxService.enqueue(subscription.getEmail(), "[MindMeter] Xác nhận đăng ký nhận bản tin", html, null);
             
-            String name = subscription.getFirstName() != null 
-                ? subscription.getFirstName() 
-                : "Bạn";
-            
-            String html = generateNewsletterEmailHtml(name, subject, content, blogPostUrl);
-            helper.setText(html, true);
-            
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            log.error("Failed to send newsletter email: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to send newsletter email", e);
+            log.info("Verification email queued for: {}", subscription.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send newsletter email: {}", e.getMessage(), e);
-            throw e;
+            log.error("Failed to queue verification email: {}", e.getMessage(), e);
         }
     }
     
@@ -232,45 +184,4 @@ public class NewsletterService {
             </div>
             """, name, verificationUrl, verificationUrl, verificationUrl);
     }
-    
-    /**
-     * Generate newsletter email HTML
-     */
-    private String generateNewsletterEmailHtml(String name, String subject, String content, String blogPostUrl) {
-        return String.format("""
-            <div style='max-width:600px;margin:40px auto;background:#fff;border-radius:16px;box-shadow:0 4px 24px rgba(0,0,0,0.1);padding:32px;font-family:Segoe UI,Roboto,Arial,sans-serif;'>
-              <div style='text-align:center;margin-bottom:32px;'>
-                <div style='font-size:2rem;font-weight:700;color:#2563eb;letter-spacing:1px;margin-bottom:8px;'>MindMeter</div>
-                <div style='font-size:1.1rem;color:#64748b;'>Bản tin sức khỏe tâm thần</div>
-              </div>
-              
-              <div style='margin-bottom:24px;'>
-                <h2 style='color:#1e293b;margin:0 0 16px 0;font-size:1.5rem;'>Xin chào %s,</h2>
-                <h3 style='color:#2563eb;margin:0 0 16px 0;font-size:1.25rem;'>%s</h3>
-              </div>
-              
-              <div style='margin-bottom:24px;color:#475569;line-height:1.8;font-size:1rem;'>
-                %s
-              </div>
-              
-              <div style='text-align:center;margin:32px 0;'>
-                <a href='%s' style='display:inline-flex;align-items:center;gap:8px;padding:14px 28px;background:#2563eb;color:#fff;text-decoration:none;border-radius:8px;font-weight:600;font-size:1rem;'>
-                  Đọc bài viết đầy đủ
-                </a>
-              </div>
-              
-              <div style='text-align:center;margin-top:32px;padding-top:24px;border-top:1px solid #e2e8f0;'>
-                <p style='margin:0 0 16px 0;color:#64748b;font-size:0.875rem;'>
-                  Không muốn nhận email này nữa? 
-                  <a href='%s/newsletter/unsubscribe?email=%s' style='color:#2563eb;'>Hủy đăng ký</a>
-                </p>
-                <p style='margin:0;color:#94a3b8;font-size:0.875rem;line-height:1.5;'>
-                  Trân trọng,<br>
-                  <strong>Đội ngũ MindMeter</strong>
-                </p>
-              </div>
-            </div>
-            """, name, subject, content, blogPostUrl, frontendUrl, "{email}");
-    }
 }
-
@@ -0,0 +1,61 @@
+package com.shop.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An email body with {{variable}} placeholders, split once into its literal parts
+ * so that rendering it for each recipient is a single StringBuilder pass
+ *
+ * Placeholders with no value are left as they are.
+ */
+final class NewsletterTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{(\\w+)}}");
+
+    // literals[i] comes before variables[i]; the last literal ends the template
+    private final String[] literals;
+    private final String[] variables;
+    private final int literalLength;
+
+    private NewsletterTemplate(String[] literals, String[] variables) {
+        this.literals = literals;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static NewsletterTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        int from = 0;
+        while (matcher.find()) {
+            literals.add(source.substring(from, matcher.start()));
+            variables.add(matcher.group(1));
+            from = matcher.end();
+        }
+        literals.add(source.substring(from));
+        return new NewsletterTemplate(literals.toArray(String[]::new), variables.toArray(String[]::new));
+    }
+
+    String render(Map<String, String> values) {
+        StringBuilder result = new StringBuilder(literalLength + 32 * variables.length);
+        for (int i = 0; i < variables.length; i++) {
+            result.append(literals[i]);
+            String value = values.get(variables[i]);
+            if (value != null) {
+                result.append(value);
+            } else {
+                result.append("{{").append(variables[i]).append("}}");
+            }
+        }
+        return result.append(literals[variables.length]).toString();
+    }
+}
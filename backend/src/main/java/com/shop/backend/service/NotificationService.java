@@ -32,6 +32,35 @@ public class NotificationService {
         );
     }
 
+    /**
+     * Đẩy kết quả đã được AI phân tích cho user (sau khi submit trả về kết quả sơ bộ)
+     */
+    public void sendTestAnalysisUpdate(Long userId, String testType, com.shop.backend.dto.depression.DepressionTestResponse result) {
+        NotificationMessage notification = new NotificationMessage();
+        notification.setType("TEST_RESULT_ANALYZED");
+        notification.setTitle("Kết quả phân tích chi tiết đã sẵn sàng");
+        notification.setMessage(result.getDiagnosis());
+        notification.setUserId(userId);
+        notification.setTestType(testType);
+        notification.setSeverity(result.getSeverity());
+        notification.setTimestamp(System.currentTimeMillis());
+        notification.setActionUrl("/student/test-history");
+
+        // Chuông thông báo
+        messagingTemplate.convertAndSendToUser(
+            userId.toString(),
+            "/queue/notifications",
+            notification
+        );
+
+        // Kết quả đầy đủ cho màn hình đang chờ phân tích
+        messagingTemplate.convertAndSendToUser(
+            userId.toString(),
+            "/queue/test-results",
+            result
+        );
+    }
+
     public void sendSevereTestAlert(Long userId, String testType, String message) {
         NotificationMessage notification = new NotificationMessage();
         notification.setType("SEVERE_ALERT");
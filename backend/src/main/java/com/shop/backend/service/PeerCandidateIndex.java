@@ -0,0 +1,672 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.DepressionTestResult;
+import com.shop.backend.model.PeerMatchPreferences;
+import com.shop.backend.repository.DepressionTestResultRepository;
+import com.shop.backend.repository.PeerMatchPreferencesRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Matching criteria of every user with peer matching enabled, for picking the
+ * best potential matches without going through all of them
+ *
+ * Candidates are bucketed by preferred language and preferred gender, and each
+ * bucket is sorted by the lower end of the age range, so a search only scans the
+ * language-compatible buckets up to the searcher's upper age. Interests are folded
+ * (case, Vietnamese diacritics) and numbered by frequency, then kept as sparse
+ * bitsets whose common words are ANDed and popcounted; the most common interests
+ * share the first words. The latest depression test severity of the window and
+ * its trend count too: peers at a similar level score higher, and more so if they
+ * are getting better. Large searches are scored in parallel slices, each keeping
+ * its own top K in a min-heap.
+ *
+ * Searches read an immutable snapshot; a saved preference replaces its user's
+ * entry under a lock. The whole index is reloaded periodically so changes made
+ * on other nodes are picked up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PeerCandidateIndex {
+
+    // Weights of the score, out of 100
+    private static final int INTEREST_WEIGHT = 45;
+    private static final int AGE_WEIGHT = 20;
+    private static final int LANGUAGE_WEIGHT = 10;
+    private static final int GENDER_WEIGHT = 10;
+    private static final int SEVERITY_WEIGHT = 10;
+    private static final int TREND_WEIGHT = 5;
+
+    private static final int MAX_SEVERITY = DepressionTestResult.SeverityLevel.values().length - 1;
+    private static final int UNKNOWN_SEVERITY = -1;
+
+    private static final int DEFAULT_AGE_MIN = 18;
+    private static final int DEFAULT_AGE_MAX = 30;
+
+    private static final int GENDERS = PeerMatchPreferences.PreferredGender.values().length;
+    private static final int LANGUAGES = PeerMatchPreferences.PreferredLanguage.values().length;
+
+    // Below this many candidates a search is scored on the calling thread
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int SLICE_SIZE = 2048;
+
+    private static final Pattern INTEREST_SEPARATOR = Pattern.compile("[,;\\n]+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    // Lowest score first; on equal scores the higher user id goes first, so lower ids are kept
+    private static final Comparator<Scored> WORST_FIRST = Comparator
+        .comparingInt(Scored::score)
+        .thenComparing(Comparator.comparingLong(Scored::userId).reversed());
+
+    private final PeerMatchPreferencesRepository peerMatchPreferencesRepository;
+    private final DepressionTestResultRepository depressionTestResultRepository;
+
+    // Tests older than this do not count towards a user's severity
+    @Value("${peer-matching.index.severity-window-days:90}")
+    private int severityWindowDays = 90;
+
+    private volatile Snapshot snapshot;
+
+    // Serializes full loads
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    // Every indexed user; changed under the monitor, read without it
+    private volatile Map<Long, Candidate> byUser = new ConcurrentHashMap<>();
+
+    // Guarded by this: who changed while a full load was reading the database
+    private final Set<Long> changedDuringLoad = new HashSet<>();
+    private boolean loading;
+
+    /**
+     * A potential match and its score in hundredths (0 - 10000)
+     */
+    public record Scored(long userId, int score) {
+    }
+
+    /**
+     * One user's criteria; the interest bits are only meaningful against the snapshot they were encoded for
+     */
+    static final class Candidate {
+        final long userId;
+        final int ageMin;
+        final int ageMax;
+        final int gender;
+        final int language;
+        // Latest SeverityLevel ordinal in the window, or UNKNOWN_SEVERITY; trend is its sign of change (-1 = better)
+        final int severity;
+        final int trend;
+        final String[] interests;
+        // Non-zero words of the interest bitset, by ascending word index
+        final int[] wordIndex;
+        final long[] words;
+
+        private Candidate(long userId, int ageMin, int ageMax, int gender, int language, int severity, int trend,
+                          String[] interests, int[] wordIndex, long[] words) {
+            this.userId = userId;
+            this.ageMin = ageMin;
+            this.ageMax = ageMax;
+            this.gender = gender;
+            this.language = language;
+            this.severity = severity;
+            this.trend = trend;
+            this.interests = interests;
+            this.wordIndex = wordIndex;
+            this.words = words;
+        }
+    }
+
+    private record Snapshot(Map<String, Integer> terms, Candidate[][] buckets) {
+    }
+
+    private record Slice(Candidate[] bucket, int from, int to, int genderScore, int languageScore) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${peer-matching.index.refresh-interval-ms:600000}",
+               initialDelayString = "${peer-matching.index.refresh-interval-ms:600000}")
+    public void refresh() {
+        loadLock.lock();
+        try {
+            load();
+        } catch (Exception e) {
+            // Searches keep using the previous snapshot, or load on first use
+            log.error("Peer candidate index load failed", e);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * The best "limit" candidates for these preferences, best first
+     *
+     * Candidates whose language or age range is incompatible are never scored.
+     *
+     * @param excluded users that must not be returned (the searcher and users already matched with them)
+     */
+    public List<Scored> findTop(long userId, PeerMatchPreferences preferences, Set<Long> excluded, int limit) {
+        Snapshot current = current();
+        Candidate indexed = byUser.get(userId);
+        Candidate searcher = encode(userId, preferences, indexed != null ? indexed.severity : UNKNOWN_SEVERITY,
+            indexed != null ? indexed.trend : 0, current.terms(), false);
+        return search(current, searcher, excluded, limit, true);
+    }
+
+    /**
+     * Like {@link #findTop}, for an indexed user and with their indexed preferences, on the calling thread only
+     *
+     * @return nothing if the user is not indexed (matching disabled)
+     */
+    public List<Scored> findTopFor(long userId, Set<Long> excluded, int limit) {
+        Snapshot current = current();
+        Candidate indexed = byUser.get(userId);
+        if (indexed == null) {
+            return List.of();
+        }
+        return search(current, withInterestBits(indexed, current.terms(), false), excluded, limit, false);
+    }
+
+    /**
+     * Every indexed user the given user is compatible with, and the score the given user gets as their candidate
+     */
+    public List<Scored> scoresTowards(long userId) {
+        Snapshot current = current();
+        Candidate indexed = byUser.get(userId);
+        if (indexed == null) {
+            return List.of();
+        }
+        Candidate candidate = withInterestBits(indexed, current.terms(), false);
+        List<Scored> scores = new ArrayList<>();
+        for (Candidate[] bucket : current.buckets()) {
+            int end = firstAgeMinAbove(bucket, candidate.ageMax);
+            for (int i = 0; i < end; i++) {
+                Candidate searcher = bucket[i];
+                if (searcher.userId != userId && searcher.ageMax >= candidate.ageMin
+                        && languagesCompatible(searcher.language, candidate.language)) {
+                    scores.add(new Scored(searcher.userId, score(searcher, candidate,
+                        genderScore(searcher.gender, candidate.gender), languageScore(searcher.language, candidate.language))));
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Ids of all indexed users
+     */
+    public List<Long> userIds() {
+        current();
+        return new ArrayList<>(byUser.keySet());
+    }
+
+    private List<Scored> search(Snapshot current, Candidate searcher, Set<Long> excluded, int limit, boolean parallel) {
+        List<Slice> slices = new ArrayList<>();
+        int total = 0;
+        for (int language = 0; language < LANGUAGES; language++) {
+            if (!languagesCompatible(searcher.language, language)) {
+                continue;
+            }
+            int languageScore = languageScore(searcher.language, language);
+            for (int gender = 0; gender < GENDERS; gender++) {
+                Candidate[] bucket = current.buckets()[bucketOf(language, gender)];
+                int end = firstAgeMinAbove(bucket, searcher.ageMax);
+                int genderScore = genderScore(searcher.gender, gender);
+                for (int from = 0; from < end; from += SLICE_SIZE) {
+                    slices.add(new Slice(bucket, from, Math.min(end, from + SLICE_SIZE), genderScore, languageScore));
+                }
+                total += end;
+            }
+        }
+
+        PriorityQueue<Scored> best;
+        if (!parallel || total < PARALLEL_THRESHOLD) {
+            best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+            for (Slice slice : slices) {
+                scoreSlice(searcher, slice, excluded, limit, best);
+            }
+        } else {
+            best = slices.parallelStream()
+                .map(slice -> scoreSlice(searcher, slice, excluded, limit, new PriorityQueue<>(limit + 1, WORST_FIRST)))
+                .reduce((a, b) -> {
+                    for (Scored scored : b) {
+                        offer(a, scored, limit);
+                    }
+                    return a;
+                })
+                .orElseGet(() -> new PriorityQueue<>(WORST_FIRST));
+        }
+
+        List<Scored> sorted = new ArrayList<>(best);
+        sorted.sort(WORST_FIRST.reversed());
+        return sorted;
+    }
+
+    /**
+     * Score in hundredths (0 - 10000) of user b as a candidate for user a, the same as {@link #findTop} gives
+     *
+     * Severities are those indexed for the two users, if any.
+     */
+    public int score(long userIdA, PeerMatchPreferences a, long userIdB, PeerMatchPreferences b) {
+        Map<String, Integer> terms = new HashMap<>();
+        Candidate indexedA = byUser.get(userIdA);
+        Candidate indexedB = byUser.get(userIdB);
+        Candidate first = encode(userIdA, a, indexedA != null ? indexedA.severity : UNKNOWN_SEVERITY,
+            indexedA != null ? indexedA.trend : 0, terms, true);
+        Candidate second = encode(userIdB, b, indexedB != null ? indexedB.severity : UNKNOWN_SEVERITY,
+            indexedB != null ? indexedB.trend : 0, terms, true);
+        return score(first, second, genderScore(first.gender, second.gender), languageScore(first.language, second.language));
+    }
+
+    /**
+     * Index the user's saved preferences and current severity, or drop the user if matching is disabled
+     */
+    public void update(Long userId, PeerMatchPreferences preferences) {
+        int[] wellbeing = Boolean.TRUE.equals(preferences.getMatchingEnabled())
+            ? wellbeing(depressionTestResultRepository.findSeverityHistoryOfUserSince(userId, severitySince()))
+            : new int[]{UNKNOWN_SEVERITY, 0};
+        apply(userId, preferences, wellbeing);
+    }
+
+    private synchronized void apply(Long userId, PeerMatchPreferences preferences, int[] wellbeing) {
+        if (loading) {
+            changedDuringLoad.add(userId);
+        }
+        Candidate previous = byUser.remove(userId);
+        Snapshot current = snapshot;
+        if (!Boolean.TRUE.equals(preferences.getMatchingEnabled())) {
+            if (current != null && previous != null) {
+                snapshot = new Snapshot(current.terms(), replace(current.buckets(), previous, null));
+            }
+            return;
+        }
+        Map<String, Integer> terms = current != null ? current.terms() : new ConcurrentHashMap<>();
+        Candidate candidate = encode(userId, preferences, wellbeing[0], wellbeing[1], terms, true);
+        byUser.put(userId, candidate);
+        if (current != null) {
+            snapshot = new Snapshot(terms, replace(current.buckets(), previous, candidate));
+        }
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        int size = 0;
+        if (current != null) {
+            for (Candidate[] bucket : current.buckets()) {
+                size += bucket.length;
+            }
+        }
+        return size;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            loadLock.lock();
+            try {
+                if (snapshot == null) {
+                    load();
+                }
+                current = snapshot;
+            } finally {
+                loadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    // Caller holds loadLock
+    private void load() {
+        long startedAt = System.currentTimeMillis();
+        int indexed;
+        synchronized (this) {
+            loading = true;
+            changedDuringLoad.clear();
+        }
+        try {
+            List<Object[]> rows = peerMatchPreferencesRepository.findMatchingCriteria();
+            Map<Long, int[]> wellbeing = wellbeingByUser(
+                depressionTestResultRepository.findSeverityHistorySince(severitySince()));
+            synchronized (this) {
+                Map<Long, Candidate> raw = new HashMap<>(rows.size() * 4 / 3 + 1);
+                for (Object[] row : rows) {
+                    Long userId = (Long) row[0];
+                    if (!changedDuringLoad.contains(userId)) {
+                        int[] severity = wellbeing.getOrDefault(userId, new int[]{UNKNOWN_SEVERITY, 0});
+                        raw.put(userId, criteria(userId, (Integer) row[1], (Integer) row[2],
+                            (PeerMatchPreferences.PreferredGender) row[3], (PeerMatchPreferences.PreferredLanguage) row[4],
+                            severity[0], severity[1], folded((String) row[5])));
+                    }
+                }
+                // Saved while the rows were being read: what update() indexed is newer
+                for (Long userId : changedDuringLoad) {
+                    Candidate changed = byUser.get(userId);
+                    if (changed != null) {
+                        raw.put(userId, changed);
+                    }
+                }
+                install(raw);
+                indexed = raw.size();
+            }
+        } finally {
+            synchronized (this) {
+                loading = false;
+                changedDuringLoad.clear();
+            }
+        }
+        log.info("Indexed {} peer matching candidates in {} ms", indexed, System.currentTimeMillis() - startedAt);
+    }
+
+    // Caller holds the monitor
+    private void install(Map<Long, Candidate> raw) {
+        // Most frequent interests first, so they fall into the first bitset words
+        Map<String, Integer> frequency = new HashMap<>();
+        for (Candidate candidate : raw.values()) {
+            for (String interest : candidate.interests) {
+                frequency.merge(interest, 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(frequency.entrySet());
+        ranked.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> terms = new ConcurrentHashMap<>(ranked.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Integer> entry : ranked) {
+            terms.put(entry.getKey(), terms.size());
+        }
+
+        List<List<Candidate>> grouped = new ArrayList<>(GENDERS * LANGUAGES);
+        for (int i = 0; i < GENDERS * LANGUAGES; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        Map<Long, Candidate> encoded = new ConcurrentHashMap<>(raw.size() * 4 / 3 + 1);
+        for (Candidate candidate : raw.values()) {
+            Candidate withBits = withInterestBits(candidate, terms, false);
+            encoded.put(withBits.userId, withBits);
+            grouped.get(bucketOf(withBits.language, withBits.gender)).add(withBits);
+        }
+        Candidate[][] buckets = new Candidate[grouped.size()][];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = grouped.get(i).toArray(Candidate[]::new);
+            Arrays.sort(buckets[i], Comparator.comparingInt((Candidate c) -> c.ageMin).thenComparingLong(c -> c.userId));
+        }
+        byUser = encoded;
+        snapshot = new Snapshot(terms, buckets);
+    }
+
+    private static PriorityQueue<Scored> scoreSlice(Candidate searcher, Slice slice, Set<Long> excluded, int limit,
+                                                    PriorityQueue<Scored> best) {
+        Candidate[] bucket = slice.bucket();
+        for (int i = slice.from(); i < slice.to(); i++) {
+            Candidate candidate = bucket[i];
+            if (candidate.ageMax < searcher.ageMin) {
+                continue;
+            }
+            int score = score(searcher, candidate, slice.genderScore(), slice.languageScore());
+            if (best.size() >= limit && !beats(score, candidate.userId, best.peek())) {
+                continue;
+            }
+            if (!excluded.contains(candidate.userId)) {
+                offer(best, new Scored(candidate.userId, score), limit);
+            }
+        }
+        return best;
+    }
+
+    private static void offer(PriorityQueue<Scored> best, Scored scored, int limit) {
+        if (best.size() < limit) {
+            best.add(scored);
+        } else if (limit > 0 && beats(scored.score(), scored.userId(), best.peek())) {
+            best.poll();
+            best.add(scored);
+        }
+    }
+
+    private static boolean beats(int score, long userId, Scored worst) {
+        return score > worst.score() || (score == worst.score() && userId < worst.userId());
+    }
+
+    private static int score(Candidate a, Candidate b, int genderScore, int languageScore) {
+        return interestScore(a, b) + ageScore(a, b) + genderScore + languageScore + wellbeingScore(a, b);
+    }
+
+    // Cosine similarity of the two interest bitsets
+    private static int interestScore(Candidate a, Candidate b) {
+        if (a.interests.length == 0 || b.interests.length == 0) {
+            return 0;
+        }
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.wordIndex.length && j < b.wordIndex.length) {
+            int x = a.wordIndex[i];
+            int y = b.wordIndex[j];
+            if (x == y) {
+                common += Long.bitCount(a.words[i++] & b.words[j++]);
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        if (common == 0) {
+            return 0;
+        }
+        return (int) Math.round(INTEREST_WEIGHT * 100 * common / Math.sqrt((double) a.interests.length * b.interests.length));
+    }
+
+    // Overlap of the two age ranges relative to their union
+    private static int ageScore(Candidate a, Candidate b) {
+        int overlap = Math.min(a.ageMax, b.ageMax) - Math.max(a.ageMin, b.ageMin) + 1;
+        if (overlap <= 0) {
+            return 0;
+        }
+        int union = Math.max(a.ageMax, b.ageMax) - Math.min(a.ageMin, b.ageMin) + 1;
+        return AGE_WEIGHT * 100 * overlap / union;
+    }
+
+    // How close the two latest severities are, and whether the candidate is getting better; half if either is unknown
+    private static int wellbeingScore(Candidate searcher, Candidate candidate) {
+        if (searcher.severity == UNKNOWN_SEVERITY || candidate.severity == UNKNOWN_SEVERITY) {
+            return (SEVERITY_WEIGHT + TREND_WEIGHT) * 50;
+        }
+        int closeness = SEVERITY_WEIGHT * 100 * (MAX_SEVERITY - Math.abs(searcher.severity - candidate.severity)) / MAX_SEVERITY;
+        int trend = candidate.trend < 0 ? TREND_WEIGHT * 100 : candidate.trend == 0 ? TREND_WEIGHT * 50 : 0;
+        return closeness + trend;
+    }
+
+    private static int genderScore(int a, int b) {
+        int any = PeerMatchPreferences.PreferredGender.ANY.ordinal();
+        if (a == b) {
+            return GENDER_WEIGHT * 100;
+        }
+        return a == any || b == any ? GENDER_WEIGHT * 50 : 0;
+    }
+
+    private static int languageScore(int a, int b) {
+        if (a == b) {
+            return LANGUAGE_WEIGHT * 100;
+        }
+        return languagesCompatible(a, b) ? LANGUAGE_WEIGHT * 50 : 0;
+    }
+
+    private static boolean languagesCompatible(int a, int b) {
+        int both = PeerMatchPreferences.PreferredLanguage.both.ordinal();
+        return a == b || a == both || b == both;
+    }
+
+    private static int bucketOf(int language, int gender) {
+        return language * GENDERS + gender;
+    }
+
+    // Index of the first candidate whose age range starts above ageMax
+    private static int firstAgeMinAbove(Candidate[] bucket, int ageMax) {
+        int low = 0;
+        int high = bucket.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bucket[mid].ageMin <= ageMax) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Buckets with "previous" taken out and "next" put in; only the buckets touched are copied
+     */
+    private static Candidate[][] replace(Candidate[][] buckets, Candidate previous, Candidate next) {
+        Candidate[][] copy = buckets.clone();
+        if (previous != null) {
+            int b = bucketOf(previous.language, previous.gender);
+            Candidate[] bucket = copy[b];
+            int at = -1;
+            for (int i = 0; i < bucket.length; i++) {
+                if (bucket[i].userId == previous.userId) {
+                    at = i;
+                    break;
+                }
+            }
+            if (at >= 0) {
+                Candidate[] smaller = new Candidate[bucket.length - 1];
+                System.arraycopy(bucket, 0, smaller, 0, at);
+                System.arraycopy(bucket, at + 1, smaller, at, bucket.length - at - 1);
+                copy[b] = smaller;
+            }
+        }
+        if (next != null) {
+            int b = bucketOf(next.language, next.gender);
+            Candidate[] bucket = copy[b];
+            int at = firstAgeMinAbove(bucket, next.ageMin);
+            Candidate[] larger = new Candidate[bucket.length + 1];
+            System.arraycopy(bucket, 0, larger, 0, at);
+            larger[at] = next;
+            System.arraycopy(bucket, at, larger, at + 1, bucket.length - at);
+            copy[b] = larger;
+        }
+        return copy;
+    }
+
+    /**
+     * @param addTerms number interests not seen yet; otherwise they only count towards the searcher's total
+     */
+    private static Candidate encode(long userId, PeerMatchPreferences preferences, int severity, int trend,
+                                    Map<String, Integer> terms, boolean addTerms) {
+        return withInterestBits(criteria(userId, preferences.getAgeRangeMin(), preferences.getAgeRangeMax(),
+            preferences.getPreferredGender(), preferences.getPreferredLanguage(), severity, trend,
+            folded(preferences.getInterests())), terms, addTerms);
+    }
+
+    private static Candidate criteria(long userId, Integer ageRangeMin, Integer ageRangeMax,
+                                      PeerMatchPreferences.PreferredGender gender,
+                                      PeerMatchPreferences.PreferredLanguage language, int severity, int trend,
+                                      String[] interests) {
+        int ageMin = ageRangeMin != null ? ageRangeMin : DEFAULT_AGE_MIN;
+        int ageMax = ageRangeMax != null ? ageRangeMax : DEFAULT_AGE_MAX;
+        return new Candidate(userId, Math.min(ageMin, ageMax), Math.max(ageMin, ageMax),
+            (gender != null ? gender : PeerMatchPreferences.PreferredGender.ANY).ordinal(),
+            (language != null ? language : PeerMatchPreferences.PreferredLanguage.both).ordinal(),
+            severity, trend, interests, new int[0], new long[0]);
+    }
+
+    private static Candidate withInterestBits(Candidate candidate, Map<String, Integer> terms, boolean addTerms) {
+        int[] ids = new int[candidate.interests.length];
+        int count = 0;
+        for (String interest : candidate.interests) {
+            Integer id = addTerms ? terms.computeIfAbsent(interest, t -> terms.size()) : terms.get(interest);
+            if (id != null) {
+                ids[count++] = id;
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        int[] wordIndex = new int[count];
+        long[] words = new long[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int word = ids[i] >>> 6;
+            if (length == 0 || wordIndex[length - 1] != word) {
+                wordIndex[length++] = word;
+            }
+            words[length - 1] |= 1L << (ids[i] & 63);
+        }
+        return new Candidate(candidate.userId, candidate.ageMin, candidate.ageMax, candidate.gender, candidate.language,
+            candidate.severity, candidate.trend, candidate.interests, Arrays.copyOf(wordIndex, length), Arrays.copyOf(words, length));
+    }
+
+    private LocalDateTime severitySince() {
+        return LocalDateTime.now().minusDays(severityWindowDays);
+    }
+
+    /**
+     * [severity, trend] per user, from [userId, severityLevel] rows ordered by user, then test time
+     */
+    private static Map<Long, int[]> wellbeingByUser(List<Object[]> rows) {
+        Map<Long, int[]> wellbeing = new HashMap<>();
+        int from = 0;
+        while (from < rows.size()) {
+            Long userId = (Long) rows.get(from)[0];
+            int to = from;
+            while (to < rows.size() && userId.equals(rows.get(to)[0])) {
+                to++;
+            }
+            List<DepressionTestResult.SeverityLevel> history = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                history.add((DepressionTestResult.SeverityLevel) rows.get(i)[1]);
+            }
+            wellbeing.put(userId, wellbeing(history));
+            from = to;
+        }
+        return wellbeing;
+    }
+
+    // Latest severity, and the sign of its change since the first test of the window
+    private static int[] wellbeing(List<DepressionTestResult.SeverityLevel> history) {
+        if (history.isEmpty()) {
+            return new int[]{UNKNOWN_SEVERITY, 0};
+        }
+        int latest = history.get(history.size() - 1).ordinal();
+        return new int[]{latest, Integer.signum(latest - history.get(0).ordinal())};
+    }
+
+    /**
+     * Distinct interests of a comma separated list, lower case and without diacritics
+     */
+    static String[] folded(String interests) {
+        if (interests == null || interests.isBlank()) {
+            return new String[0];
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String interest : INTEREST_SEPARATOR.split(interests)) {
+            String normalized = SPACES.matcher(VietnameseDiacriticFolder.fold(interest).toLowerCase(Locale.ROOT))
+                .replaceAll(" ").trim();
+            if (!normalized.isEmpty()) {
+                distinct.add(normalized);
+            }
+        }
+        return distinct.toArray(String[]::new);
+    }
+}
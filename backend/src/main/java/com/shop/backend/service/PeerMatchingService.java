@@ -9,12 +9,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,6 +36,14 @@ public class PeerMatchingService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private PeerCandidateIndex peerCandidateIndex;
+    
+    @Autowired
+    private PeerRecommendationService peerRecommendationService;
+    
+    private static final int POTENTIAL_MATCH_LIMIT = 10;
+    
     public Page<PeerMatchDTO> getUserMatches(Long userId, PeerMatch.MatchStatus status, Pageable pageable) {
         Page<PeerMatch> matches;
         if (status != null) {
@@ -84,7 +97,12 @@ public class PeerMatchingService {
             preferences.setMatchingEnabled(request.getMatchingEnabled());
         }
         
-        return peerMatchPreferencesRepository.save(preferences);
+        PeerMatchPreferences saved = peerMatchPreferencesRepository.save(preferences);
+        afterCommit(() -> {
+            peerCandidateIndex.update(userId, saved);
+            peerRecommendationService.preferencesChanged(userId);
+        });
+        return saved;
     }
     
     public PeerMatchDTO createMatch(Long user1Id, Long user2Id, PeerMatch.MatchType matchType, String userEmail) {
@@ -122,6 +140,7 @@ public class PeerMatchingService {
         match.setStatus(PeerMatch.MatchStatus.PENDING);
         
         match = peerMatchRepository.save(match);
+        afterCommit(() -> peerRecommendationService.matchChanged(user1Id, user2Id));
         return convertToDTO(match);
     }
     
@@ -170,6 +189,7 @@ public class PeerMatchingService {
         
         match.setStatus(PeerMatch.MatchStatus.REJECTED);
         match = peerMatchRepository.save(match);
+        matchChanged(match);
         return convertToDTO(match);
     }
     
@@ -192,6 +212,7 @@ public class PeerMatchingService {
         match.setStatus(PeerMatch.MatchStatus.ENDED);
         match.setEndedAt(LocalDateTime.now());
         match = peerMatchRepository.save(match);
+        matchChanged(match);
         return convertToDTO(match);
     }
     
@@ -206,26 +227,33 @@ public class PeerMatchingService {
             return List.of();
         }
         
-        // Find users with matching enabled
-        List<PeerMatchPreferences> allPreferences = peerMatchPreferencesRepository.findByMatchingEnabledTrue();
+        // Skip the user and everyone already matched with them
+        Set<Long> excluded = new HashSet<>(peerMatchRepository.findMatchedUserIds(userId));
+        excluded.add(userId);
         
-        return allPreferences.stream()
-            .filter(pref -> !pref.getUser().getId().equals(userId))
-            .filter(pref -> {
-                // Check if already matched
-                Optional<PeerMatch> existing = peerMatchRepository.findExistingMatch(userId, pref.getUser().getId());
-                return existing.isEmpty();
-            })
-            .map(pref -> {
+        List<PeerCandidateIndex.Scored> best = peerRecommendationService.getRecommendations(userId);
+        if (best != null) {
+            // Stored lists are refreshed in the background and can lag behind a new match
+            best = best.stream().filter(scored -> !excluded.contains(scored.userId())).toList();
+        } else {
+            // Not computed yet; ask for a few more in case some were deleted since the index was loaded
+            best = peerCandidateIndex.findTop(userId, preferences, excluded, POTENTIAL_MATCH_LIMIT + 5);
+        }
+        Map<Long, User> users = userRepository.findAllById(best.stream().map(PeerCandidateIndex.Scored::userId).toList())
+            .stream()
+            .collect(Collectors.toMap(User::getId, u -> u));
+        
+        return best.stream()
+            .filter(scored -> users.containsKey(scored.userId()))
+            .limit(POTENTIAL_MATCH_LIMIT)
+            .map(scored -> {
                 // Create potential match DTO (not saved yet)
                 PeerMatch potentialMatch = new PeerMatch();
                 potentialMatch.setUser1(user);
-                potentialMatch.setUser2(pref.getUser());
-                potentialMatch.setMatchScore(calculateMatchScore(user, pref.getUser()));
+                potentialMatch.setUser2(users.get(scored.userId()));
+                potentialMatch.setMatchScore(toScore(scored.score()));
                 return convertToDTO(potentialMatch);
             })
-            .sorted((a, b) -> b.getMatchScore().compareTo(a.getMatchScore()))
-            .limit(10)
             .collect(Collectors.toList());
     }
     
@@ -291,26 +319,36 @@ public class PeerMatchingService {
     }
     
     private BigDecimal calculateMatchScore(User user1, User user2) {
-        // Simplified matching algorithm
-        // Can be enhanced with more sophisticated logic based on:
-        // - Test results similarity
-        // - Interests matching
-        // - Age compatibility
-        // - Language preferences
-        // etc.
-        
-        BigDecimal score = BigDecimal.valueOf(50.0); // Base score
-        
-        // Age compatibility (if available)
-        // Add more logic here based on your requirements
-        
-        // Language compatibility
-        // Add more logic here
-        
-        // Interests matching
-        // Add more logic here
-        
-        return score;
+        // Interests, age range, language and gender preferences; see PeerCandidateIndex
+        PeerMatchPreferences preferences1 = peerMatchPreferencesRepository.findByUserId(user1.getId())
+            .orElse(new PeerMatchPreferences());
+        PeerMatchPreferences preferences2 = peerMatchPreferencesRepository.findByUserId(user2.getId())
+            .orElse(new PeerMatchPreferences());
+        return toScore(peerCandidateIndex.score(user1.getId(), preferences1, user2.getId(), preferences2));
+    }
+    
+    // Both users can be suggested to each other again, or no longer
+    private void matchChanged(PeerMatch match) {
+        Long user1Id = match.getUser1().getId();
+        Long user2Id = match.getUser2().getId();
+        afterCommit(() -> peerRecommendationService.matchChanged(user1Id, user2Id));
+    }
+    
+    private static BigDecimal toScore(int hundredths) {
+        return BigDecimal.valueOf(hundredths, 2);
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
 
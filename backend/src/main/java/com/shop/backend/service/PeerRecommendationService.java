@@ -0,0 +1,408 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.PeerMatchRecommendation;
+import com.shop.backend.repository.PeerMatchRecommendationRepository;
+import com.shop.backend.repository.PeerMatchRecommendationRunRepository;
+import com.shop.backend.repository.PeerMatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Precomputed best peer matches of every user with matching enabled, in peer_match_recommendations
+ *
+ * A nightly job reloads PeerCandidateIndex (preferences and test severity trends)
+ * and computes every user's top K on a ForkJoinPool, halving the user list down to
+ * batches that are each written with one delete and one JDBC batch insert. Lists of
+ * users that were not computed (matching turned off, deleted) are removed afterwards.
+ * Every node schedules the run, but only the node holding the lease row in
+ * peer_match_recommendation_runs computes it; it renews the lease between batches,
+ * and the others skip the night once it completes.
+ *
+ * Between runs, a saved preference recomputes only the users it can affect: the
+ * user, the users whose list has them, and the users whose last entry they now
+ * beat. Creating, rejecting or ending a match recomputes the two users. These run
+ * one after the other on a background thread, a user queued twice only once.
+ * Reading a user's list is one primary key range lookup.
+ */
+@Slf4j
+@Service
+public class PeerRecommendationService {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO peer_match_recommendations (user_id, rank_position, candidate_id, score, computed_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_RUN_SQL =
+        "INSERT INTO peer_match_recommendation_runs (job, owner, locked_until) VALUES (?, ?, ?)";
+
+    private static final String RUN_JOB = "nightly";
+
+    @Value("${peer-matching.recommendations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${peer-matching.recommendations.size:20}")
+    private int size;
+
+    @Value("${peer-matching.recommendations.threads:4}")
+    private int threads;
+
+    @Value("${peer-matching.recommendations.batch-size:256}")
+    private int batchSize;
+
+    @Value("${peer-matching.recommendations.lease-ms:600000}")
+    private long leaseMs;
+
+    // A node skips the run if another one completed it this recently
+    @Value("${peer-matching.recommendations.min-interval-ms:3600000}")
+    private long minIntervalMs;
+
+    @Autowired
+    private PeerCandidateIndex peerCandidateIndex;
+
+    @Autowired
+    private PeerMatchRecommendationRepository recommendationRepository;
+
+    @Autowired
+    private PeerMatchRecommendationRunRepository runRepository;
+
+    @Autowired
+    private PeerMatchRepository peerMatchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService executor;
+
+    // Users waiting for a recompute; true if the users around them are to be checked too
+    private final ConcurrentMap<Long, Boolean> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Identifies this node in peer_match_recommendation_runs.owner
+    private final String owner = UUID.randomUUID().toString();
+
+    private final AtomicLong leaseRenewedAt = new AtomicLong();
+
+    private volatile boolean leaseLost;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "peer-recommendations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Pending recomputes are caught up by the next nightly run
+        executor.shutdownNow();
+    }
+
+    /**
+     * The user's precomputed matches, best first, or null if none were computed for them
+     */
+    public List<PeerCandidateIndex.Scored> getRecommendations(Long userId) {
+        if (!enabled) {
+            return null;
+        }
+        List<PeerMatchRecommendation> rows = recommendationRepository.findByUserIdOrderByRankPositionAsc(userId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        return rows.stream()
+            .map(row -> new PeerCandidateIndex.Scored(row.getCandidateId(), row.getScore()))
+            .toList();
+    }
+
+    /**
+     * Recompute what a saved preference can change; call once PeerCandidateIndex has the new preference
+     */
+    public void preferencesChanged(Long userId) {
+        enqueue(userId, true);
+    }
+
+    /**
+     * Recompute the lists of both users of a created, rejected or ended match
+     */
+    public void matchChanged(Long user1Id, Long user2Id) {
+        enqueue(user1Id, false);
+        enqueue(user2Id, false);
+    }
+
+    @Scheduled(cron = "${peer-matching.recommendations.cron:0 30 2 * * *}")
+    public void recomputeAll() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (!claimRun()) {
+                log.debug("Peer match recommendations are computed by another node");
+                return;
+            }
+        } catch (Exception e) {
+            log.error("Could not claim the peer match recommendation run", e);
+            running.set(false);
+            return;
+        }
+        try {
+            long startedAt = System.currentTimeMillis();
+            // Whole seconds, as stored in computed_at, so this run's rows are never older than it
+            LocalDateTime computedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            peerCandidateIndex.refresh();
+            List<Long> userIds = peerCandidateIndex.userIds();
+
+            Map<Long, Set<Long>> matched = new HashMap<>();
+            for (Object[] pair : peerMatchRepository.findMatchedPairs()) {
+                matched.computeIfAbsent((Long) pair[0], id -> new HashSet<>()).add((Long) pair[1]);
+                matched.computeIfAbsent((Long) pair[1], id -> new HashSet<>()).add((Long) pair[0]);
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+            int computed;
+            try {
+                computed = pool.invoke(new RecomputeTask(userIds, 0, userIds.size(),
+                    userId -> matched.getOrDefault(userId, Set.of()), computedAt));
+            } finally {
+                pool.shutdown();
+            }
+            if (leaseLost) {
+                // Another node took the run over and removes stale rows itself
+                log.warn("Peer match recommendation lease lost after {} users", computed);
+                return;
+            }
+            Integer removed = transactionTemplate.execute(status -> recommendationRepository.deleteComputedBefore(computedAt));
+            transactionTemplate.executeWithoutResult(status -> runRepository.complete(RUN_JOB, owner, LocalDateTime.now()));
+            log.info("Computed peer match recommendations of {} users in {} ms ({} stale rows removed)",
+                computed, System.currentTimeMillis() - startedAt, removed);
+        } catch (Exception e) {
+            log.error("Peer match recommendation run failed", e);
+            releaseRun();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Recompute the user's list and, if "around", the lists the user can enter or leave
+     */
+    void recomputeAround(Long userId, boolean around) {
+        Set<Long> affected = new LinkedHashSet<>();
+        affected.add(userId);
+        if (around) {
+            affected.addAll(recommendationRepository.findUserIdsRecommending(userId));
+            List<PeerCandidateIndex.Scored> towards = peerCandidateIndex.scoresTowards(userId);
+            // Last entries of the compatible users only
+            List<Long> compatible = towards.stream().map(PeerCandidateIndex.Scored::userId).toList();
+            Map<Long, Integer> lastScores = new HashMap<>();
+            int chunk = Math.max(1, batchSize);
+            for (int from = 0; from < compatible.size(); from += chunk) {
+                List<Long> ids = compatible.subList(from, Math.min(compatible.size(), from + chunk));
+                for (Object[] row : recommendationRepository.findScoresAtRank(size - 1, ids)) {
+                    lastScores.put((Long) row[0], ((Number) row[1]).intValue());
+                }
+            }
+            for (PeerCandidateIndex.Scored scored : towards) {
+                // No last score: the list is not full, so any compatible user gets in
+                Integer last = lastScores.get(scored.userId());
+                if (last == null || scored.score() > last) {
+                    affected.add(scored.userId());
+                }
+            }
+        }
+        List<Long> users = new ArrayList<>(affected);
+        LocalDateTime computedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int from = 0; from < users.size(); from += Math.max(1, batchSize)) {
+            recompute(users.subList(from, Math.min(users.size(), from + Math.max(1, batchSize))),
+                id -> new HashSet<>(peerMatchRepository.findMatchedUserIds(id)), computedAt);
+        }
+        log.debug("Recomputed peer match recommendations of {} users around user {}", users.size(), userId);
+    }
+
+    /**
+     * Replace the lists of these users
+     *
+     * @param matched users each user is already matched with
+     * @return how many users were computed
+     */
+    private int recompute(List<Long> userIds, Function<Long, Set<Long>> matched, LocalDateTime computedAt) {
+        Timestamp computedAtValue = Timestamp.valueOf(computedAt);
+        List<Object[]> rows = new ArrayList<>(userIds.size() * size);
+        for (Long userId : userIds) {
+            Set<Long> excluded = new HashSet<>(matched.apply(userId));
+            excluded.add(userId);
+            List<PeerCandidateIndex.Scored> best = peerCandidateIndex.findTopFor(userId, excluded, size);
+            for (int rank = 0; rank < best.size(); rank++) {
+                PeerCandidateIndex.Scored scored = best.get(rank);
+                rows.add(new Object[]{userId, rank, scored.userId(), scored.score(), computedAtValue});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            recommendationRepository.deleteByUserIds(userIds);
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            }
+        });
+        return userIds.size();
+    }
+
+    /**
+     * Take the lease on tonight's run, creating the lease row on the very first run
+     *
+     * @return false if another node holds it or completed the run within min-interval-ms
+     */
+    private boolean claimRun() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plus(Duration.ofMillis(leaseMs));
+        LocalDateTime completedAfter = now.minus(Duration.ofMillis(minIntervalMs));
+        leaseLost = false;
+        leaseRenewedAt.set(System.currentTimeMillis());
+        Integer claimed = transactionTemplate.execute(status ->
+            runRepository.claim(RUN_JOB, owner, lockedUntil, now, completedAfter));
+        if (claimed != null && claimed > 0) {
+            return true;
+        }
+        if (runRepository.existsById(RUN_JOB)) {
+            return false;
+        }
+        try {
+            jdbcTemplate.update(INSERT_RUN_SQL, RUN_JOB, owner, Timestamp.valueOf(lockedUntil));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false; // another node created it first
+        }
+    }
+
+    /**
+     * Extend the lease once a third of it has passed; flags the run as lost if another node took it
+     */
+    private void renewRun() {
+        long now = System.currentTimeMillis();
+        long last = leaseRenewedAt.get();
+        if (now - last < leaseMs / 3 || !leaseRenewedAt.compareAndSet(last, now)) {
+            return;
+        }
+        Integer renewed = transactionTemplate.execute(status -> runRepository.renew(RUN_JOB, owner,
+            LocalDateTime.now().plus(Duration.ofMillis(leaseMs))));
+        if (renewed == null || renewed == 0) {
+            leaseLost = true;
+        }
+    }
+
+    private void releaseRun() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> runRepository.release(RUN_JOB, owner));
+        } catch (Exception e) {
+            // The lease runs out instead
+            log.warn("Could not release the peer match recommendation run: {}", e.getMessage());
+        }
+    }
+
+    private void enqueue(Long userId, boolean around) {
+        if (!enabled) {
+            return;
+        }
+        pending.merge(userId, around, Boolean::logicalOr);
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        for (Long userId : new ArrayList<>(pending.keySet())) {
+            Boolean around = pending.remove(userId);
+            if (around == null) {
+                continue;
+            }
+            try {
+                recomputeAround(userId, around);
+            } catch (Exception e) {
+                // The nightly run computes it again
+                log.warn("Could not recompute peer match recommendations around user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Computes a range of users, split in halves down to batchSize users
+     */
+    private final class RecomputeTask extends RecursiveTask<Integer> {
+
+        private final List<Long> userIds;
+        private final int from;
+        private final int to;
+        private final Function<Long, Set<Long>> matched;
+        private final LocalDateTime computedAt;
+
+        RecomputeTask(List<Long> userIds, int from, int to, Function<Long, Set<Long>> matched, LocalDateTime computedAt) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+            this.matched = matched;
+            this.computedAt = computedAt;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= Math.max(1, batchSize)) {
+                if (from == to || leaseLost) {
+                    return 0;
+                }
+                try {
+                    int computed = recompute(userIds.subList(from, to), matched, computedAt);
+                    renewRun();
+                    return computed;
+                } catch (Exception e) {
+                    // Their old lists are removed as stale; they are searched live until the next run
+                    log.warn("Could not compute peer match recommendations of {} users: {}", to - from, e.getMessage());
+                    return 0;
+                }
+            }
+            int middle = (from + to) >>> 1;
+            RecomputeTask left = new RecomputeTask(userIds, from, middle, matched, computedAt);
+            left.fork();
+            int right = new RecomputeTask(userIds, middle, to, matched, computedAt).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.shop.backend.service;
+
+import com.shop.backend.dto.depression.DepressionQuestionDTO;
+import com.shop.backend.dto.depression.DepressionQuestionOptionDTO;
+import com.shop.backend.model.DepressionQuestionEn;
+import com.shop.backend.model.DepressionQuestionOptionEn;
+import com.shop.backend.model.DepressionQuestionOptionVi;
+import com.shop.backend.model.DepressionQuestionVi;
+import com.shop.backend.repository.DepressionQuestionEnRepository;
+import com.shop.backend.repository.DepressionQuestionOptionEnRepository;
+import com.shop.backend.repository.DepressionQuestionOptionViRepository;
+import com.shop.backend.repository.DepressionQuestionViRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * In-memory catalog of depression test questions and their options
+ *
+ * The whole question bank (both languages) is loaded with four queries into an
+ * immutable {@link Catalog} that request threads read without touching the
+ * database. Admin edits call {@link #refreshAfterCommit()}, which rebuilds the
+ * catalog once the edit commits and swaps it in atomically. Other nodes notice
+ * the change through a cheap fingerprint query (row counts and latest
+ * update/ids) polled every questions.catalog.check-interval-ms.
+ *
+ * Each question list carries an ETag computed from its content, so clients can
+ * revalidate with If-None-Match and get a 304 while the list is unchanged.
+ * The DTOs are shared between requests and must not be modified.
+ */
+@Slf4j
+@Service
+public class QuestionCatalogService {
+
+    private static final String FINGERPRINT_SQL =
+        "SELECT (SELECT COUNT(*) FROM depression_questions_vi), (SELECT MAX(updated_at) FROM depression_questions_vi), "
+        + "(SELECT COUNT(*) FROM depression_questions_en), (SELECT MAX(updated_at) FROM depression_questions_en), "
+        + "(SELECT COUNT(*) FROM depression_question_options_vi), (SELECT MAX(id) FROM depression_question_options_vi), "
+        + "(SELECT COUNT(*) FROM depression_question_options_en), (SELECT MAX(id) FROM depression_question_options_en)";
+
+    private static final String LANGUAGE_VI = "vi";
+    private static final String LANGUAGE_EN = "en";
+    private static final String EN_SUFFIX = "-EN";
+
+    private static final QuestionList EMPTY = toList(List.of());
+
+    @Autowired
+    private DepressionQuestionViRepository questionViRepository;
+
+    @Autowired
+    private DepressionQuestionEnRepository questionEnRepository;
+
+    @Autowired
+    private DepressionQuestionOptionViRepository optionViRepository;
+
+    @Autowired
+    private DepressionQuestionOptionEnRepository optionEnRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicReference<Catalog> current = new AtomicReference<>();
+
+    private TransactionTemplate loadTransactionTemplate;
+
+    /**
+     * One list of questions as served to clients, with its ETag
+     */
+    public record QuestionList(List<DepressionQuestionDTO> questions, String etag) {
+    }
+
+    /**
+     * Question text and category, used as context for the AI analysis
+     */
+    public record QuestionInfo(String questionText, String category) {
+    }
+
+    /**
+     * Immutable snapshot of the question bank
+     */
+    public record Catalog(long version,
+                          String fingerprint,
+                          QuestionList allVi,
+                          QuestionList allEn,
+                          Map<String, QuestionList> byTestKeyVi,
+                          Map<String, QuestionList> byTestKeyEn,
+                          Map<Long, QuestionInfo> infoVi,
+                          Map<Long, QuestionInfo> infoEn) {
+    }
+
+    @PostConstruct
+    public void init() {
+        // REQUIRES_NEW: refreshes run from afterCommit, where the finished transaction is still bound
+        loadTransactionTemplate = new TransactionTemplate(transactionManager);
+        loadTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        loadTransactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // First read retries the load
+            log.error("Question catalog preload failed", e);
+        }
+    }
+
+    /**
+     * All active questions of one language (null or anything but "en" means Vietnamese)
+     */
+    public QuestionList getActiveQuestions(String language) {
+        Catalog catalog = catalog();
+        return LANGUAGE_EN.equals(language) ? catalog.allEn() : catalog.allVi();
+    }
+
+    /**
+     * Active questions of one test; the key is adjusted to the language the same way
+     * as before ("DASS-21" + en -> "DASS-21-EN", "DASS-21-EN" + vi -> "DASS-21")
+     */
+    public QuestionList getActiveQuestions(String testKey, String language) {
+        Catalog catalog = catalog();
+        if (LANGUAGE_EN.equals(language)) {
+            String key = testKey.endsWith(EN_SUFFIX) ? testKey : testKey + EN_SUFFIX;
+            return catalog.byTestKeyEn().getOrDefault(key, EMPTY);
+        }
+        String key = LANGUAGE_VI.equals(language) && testKey.endsWith(EN_SUFFIX)
+            ? testKey.substring(0, testKey.length() - EN_SUFFIX.length())
+            : testKey;
+        return catalog.byTestKeyVi().getOrDefault(key, EMPTY);
+    }
+
+    /**
+     * Text and category of any question, active or not; null if unknown
+     */
+    public QuestionInfo getQuestionInfo(Long questionId, boolean english) {
+        Catalog catalog = catalog();
+        return (english ? catalog.infoEn() : catalog.infoVi()).get(questionId);
+    }
+
+    public long getVersion() {
+        return catalog().version();
+    }
+
+    /**
+     * Rebuild the catalog once the current transaction commits (right away if there is none)
+     */
+    public void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * Pick up question edits made on other nodes (or directly in the database)
+     */
+    @Scheduled(fixedDelayString = "${questions.catalog.check-interval-ms:30000}",
+               initialDelayString = "${questions.catalog.check-interval-ms:30000}")
+    public void checkForChanges() {
+        Catalog catalog = current.get();
+        if (catalog == null) {
+            return;
+        }
+        try {
+            if (!fingerprint().equals(catalog.fingerprint())) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("Question catalog change check failed", e);
+        }
+    }
+
+    /**
+     * Load everything and swap the new catalog in; synchronized so concurrent
+     * refreshes cannot publish an older snapshot over a newer one
+     */
+    public synchronized Catalog reload() {
+        Catalog previous = current.get();
+        Catalog loaded = loadTransactionTemplate.execute(status ->
+            build(previous != null ? previous.version() + 1 : 1, fingerprint()));
+        current.set(loaded);
+        log.info("Question catalog v{} loaded: {} vi / {} en questions",
+            loaded.version(), loaded.infoVi().size(), loaded.infoEn().size());
+        return loaded;
+    }
+
+    private Catalog catalog() {
+        Catalog catalog = current.get();
+        return catalog != null ? catalog : reload();
+    }
+
+    private String fingerprint() {
+        return jdbcTemplate.queryForObject(FINGERPRINT_SQL, (rs, rowNum) -> {
+            StringBuilder fingerprint = new StringBuilder();
+            for (int column = 1; column <= 8; column++) {
+                fingerprint.append(rs.getObject(column)).append('|');
+            }
+            return fingerprint.toString();
+        });
+    }
+
+    private Catalog build(long version, String fingerprint) {
+        List<DepressionQuestionVi> questionsVi = new ArrayList<>(questionViRepository.findAll());
+        List<DepressionQuestionEn> questionsEn = new ArrayList<>(questionEnRepository.findAll());
+        questionsVi.sort(Comparator.comparing(DepressionQuestionVi::getId));
+        questionsEn.sort(Comparator.comparing(DepressionQuestionEn::getId));
+
+        Map<Long, List<DepressionQuestionOptionDTO>> optionsVi = groupOptions(optionViRepository.findAll(),
+            o -> o.getQuestion().getId(),
+            o -> new DepressionQuestionOptionDTO(o.getId(), o.getOptionText(), o.getOptionValue(), o.getOrder()));
+        Map<Long, List<DepressionQuestionOptionDTO>> optionsEn = groupOptions(optionEnRepository.findAll(),
+            o -> o.getQuestion().getId(),
+            o -> new DepressionQuestionOptionDTO(o.getId(), o.getOptionText(), o.getOptionValue(), o.getOrder()));
+
+        List<DepressionQuestionDTO> allVi = new ArrayList<>();
+        Map<String, List<DepressionQuestionDTO>> byKeyVi = new HashMap<>();
+        Map<Long, QuestionInfo> infoVi = new HashMap<>();
+        for (DepressionQuestionVi q : questionsVi) {
+            infoVi.put(q.getId(), new QuestionInfo(q.getQuestionText(), q.getCategory()));
+            if (Boolean.TRUE.equals(q.getIsActive())) {
+                DepressionQuestionDTO dto = toDTO(q.getId(), q.getQuestionText(), q.getWeight(), q.getCategory(), q.getOrder());
+                dto.setQuestionTextVi(q.getQuestionText()); // Set Vietnamese question text
+                dto.setOptionsVi(optionsVi.getOrDefault(q.getId(), List.of()));
+                allVi.add(dto);
+                byKeyVi.computeIfAbsent(q.getTestKey(), k -> new ArrayList<>()).add(dto);
+            }
+        }
+
+        List<DepressionQuestionDTO> allEn = new ArrayList<>();
+        Map<String, List<DepressionQuestionDTO>> byKeyEn = new HashMap<>();
+        Map<Long, QuestionInfo> infoEn = new HashMap<>();
+        for (DepressionQuestionEn q : questionsEn) {
+            infoEn.put(q.getId(), new QuestionInfo(q.getQuestionText(), q.getCategory()));
+            if (Boolean.TRUE.equals(q.getIsActive())) {
+                DepressionQuestionDTO dto = toDTO(q.getId(), q.getQuestionText(), q.getWeight(), q.getCategory(), q.getOrder());
+                dto.setQuestionTextEn(q.getQuestionText()); // Set English question text
+                dto.setOptionsEn(optionsEn.getOrDefault(q.getId(), List.of()));
+                allEn.add(dto);
+                byKeyEn.computeIfAbsent(q.getTestKey(), k -> new ArrayList<>()).add(dto);
+            }
+        }
+
+        return new Catalog(version, fingerprint,
+            toList(allVi), toList(allEn), toLists(byKeyVi), toLists(byKeyEn),
+            Map.copyOf(infoVi), Map.copyOf(infoEn));
+    }
+
+    private static DepressionQuestionDTO toDTO(Long id, String text, Integer weight, String category, Integer order) {
+        DepressionQuestionDTO dto = new DepressionQuestionDTO();
+        dto.setId(id);
+        dto.setQuestionText(text);
+        dto.setWeight(weight);
+        dto.setCategory(category);
+        dto.setOrder(order);
+        return dto;
+    }
+
+    private static <T> Map<Long, List<DepressionQuestionOptionDTO>> groupOptions(
+            Collection<T> options, Function<T, Long> questionId, Function<T, DepressionQuestionOptionDTO> toDTO) {
+        Map<Long, List<DepressionQuestionOptionDTO>> grouped = new HashMap<>();
+        for (T option : options) {
+            grouped.computeIfAbsent(questionId.apply(option), k -> new ArrayList<>()).add(toDTO.apply(option));
+        }
+        // Same order as findByQuestionIdOrderByOrderAsc
+        Comparator<DepressionQuestionOptionDTO> byOrder = Comparator
+            .comparing(DepressionQuestionOptionDTO::getOrder, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(DepressionQuestionOptionDTO::getId);
+        grouped.replaceAll((id, list) -> {
+            list.sort(byOrder);
+            return List.copyOf(list);
+        });
+        return grouped;
+    }
+
+    private static Map<String, QuestionList> toLists(Map<String, List<DepressionQuestionDTO>> byKey) {
+        Map<String, QuestionList> lists = new HashMap<>();
+        byKey.forEach((key, questions) -> {
+            if (key != null) {
+                lists.put(key, toList(questions));
+            }
+        });
+        return Map.copyOf(lists);
+    }
+
+    private static QuestionList toList(List<DepressionQuestionDTO> questions) {
+        return new QuestionList(List.copyOf(questions), etag(questions));
+    }
+
+
+    /**
+     * Content hash of everything a client renders, so an unchanged list keeps its ETag across reloads
+     */
+    private static String etag(List<DepressionQuestionDTO> questions) {
+        StringBuilder content = new StringBuilder();
+        for (DepressionQuestionDTO q : questions) {
+            content.append(q.getId()).append('\u0001')
+                .append(q.getQuestionText()).append('\u0001')
+                .append(q.getWeight()).append('\u0001')
+                .append(q.getCategory()).append('\u0001')
+                .append(q.getOrder()).append('\u0001');
+            List<DepressionQuestionOptionDTO> options = q.getOptionsVi() != null ? q.getOptionsVi() : q.getOptionsEn();
+            for (DepressionQuestionOptionDTO o : Objects.requireNonNullElse(options, List.<DepressionQuestionOptionDTO>of())) {
+                content.append(o.getId()).append('\u0002')
+                    .append(o.getOptionText()).append('\u0002')
+                    .append(o.getOptionValue()).append('\u0002')
+                    .append(o.getOrder()).append('\u0002');
+            }
+            content.append('\u0003');
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"q-" + HexFormat.of().formatHex(hash, 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+}
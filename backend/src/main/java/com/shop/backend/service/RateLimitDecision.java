@@ -0,0 +1,14 @@
+package com.shop.backend.service;
+
+/**
+ * Outcome of one rate limit check, with what the response headers need
+ *
+ * @param retryAfterMillis how long until the next request would be allowed (0 when allowed)
+ * @param resetAfterMillis how long until the client's full quota is available again
+ */
+public record RateLimitDecision(boolean allowed, int limit, int remaining, long retryAfterMillis, long resetAfterMillis) {
+
+    public static RateLimitDecision unlimited(int limit) {
+        return new RateLimitDecision(true, limit, limit, 0, 0);
+    }
+}
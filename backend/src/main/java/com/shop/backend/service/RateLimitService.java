@@ -1,87 +1,132 @@
 package com.shop.backend.service;
 
+import com.shop.backend.config.RateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-client rate limiting with one {@link LocalRateLimiter} per policy from the
+ * "rate-limit" config block. A request is checked against the policy its path
+ * resolves to, keyed by {@link IpAddressKey}; idle clients are dropped by a
+ * background sweep instead of on the request path.
+ *
+ * With rate-limit.mode=redis the check goes to {@link RedisRateLimiter} so the
+ * quota is shared by all nodes. Whenever Redis cannot answer in time the local
+ * limiter decides, which during an outage means one quota per node.
+ */
+@Slf4j
 @Service
 public class RateLimitService {
-    
-    // Track request times for each IP
-    private final ConcurrentHashMap<String, Long> requestTimes = new ConcurrentHashMap<>();
-    
-    // Track request counts for each IP
-    private final ConcurrentHashMap<String, Integer> requestCounts = new ConcurrentHashMap<>();
-    
-    // Rate limit configurations
-    private static final long RATE_LIMIT_WINDOW = TimeUnit.MINUTES.toMillis(1); // 1 minute window
-    private static final int MAX_REQUESTS_PER_WINDOW = 100; // 100 requests per minute per IP
-    
-    // Specific endpoint limits
-    private static final int MAX_AUTH_REQUESTS = 30; // 30 auth requests per minute
-    private static final int MAX_API_REQUESTS = 50; // 50 API requests per minute
-    private static final int MAX_PAYMENT_REQUESTS = 100; // 100 payment requests per minute for development
-    
-    public boolean isRateLimited(String clientIP) {
-        return isRateLimited(clientIP, MAX_REQUESTS_PER_WINDOW);
-    }
-    
-    public boolean isRateLimited(String clientIP, int maxRequests) {
-        long now = System.currentTimeMillis();
-        String key = clientIP + "_" + (now / RATE_LIMIT_WINDOW);
-        
-        // Get current count for this window
-        int currentCount = requestCounts.getOrDefault(key, 0);
-        
-        // Check if limit exceeded
-        if (currentCount >= maxRequests) {
-            return true;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Autowired
+    private ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    private final Map<String, LocalRateLimiter> limiters = new LinkedHashMap<>();
+
+    private RedisRateLimiter redisLimiter;
+
+    @PostConstruct
+    public void init() {
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            limiters.put(policy.getName(), new LocalRateLimiter(policy.getLimit(), policy.getWindow()));
+        }
+
+        if ("redis".equalsIgnoreCase(properties.getMode())) {
+            RedisConnectionFactory connectionFactory = redisConnectionFactory.getIfAvailable();
+            if (connectionFactory != null) {
+                redisLimiter = new RedisRateLimiter(properties.getRedis(), connectionFactory);
+            } else {
+                log.warn("rate-limit.mode is redis but no Redis connection is configured, using per-node limits");
+            }
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("rate_limit.tracked_clients", this, RateLimitService::getTrackedClients).register(registry);
         }
-        
-        // Increment count
-        requestCounts.put(key, currentCount + 1);
-        requestTimes.put(key, now);
-        
-        // Clean up old entries
-        cleanupOldEntries(now);
-        
-        return false;
     }
-    
-    public boolean isAuthRateLimited(String clientIP) {
-        return isRateLimited(clientIP, MAX_AUTH_REQUESTS);
+
+    @PreDestroy
+    public void stop() {
+        if (redisLimiter != null) {
+            redisLimiter.close();
+        }
     }
-    
-    public boolean isApiRateLimited(String clientIP) {
-        return isRateLimited(clientIP, MAX_API_REQUESTS);
+
+    /**
+     * Count one request from the client against the policy for the path
+     */
+    public RateLimitDecision check(String path, String clientIP) {
+        RateLimitProperties.Policy policy = properties.resolve(path);
+        if (!properties.isEnabled()) {
+            return RateLimitDecision.unlimited(policy.getLimit());
+        }
+        long clientKey = IpAddressKey.of(clientIP);
+        if (redisLimiter != null) {
+            RateLimitDecision shared = redisLimiter.tryAcquire(policy.getName(), policy.getLimit(), policy.getWindow(), clientKey);
+            if (shared != null) {
+                return shared;
+            }
+        }
+        return limiters.get(policy.getName()).tryAcquire(clientKey);
     }
-    
-    public boolean isPaymentRateLimited(String clientIP) {
-        return isRateLimited(clientIP, MAX_PAYMENT_REQUESTS);
+
+    /**
+     * The client's quota for the path, without counting a request
+     */
+    public RateLimitDecision peek(String path, String clientIP) {
+        RateLimitProperties.Policy policy = properties.resolve(path);
+        if (!properties.isEnabled()) {
+            return RateLimitDecision.unlimited(policy.getLimit());
+        }
+        long clientKey = IpAddressKey.of(clientIP);
+        if (redisLimiter != null) {
+            RateLimitDecision shared = redisLimiter.peek(policy.getName(), policy.getLimit(), policy.getWindow(), clientKey);
+            if (shared != null) {
+                return shared;
+            }
+        }
+        return limiters.get(policy.getName()).peek(clientKey);
     }
-    
-    private void cleanupOldEntries(long now) {
-        // Remove entries older than 2 windows to prevent memory leaks
-        long cutoffTime = now - (2 * RATE_LIMIT_WINDOW);
-        
-        requestTimes.entrySet().removeIf(entry -> entry.getValue() < cutoffTime);
-        requestCounts.entrySet().removeIf(entry -> {
-            String key = entry.getKey();
-            Long time = requestTimes.get(key);
-            return time != null && time < cutoffTime;
-        });
+
+    public boolean isDistributed() {
+        return redisLimiter != null && redisLimiter.isAvailable();
     }
-    
-    public int getRemainingRequests(String clientIP) {
-        long now = System.currentTimeMillis();
-        String key = clientIP + "_" + (now / RATE_LIMIT_WINDOW);
-        int currentCount = requestCounts.getOrDefault(key, 0);
-        return Math.max(0, MAX_REQUESTS_PER_WINDOW - currentCount);
+
+    public int getTrackedClients() {
+        int total = 0;
+        for (LocalRateLimiter limiter : limiters.values()) {
+            total += limiter.size();
+        }
+        return total;
     }
-    
-    public long getResetTime(String clientIP) {
-        long now = System.currentTimeMillis();
-        long windowStart = (now / RATE_LIMIT_WINDOW) * RATE_LIMIT_WINDOW;
-        return windowStart + RATE_LIMIT_WINDOW;
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval:30s}",
+               initialDelayString = "${rate-limit.sweep-interval:30s}")
+    public void sweep() {
+        int removed = 0;
+        for (LocalRateLimiter limiter : limiters.values()) {
+            removed += limiter.expire();
+        }
+        if (removed > 0) {
+            log.debug("Rate limit sweep dropped {} idle clients, {} still tracked", removed, getTrackedClients());
+        }
     }
 }
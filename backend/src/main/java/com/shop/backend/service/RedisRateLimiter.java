@@ -0,0 +1,250 @@
+package com.shop.backend.service;
+
+import com.shop.backend.config.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cluster-wide rate limiter: the same GCRA as {@link LocalRateLimiter}, run as a
+ * Lua script in Redis so every backend node draws from one quota per client
+ *
+ * The script reads Redis TIME, so node clocks do not matter, and stores one key
+ * per client and policy that expires when the client is back to full quota.
+ *
+ * Request threads do not talk to Redis themselves. They queue their check and
+ * wait; a single dispatcher thread drains everything queued since its last
+ * round trip and sends it as one pipeline of EVALSHA calls. Under load that is
+ * one round trip for many requests, and with no load a lone check goes out at
+ * once. A check that cannot be answered within rate-limit.redis.timeout (queue
+ * full, Redis slow or down) returns null so the caller applies its local limit;
+ * after a failure Redis is skipped for rate-limit.redis.retry-after.
+ */
+@Slf4j
+public class RedisRateLimiter {
+
+    // KEYS[1] = client key, ARGV = interval (µs), burst (µs), 1 to consume or 0 to peek
+    // Returns {allowed, remaining, retry after (µs), reset after (µs)}
+    static final String SCRIPT = """
+        redis.replicate_commands()
+        local time = redis.call('TIME')
+        local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+        local interval = tonumber(ARGV[1])
+        local burst = tonumber(ARGV[2])
+        local arrival = tonumber(redis.call('GET', KEYS[1]) or 0)
+        if arrival < now then
+          arrival = now
+        end
+        if ARGV[3] == '0' then
+          local outstanding = arrival - now
+          local remaining = math.floor((burst - outstanding) / interval)
+          if remaining > 0 then
+            return {1, remaining, 0, outstanding}
+          end
+          return {0, 0, outstanding + interval - burst, outstanding}
+        end
+        local updated = arrival + interval
+        local outstanding = updated - now
+        if outstanding > burst then
+          return {0, 0, outstanding - burst, arrival - now}
+        end
+        redis.call('SET', KEYS[1], updated, 'PX', math.ceil(outstanding / 1000))
+        return {1, math.floor((burst - outstanding) / interval), 0, outstanding}
+        """;
+
+    private static final String SCRIPT_SHA = DigestUtils.sha1DigestAsHex(SCRIPT);
+
+    private static final byte[] CONSUME = {'1'};
+    private static final byte[] PEEK = {'0'};
+
+    private final RateLimitProperties.Redis properties;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final BlockingQueue<Check> queue;
+
+    private final Thread dispatcher;
+
+    private volatile long retryAt = 0L;
+
+    private volatile boolean degraded = false;
+
+    private volatile boolean running = true;
+
+    private record Check(byte[] key, byte[] interval, byte[] burst, byte[] mode, int limit,
+                         CompletableFuture<RateLimitDecision> result) {
+    }
+
+    public RedisRateLimiter(RateLimitProperties.Redis properties, RedisConnectionFactory connectionFactory) {
+        this.properties = properties;
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.dispatcher = new Thread(this::dispatch, "rate-limit-redis");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Count one request from the client against the shared quota
+     *
+     * @return the decision, or null if Redis could not answer in time
+     */
+    public RateLimitDecision tryAcquire(String policy, int limit, Duration window, long clientKey) {
+        return submit(policy, limit, window, clientKey, CONSUME);
+    }
+
+    /**
+     * The client's shared quota without counting a request, or null if Redis could not answer in time
+     */
+    public RateLimitDecision peek(String policy, int limit, Duration window, long clientKey) {
+        return submit(policy, limit, window, clientKey, PEEK);
+    }
+
+    public boolean isAvailable() {
+        return !degraded || System.currentTimeMillis() >= retryAt;
+    }
+
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        Check check;
+        while ((check = queue.poll()) != null) {
+            check.result().complete(null);
+        }
+    }
+
+    private RateLimitDecision submit(String policy, int limit, Duration window, long clientKey, byte[] mode) {
+        if (!running || !isAvailable()) {
+            return null;
+        }
+        long intervalMicros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(window.toNanos()) / limit);
+        Check check = new Check(
+            bytes(properties.getKeyPrefix() + policy + ":" + Long.toHexString(clientKey)),
+            bytes(Long.toString(intervalMicros)),
+            bytes(Long.toString(intervalMicros * limit)),
+            mode, limit, new CompletableFuture<>());
+        if (!queue.offer(check)) {
+            return null;
+        }
+        try {
+            return check.result().get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            markDown("no reply within " + properties.getTimeout().toMillis() + " ms");
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void dispatch() {
+        List<Check> batch = new ArrayList<>(properties.getMaxBatch());
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, properties.getMaxBatch() - 1);
+            try {
+                List<Object> replies = execute(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result().complete(toDecision(replies.get(i), batch.get(i).limit()));
+                }
+                markUp();
+            } catch (RuntimeException e) {
+                markDown(e.getMessage());
+                batch.forEach(check -> check.result().complete(null));
+            }
+            batch.clear();
+        }
+    }
+
+    private List<Object> execute(List<Check> batch) {
+        try {
+            return pipeline(batch);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            // Redis was restarted or flushed; load the script and send the batch again
+            redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(bytes(SCRIPT)));
+            return pipeline(batch);
+        }
+    }
+
+    private List<Object> pipeline(List<Check> batch) {
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Check check : batch) {
+                evalSha(connection, check);
+            }
+            return null;
+        });
+    }
+
+    private static void evalSha(RedisConnection connection, Check check) {
+        connection.scriptingCommands().evalSha(SCRIPT_SHA, ReturnType.MULTI, 1,
+            check.key(), check.interval(), check.burst(), check.mode());
+    }
+
+    private static RateLimitDecision toDecision(Object reply, int limit) {
+        List<?> values = (List<?>) reply;
+        return new RateLimitDecision(
+            ((Number) values.get(0)).longValue() == 1,
+            limit,
+            ((Number) values.get(1)).intValue(),
+            microsToMillisCeil(((Number) values.get(2)).longValue()),
+            microsToMillisCeil(((Number) values.get(3)).longValue()));
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markDown(String reason) {
+        retryAt = System.currentTimeMillis() + properties.getRetryAfter().toMillis();
+        if (!degraded) {
+            degraded = true;
+            log.warn("Redis rate limiter unavailable, applying per-node limits for {}: {}",
+                properties.getRetryAfter(), reason);
+        }
+    }
+
+    private void markUp() {
+        if (degraded && System.currentTimeMillis() >= retryAt) {
+            degraded = false;
+            log.info("Redis rate limiter reachable again, limits are cluster-wide");
+        }
+    }
+
+    private static long microsToMillisCeil(long micros) {
+        return micros <= 0 ? 0 : (micros + 999) / 1000;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
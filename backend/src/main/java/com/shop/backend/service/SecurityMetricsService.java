@@ -1,12 +1,13 @@
 package com.shop.backend.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class SecurityMetricsService {
@@ -14,17 +15,32 @@ public class SecurityMetricsService {
     @Autowired
     private IpFilteringService ipFilteringService;
 
-    // Real-time metrics storage
-    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicLong> blockedCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicLong> rateLimitCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicLong> suspiciousIpCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicLong> geographicBlockCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicLong> torBlockCounts = new ConcurrentHashMap<>();
+    // Real-time metrics storage: fixed-size sketches, see HeavyHitters
+    // 2048 x 4 counters (64 KB) per sketch: counts within 0.13% of the total, 98% of the time
+    private static final int SKETCH_WIDTH = 2048;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int TRACKED_KEYS = 64;
+    private static final int TOP_K = 10;
 
-    // Historical data (last 24 hours)
-    private final Map<String, List<MetricPoint>> historicalData = new ConcurrentHashMap<>();
-    private final int MAX_HISTORICAL_POINTS = 1440; // 24 hours * 60 minutes
+    private final HeavyHitters requestsByEndpoint = newSketch();
+    private final HeavyHitters requestsByIp = newSketch();
+    private final HeavyHitters blockedByIpAndReason = newSketch();
+    private final HeavyHitters blockedByReason = newSketch();
+    private final HeavyHitters rateLimitedByIp = newSketch();
+    private final HeavyHitters suspiciousByIp = newSketch();
+    private final HeavyHitters geographicBlocksByCountry = newSketch();
+    private final HeavyHitters torBlocksByIp = newSketch();
+
+    // Historical data: fixed rings of per-second/minute/hour counts per metric type
+    private static final List<String> HISTORICAL_TYPES = List.of(
+        "requests", "blocked", "rate_limited", "suspicious_ip", "geographic_block", "tor_block");
+    private final Map<String, MetricTimeSeries> historicalData = createHistoricalSeries();
+
+    // Points returned per resolution: last 5 minutes, 24 hours, 7 days
+    private static final Map<MetricTimeSeries.Resolution, Integer> HISTORICAL_POINTS = Map.of(
+        MetricTimeSeries.Resolution.SECOND, MetricTimeSeries.SECOND_SLOTS,
+        MetricTimeSeries.Resolution.MINUTE, MetricTimeSeries.MINUTE_SLOTS,
+        MetricTimeSeries.Resolution.HOUR, MetricTimeSeries.HOUR_SLOTS);
 
     public static class MetricPoint {
         private LocalDateTime timestamp;
@@ -50,8 +66,8 @@ public class SecurityMetricsService {
      * Record a request metric
      */
     public void recordRequest(String endpoint, String ip) {
-        String key = endpoint + ":" + ip;
-        requestCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+        requestsByEndpoint.add(endpoint);
+        requestsByIp.add(ip);
         
         // Add to historical data
         addToHistoricalData("requests", 1);
@@ -61,8 +77,8 @@ public class SecurityMetricsService {
      * Record a blocked request
      */
     public void recordBlockedRequest(String reason, String ip) {
-        String key = reason + ":" + ip;
-        blockedCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+        blockedByIpAndReason.add(reason + ":" + ip);
+        blockedByReason.add(reason);
         
         // Add to historical data
         addToHistoricalData("blocked", 1);
@@ -72,8 +88,7 @@ public class SecurityMetricsService {
      * Record a rate limit hit
      */
     public void recordRateLimitHit(String endpoint, String ip) {
-        String key = endpoint + ":" + ip;
-        rateLimitCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+        rateLimitedByIp.add(ip);
         
         // Add to historical data
         addToHistoricalData("rate_limited", 1);
@@ -83,8 +98,7 @@ public class SecurityMetricsService {
      * Record a suspicious IP detection
      */
     public void recordSuspiciousIp(String ip, String reason) {
-        String key = reason + ":" + ip;
-        suspiciousIpCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+        suspiciousByIp.add(ip);
         
         // Add to historical data
         addToHistoricalData("suspicious_ip", 1);
@@ -94,8 +108,7 @@ public class SecurityMetricsService {
      * Record geographic blocking
      */
     public void recordGeographicBlock(String country, String ip) {
-        String key = country + ":" + ip;
-        geographicBlockCounts.computeIfAbsent(key, k -> new AtomicLong(0)).incrementAndGet();
+        geographicBlocksByCountry.add(country);
         
         // Add to historical data
         addToHistoricalData("geographic_block", 1);
@@ -105,7 +118,7 @@ public class SecurityMetricsService {
      * Record Tor exit node blocking
      */
     public void recordTorBlock(String ip) {
-        torBlockCounts.computeIfAbsent(ip, k -> new AtomicLong(0)).incrementAndGet();
+        torBlocksByIp.add(ip);
         
         // Add to historical data
         addToHistoricalData("tor_block", 1);
@@ -118,12 +131,12 @@ public class SecurityMetricsService {
         Map<String, Object> metrics = new HashMap<>();
         
         // Total counts
-        metrics.put("totalRequests", requestCounts.values().stream().mapToLong(AtomicLong::get).sum());
-        metrics.put("totalBlocked", blockedCounts.values().stream().mapToLong(AtomicLong::get).sum());
-        metrics.put("totalRateLimited", rateLimitCounts.values().stream().mapToLong(AtomicLong::get).sum());
-        metrics.put("totalSuspiciousIps", suspiciousIpCounts.values().stream().mapToLong(AtomicLong::get).sum());
-        metrics.put("totalGeographicBlocks", geographicBlockCounts.values().stream().mapToLong(AtomicLong::get).sum());
-        metrics.put("totalTorBlocks", torBlockCounts.values().stream().mapToLong(AtomicLong::get).sum());
+        metrics.put("totalRequests", requestsByEndpoint.total());
+        metrics.put("totalBlocked", blockedByReason.total());
+        metrics.put("totalRateLimited", rateLimitedByIp.total());
+        metrics.put("totalSuspiciousIps", suspiciousByIp.total());
+        metrics.put("totalGeographicBlocks", geographicBlocksByCountry.total());
+        metrics.put("totalTorBlocks", torBlocksByIp.total());
         
         // Top blocked IPs
         metrics.put("topBlockedIps", getTopBlockedIps());
@@ -131,6 +144,9 @@ public class SecurityMetricsService {
         // Top endpoints
         metrics.put("topEndpoints", getTopEndpoints());
         
+        // Top talkers; every "count" is an estimate, see countAccuracy
+        metrics.putAll(getHeavyHitters());
+        
         // Current status
         metrics.put("ipFilteringEnabled", ipFilteringService.isIpFilteringEnabled());
         metrics.put("timestamp", LocalDateTime.now());
@@ -139,10 +155,38 @@ public class SecurityMetricsService {
     }
 
     /**
-     * Get historical metrics for charts
+     * Get historical metrics for charts: per-minute counts over the last 24 hours
      */
     public Map<String, List<MetricPoint>> getHistoricalMetrics() {
-        return new HashMap<>(historicalData);
+        return getHistoricalMetrics(MetricTimeSeries.Resolution.MINUTE);
+    }
+
+    /**
+     * Get historical metrics for charts at the given resolution, oldest point first
+     * (one point per bucket, timestamp = bucket start)
+     */
+    public Map<String, List<MetricPoint>> getHistoricalMetrics(MetricTimeSeries.Resolution resolution) {
+        Map<String, List<MetricPoint>> result = new LinkedHashMap<>();
+        int count = HISTORICAL_POINTS.get(resolution);
+        historicalData.forEach((type, series) -> {
+            MetricTimeSeries.Snapshot snapshot = series.snapshot(resolution, count);
+            List<MetricPoint> points = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                LocalDateTime timestamp = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(snapshot.startMillis(i)), ZoneId.systemDefault());
+                points.add(new MetricPoint(timestamp, snapshot.values()[i], type));
+            }
+            result.put(type, points);
+        });
+        return result;
+    }
+
+    /**
+     * Roll finished seconds up into minutes and minutes into hours
+     */
+    @Scheduled(fixedDelayString = "${security.metrics.rollup-interval-ms:10000}")
+    public void rollupHistoricalData() {
+        historicalData.values().forEach(MetricTimeSeries::rollup);
     }
 
     /**
@@ -152,8 +196,8 @@ public class SecurityMetricsService {
         List<Map<String, Object>> alerts = new ArrayList<>();
         
         // Check for high blocked request rate
-        long totalBlocked = blockedCounts.values().stream().mapToLong(AtomicLong::get).sum();
-        long totalRequests = requestCounts.values().stream().mapToLong(AtomicLong::get).sum();
+        long totalBlocked = blockedByReason.total();
+        long totalRequests = requestsByEndpoint.total();
         
         if (totalRequests > 0) {
             double blockRate = (double) totalBlocked / totalRequests;
@@ -167,12 +211,14 @@ public class SecurityMetricsService {
             }
         }
         
-        // Check for suspicious IP activity
-        if (suspiciousIpCounts.size() > 10) {
+        // Check for suspicious IP activity (distinct IPs are exact up to TRACKED_KEYS)
+        int suspiciousIps = suspiciousByIp.trackedKeys();
+        if (suspiciousIps > 10) {
             Map<String, Object> alert = new HashMap<>();
             alert.put("type", "MULTIPLE_SUSPICIOUS_IPS");
             alert.put("severity", "INFO");
-            alert.put("message", String.format("Multiple suspicious IPs detected: %d", suspiciousIpCounts.size()));
+            alert.put("message", String.format("Multiple suspicious IPs detected: %s",
+                suspiciousIps >= TRACKED_KEYS ? TRACKED_KEYS + "+" : String.valueOf(suspiciousIps)));
             alert.put("timestamp", LocalDateTime.now());
             alerts.add(alert);
         }
@@ -180,19 +226,42 @@ public class SecurityMetricsService {
         return alerts;
     }
 
+    /**
+     * Top IPs, endpoints and block reasons, with how far each count may be off
+     */
+    public Map<String, Object> getHeavyHitters() {
+        Map<String, Object> heavyHitters = new LinkedHashMap<>();
+        heavyHitters.put("topIps", toEntries(requestsByIp, "ip"));
+        heavyHitters.put("topRateLimitedIps", toEntries(rateLimitedByIp, "ip"));
+        heavyHitters.put("topBlockReasons", toEntries(blockedByReason, "reason"));
+        heavyHitters.put("topSuspiciousIps", toEntries(suspiciousByIp, "ip"));
+        heavyHitters.put("topGeographicBlocks", toEntries(geographicBlocksByCountry, "country"));
+
+        // Counts are upper bounds: the true count is at least count - errorBound, with this confidence
+        Map<String, Object> accuracy = new LinkedHashMap<>();
+        accuracy.put("requests", errorBound(requestsByIp));
+        accuracy.put("blocked", errorBound(blockedByIpAndReason));
+        accuracy.put("rateLimited", errorBound(rateLimitedByIp));
+        accuracy.put("suspicious", errorBound(suspiciousByIp));
+        accuracy.put("geographicBlocks", errorBound(geographicBlocksByCountry));
+        accuracy.put("confidence", requestsByIp.confidence());
+        heavyHitters.put("countAccuracy", accuracy);
+        return heavyHitters;
+    }
+
     /**
      * Get top blocked IPs
      */
     private List<Map<String, Object>> getTopBlockedIps() {
-        return blockedCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, AtomicLong>comparingByValue((a, b) -> Long.compare(b.get(), a.get())))
-                .limit(10)
+        return blockedByIpAndReason.top(TOP_K).stream()
                 .map(entry -> {
                     Map<String, Object> ipData = new HashMap<>();
-                    String[] parts = entry.getKey().split(":");
+                    // reason never contains ':', IPv6 addresses do
+                    String[] parts = entry.key().split(":", 2);
                     ipData.put("ip", parts.length > 1 ? parts[1] : parts[0]);
                     ipData.put("reason", parts.length > 1 ? parts[0] : "unknown");
-                    ipData.put("count", entry.getValue().get());
+                    ipData.put("count", entry.count());
+                    ipData.put("minCount", entry.lowerBound());
                     return ipData;
                 })
                 .toList();
@@ -202,57 +271,58 @@ public class SecurityMetricsService {
      * Get top endpoints by request count
      */
     private List<Map<String, Object>> getTopEndpoints() {
-        Map<String, Long> endpointCounts = new HashMap<>();
-        
-        requestCounts.forEach((key, count) -> {
-            String endpoint = key.split(":")[0];
-            endpointCounts.merge(endpoint, count.get(), Long::sum);
-        });
-        
-        return endpointCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(10)
+        return toEntries(requestsByEndpoint, "endpoint");
+    }
+
+    private static List<Map<String, Object>> toEntries(HeavyHitters sketch, String keyName) {
+        return sketch.top(TOP_K).stream()
                 .map(entry -> {
-                    Map<String, Object> endpointData = new HashMap<>();
-                    endpointData.put("endpoint", entry.getKey());
-                    endpointData.put("count", entry.getValue());
-                    return endpointData;
+                    Map<String, Object> data = new HashMap<>();
+                    data.put(keyName, entry.key());
+                    data.put("count", entry.count());
+                    data.put("minCount", entry.lowerBound());
+                    return data;
                 })
                 .toList();
     }
 
+    private static Map<String, Object> errorBound(HeavyHitters sketch) {
+        return Map.of("total", sketch.total(), "errorBound", sketch.errorBound());
+    }
+
+    private static HeavyHitters newSketch() {
+        return new HeavyHitters(SKETCH_WIDTH, SKETCH_DEPTH, TRACKED_KEYS);
+    }
+
     /**
      * Add data point to historical storage
      */
     private void addToHistoricalData(String type, long value) {
-        historicalData.computeIfAbsent(type, k -> new ArrayList<>()).add(
-                new MetricPoint(LocalDateTime.now(), value, type)
-        );
-        
-        // Keep only last 24 hours of data
-        List<MetricPoint> data = historicalData.get(type);
-        if (data.size() > MAX_HISTORICAL_POINTS) {
-            data.remove(0);
+        historicalData.get(type).add(value);
+    }
+
+    private static Map<String, MetricTimeSeries> createHistoricalSeries() {
+        Map<String, MetricTimeSeries> series = new LinkedHashMap<>();
+        for (String type : HISTORICAL_TYPES) {
+            series.put(type, new MetricTimeSeries());
         }
+        return Collections.unmodifiableMap(series);
     }
 
     /**
      * Clear old data (call periodically)
+     * Historical rings overwrite themselves, so only the counters need clearing
      */
     public void cleanupOldData() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
-        
-        historicalData.forEach((type, data) -> {
-            data.removeIf(point -> point.getTimestamp().isBefore(cutoff));
-        });
-        
         // Clear counters that are too old
-        requestCounts.clear();
-        blockedCounts.clear();
-        rateLimitCounts.clear();
-        suspiciousIpCounts.clear();
-        geographicBlockCounts.clear();
-        torBlockCounts.clear();
+        requestsByEndpoint.clear();
+        requestsByIp.clear();
+        blockedByIpAndReason.clear();
+        blockedByReason.clear();
+        rateLimitedByIp.clear();
+        suspiciousByIp.clear();
+        geographicBlocksByCountry.clear();
+        torBlocksByIp.clear();
     }
 
     public boolean isIpFilteringEnabled() {
@@ -47,12 +47,9 @@ public class SmsService {
         
         String message = generateAppointmentReminderMessage(appointment, hoursBefore);
         
-        try {
-            sendSms(student.getPhone(), message);
-            log.info("SMS reminder sent to {} for appointment {}", student.getPhone(), appointment.getId());
-        } catch (Exception e) {
-            log.error("Failed to send SMS reminder: {}", e.getMessage(), e);
-        }
+        // Lỗi được ném ra để AppointmentReminderService gửi lại sau
+        sendSms(student.getPhone(), message);
+        log.info("SMS reminder sent to {} for appointment {}", student.getPhone(), appointment.getId());
     }
     
     /**
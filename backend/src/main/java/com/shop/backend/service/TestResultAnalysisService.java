@@ -0,0 +1,435 @@
+package com.shop.backend.service;
+
+import com.shop.backend.dto.depression.DepressionTestResponse;
+import com.shop.backend.model.DepressionQuestionEn;
+import com.shop.backend.model.DepressionQuestionVi;
+import com.shop.backend.model.DepressionTestAnswer;
+import com.shop.backend.model.DepressionTestResult;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.DepressionQuestionEnRepository;
+import com.shop.backend.repository.DepressionQuestionViRepository;
+import com.shop.backend.repository.DepressionTestAnswerRepository;
+import com.shop.backend.repository.DepressionTestResultRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background AI enrichment of submitted depression tests
+ *
+ * submitTest stores the rule-based verdict with analysis_status = PENDING and hands
+ * the result id over after commit. A small bounded pool then loads the answers in a
+ * short read transaction, calls OpenAI with no connection held, writes the enriched
+ * verdict with a conditional update (only while still PENDING), and finally sends
+ * the result email and pushes the verdict to the user over WebSocket.
+ *
+ * A job first claims its result with a conditional update that sets this node's
+ * token and a lease (depression-test.analysis.lease-ms), so a result is analysed by
+ * one node at a time and never twice in parallel on the same node.
+ *
+ * When the pool queue is full the job is not run; the result stays PENDING and the
+ * sweeper picks it up once it is older than depression-test.analysis.retry-after-ms
+ * and no node holds a lease on it. The sweeper claims each row before queueing it
+ * and skips rows still queued or running on this node.
+ */
+@Slf4j
+@Service
+public class TestResultAnalysisService {
+
+    @Value("${depression-test.analysis.threads:4}")
+    private int threads;
+
+    @Value("${depression-test.analysis.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${depression-test.analysis.retry-after-ms:300000}")
+    private long retryAfterMs;
+
+    @Value("${depression-test.analysis.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${depression-test.analysis.give-up-after-hours:24}")
+    private long giveUpAfterHours;
+
+    @Value("${depression-test.analysis.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Autowired
+    private DepressionTestResultRepository testResultRepository;
+
+    @Autowired
+    private DepressionTestAnswerRepository testAnswerRepository;
+
+    @Autowired
+    private DepressionQuestionViRepository questionViRepository;
+
+    @Autowired
+    private DepressionQuestionEnRepository questionEnRepository;
+
+    @Autowired
+    private QuestionCatalogService questionCatalogService;
+
+    @Autowired
+    private OpenAITestResultService openAITestResultService;
+
+    @Autowired
+    private TestResultEmailService emailService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    // Identifies this node's claims on results
+    private final String claimToken = UUID.randomUUID().toString();
+
+    // Results queued or running on this node
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Everything the AI call needs, detached from the persistence context
+     */
+    private record AnalysisInput(Long resultId, Long userId, String userName, String testType,
+                                 int totalScore, DepressionTestResult.SeverityLevel ruleSeverity,
+                                 List<Map<String, Object>> answers) {
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "test-analysis-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("depression_test.analysis.queue.depth", executor, e -> e.getQueue().size()).register(registry);
+            Gauge.builder("depression_test.analysis.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+            Gauge.builder("depression_test.analysis.completed", completed, AtomicLong::get).register(registry);
+            Gauge.builder("depression_test.analysis.rejected", rejected, AtomicLong::get).register(registry);
+            Gauge.builder("depression_test.analysis.failed", failed, AtomicLong::get).register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                int abandoned = executor.shutdownNow().size();
+                log.warn("Test analysis pool did not finish in {} ms; {} queued jobs left PENDING for the sweeper",
+                    shutdownTimeoutMs, abandoned);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue the analysis once the surrounding transaction commits, so the job never
+     * reads a result row that is not visible yet (or was rolled back)
+     */
+    public void scheduleAfterCommit(Long resultId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(resultId);
+                }
+            });
+        } else {
+            submit(resultId);
+        }
+    }
+
+    /**
+     * @return false if the pool is saturated; the result then waits for the sweeper
+     */
+    public boolean submit(Long resultId) {
+        if (!inFlight.add(resultId)) {
+            return true; // already queued or running on this node
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    analyze(resultId);
+                } finally {
+                    inFlight.remove(resultId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(resultId);
+            rejected.incrementAndGet();
+            log.warn("Test analysis queue full, result {} left PENDING for retry", resultId);
+            return false;
+        }
+    }
+
+    /**
+     * Re-queue results that stayed PENDING (queue overflow, node restart) and that no node holds
+     */
+    @Scheduled(fixedDelayString = "${depression-test.analysis.sweep-interval-ms:60000}",
+               initialDelayString = "${depression-test.analysis.sweep-initial-delay-ms:60000}")
+    public void sweepPending() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> stale = testResultRepository.findClaimableAnalysisIds(
+            now.minusHours(giveUpAfterHours), now.minus(Duration.ofMillis(retryAfterMs)), now, PageRequest.of(0, 100));
+        int requeued = 0;
+        for (Long resultId : stale) {
+            if (inFlight.contains(resultId)) {
+                continue;
+            }
+            if (executor.getQueue().remainingCapacity() == 0) {
+                break;
+            }
+            if (!claim(resultId)) {
+                continue; // analysed or taken by another node meanwhile
+            }
+            if (!submit(resultId)) {
+                break;
+            }
+            requeued++;
+        }
+        if (requeued > 0) {
+            log.info("Re-queued {} pending test analyses", requeued);
+        }
+    }
+
+    /**
+     * Run one analysis on the calling thread; package-private for tests
+     */
+    void analyze(Long resultId) {
+        try {
+            if (!claim(resultId)) {
+                return; // already analysed, or another node holds it
+            }
+        } catch (Exception e) {
+            log.error("Could not claim test result {} for analysis", resultId, e);
+            return;
+        }
+
+        AnalysisInput input;
+        try {
+            input = readOnlyTransactionTemplate.execute(status -> loadInput(resultId));
+        } catch (Exception e) {
+            log.error("Could not load test result {} for analysis", resultId, e);
+            return;
+        }
+        if (input == null) {
+            return; // already analysed by another job
+        }
+
+        Map<String, String> generated = null;
+        try {
+            generated = openAITestResultService.generateTestResultAnalysis(
+                input.testType(), input.totalScore(), input.answers());
+        } catch (Exception e) {
+            log.error("AI analysis failed for test result {}", resultId, e);
+        }
+        Map<String, String> aiAnalysis = generated;
+
+        DepressionTestResult result;
+        try {
+            result = transactionTemplate.execute(status -> storeVerdict(input, aiAnalysis));
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("Could not store analysis for test result {}", resultId, e);
+            return;
+        }
+        if (result == null) {
+            return; // another job finished first and already notified the user
+        }
+        if (result.getAnalysisStatus() == DepressionTestResult.AnalysisStatus.COMPLETED) {
+            completed.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+
+        DepressionTestResponse response = toResponse(result);
+        try {
+            emailService.sendTestResultEmail(input.userId(), response, input.testType());
+        } catch (Exception e) {
+            log.warn("Test result email failed for result {}", resultId, e);
+        }
+        try {
+            notificationService.sendTestAnalysisUpdate(input.userId(), input.testType(), response);
+            // The controller alerted on the rule-based severity; alert again only if the AI raised it
+            if (result.getSeverityLevel() == DepressionTestResult.SeverityLevel.SEVERE
+                && input.ruleSeverity() != DepressionTestResult.SeverityLevel.SEVERE) {
+                notificationService.sendSevereTestAlert(input.userId(), input.testType(),
+                    String.format("CẢNH BÁO: Người dùng %s có kết quả test %s ở mức NGHIÊM TRỌNG",
+                        input.userName(), input.testType()));
+            }
+        } catch (Exception e) {
+            log.warn("Could not push analysis for result {}", resultId, e);
+        }
+    }
+
+    /**
+     * Take (or renew) this node's lease on a PENDING result
+     */
+    private boolean claim(Long resultId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> testResultRepository.claimAnalysis(
+            resultId, claimToken, now.plus(Duration.ofMillis(leaseMs)), now));
+        return claimed != null && claimed > 0;
+    }
+
+    private AnalysisInput loadInput(Long resultId) {
+        DepressionTestResult result = testResultRepository.findById(resultId).orElse(null);
+        if (result == null || result.getAnalysisStatus() != DepressionTestResult.AnalysisStatus.PENDING) {
+            return null;
+        }
+        List<DepressionTestAnswer> answers = testAnswerRepository.findByTestResultId(resultId);
+
+        // Question text and category for context: from the catalog, one query for anything it lacks
+        boolean english = result.getLanguage() == DepressionTestResult.Language.EN;
+        Map<Long, QuestionCatalogService.QuestionInfo> questions = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (DepressionTestAnswer answer : answers) {
+            QuestionCatalogService.QuestionInfo info = questionCatalogService.getQuestionInfo(answer.getQuestionId(), english);
+            if (info != null) {
+                questions.put(answer.getQuestionId(), info);
+            } else {
+                missing.add(answer.getQuestionId());
+            }
+        }
+        if (!missing.isEmpty() && english) {
+            for (DepressionQuestionEn question : questionEnRepository.findAllById(missing)) {
+                questions.put(question.getId(), new QuestionCatalogService.QuestionInfo(question.getQuestionText(), question.getCategory()));
+            }
+        } else if (!missing.isEmpty()) {
+            for (DepressionQuestionVi question : questionViRepository.findAllById(missing)) {
+                questions.put(question.getId(), new QuestionCatalogService.QuestionInfo(question.getQuestionText(), question.getCategory()));
+            }
+        }
+
+        List<Map<String, Object>> answersForAI = new ArrayList<>();
+        for (DepressionTestAnswer answer : answers) {
+            QuestionCatalogService.QuestionInfo question = questions.get(answer.getQuestionId());
+            String questionText = question != null ? question.questionText() : "Câu hỏi không xác định";
+            String category = question != null ? question.category() : "Không xác định";
+
+            Map<String, Object> answerData = new HashMap<>();
+            answerData.put("questionText", questionText);
+            answerData.put("answerValue", answer.getAnswerValue());
+            answerData.put("category", category);
+            answerData.put("questionId", answer.getQuestionId());
+            answersForAI.add(answerData);
+        }
+
+        User user = result.getUser();
+        return new AnalysisInput(resultId, user.getId(), user.getFullName(), result.getTestType(),
+            result.getTotalScore(), result.getSeverityLevel(), answersForAI);
+    }
+
+    private DepressionTestResult storeVerdict(AnalysisInput input, Map<String, String> aiAnalysis) {
+        DepressionTestResult current = testResultRepository.findById(input.resultId()).orElse(null);
+        if (current == null) {
+            return null;
+        }
+
+        // Missing AI fields keep the rule-based values already stored
+        String diagnosis = current.getDiagnosis();
+        DepressionTestResult.SeverityLevel severityLevel = current.getSeverityLevel();
+        String recommendation = current.getRecommendation();
+        DepressionTestResult.AnalysisStatus status = DepressionTestResult.AnalysisStatus.FAILED;
+        if (aiAnalysis != null) {
+            diagnosis = aiAnalysis.getOrDefault("diagnosis", diagnosis);
+            recommendation = aiAnalysis.getOrDefault("recommendation", recommendation);
+            try {
+                severityLevel = DepressionTestResult.SeverityLevel.valueOf(
+                    aiAnalysis.getOrDefault("severity", severityLevel.name()));
+            } catch (IllegalArgumentException e) {
+                // Keep the rule-based severity
+            }
+            status = DepressionTestResult.AnalysisStatus.COMPLETED;
+        }
+
+        LocalDateTime analyzedAt = LocalDateTime.now();
+        int updated = testResultRepository.completeAnalysis(
+            input.resultId(), diagnosis, severityLevel, recommendation, status, analyzedAt);
+        if (updated == 0) {
+            return null;
+        }
+
+        // The bulk update bypassed the persistence context; mirror it on the loaded copy
+        current.setDiagnosis(diagnosis);
+        current.setSeverityLevel(severityLevel);
+        current.setRecommendation(recommendation);
+        current.setAnalysisStatus(status);
+        current.setAnalyzedAt(analyzedAt);
+        return current;
+    }
+
+    /**
+     * Map a stored result to the response clients receive from submit, the status endpoint and WebSocket
+     */
+    public DepressionTestResponse toResponse(DepressionTestResult result) {
+        DepressionTestResponse response = new DepressionTestResponse();
+        response.setTestResultId(result.getId());
+        response.setTotalScore(result.getTotalScore());
+        response.setDiagnosis(result.getDiagnosis());
+        response.setSeverityLevel(result.getSeverityLevel().name());
+        response.setSeverity(result.getSeverityLevel().name());
+        response.setRecommendation(result.getRecommendation());
+        response.setTestedAt(result.getTestedAt());
+        response.setShouldContactExpert(result.getSeverityLevel() == DepressionTestResult.SeverityLevel.SEVERE);
+        response.setAnalysisStatus(result.getAnalysisStatus() != null ? result.getAnalysisStatus().name() : null);
+        return response;
+    }
+}
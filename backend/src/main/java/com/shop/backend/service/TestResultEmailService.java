@@ -4,10 +4,7 @@ import com.shop.backend.dto.depression.DepressionTestResponse;
 import com.shop.backend.model.User;
 import com.shop.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import jakarta.mail.internet.MimeMessage;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
@@ -15,7 +12,7 @@ import java.util.Locale;
 public class TestResultEmailService {
     
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutboxService;
     
     @Autowired
     private UserRepository userRepository;
@@ -29,15 +26,12 @@ public class TestResultEmailService {
                 ? user.getFirstName() + " " + user.getLastName() 
                 : user.getEmail();
             
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setTo(user.getEmail());
-            helper.setSubject("[MindMeter] Kết quả bài test " + testType + " của bạn");
-            
             String html = generateTestResultEmail(userName, testResponse, testType);
-            helper.setText(html, true);
-            
-            mailSender.send(message);
+            String dedupKey = testResponse.getTestResultId() != null
+                ? "test-result:" + testResponse.getTestResultId()
+                : null;
+            emailOutboxService.enqueue(user.getEmail(), "[MindMeter] Kết quả bài test " + testType + " của bạn",
+                html, dedupKey);
             
         } catch (Exception e) {
             // Don't throw to avoid affecting test submission
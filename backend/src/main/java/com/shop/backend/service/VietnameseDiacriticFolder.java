@@ -0,0 +1,148 @@
+package com.shop.backend.service;
+
+/**
+ * Folds Vietnamese letters to their unaccented ASCII base ("Đường phố" -> "Duong pho")
+ *
+ * One pass over the input through a precomputed char -> char table, keeping case.
+ * Decomposed (NFD) input is handled too: the Vietnamese combining marks (tone marks,
+ * circumflex, breve, horn) are dropped when they follow a letter. Text that needs no
+ * folding is returned as-is; otherwise the work happens in a per-thread buffer and
+ * only the result string is allocated. Shared by moderation and search.
+ */
+public final class VietnameseDiacriticFolder {
+
+    private static final char TABLE_START = '\u00C0';
+    private static final char TABLE_END = '\u1EFF';
+
+    // Folded char for [TABLE_START, TABLE_END]; 0 = leave unchanged
+    private static final char[] FOLD = new char[TABLE_END - TABLE_START + 1];
+
+    private static final String[][] LETTERS = {
+        {"àáạảãâầấậẩẫăằắặẳẵ", "a"},
+        {"èéẹẻẽêềếệểễ", "e"},
+        {"ìíịỉĩ", "i"},
+        {"òóọỏõôồốộổỗơờớợởỡ", "o"},
+        {"ùúụủũưừứựửữ", "u"},
+        {"ỳýỵỷỹ", "y"},
+        {"đ", "d"}
+    };
+
+    private static final int INITIAL_BUFFER = 256;
+
+    // Buffers above this size are not kept, so one huge input does not pin memory per thread
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[INITIAL_BUFFER]);
+
+    static {
+        for (String[] letter : LETTERS) {
+            char base = letter[1].charAt(0);
+            for (char accented : letter[0].toCharArray()) {
+                FOLD[accented - TABLE_START] = base;
+                FOLD[Character.toUpperCase(accented) - TABLE_START] = Character.toUpperCase(base);
+            }
+        }
+    }
+
+    private VietnameseDiacriticFolder() {
+    }
+
+    /**
+     * Fold a string; returns the same instance when nothing needs folding
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        int first = 0;
+        while (first < length && !needsWork(text.charAt(first))) {
+            first++;
+        }
+        if (first == length) {
+            return text;
+        }
+
+        char[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+            if (buffer.length <= MAX_RETAINED_BUFFER) {
+                BUFFER.set(buffer);
+            }
+        }
+        text.getChars(0, first, buffer, 0);
+        int size = foldInto(text, first, length, buffer, first);
+        return new String(buffer, 0, size);
+    }
+
+    /**
+     * Fold into a caller-owned builder, for callers that reuse one buffer across inputs
+     */
+    public static void fold(CharSequence text, StringBuilder out) {
+        boolean afterLetter = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isVietnameseMark(c)) {
+                if (afterLetter) {
+                    continue;
+                }
+            } else {
+                afterLetter = Character.isLetter(c);
+            }
+            out.append(foldChar(c));
+        }
+    }
+
+    /**
+     * Fold a single precomposed char; anything outside the Vietnamese alphabet is returned unchanged
+     */
+    public static char foldChar(char c) {
+        if (c < TABLE_START || c > TABLE_END) {
+            return c;
+        }
+        char folded = FOLD[c - TABLE_START];
+        return folded != 0 ? folded : c;
+    }
+
+    private static int foldInto(String text, int from, int to, char[] buffer, int size) {
+        boolean afterLetter = from > 0 && Character.isLetter(text.charAt(from - 1));
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (isVietnameseMark(c)) {
+                // Marks stacked on a letter (e + dot below + circumflex) are all dropped
+                if (afterLetter) {
+                    continue;
+                }
+            } else {
+                afterLetter = Character.isLetter(c);
+            }
+            buffer[size++] = foldChar(c);
+        }
+        return size;
+    }
+
+    private static boolean needsWork(char c) {
+        return (c >= TABLE_START && c <= TABLE_END && FOLD[c - TABLE_START] != 0) || isVietnameseMark(c);
+    }
+
+    /**
+     * Combining marks used by Vietnamese in decomposed form
+     */
+    private static boolean isVietnameseMark(char c) {
+        switch (c) {
+            case '\u0300': // grave (huyền)
+            case '\u0301': // acute (sắc)
+            case '\u0303': // tilde (ngã)
+            case '\u0309': // hook above (hỏi)
+            case '\u0323': // dot below (nặng)
+            case '\u0302': // circumflex (â, ê, ô)
+            case '\u0306': // breve (ă)
+            case '\u031B': // horn (ơ, ư)
+            case '\u0340': // grave tone mark
+            case '\u0341': // acute tone mark
+                return true;
+            default:
+                return false;
+        }
+    }
+}
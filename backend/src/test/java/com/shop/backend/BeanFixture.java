@@ -0,0 +1,77 @@
+package com.shop.backend;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One bean wired the way the application wires it, for unit tests
+ *
+ * {@code @Autowired} fields get the registered collaborators (usually mocks),
+ * {@code @Value} fields get the given properties or their own defaults, then
+ * {@code @PostConstruct} runs; closing the fixture runs {@code @PreDestroy}. Nothing
+ * else is scanned, so {@code @Scheduled} and {@code @Transactional} have no effect.
+ */
+public final class BeanFixture<T> implements AutoCloseable {
+
+    private final Class<T> type;
+
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+    private BeanFixture(Class<T> type) {
+        this.type = type;
+    }
+
+    public static <T> BeanFixture<T> of(Class<T> type) {
+        return new BeanFixture<>(type);
+    }
+
+    public BeanFixture<T> property(String name, Object value) {
+        properties.put(name, value);
+        return this;
+    }
+
+    /**
+     * Also create and wire this class, for collaborators that are real beans themselves
+     */
+    public BeanFixture<T> bean(Class<?> beanType) {
+        context.registerBean(beanType);
+        return this;
+    }
+
+    /**
+     * Register a ready-made collaborator; it is injected as is, without being wired itself
+     */
+    public <C> BeanFixture<T> with(Class<C> collaboratorType, C collaborator) {
+        context.getBeanFactory().registerSingleton(collaboratorType.getName(), collaborator);
+        return this;
+    }
+
+    /**
+     * Create the bean; call once, after all properties and collaborators are set
+     */
+    public T start() {
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.registerBean(type);
+        context.refresh();
+        return context.getBean(type);
+    }
+
+    /**
+     * A bean of the started context, e.g. one added with {@link #bean(Class)}
+     */
+    public <B> B get(Class<B> beanType) {
+        return context.getBean(beanType);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.shop.backend.config;
+
+import com.shop.backend.service.CacheService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        CacheTierProperties properties = new CacheTierProperties();
+        properties.getLocal().getCaches().put("blogPosts",
+            new CacheTierProperties.Spec(100L, Duration.ofMinutes(10), null, Duration.ofMinutes(5)));
+        cacheManager = CacheConfig.localCacheManager(properties);
+    }
+
+    @Test
+    void blogPostsCache_ShouldStayBounded() {
+        Cache cache = cacheManager.getCache("blogPosts");
+        assertNotNull(cache);
+
+        // Simulate a crawler walking thousands of distinct pages
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("public_" + i + "_anonymous", "post-" + i);
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = caffeine(cache);
+        nativeCache.cleanUp();
+        assertTrue(nativeCache.estimatedSize() <= 100);
+        assertTrue(nativeCache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void perCacheOverride_ShouldFallBackToDefaults() {
+        com.github.benmanes.caffeine.cache.Cache<?, ?> blogPosts = caffeine(cacheManager.getCache("blogPosts"));
+        com.github.benmanes.caffeine.cache.Cache<?, ?> questions = caffeine(cacheManager.getCache("questions"));
+
+        assertEquals(100L, blogPosts.policy().eviction().orElseThrow().getMaximum());
+        assertTrue(blogPosts.policy().refreshAfterWrite().isPresent());
+        assertEquals(1000L, questions.policy().eviction().orElseThrow().getMaximum());
+        assertEquals(Duration.ofHours(1), questions.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+        assertFalse(questions.policy().refreshAfterWrite().isPresent());
+    }
+
+    @Test
+    void cacheStatistics_ShouldReportHitsAndMisses() {
+        Cache cache = cacheManager.getCache("blogCategories");
+        cache.put("all", "categories");
+        cache.get("all");
+        cache.get("all");
+        cache.get("missing");
+
+        CacheService cacheService = new CacheService();
+        ReflectionTestUtils.setField(cacheService, "cacheManager", cacheManager);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) cacheService.getCacheStatistics().get("blogCategories");
+        assertEquals(2L, stats.get("hitCount"));
+        assertEquals(1L, stats.get("missCount"));
+        assertEquals(1000L, stats.get("maximumSize"));
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine(Cache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+    }
+}
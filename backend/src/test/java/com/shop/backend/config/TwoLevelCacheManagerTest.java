@@ -0,0 +1,176 @@
+package com.shop.backend.config;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two cache managers sharing one Redis act as two backend replicas
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TwoLevelCacheManagerTest {
+
+    private static final Duration PROPAGATION_BOUND = Duration.ofSeconds(2);
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+        new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+
+    private final List<RedisMessageListenerContainer> listenerContainers = new ArrayList<>();
+
+    private TwoLevelCacheManager nodeA;
+
+    private TwoLevelCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = startNode(REDIS.getHost(), REDIS.getMappedPort(6379));
+        nodeB = startNode(REDIS.getHost(), REDIS.getMappedPort(6379));
+        nodeA.getCache("blogPosts").clear();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : listenerContainers) {
+            container.destroy();
+        }
+        for (LettuceConnectionFactory factory : connectionFactories) {
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void evictionOnNodeA_ShouldBeVisibleOnNodeB() {
+        Cache cacheA = nodeA.getCache("blogPosts");
+        Cache cacheB = nodeB.getCache("blogPosts");
+
+        cacheA.put("0_20", "page-v1");
+        // Node B reads through L2 and now holds its own L1 copy
+        assertEquals("page-v1", cacheB.get("0_20", String.class));
+
+        cacheA.evict("0_20");
+
+        awaitTrue(() -> cacheB.get("0_20") == null);
+    }
+
+    @Test
+    void clearOnNodeA_ShouldDropAllEntriesOnNodeB() {
+        Cache cacheA = nodeA.getCache("blogPosts");
+        Cache cacheB = nodeB.getCache("blogPosts");
+
+        cacheA.put("0_20", "page-0");
+        cacheA.put("public_1_anonymous", "post-1");
+        assertNotNull(cacheB.get("0_20"));
+        assertNotNull(cacheB.get("public_1_anonymous"));
+
+        // What @CacheEvict(value = "blogPosts", allEntries = true) does after createPost/updatePost
+        cacheA.clear();
+
+        awaitTrue(() -> cacheB.get("0_20") == null && cacheB.get("public_1_anonymous") == null);
+    }
+
+    @Test
+    void putOnNodeA_ShouldReplaceStaleCopyOnNodeB() {
+        Cache cacheA = nodeA.getCache("blogPosts");
+        Cache cacheB = nodeB.getCache("blogPosts");
+
+        cacheA.put("public_7_anonymous", "v1");
+        assertEquals("v1", cacheB.get("public_7_anonymous", String.class));
+
+        cacheA.put("public_7_anonymous", "v2");
+
+        awaitTrue(() -> "v2".equals(cacheB.get("public_7_anonymous", String.class)));
+    }
+
+    @Test
+    void undeserializableEntry_ShouldBeEvictedAndReadAsMiss() {
+        Cache cache = nodeA.getCache("blogPosts");
+        String redisKey = new CacheTierProperties().getRedis().getKeyPrefix() + "blogPosts::0_20";
+        // Bytes that are not a JDK-serialized value, as left by an older build
+        StringRedisTemplate redis = new StringRedisTemplate(connectionFactories.get(0));
+        redis.opsForValue().set(redisKey, "not-a-serialized-value");
+
+        assertNull(assertDoesNotThrow(() -> cache.get("0_20")));
+        assertFalse(Boolean.TRUE.equals(redis.hasKey(redisKey)));
+        assertEquals("reloaded", cache.get("0_20", () -> "reloaded"));
+    }
+
+    @Test
+    void redisDown_ShouldDegradeToLocalCache() {
+        // Nothing listens on port 1
+        TwoLevelCacheManager isolated = startNode("localhost", 1);
+        Cache cache = isolated.getCache("blogPosts");
+
+        assertDoesNotThrow(() -> cache.put("0_20", "page"));
+        assertEquals("page", cache.get("0_20", String.class));
+        assertEquals("loaded", cache.get("1_20", () -> "loaded"));
+        assertDoesNotThrow(cache::clear);
+        assertNull(cache.get("0_20"));
+    }
+
+    private TwoLevelCacheManager startNode(String host, int port) {
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+            .commandTimeout(Duration.ofMillis(500))
+            .clientOptions(ClientOptions.builder()
+                .socketOptions(SocketOptions.builder().connectTimeout(Duration.ofMillis(500)).build())
+                .build())
+            .build();
+        LettuceConnectionFactory connectionFactory =
+            new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        connectionFactories.add(connectionFactory);
+
+        CacheTierProperties properties = new CacheTierProperties();
+        properties.setType("redis");
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(properties, connectionFactory);
+
+        if (port != 1) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.addMessageListener(manager, new ChannelTopic(properties.getRedis().getChannel()));
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainers.add(container);
+        }
+        return manager;
+    }
+
+    private void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + PROPAGATION_BOUND.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        fail("Invalidation not visible on node B within " + PROPAGATION_BOUND);
+    }
+}
@@ -0,0 +1,189 @@
+package com.shop.backend.integration;
+
+import com.shop.backend.model.BlogCategory;
+import com.shop.backend.model.BlogLike;
+import com.shop.backend.model.BlogPost;
+import com.shop.backend.model.BlogPostCategory;
+import com.shop.backend.model.BlogPostTag;
+import com.shop.backend.model.BlogTag;
+import com.shop.backend.model.Role;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.BlogCategoryRepository;
+import com.shop.backend.repository.BlogLikeRepository;
+import com.shop.backend.repository.BlogPostCategoryRepository;
+import com.shop.backend.repository.BlogPostRepository;
+import com.shop.backend.repository.BlogPostTagRepository;
+import com.shop.backend.repository.BlogTagRepository;
+import com.shop.backend.repository.UserRepository;
+import com.shop.backend.service.BlogPostDTOAssembler;
+import com.shop.dto.blog.BlogPostDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards against the per-post N+1 in blog listing pages: hydrating a page
+ * must cost the same number of statements whatever its size.
+ */
+@SpringBootTest
+@Transactional
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BlogPostQueryCountIntegrationTest {
+
+    // categories, tags, authors, reader, likes, bookmarks, shares
+    private static final long MAX_STATEMENTS_PER_PAGE = 7;
+
+    private static final int POST_COUNT = 20;
+
+    @Autowired
+    private BlogPostDTOAssembler blogPostDTOAssembler;
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private BlogCategoryRepository blogCategoryRepository;
+
+    @Autowired
+    private BlogTagRepository blogTagRepository;
+
+    @Autowired
+    private BlogPostCategoryRepository blogPostCategoryRepository;
+
+    @Autowired
+    private BlogPostTagRepository blogPostTagRepository;
+
+    @Autowired
+    private BlogLikeRepository blogLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = saveUser("reader@example.com");
+        User[] authors = {
+            saveUser("author1@example.com"),
+            saveUser("author2@example.com"),
+            saveUser("author3@example.com")
+        };
+
+        BlogCategory category = new BlogCategory();
+        category.setName("Query Count Category");
+        category.setSlug("query-count-category");
+        category = blogCategoryRepository.save(category);
+
+        BlogTag tag = new BlogTag();
+        tag.setName("Query Count Tag");
+        tag.setSlug("query-count-tag");
+        tag = blogTagRepository.save(tag);
+
+        for (int i = 0; i < POST_COUNT; i++) {
+            BlogPost post = new BlogPost();
+            post.setTitle("Query count post " + i);
+            post.setSlug("query-count-post-" + i);
+            post.setContent("Some content for post " + i);
+            post.setAuthor(authors[i % authors.length]);
+            post.setStatus(BlogPost.BlogPostStatus.published);
+            post.setPublishedAt(LocalDateTime.now().minusMinutes(i));
+            post = blogPostRepository.save(post);
+
+            BlogPostCategory postCategory = new BlogPostCategory();
+            postCategory.setPost(post);
+            postCategory.setCategory(category);
+            blogPostCategoryRepository.save(postCategory);
+
+            BlogPostTag postTag = new BlogPostTag();
+            postTag.setPost(post);
+            postTag.setTag(tag);
+            blogPostTagRepository.save(postTag);
+
+            if (i % 2 == 0) {
+                BlogLike like = new BlogLike();
+                like.setPost(post);
+                like.setUser(reader);
+                blogLikeRepository.save(like);
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pageHydration_ShouldCostConstantStatements() {
+        long singlePost = statementsToHydrate(1);
+        long fullPage = statementsToHydrate(POST_COUNT);
+
+        assertTrue(fullPage <= MAX_STATEMENTS_PER_PAGE,
+            "Hydrating " + POST_COUNT + " posts took " + fullPage + " statements");
+        assertEquals(singlePost, fullPage, "Statement count must not grow with page size");
+    }
+
+    @Test
+    void pageHydration_ShouldResolveRelationsAndFlags() {
+        Page<BlogPost> posts = loadPage(POST_COUNT);
+        List<BlogPostDTO> dtos = blogPostDTOAssembler.toDTOs(posts.getContent(), reader.getEmail());
+
+        assertEquals(POST_COUNT, dtos.size());
+        long likedCount = dtos.stream().filter(BlogPostDTO::getIsLiked).count();
+        assertEquals(POST_COUNT / 2, likedCount);
+        for (BlogPostDTO dto : dtos) {
+            assertEquals(1, dto.getCategories().size());
+            assertEquals(1, dto.getTags().size());
+            assertNotNull(dto.getAuthorName());
+            assertFalse(dto.getIsBookmarked());
+            assertFalse(dto.getIsShared());
+        }
+    }
+
+    private long statementsToHydrate(int pageSize) {
+        Page<BlogPost> posts = loadPage(pageSize);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        blogPostDTOAssembler.toDTOs(posts.getContent(), reader.getEmail());
+
+        long statements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        return statements;
+    }
+
+    private Page<BlogPost> loadPage(int pageSize) {
+        return blogPostRepository.findByStatusOrderByPublishedAtDesc(
+            BlogPost.BlogPostStatus.published, PageRequest.of(0, pageSize));
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("password123");
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setRole(Role.STUDENT);
+        user.setStatus(User.Status.ACTIVE);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,174 @@
+package com.shop.backend.integration;
+
+import com.shop.backend.model.BlogPost;
+import com.shop.backend.model.Role;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.BlogCommentRepository;
+import com.shop.backend.repository.BlogPostRepository;
+import com.shop.backend.repository.BlogPostViewRepository;
+import com.shop.backend.repository.UserRepository;
+import com.shop.backend.service.BlogStatsService;
+import com.shop.dto.blog.BlogStatsDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Old findAll()-based blog stats vs. the pre-aggregated store at increasing view counts.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ *   mvn test -Dtest=BlogStatsBenchmark -Dbenchmark.sizes=10000,100000,1000000
+ * The 1M case needs a large heap for the legacy path (-DargLine=-Xmx4g).
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "blog.stats.initial-delay-ms=3600000",
+    "logging.level.org.hibernate.SQL=INFO",
+    "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+class BlogStatsBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    private static final int INSERT_BATCH = 5_000;
+
+    @Autowired
+    private BlogStatsService blogStatsService;
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private BlogCommentRepository blogCommentRepository;
+
+    @Autowired
+    private BlogPostViewRepository blogPostViewRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM blog_post_views WHERE post_id IN "
+            + "(SELECT id FROM blog_posts WHERE slug LIKE 'benchmark-post-%')");
+        jdbcTemplate.update("DELETE FROM blog_posts WHERE slug LIKE 'benchmark-post-%'");
+        jdbcTemplate.update("DELETE FROM users WHERE email = 'bench-author@example.com'");
+    }
+
+    @Test
+    void compareLegacyAndPreAggregatedStats() {
+        String sizes = System.getProperty("benchmark.sizes", "10000,100000,1000000");
+        User author = seedAuthor();
+        List<Long> postIds = seedPosts(author, 100);
+
+        int seeded = 0;
+        System.out.printf("%12s %18s %18s %14s%n", "views", "legacy avg ms", "snapshot avg us", "rollup ms");
+        for (String size : sizes.split(",")) {
+            int views = Integer.parseInt(size.trim());
+            seedViews(postIds, seeded, views - seeded);
+            seeded = views;
+
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            long legacyViewsThisWeek = tx.execute(status -> legacyViewsThisWeek());
+            long legacyStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                tx.execute(status -> legacyViewsThisWeek());
+            }
+            double legacyMs = (System.nanoTime() - legacyStart) / 1e6 / ITERATIONS;
+
+            long rollupStart = System.nanoTime();
+            blogStatsService.rollup();
+            double rollupMs = (System.nanoTime() - rollupStart) / 1e6;
+
+            BlogStatsDTO stats = null;
+            long snapshotStart = System.nanoTime();
+            for (int i = 0; i < ITERATIONS * 1000; i++) {
+                stats = blogStatsService.getStats();
+            }
+            double snapshotUs = (System.nanoTime() - snapshotStart) / 1e3 / (ITERATIONS * 1000);
+
+            assertEquals(views, stats.getTotalViews());
+            assertEquals(legacyViewsThisWeek, stats.getViewsThisWeek());
+            System.out.printf("%12d %18.1f %18.2f %14.1f%n", views, legacyMs, snapshotUs, rollupMs);
+        }
+    }
+
+    /**
+     * The scans getBlogStats used to run on every call
+     */
+    private long legacyViewsThisWeek() {
+        LocalDateTime weekAgo = LocalDateTime.now().minusWeeks(1);
+        blogPostRepository.findAll().stream()
+            .filter(post -> post.getCreatedAt() != null && post.getCreatedAt().isAfter(weekAgo))
+            .count();
+        blogCommentRepository.findAll().stream()
+            .filter(comment -> comment.getCreatedAt() != null && comment.getCreatedAt().isAfter(weekAgo))
+            .count();
+        return blogPostViewRepository.findAll().stream()
+            .filter(view -> view.getViewedAt() != null && view.getViewedAt().isAfter(weekAgo))
+            .count();
+    }
+
+    private User seedAuthor() {
+        User author = new User();
+        author.setEmail("bench-author@example.com");
+        author.setPassword("password123");
+        author.setFirstName("Bench");
+        author.setLastName("Author");
+        author.setRole(Role.EXPERT);
+        author.setStatus(User.Status.ACTIVE);
+        return userRepository.save(author);
+    }
+
+    private List<Long> seedPosts(User author, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BlogPost post = new BlogPost();
+            post.setTitle("Benchmark post " + i);
+            post.setSlug("benchmark-post-" + i);
+            post.setContent("Content " + i);
+            post.setAuthor(author);
+            post.setStatus(BlogPost.BlogPostStatus.published);
+            post.setPublishedAt(LocalDateTime.now());
+            ids.add(blogPostRepository.save(post).getId());
+        }
+        return ids;
+    }
+
+    // Views spread over the last four days so they all fall inside the weekly window
+    private void seedViews(List<Long> postIds, int offset, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < count; i++) {
+            int n = offset + i;
+            rows.add(new Object[] {
+                postIds.get(n % postIds.size()),
+                "10.0." + (n / 256 % 256) + "." + (n % 256),
+                Timestamp.valueOf(now.minusMinutes(n % (4 * 24 * 60)))
+            });
+            if (rows.size() == INSERT_BATCH || i == count - 1) {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO blog_post_views (post_id, ip_address, viewed_at) VALUES (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.shop.backend.integration;
+
+import com.shop.backend.model.BlogPost;
+import com.shop.backend.model.Role;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.BlogPostRepository;
+import com.shop.backend.repository.BlogPostViewRepository;
+import com.shop.backend.repository.UserRepository;
+import com.shop.backend.service.BlogViewIngestionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not @Transactional: the flusher writes on its own connection, so test data must be committed
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+    "blog.views.batch-size=50",
+    "blog.views.flush-interval-ms=50"
+})
+class BlogViewIngestionIntegrationTest {
+
+    @Autowired
+    private BlogViewIngestionService blogViewIngestionService;
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private BlogPostViewRepository blogPostViewRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User viewer;
+    private BlogPost post;
+
+    @BeforeEach
+    void setUp() {
+        viewer = new User();
+        viewer.setEmail("viewer@example.com");
+        viewer.setPassword("password123");
+        viewer.setFirstName("View");
+        viewer.setLastName("Er");
+        viewer.setRole(Role.STUDENT);
+        viewer.setStatus(User.Status.ACTIVE);
+        viewer = userRepository.save(viewer);
+
+        post = new BlogPost();
+        post.setTitle("Viewed post");
+        post.setSlug("viewed-post-" + System.nanoTime());
+        post.setContent("Content");
+        post.setAuthor(viewer);
+        post.setStatus(BlogPost.BlogPostStatus.published);
+        post.setPublishedAt(LocalDateTime.now());
+        post = blogPostRepository.save(post);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blogPostViewRepository.deleteAll();
+        blogPostRepository.delete(post);
+        userRepository.delete(viewer);
+    }
+
+    @Test
+    void concurrentViews_ShouldAllBePersistedAndCounted() throws Exception {
+        int threads = 8;
+        int viewsPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < viewsPerThread; i++) {
+                    String email = (i % 2 == 0) ? viewer.getEmail() : null;
+                    assertTrue(blogViewIngestionService.enqueue(post.getId(), email, "10.0.0." + thread, "JUnit"));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        blogViewIngestionService.flushAll();
+
+        int expected = threads * viewsPerThread;
+        assertEquals(expected, blogPostViewRepository.countByPostId(post.getId()));
+        assertEquals(expected / 2, blogPostViewRepository.countByPostIdAndUserId(post.getId(), viewer.getId()));
+        assertEquals(expected, blogPostRepository.findById(post.getId()).orElseThrow().getViewCount());
+    }
+
+    @Test
+    void viewsForMissingPost_ShouldBeDiscardedWithoutFailingTheBatch() {
+        Map<String, Object> before = blogViewIngestionService.getStatistics();
+        blogViewIngestionService.enqueue(post.getId(), null, "10.0.0.1", "JUnit");
+        blogViewIngestionService.enqueue(Long.MAX_VALUE, null, "10.0.0.1", "JUnit");
+
+        blogViewIngestionService.flushAll();
+
+        assertEquals(1, blogPostViewRepository.countByPostId(post.getId()));
+        Map<String, Object> stats = blogViewIngestionService.getStatistics();
+        assertEquals(0L, stats.get("failed"));
+        assertEquals(0, stats.get("queueDepth"));
+        // Only the stored view counts as persisted; the other one is counted as dropped
+        assertEquals((Long) before.get("persisted") + 1, stats.get("persisted"));
+        assertEquals((Long) before.get("dropped") + 1, stats.get("dropped"));
+    }
+}
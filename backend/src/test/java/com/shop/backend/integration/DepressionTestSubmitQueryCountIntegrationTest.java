@@ -0,0 +1,252 @@
+package com.shop.backend.integration;
+
+import com.shop.backend.dto.depression.DepressionTestRequest;
+import com.shop.backend.dto.depression.DepressionTestResponse;
+import com.shop.backend.model.DepressionQuestionVi;
+import com.shop.backend.model.DepressionTestAnswer;
+import com.shop.backend.model.Role;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.DepressionQuestionViRepository;
+import com.shop.backend.repository.DepressionTestAnswerRepository;
+import com.shop.backend.repository.UserRepository;
+import com.shop.backend.service.DepressionTestService;
+import com.shop.backend.service.NotificationService;
+import com.shop.backend.service.OpenAITestResultService;
+import com.shop.backend.service.TestResultAnalysisService;
+import com.shop.backend.service.TestResultEmailService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Submitting a test and preparing its AI analysis must cost the same number of
+ * JDBC round trips for a 21-question and a 42-question test.
+ *
+ * Statements are counted on the DataSource, so JdbcTemplate batches are included
+ * (Hibernate statistics would only see Hibernate's own statements).
+ */
+@SpringBootTest
+@Transactional
+class DepressionTestSubmitQueryCountIntegrationTest {
+
+    // insert result, one batch for all answers
+    private static final long MAX_SUBMIT_STATEMENTS = 2;
+
+    // claim, result, answers, questions, user, conditional update
+    private static final long MAX_ANALYSIS_STATEMENTS = 6;
+
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return countingConnection(super.getConnection());
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Connection countingConnection(Connection target) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return result instanceof Statement statement ? countingStatement(statement) : result;
+                });
+        }
+
+        private static Object countingStatement(Statement target) {
+            // Keep PreparedStatement / CallableStatement so callers can still cast
+            return Proxy.newProxyInstance(Statement.class.getClassLoader(), sqlInterfaces(target.getClass()), (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    STATEMENTS.incrementAndGet();
+                }
+                return invoke(target, method, args);
+            });
+        }
+
+        private static Class<?>[] sqlInterfaces(Class<?> type) {
+            List<Class<?>> interfaces = new ArrayList<>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Class<?> i : c.getInterfaces()) {
+                    if (i.getName().startsWith("java.sql.") && !interfaces.contains(i)) {
+                        interfaces.add(i);
+                    }
+                }
+            }
+            return interfaces.toArray(new Class<?>[0]);
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @MockitoBean
+    private OpenAITestResultService openAITestResultService;
+
+    @MockitoBean
+    private TestResultEmailService emailService;
+
+    @MockitoBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private DepressionTestService depressionTestService;
+
+    @Autowired
+    private TestResultAnalysisService testResultAnalysisService;
+
+    @Autowired
+    private DepressionQuestionViRepository questionViRepository;
+
+    @Autowired
+    private DepressionTestAnswerRepository testAnswerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User student;
+
+    private final List<Long> questionIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        student = new User();
+        student.setEmail("dass-student@example.com");
+        student.setPassword("password123");
+        student.setFirstName("Test");
+        student.setLastName("Student");
+        student.setRole(Role.STUDENT);
+        student.setStatus(User.Status.ACTIVE);
+        student = userRepository.save(student);
+
+        for (int i = 0; i < 42; i++) {
+            DepressionQuestionVi question = new DepressionQuestionVi();
+            question.setQuestionText("Câu hỏi " + i);
+            question.setCategory("Cảm xúc");
+            question.setTestKey("DASS-42");
+            question.setOrder(i);
+            questionIds.add(questionViRepository.save(question).getId());
+        }
+
+        when(openAITestResultService.generateTestResultAnalysis(any(), any(), anyList()))
+            .thenReturn(Map.of("diagnosis", "AI", "severity", "MILD", "recommendation", "AI"));
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void submit_ShouldCostConstantStatements() {
+        long dass21 = statementsToSubmit(21);
+        long dass42 = statementsToSubmit(42);
+
+        assertTrue(dass42 <= MAX_SUBMIT_STATEMENTS, "Submitting 42 answers took " + dass42 + " statements");
+        assertEquals(dass21, dass42, "Statement count must not grow with the number of answers");
+    }
+
+    @Test
+    void analysis_ShouldCostConstantStatements() {
+        long dass21 = statementsToAnalyze(submit(21).getTestResultId());
+        long dass42 = statementsToAnalyze(submit(42).getTestResultId());
+
+        assertTrue(dass42 <= MAX_ANALYSIS_STATEMENTS, "Analysing 42 answers took " + dass42 + " statements");
+        assertEquals(dass21, dass42, "Statement count must not grow with the number of answers");
+    }
+
+    @Test
+    void submit_ShouldStoreEveryAnswer() {
+        DepressionTestResponse response = submit(42);
+        entityManager.clear();
+
+        List<DepressionTestAnswer> answers = testAnswerRepository.findByTestResultId(response.getTestResultId());
+        assertEquals(42, answers.size());
+        assertEquals(questionIds.get(5), answers.get(5).getQuestionId());
+        assertEquals(5 % 4, answers.get(5).getAnswerValue());
+        assertEquals(DepressionTestAnswer.Language.VI, answers.get(5).getLanguage());
+        assertEquals(DepressionTestAnswer.QuestionTable.DEPRESSION_QUESTIONS_VI, answers.get(5).getQuestionTable());
+        assertEquals("PENDING", response.getAnalysisStatus());
+    }
+
+    private long statementsToSubmit(int answerCount) {
+        DepressionTestRequest request = request(answerCount);
+        STATEMENTS.set(0);
+        depressionTestService.submitTest(student.getId(), request);
+        entityManager.flush();
+        long statements = STATEMENTS.get();
+        entityManager.clear();
+        return statements;
+    }
+
+    private long statementsToAnalyze(Long testResultId) {
+        entityManager.flush();
+        entityManager.clear();
+        STATEMENTS.set(0);
+        ReflectionTestUtils.invokeMethod(testResultAnalysisService, "analyze", testResultId);
+        long statements = STATEMENTS.get();
+        entityManager.clear();
+        return statements;
+    }
+
+    private DepressionTestResponse submit(int answerCount) {
+        return depressionTestService.submitTest(student.getId(), request(answerCount));
+    }
+
+    private DepressionTestRequest request(int answerCount) {
+        DepressionTestRequest request = new DepressionTestRequest();
+        request.setTestType(answerCount == 42 ? "DASS-42" : "DASS-21");
+        request.setLanguage("vi");
+        List<DepressionTestRequest.QuestionAnswer> answers = new ArrayList<>();
+        for (int i = 0; i < answerCount; i++) {
+            DepressionTestRequest.QuestionAnswer answer = new DepressionTestRequest.QuestionAnswer();
+            answer.setQuestionId(questionIds.get(i));
+            answer.setAnswerValue(i % 4);
+            answers.add(answer);
+        }
+        request.setAnswers(answers);
+        return request;
+    }
+}
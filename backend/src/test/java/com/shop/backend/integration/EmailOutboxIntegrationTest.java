@@ -0,0 +1,126 @@
+package com.shop.backend.integration;
+
+import com.shop.backend.model.EmailOutbox;
+import com.shop.backend.repository.EmailOutboxRepository;
+import com.shop.backend.service.EmailOutboxService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not @Transactional: concurrent enqueues run in their own transactions, so rows must be committed
+ */
+@SpringBootTest
+@TestPropertySource(properties = "email.outbox.enabled=false")
+class EmailOutboxIntegrationTest {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentEnqueues_ShouldQueueAKeyOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return emailOutboxService.enqueue("a@example.com", "Subject", "<p>Body</p>", "appointment:1:confirmed:student");
+                }));
+            }
+            start.countDown();
+            int queued = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    queued++;
+                }
+            }
+            assertEquals(1, queued);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, emailOutboxRepository.count());
+    }
+
+    @Test
+    void duplicateKey_ShouldNotRollBackTheCallersTransaction() {
+        emailOutboxService.enqueue("a@example.com", "Subject", "<p>Body</p>", "appointment:2:confirmed:student");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertFalse(emailOutboxService.enqueue("a@example.com", "Subject", "<p>Body</p>", "appointment:2:confirmed:student"));
+            assertTrue(emailOutboxService.enqueue("b@example.com", "Subject", "<p>Body</p>", "appointment:2:confirmed:expert"));
+        });
+
+        assertEquals(2, emailOutboxRepository.count());
+    }
+
+    @Test
+    void failedKey_ShouldBeQueuedAgain() {
+        emailOutboxService.enqueue("a@example.com", "Old", "<p>Old</p>", "appointment:3:confirmed:student");
+        EmailOutbox failed = emailOutboxRepository.findAll().get(0);
+        failed.setStatus(EmailOutbox.Status.FAILED);
+        failed.setAttempts(6);
+        emailOutboxRepository.save(failed);
+
+        assertTrue(emailOutboxService.enqueue("a@example.com", "New", "<p>New</p>", "appointment:3:confirmed:student"));
+
+        EmailOutbox requeued = emailOutboxRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(EmailOutbox.Status.PENDING, requeued.getStatus());
+        assertEquals(0, requeued.getAttempts());
+        assertEquals("New", requeued.getSubject());
+        assertEquals(1, emailOutboxRepository.count());
+    }
+
+    @Test
+    void enqueueAll_ShouldQueueNewAndFailedKeysOnly() {
+        emailOutboxService.enqueue("a@example.com", "Subject", "<p>Body</p>", "newsletter:1:a@example.com");
+        emailOutboxService.enqueue("c@example.com", "Subject", "<p>Body</p>", "newsletter:1:c@example.com");
+        EmailOutbox failed = emailOutboxRepository.findAll().stream()
+            .filter(email -> email.getRecipient().equals("c@example.com")).findFirst().orElseThrow();
+        failed.setStatus(EmailOutbox.Status.FAILED);
+        emailOutboxRepository.save(failed);
+
+        int queued = emailOutboxService.enqueueAll(List.of(
+            newsletter("a@example.com"), newsletter("b@example.com"), newsletter("b@example.com"), newsletter("c@example.com")));
+
+        // b is inserted, c is re-queued; the batch insert falls back to one row at a time for c
+        assertEquals(2, queued);
+        assertEquals(3, emailOutboxRepository.count());
+        assertEquals(EmailOutbox.Status.PENDING, emailOutboxRepository.findById(failed.getId()).orElseThrow().getStatus());
+    }
+
+    private static EmailOutbox newsletter(String recipient) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(recipient);
+        email.setSubject("Newsletter");
+        email.setHtmlBody("<p>Post</p>");
+        email.setDedupKey("newsletter:1:" + recipient);
+        return email;
+    }
+}
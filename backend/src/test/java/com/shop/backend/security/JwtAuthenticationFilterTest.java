@@ -0,0 +1,140 @@
+package com.shop.backend.security;
+
+import com.shop.backend.BeanFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "test_jwt_secret_key_that_is_long_enough_for_hmac_sha_256_signing";
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    private BeanFixture<JwtAuthenticationFilter> fixture;
+    private JwtService jwtService;
+    private JwtAuthenticationCache authenticationCache;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        fixture = BeanFixture.of(JwtAuthenticationFilter.class)
+            .bean(JwtService.class)
+            .bean(JwtAuthenticationCache.class)
+            .property("jwt.secret", SECRET)
+            .property("jwt.expiration", 3_600_000L)
+            .property("jwt.token-cache.max-size", 100L)
+            .with(CacheManager.class, new ConcurrentMapCacheManager(JwtAuthenticationCache.PRINCIPALS_CACHE))
+            .with(UserDetailsService.class, userDetailsService);
+        filter = fixture.start();
+        jwtService = fixture.get(JwtService.class);
+        authenticationCache = fixture.get(JwtAuthenticationCache.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        fixture.close();
+    }
+
+    @Test
+    void repeatedRequests_ShouldLoadTheUserOnce() throws Exception {
+        givenStudent();
+        String token = tokenFor("student@example.com");
+
+        for (int i = 0; i < 5; i++) {
+            Authentication authentication = authenticate(token);
+            assertNotNull(authentication);
+            assertEquals("student@example.com", authentication.getName());
+            assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_STUDENT")));
+            // The cached principal never carries the password hash
+            assertEquals("", ((UserDetails) authentication.getPrincipal()).getPassword());
+        }
+
+        verify(userDetailsService, times(1)).loadUserByUsername("student@example.com");
+        assertEquals(1, authenticationCache.getCachedTokenCount());
+    }
+
+    @Test
+    void evictUser_ShouldReloadTheUserOnTheNextRequest() throws Exception {
+        givenStudent();
+        String token = tokenFor("student@example.com");
+        authenticate(token);
+
+        when(userDetailsService.loadUserByUsername("student@example.com")).thenReturn(
+            User.withUsername("student@example.com").password("hash").roles("EXPERT").build());
+        authenticationCache.evictUser("student@example.com");
+
+        Authentication authentication = authenticate(token);
+        assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_EXPERT")));
+        verify(userDetailsService, times(2)).loadUserByUsername("student@example.com");
+    }
+
+    @Test
+    void invalidTokens_ShouldNotAuthenticate() throws Exception {
+        String token = tokenFor("student@example.com");
+        String tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+        assertNull(authenticate(tampered));
+
+        try (BeanFixture<JwtService> expired = BeanFixture.of(JwtService.class)
+                .property("jwt.secret", SECRET)
+                .property("jwt.expiration", -1_000L)) {
+            assertNull(authenticate(tokenFor(expired.start(), "student@example.com")));
+        }
+
+        assertNull(authenticate("not.a.jwt"));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void anonymousSession_ShouldNotTouchTheDatabase() throws Exception {
+        Authentication authentication = authenticate(tokenFor("anon_session-1"));
+
+        assertEquals("anon_session-1", authentication.getName());
+        assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_STUDENT")));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private void givenStudent() {
+        when(userDetailsService.loadUserByUsername("student@example.com")).thenReturn(
+            User.withUsername("student@example.com").password("{bcrypt}hash").roles("STUDENT").build());
+    }
+
+    private String tokenFor(String username) {
+        return tokenFor(jwtService, username);
+    }
+
+    private static String tokenFor(JwtService jwtService, String username) {
+        return jwtService.generateToken(Map.of(), User.withUsername(username).password("").authorities(List.of()).build());
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/profile");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
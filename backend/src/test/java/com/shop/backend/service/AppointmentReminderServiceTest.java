@@ -0,0 +1,183 @@
+package com.shop.backend.service;
+
+import com.shop.backend.BeanFixture;
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.AppointmentReminder;
+import com.shop.backend.repository.AppointmentReminderRepository;
+import com.shop.backend.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AppointmentReminderServiceTest {
+
+    @Mock
+    private AppointmentReminderRepository reminderRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private EmailNotificationService emailNotificationService;
+
+    @Mock
+    private SmsService smsService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BeanFixture<AppointmentReminderService> fixture;
+
+    private AppointmentReminderService service;
+
+    @BeforeEach
+    void setUp() {
+        fixture = BeanFixture.of(AppointmentReminderService.class)
+            .property("appointments.reminders.hours-before", "24,1")
+            .property("appointments.reminders.batch-size", 50)
+            .property("appointments.reminders.threads", 4)
+            .property("appointments.reminders.lease-ms", 300_000L)
+            .property("appointments.reminders.max-attempts", 3)
+            .property("appointments.reminders.retry-ms", 120_000L)
+            .with(AppointmentReminderRepository.class, reminderRepository)
+            .with(AppointmentRepository.class, appointmentRepository)
+            .with(EmailNotificationService.class, emailNotificationService)
+            .with(SmsService.class, smsService)
+            .with(NotificationService.class, notificationService)
+            .with(PlatformTransactionManager.class, transactionManager);
+        service = fixture.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void dispatchBatch_ShouldSendEveryChannelOnceAndRecordTheReminderAsSent() {
+        givenResultsAreRecorded();
+        LocalDateTime appointmentDate = LocalDateTime.now().plusHours(24);
+        when(reminderRepository.lockDue(any(), eq(50))).thenReturn(List.<Object[]>of(
+            row(1L, 24, 0, null, null, "CONFIRMED", appointmentDate)));
+
+        assertEquals(1, service.dispatchBatch());
+
+        verify(reminderRepository).claim(eq(List.of(1L)), eq(AppointmentReminder.Status.SENDING), anyString(), any());
+        verify(emailNotificationService).sendAppointmentReminderEmail(argThat(a ->
+            a.getId() == 10L && a.getStudent().getEmail().equals("an@example.com")), eq(24));
+        verify(smsService).sendAppointmentReminder(argThat(a -> a.getStudent().getPhone().equals("0900000000")), eq(24));
+        verify(notificationService).sendAppointmentNotification(eq(6L), contains("Chuyên gia Hùng"));
+        verify(reminderRepository).record(eq(1L), anyString(), eq(AppointmentReminder.Status.SENT), eq(0), any(),
+            notNull(), notNull(), notNull(), isNull(), notNull());
+    }
+
+    @Test
+    void dispatchBatch_ShouldRetryOnlyTheChannelThatFailed() {
+        givenResultsAreRecorded();
+        LocalDateTime appointmentDate = LocalDateTime.now().plusHours(1);
+        when(reminderRepository.lockDue(any(), anyInt())).thenReturn(List.<Object[]>of(
+            row(2L, 1, 0, null, null, "CONFIRMED", appointmentDate)));
+        doThrow(new RuntimeException("SMS gateway down")).when(smsService).sendAppointmentReminder(any(), anyInt());
+
+        service.dispatchBatch();
+
+        verify(reminderRepository).record(eq(2L), anyString(), eq(AppointmentReminder.Status.PENDING), eq(1), any(),
+            notNull(), isNull(), notNull(), contains("SMS gateway down"), isNull());
+
+        // Next attempt: email and WebSocket are recorded as done, only the SMS goes out again
+        LocalDateTime doneAt = LocalDateTime.now();
+        when(reminderRepository.lockDue(any(), anyInt())).thenReturn(List.<Object[]>of(
+            row(2L, 1, 1, doneAt, doneAt, "CONFIRMED", appointmentDate)));
+        doNothing().when(smsService).sendAppointmentReminder(any(), anyInt());
+
+        service.dispatchBatch();
+
+        verify(emailNotificationService, times(1)).sendAppointmentReminderEmail(any(), anyInt());
+        verify(notificationService, times(1)).sendAppointmentNotification(anyLong(), anyString());
+        verify(smsService, times(2)).sendAppointmentReminder(any(), eq(1));
+        verify(reminderRepository).record(eq(2L), anyString(), eq(AppointmentReminder.Status.SENT), eq(1), any(),
+            eq(doneAt), notNull(), eq(doneAt), isNull(), notNull());
+    }
+
+    @Test
+    void dispatchBatch_ShouldSkipCancelledAndStartedAppointments() {
+        givenResultsAreRecorded();
+        when(reminderRepository.lockDue(any(), anyInt())).thenReturn(List.of(
+            row(3L, 24, 0, null, null, "CANCELLED", LocalDateTime.now().plusHours(24)),
+            row(4L, 1, 0, null, null, "CONFIRMED", LocalDateTime.now().minusMinutes(5))));
+
+        assertEquals(2, service.dispatchBatch());
+
+        verifyNoInteractions(emailNotificationService, smsService, notificationService);
+        verify(reminderRepository).record(eq(3L), anyString(), eq(AppointmentReminder.Status.SKIPPED), eq(0), any(),
+            isNull(), isNull(), isNull(), isNull(), notNull());
+        verify(reminderRepository).record(eq(4L), anyString(), eq(AppointmentReminder.Status.SKIPPED), eq(0), any(),
+            isNull(), isNull(), isNull(), isNull(), notNull());
+    }
+
+    @Test
+    void dispatchBatch_ShouldGiveUpAfterTheLastAttempt() {
+        givenResultsAreRecorded();
+        when(reminderRepository.lockDue(any(), anyInt())).thenReturn(List.<Object[]>of(
+            row(5L, 24, 2, null, null, "CONFIRMED", LocalDateTime.now().plusHours(24))));
+        doThrow(new RuntimeException("SMS gateway down")).when(smsService).sendAppointmentReminder(any(), anyInt());
+
+        service.dispatchBatch();
+
+        verify(reminderRepository).record(eq(5L), anyString(), eq(AppointmentReminder.Status.FAILED), eq(3), any(),
+            notNull(), isNull(), notNull(), notNull(), notNull());
+    }
+
+    @Test
+    void dispatchBatch_ShouldReturnZeroWhenNothingIsDue() {
+        when(reminderRepository.lockDue(any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, service.dispatchBatch());
+
+        verify(reminderRepository, never()).claim(any(), any(), any(), any());
+    }
+
+    @Test
+    void plan_ShouldDropPassedRemindersButSendTheClosestOneRightAway() {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+        List<AppointmentReminder> early = service.plan(10L, now.plusDays(3), now);
+        assertEquals(2, early.size());
+        assertEquals(now.plusDays(2), early.get(0).getDueAt());
+        assertEquals(now.plusDays(3).minusHours(1), early.get(1).getDueAt());
+
+        List<AppointmentReminder> late = service.plan(10L, now.plusMinutes(30), now);
+        assertEquals(1, late.size());
+        assertEquals(1, late.get(0).getHoursBefore());
+        assertEquals(now, late.get(0).getDueAt());
+
+        assertTrue(service.plan(10L, now.minusMinutes(1), now).isEmpty());
+    }
+
+    private void givenResultsAreRecorded() {
+        when(reminderRepository.record(anyLong(), anyString(), any(), anyInt(), any(), any(), any(), any(), any(), any()))
+            .thenReturn(1);
+    }
+
+    // Row of AppointmentReminderRepository.lockDue; email and push done times as given, SMS never done
+    private static Object[] row(Long reminderId, int hoursBefore, int attempts, LocalDateTime emailSentAt,
+                                LocalDateTime pushSentAt, String status, LocalDateTime appointmentDate) {
+        return new Object[]{reminderId, 10L, hoursBefore, attempts, emailSentAt, null, pushSentAt,
+            appointmentDate, status, 6L, "an@example.com", "An", "Nguyễn", "0900000000", 3L, "Chuyên gia", "Hùng"};
+    }
+}
@@ -0,0 +1,164 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.model.ExpertSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityEngineTest {
+
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    private static final int[] DURATIONS = {15, 30, 45, 60, 90};
+
+    private static final Integer[] BREAKS = {null, 0, 5, 10, 15, 30};
+
+    @Test
+    void findFreeSlots_ShouldMatchThePerSlotQueriesOnRandomCalendars() {
+        for (int seed = 0; seed < 2000; seed++) {
+            Random random = new Random(seed);
+            LocalDate from = MONDAY.plusDays(random.nextInt(7));
+            LocalDate to = from.plusDays(random.nextInt(30));
+            int duration = DURATIONS[random.nextInt(DURATIONS.length)];
+
+            List<ExpertSchedule> schedules = randomSchedules(random);
+            List<ExpertBreak> breaks = randomBreaks(random, from, to);
+            List<Appointment> appointments = randomAppointments(random, from, to);
+
+            List<LocalDateTime> expected = new LegacyAvailableSlots(schedules, breaks, appointments)
+                .findAvailableSlots(from, to, duration);
+
+            // What the three range queries return
+            AvailabilityEngine engine = new AvailabilityEngine(
+                schedules.stream().filter(s -> Boolean.TRUE.equals(s.getIsAvailable())).toList(),
+                breaks.stream().filter(b -> !b.getBreakDate().isBefore(from) && !b.getBreakDate().isAfter(to)).toList(),
+                appointments.stream()
+                    .filter(a -> !a.getAppointmentDate().isBefore(from.atStartOfDay())
+                        && !a.getAppointmentDate().isAfter(to.atTime(23, 59, 59)))
+                    .filter(a -> a.getStatus() != Appointment.AppointmentStatus.CANCELLED
+                        && a.getStatus() != Appointment.AppointmentStatus.NO_SHOW)
+                    .toList());
+
+            assertEquals(expected, engine.findFreeSlots(from, to, duration), "seed " + seed);
+        }
+    }
+
+    @Test
+    void findFreeSlots_ShouldTreatTouchingAppointmentsAsBusyButNotTouchingBreaks() {
+        ExpertSchedule schedule = schedule(1L, DayOfWeek.MONDAY, "09:00", "12:00", 0);
+        Appointment booked = appointment(MONDAY.atTime(10, 0), 60, Appointment.AppointmentStatus.CONFIRMED);
+        Appointment cancelled = appointment(MONDAY.atTime(11, 0), 60, Appointment.AppointmentStatus.CANCELLED);
+        ExpertBreak lunch = expertBreak(MONDAY.plusWeeks(1), "09:00", "10:00");
+        ExpertBreak other = expertBreak(MONDAY.plusWeeks(1), "11:00", "12:00");
+
+        AvailabilityEngine engine = new AvailabilityEngine(List.of(schedule), List.of(lunch, other),
+            List.of(booked, cancelled));
+
+        // 09:00-10:00 and 11:00-12:00 touch the 10:00-11:00 appointment
+        assertEquals(List.of(), engine.findFreeSlots(MONDAY, MONDAY, 60));
+        // Breaks only block what they overlap
+        assertEquals(List.of(MONDAY.plusWeeks(1).atTime(10, 0)),
+            engine.findFreeSlots(MONDAY.plusWeeks(1), MONDAY.plusWeeks(1), 60));
+    }
+
+    @Test
+    void findFreeSlots_ShouldUseTheFirstScheduleOfADay() {
+        AvailabilityEngine engine = new AvailabilityEngine(
+            List.of(schedule(2L, DayOfWeek.MONDAY, "14:00", "15:00", 15),
+                schedule(1L, DayOfWeek.MONDAY, "08:00", "09:00", 15)),
+            List.of(), List.of());
+
+        assertEquals(List.of(MONDAY.atTime(8, 0)), engine.findFreeSlots(MONDAY, MONDAY, 60));
+        assertThrows(IllegalArgumentException.class, () -> engine.findFreeSlots(MONDAY, MONDAY, 0));
+    }
+
+    private static List<ExpertSchedule> randomSchedules(Random random) {
+        List<ExpertSchedule> schedules = new ArrayList<>();
+        long id = 1;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (random.nextInt(5) == 0) {
+                continue;
+            }
+            // Stay clear of midnight: the old loop wrapped LocalTime past it
+            LocalTime start = LocalTime.of(6 + random.nextInt(6), random.nextInt(4) * 15);
+            LocalTime end = LocalTime.of(12 + random.nextInt(8), random.nextInt(4) * 15);
+            ExpertSchedule schedule = schedule(id++, day, start.toString(), end.toString(),
+                BREAKS[random.nextInt(BREAKS.length)]);
+            schedule.setIsAvailable(random.nextInt(6) != 0);
+            schedules.add(schedule);
+        }
+        return schedules;
+    }
+
+    private static List<ExpertBreak> randomBreaks(Random random, LocalDate from, LocalDate to) {
+        List<ExpertBreak> breaks = new ArrayList<>();
+        int count = random.nextInt(20);
+        int days = (int) (to.toEpochDay() - from.toEpochDay()) + 3;
+        for (int i = 0; i < count; i++) {
+            LocalDate date = from.minusDays(1).plusDays(random.nextInt(days));
+            LocalTime start = LocalTime.of(6 + random.nextInt(14), random.nextInt(12) * 5);
+            // Mostly proper breaks, some zero-length or inverted ones
+            int length = random.nextInt(10) == 0 ? -random.nextInt(60) : 5 + random.nextInt(120);
+            LocalTime end = start.plusMinutes(length);
+            breaks.add(expertBreak(date, start.toString(), end.toString()));
+        }
+        return breaks;
+    }
+
+    private static List<Appointment> randomAppointments(Random random, LocalDate from, LocalDate to) {
+        List<Appointment> appointments = new ArrayList<>();
+        Appointment.AppointmentStatus[] statuses = Appointment.AppointmentStatus.values();
+        int count = random.nextInt(40);
+        int days = (int) (to.toEpochDay() - from.toEpochDay()) + 3;
+        for (int i = 0; i < count; i++) {
+            LocalDate date = from.minusDays(1).plusDays(random.nextInt(days));
+            LocalDateTime start = random.nextInt(15) == 0
+                // Late evening, running past midnight
+                ? date.atTime(23, random.nextInt(60), random.nextInt(60))
+                : date.atTime(6 + random.nextInt(15), random.nextInt(12) * 5);
+            Appointment.AppointmentStatus status = random.nextInt(10) == 0
+                ? null
+                : statuses[random.nextInt(statuses.length)];
+            appointments.add(appointment(start, DURATIONS[random.nextInt(DURATIONS.length)], status));
+        }
+        return appointments;
+    }
+
+    private static ExpertSchedule schedule(Long id, DayOfWeek day, String start, String end, Integer breakMinutes) {
+        ExpertSchedule schedule = new ExpertSchedule();
+        schedule.setId(id);
+        schedule.setDayOfWeek(day);
+        schedule.setStartTime(LocalTime.parse(start));
+        schedule.setEndTime(LocalTime.parse(end));
+        schedule.setBreakDurationMinutes(breakMinutes);
+        schedule.setIsAvailable(true);
+        return schedule;
+    }
+
+    private static ExpertBreak expertBreak(LocalDate date, String start, String end) {
+        ExpertBreak expertBreak = new ExpertBreak();
+        expertBreak.setBreakDate(date);
+        expertBreak.setStartTime(LocalTime.parse(start));
+        expertBreak.setEndTime(LocalTime.parse(end));
+        return expertBreak;
+    }
+
+    private static Appointment appointment(LocalDateTime start, int duration, Appointment.AppointmentStatus status) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentDate(start);
+        appointment.setDurationMinutes(duration);
+        appointment.setStatus(status);
+        return appointment;
+    }
+}
@@ -0,0 +1,187 @@
+package com.shop.backend.service;
+
+import com.shop.backend.dto.auth.appointment.EarliestSlotRequest;
+import com.shop.backend.dto.auth.appointment.EarliestSlotResponse;
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.model.ExpertSchedule;
+import com.shop.backend.model.Role;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.AppointmentRepository;
+import com.shop.backend.repository.ExpertBreakRepository;
+import com.shop.backend.repository.ExpertScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AvailabilitySearchServiceTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    private ExpertScheduleRepository expertScheduleRepository;
+    private ExpertBreakRepository expertBreakRepository;
+    private AppointmentRepository appointmentRepository;
+    private AvailabilitySearchService service;
+
+    private record Expected(LocalDateTime start, long expertId) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        expertScheduleRepository = mock(ExpertScheduleRepository.class);
+        expertBreakRepository = mock(ExpertBreakRepository.class);
+        appointmentRepository = mock(AppointmentRepository.class);
+        service = new AvailabilitySearchService(expertScheduleRepository, expertBreakRepository, appointmentRepository);
+        ReflectionTestUtils.setField(service, "maxDays", 60);
+        ReflectionTestUtils.setField(service, "maxLimit", 50);
+    }
+
+    @Test
+    void findSlots_ShouldReturnTheEarliestSlotsOfAllExpertsMerged() {
+        Random random = new Random(11);
+        List<ExpertSchedule> schedules = new ArrayList<>();
+        List<Object[]> breakRows = new ArrayList<>();
+        List<Object[]> appointmentRows = new ArrayList<>();
+        List<Expected> expected = new ArrayList<>();
+        long rowId = 1;
+        for (long expertId = 1; expertId <= 40; expertId++) {
+            User expert = expert(expertId);
+            List<ExpertSchedule> own = new ArrayList<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                own.add(schedule(rowId++, expert, day, LocalTime.of(7 + random.nextInt(4), 15 * random.nextInt(4)),
+                    LocalTime.of(12 + random.nextInt(6), 0)));
+            }
+            List<ExpertBreak> breaks = new ArrayList<>();
+            List<Appointment> appointments = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                LocalDate date = TOMORROW.plusDays(random.nextInt(14));
+                LocalTime start = LocalTime.of(7 + random.nextInt(10), 5 * random.nextInt(12));
+                if (random.nextBoolean()) {
+                    breakRows.add(new Object[]{expertId, rowId, date, start, start.plusMinutes(30)});
+                    breaks.add(expertBreak(date, start, start.plusMinutes(30)));
+                } else {
+                    appointmentRows.add(new Object[]{expertId, rowId, date.atTime(start), 45});
+                    appointments.add(appointment(date.atTime(start), 45));
+                }
+                rowId++;
+            }
+            schedules.addAll(own);
+            for (LocalDateTime slot : new AvailabilityEngine(own, breaks, appointments)
+                    .findFreeSlots(TOMORROW, TOMORROW.plusDays(13), 60)) {
+                expected.add(new Expected(slot, expertId));
+            }
+        }
+        when(expertScheduleRepository.findAvailableSchedulesWithExpert(Role.EXPERT, User.Status.ACTIVE)).thenReturn(schedules);
+        when(expertBreakRepository.findBreakIntervalsBetween(any(), any())).thenReturn(breakRows);
+        when(appointmentRepository.findBusyIntervalsBetween(any(), any())).thenReturn(appointmentRows);
+
+        EarliestSlotResponse response = service.findSlots(request(TOMORROW, TOMORROW.plusDays(13), 25, "EARLIEST"));
+
+        // Brute force: every expert's slots, sorted by start then expert id
+        expected.sort(Comparator.comparing(Expected::start).thenComparingLong(Expected::expertId));
+        assertEquals(40, response.getExpertsSearched());
+        assertEquals(25, response.getSlots().size());
+        for (int i = 0; i < 25; i++) {
+            EarliestSlotResponse.ExpertSlot slot = response.getSlots().get(i);
+            assertEquals(expected.get(i).start(), slot.getStartTime(), "slot " + i);
+            assertEquals(expected.get(i).expertId(), slot.getExpertId(), "slot " + i);
+            assertEquals(slot.getStartTime().plusMinutes(60), slot.getEndTime());
+            assertEquals("ONLINE", slot.getConsultationType());
+        }
+    }
+
+    @Test
+    void findSlots_ShouldPreferTheTightestFreeWindowForBestFit() {
+        User loose = expert(1L);
+        User tight = expert(2L);
+        DayOfWeek day = TOMORROW.getDayOfWeek();
+        when(expertScheduleRepository.findAvailableSchedulesWithExpert(Role.EXPERT, User.Status.ACTIVE)).thenReturn(List.of(
+            schedule(1L, loose, day, LocalTime.of(8, 0), LocalTime.of(17, 0)),
+            schedule(2L, tight, day, LocalTime.of(8, 0), LocalTime.of(17, 0))));
+        // Expert 2 is free 09:00-10:30 between a break and an appointment, and from 11:30 on
+        when(expertBreakRepository.findBreakIntervalsBetween(any(), any())).thenReturn(List.<Object[]>of(
+            new Object[]{2L, 1L, TOMORROW, LocalTime.of(8, 0), LocalTime.of(9, 0)}));
+        when(appointmentRepository.findBusyIntervalsBetween(any(), any())).thenReturn(List.<Object[]>of(
+            new Object[]{2L, 1L, TOMORROW.atTime(10, 30), 60}));
+
+        EarliestSlotResponse response = service.findSlots(request(TOMORROW, TOMORROW, 2, "best_fit"));
+
+        assertEquals("BEST_FIT", response.getSort());
+        assertEquals(2L, response.getSlots().get(0).getExpertId());
+        assertEquals(TOMORROW.atTime(9, 15), response.getSlots().get(0).getStartTime());
+        assertEquals(90L, response.getSlots().get(0).getFreeMinutes());
+        assertTrue(response.getSlots().get(1).getFreeMinutes() >= 90L);
+    }
+
+    @Test
+    void findSlots_ShouldRejectInvalidRequests() {
+        assertThrows(RuntimeException.class,
+            () -> service.findSlots(request(TOMORROW, TOMORROW.plusDays(60), 5, "EARLIEST")));
+        assertThrows(RuntimeException.class,
+            () -> service.findSlots(request(TOMORROW, TOMORROW.minusDays(1), 5, "EARLIEST")));
+        assertThrows(RuntimeException.class,
+            () -> service.findSlots(request(TOMORROW, TOMORROW, 5, "RANDOM")));
+        verifyNoInteractions(expertScheduleRepository);
+    }
+
+    private static EarliestSlotRequest request(LocalDate from, LocalDate to, int limit, String sort) {
+        EarliestSlotRequest request = new EarliestSlotRequest();
+        request.setStartDate(from);
+        request.setEndDate(to);
+        request.setDurationMinutes(60);
+        request.setLimit(limit);
+        request.setSort(sort);
+        return request;
+    }
+
+    private static User expert(Long id) {
+        User expert = new User();
+        expert.setId(id);
+        expert.setFirstName("Expert");
+        expert.setLastName(String.valueOf(id));
+        return expert;
+    }
+
+    private static ExpertSchedule schedule(Long id, User expert, DayOfWeek day, LocalTime start, LocalTime end) {
+        ExpertSchedule schedule = new ExpertSchedule();
+        schedule.setId(id);
+        schedule.setExpert(expert);
+        schedule.setDayOfWeek(day);
+        schedule.setStartTime(start);
+        schedule.setEndTime(end);
+        schedule.setBreakDurationMinutes(15);
+        schedule.setIsAvailable(true);
+        return schedule;
+    }
+
+    private static ExpertBreak expertBreak(LocalDate date, LocalTime start, LocalTime end) {
+        ExpertBreak expertBreak = new ExpertBreak();
+        expertBreak.setBreakDate(date);
+        expertBreak.setStartTime(start);
+        expertBreak.setEndTime(end);
+        return expertBreak;
+    }
+
+    private static Appointment appointment(LocalDateTime start, int duration) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentDate(start);
+        appointment.setDurationMinutes(duration);
+        return appointment;
+    }
+}
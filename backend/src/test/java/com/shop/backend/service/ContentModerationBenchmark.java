@@ -0,0 +1,77 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regex-based checkContent vs. the Aho–Corasick matcher on short and long comments.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ *   mvn test -Dtest=ContentModerationBenchmark
+ */
+class ContentModerationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    private static final String SHORT_CLEAN = "Bài viết rất hay, cảm ơn tác giả đã chia sẻ!";
+
+    private static final String SHORT_FLAGGED = "Bài này dở quá, đm tác giả";
+
+    private static final String PARAGRAPH =
+        "Mình đã đọc bài này nhiều lần và thấy rất đồng cảm với những gì tác giả chia sẻ. "
+        + "Cuộc sống đôi khi thật khó khăn, nhưng việc nói chuyện với chuyên gia đã giúp mình rất nhiều. "
+        + "I have been feeling anxious lately and this article gave me a few ideas to try. ";
+
+    @Test
+    void compareLegacyAndAutomaton() {
+        LegacyContentModeration legacy = new LegacyContentModeration();
+        ContentModerationService automaton = new ContentModerationService();
+
+        String longClean = PARAGRAPH.repeat(20);
+        String longFlagged = PARAGRAPH.repeat(10) + "vcl thật sự, dit me may. " + PARAGRAPH.repeat(10);
+
+        System.out.printf("%-14s %8s %16s %16s %9s%n", "comment", "chars", "legacy ops/s", "automaton ops/s", "speedup");
+        run("short clean", SHORT_CLEAN, legacy::checkContent, automaton::checkContent);
+        run("short flagged", SHORT_FLAGGED, legacy::checkContent, automaton::checkContent);
+        run("long clean", longClean, legacy::checkContent, automaton::checkContent);
+        run("long flagged", longFlagged, legacy::checkContent, automaton::checkContent);
+    }
+
+    private void run(String name, String comment,
+                     Function<String, ContentModerationService.ModerationResult> legacy,
+                     Function<String, ContentModerationService.ModerationResult> automaton) {
+        assertEquals(legacy.apply(comment).getDetectedWords(), automaton.apply(comment).getDetectedWords());
+
+        double legacyOps = throughput(comment, legacy);
+        double automatonOps = throughput(comment, automaton);
+        System.out.printf("%-14s %8d %16.0f %16.0f %8.1fx%n",
+            name, comment.length(), legacyOps, automatonOps, automatonOps / legacyOps);
+    }
+
+    private double throughput(String comment, Function<String, ContentModerationService.ModerationResult> check) {
+        int sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            long until = System.nanoTime() + MEASURE_NANOS / 4;
+            while (System.nanoTime() < until) {
+                sink += check.apply(comment).getDetectedWords().size();
+            }
+        }
+
+        long operations = 0;
+        long startedAt = System.nanoTime();
+        long elapsed;
+        do {
+            sink += check.apply(comment).getDetectedWords().size();
+            operations++;
+            elapsed = System.nanoTime() - startedAt;
+        } while (elapsed < MEASURE_NANOS);
+
+        assertTrue(sink >= 0);
+        return operations * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,125 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentModerationServiceTest {
+
+    private static final String CORPUS = "/moderation/comments.txt";
+
+    private static LegacyContentModeration legacy;
+
+    private ContentModerationService contentModerationService;
+
+    @BeforeEach
+    void setUp() {
+        if (legacy == null) {
+            legacy = new LegacyContentModeration();
+        }
+        contentModerationService = new ContentModerationService();
+    }
+
+    @Test
+    void checkContent_ShouldMatchLegacyVerdicts_OnFixtureCorpus() throws IOException {
+        List<String> comments = loadCorpus();
+        assertFalse(comments.isEmpty());
+
+        int flagged = 0;
+        for (String comment : comments) {
+            if (assertSameVerdict(comment)) {
+                flagged++;
+            }
+        }
+        // The corpus must exercise both outcomes
+        assertTrue(flagged > 0 && flagged < comments.size());
+    }
+
+    @Test
+    void checkContent_ShouldMatchLegacyVerdicts_ForEveryDictionaryWord() {
+        Set<String> words = new TreeSet<>(legacy.getProfanityWords());
+        words.addAll(legacy.getRacistWords());
+
+        for (String word : words) {
+            assertSameVerdict(word);
+            assertSameVerdict("Bạn " + word + " quá!");
+            assertSameVerdict("ghét " + word.toUpperCase());
+            assertSameVerdict("x" + word + "x");
+        }
+    }
+
+    @Test
+    void checkContent_ShouldNotFlagWordsInsideLongerWords() {
+        assertFalse(contentModerationService.checkContent("Classic assessment of the class").isFlagged());
+        assertFalse(contentModerationService.checkContent("Cuộc sống vẫn tiếp diễn").isFlagged());
+    }
+
+    @Test
+    void checkContent_ShouldMapUnaccentedHitBackToDictionaryWord() {
+        ContentModerationService.ModerationResult result = contentModerationService.checkContent("dit me may");
+
+        assertTrue(result.isFlagged());
+        assertEquals(ContentModerationService.ViolationType.PROFANITY, result.getViolationType());
+        assertFalse(result.getDetectedWords().isEmpty());
+    }
+
+    @Test
+    void checkContent_ShouldFlagDecomposedVietnamese() {
+        String decomposed = Normalizer.normalize("đụ má nó", Normalizer.Form.NFD);
+
+        ContentModerationService.ModerationResult result = contentModerationService.checkContent(decomposed);
+
+        assertTrue(result.isFlagged());
+        assertEquals(ContentModerationService.ViolationType.PROFANITY, result.getViolationType());
+    }
+
+    @Test
+    void matcher_ShouldPreferEarlierKeywordAtSameStart() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("ab", "ab cd", "cd"));
+
+        List<AhoCorasickMatcher.Match> matches = matcher.findAll("ab cd, cd");
+
+        assertEquals(List.of(
+            new AhoCorasickMatcher.Match(0, 2, "ab"),
+            new AhoCorasickMatcher.Match(3, 5, "cd"),
+            new AhoCorasickMatcher.Match(7, 9, "cd")), matches);
+    }
+
+    private boolean assertSameVerdict(String comment) {
+        ContentModerationService.ModerationResult expected = legacy.checkContent(comment);
+        ContentModerationService.ModerationResult actual = contentModerationService.checkContent(comment);
+
+        assertEquals(expected.isFlagged(), actual.isFlagged(), () -> "flagged: " + comment);
+        assertEquals(expected.getViolationType(), actual.getViolationType(), () -> "type: " + comment);
+        assertEquals(expected.getDetectedWords(), actual.getDetectedWords(), () -> "words: " + comment);
+        assertEquals(expected.getReason(), actual.getReason(), () -> "reason: " + comment);
+        return actual.isFlagged();
+    }
+
+    private List<String> loadCorpus() throws IOException {
+        List<String> comments = new ArrayList<>();
+        try (InputStream in = getClass().getResourceAsStream(CORPUS)) {
+            assertNotNull(in, CORPUS);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    comments.add(line);
+                }
+            }
+        }
+        return comments;
+    }
+}
@@ -0,0 +1,179 @@
+package com.shop.backend.service;
+
+import com.shop.backend.BeanFixture;
+import com.shop.backend.model.EmailOutbox;
+import com.shop.backend.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FakeSmtpServer smtp;
+
+    private BeanFixture<EmailOutboxDispatcher> fixture;
+
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        smtp = new FakeSmtpServer();
+        startDispatcher(600);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+        smtp.close();
+    }
+
+    @Test
+    void dispatchBatch_ShouldSendTheWholeBatchOverOneConnection() {
+        List<EmailOutbox> batch = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            batch.add(email(id, "user" + id + "@example.com", "key-" + id));
+        }
+        due(batch);
+
+        assertEquals(5, dispatcher.dispatchBatch());
+
+        assertEquals(1, smtp.getConnections());
+        assertEquals(5, smtp.getMessages().size());
+        assertEquals(List.of("user3@example.com"), smtp.getMessages().get(2).recipients());
+        assertTrue(smtp.getMessages().get(0).data().contains("Subject: Subject 1"));
+        verify(emailOutboxRepository).markDone(eq(List.of(1L, 2L, 3L, 4L, 5L)), eq(EmailOutbox.Status.SENT), any());
+        verify(emailOutboxRepository, never()).markFailed(anyLong(), any(), anyInt(), any(), any());
+        assertEquals(5L, dispatcher.getStatistics().get("sent"));
+    }
+
+    @Test
+    void dispatchBatch_ShouldFailRejectedAddressesAndStillSendTheRest() {
+        smtp.rejectRecipient("gone@example.com");
+        due(List.of(
+            email(1L, "ok@example.com", null),
+            email(2L, "gone@example.com", null),
+            email(3L, "ok2@example.com", null)));
+
+        dispatcher.dispatchBatch();
+
+        assertEquals(1, smtp.getConnections());
+        assertEquals(2, smtp.getMessages().size());
+        verify(emailOutboxRepository).markDone(eq(List.of(1L, 3L)), eq(EmailOutbox.Status.SENT), any());
+        verify(emailOutboxRepository).markFailed(eq(2L), eq(EmailOutbox.Status.FAILED), eq(1), any(), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldRetryWithBackoffWhenTheServerIsDown() throws Exception {
+        smtp.close();
+        EmailOutbox first = email(1L, "a@example.com", null);
+        EmailOutbox last = email(2L, "b@example.com", null);
+        last.setAttempts(2);
+        due(List.of(first, last));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchBatch();
+
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(emailOutboxRepository).markFailed(eq(1L), eq(EmailOutbox.Status.PENDING), eq(1), nextAttempt.capture(), any());
+        assertFalse(nextAttempt.getValue().isBefore(before.plusSeconds(30)));
+        // Third attempt of three: give up
+        verify(emailOutboxRepository).markFailed(eq(2L), eq(EmailOutbox.Status.FAILED), eq(3), any(), any());
+        verify(emailOutboxRepository, never()).markDone(any(), any(), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldReleaseTheBatchUnsentWhenInterruptedWaitingForThePermit() {
+        fixture.close();
+        startDispatcher(1);
+        due(List.of(email(1L, "a@example.com", null), email(2L, "b@example.com", null)));
+
+        Thread.currentThread().interrupt();
+        dispatcher.dispatchBatch();
+
+        assertTrue(Thread.interrupted());
+        assertEquals(0, smtp.getMessages().size());
+        verify(emailOutboxRepository).release(List.of(1L, 2L), EmailOutbox.Status.PENDING);
+        verify(emailOutboxRepository, never()).markDone(any(), any(), any());
+    }
+
+    @Test
+    void backoffMillis_ShouldDoubleUpToTheCap() {
+        for (int attempts = 1; attempts <= 10; attempts++) {
+            long expected = Math.min(30_000L << (attempts - 1), 3_600_000L);
+            long delay = dispatcher.backoffMillis(attempts);
+            assertTrue(delay >= expected && delay <= expected + expected / 5, "attempt " + attempts + ": " + delay);
+        }
+    }
+
+    // Workers disabled: tests call dispatchBatch themselves
+    private void startDispatcher(int ratePerMinute) {
+        fixture = BeanFixture.of(EmailOutboxDispatcher.class)
+            .property("email.outbox.enabled", false)
+            .property("email.outbox.batch-size", 20)
+            .property("email.outbox.rate-per-minute", ratePerMinute)
+            .property("email.outbox.max-attempts", 3)
+            .property("email.outbox.retry-base-ms", 30_000L)
+            .property("email.outbox.retry-max-ms", 3_600_000L)
+            .property("email.outbox.lease-ms", 300_000L)
+            .with(EmailOutboxRepository.class, emailOutboxRepository)
+            .with(JavaMailSender.class, mailSender(smtp.getPort()))
+            .with(PlatformTransactionManager.class, transactionManager);
+        dispatcher = fixture.start();
+    }
+
+    private void due(List<EmailOutbox> batch) {
+        List<Long> ids = batch.stream().map(EmailOutbox::getId).toList();
+        when(emailOutboxRepository.findDueIds(any(), any())).thenReturn(ids);
+        when(emailOutboxRepository.claim(anyCollection(), any(), anyString(), any())).thenAnswer(invocation ->
+            ((Collection<?>) invocation.getArgument(0)).size());
+        when(emailOutboxRepository.findByClaimTokenAndStatus(anyString(), eq(EmailOutbox.Status.SENDING))).thenReturn(batch);
+    }
+
+    private static EmailOutbox email(Long id, String recipient, String dedupKey) {
+        EmailOutbox email = new EmailOutbox();
+        email.setId(id);
+        email.setRecipient(recipient);
+        email.setSubject("Subject " + id);
+        email.setHtmlBody("<p>Hello " + id + "</p>");
+        email.setDedupKey(dedupKey);
+        email.setStatus(EmailOutbox.Status.SENDING);
+        email.setNextAttemptAt(LocalDateTime.now());
+        return email;
+    }
+
+    private static JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(port);
+        sender.setDefaultEncoding("UTF-8");
+        Properties properties = sender.getJavaMailProperties();
+        properties.put("mail.smtp.from", "no-reply@mindmeter.test");
+        properties.put("mail.smtp.connectiontimeout", "2000");
+        properties.put("mail.smtp.timeout", "2000");
+        return sender;
+    }
+}
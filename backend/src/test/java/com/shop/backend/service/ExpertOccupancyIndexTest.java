@@ -0,0 +1,197 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.AppointmentRepository;
+import com.shop.backend.repository.ExpertBreakRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExpertOccupancyIndexTest {
+
+    private static final LocalDateTime TOMORROW_NINE = LocalDate.now().plusDays(1).atTime(9, 0);
+
+    private AppointmentRepository appointmentRepository;
+    private ExpertBreakRepository expertBreakRepository;
+    private ExpertOccupancyIndex index;
+    private final AtomicLong ids = new AtomicLong(1000);
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        expertBreakRepository = mock(ExpertBreakRepository.class);
+        when(appointmentRepository.findBusyIntervalsFrom(any(), any())).thenReturn(List.of());
+        when(expertBreakRepository.findBreakIntervalsFrom(any(), any())).thenReturn(List.of());
+        index = new ExpertOccupancyIndex(appointmentRepository, expertBreakRepository);
+    }
+
+    @Test
+    void book_ShouldRejectOverlapsWithExistingAppointmentsAndBreaks() {
+        when(appointmentRepository.findBusyIntervalsFrom(eq(1L), any())).thenReturn(List.<Object[]>of(
+            new Object[]{1L, 10L, TOMORROW_NINE, 60}));
+        when(expertBreakRepository.findBreakIntervalsFrom(eq(1L), any())).thenReturn(List.<Object[]>of(
+            new Object[]{1L, 20L, TOMORROW_NINE.toLocalDate(), LocalTime.of(12, 0), LocalTime.of(13, 0)}));
+
+        // Touches the 09:00-10:00 appointment
+        assertNull(index.book(1L, TOMORROW_NINE.plusHours(1), 30, this::newAppointment));
+        assertNotNull(index.book(1L, TOMORROW_NINE.plusMinutes(61), 30, this::newAppointment));
+        assertNull(index.book(1L, TOMORROW_NINE.plusMinutes(170), 20, this::newAppointment));
+        // Ends exactly when the break starts
+        assertNotNull(index.book(1L, TOMORROW_NINE.plusMinutes(150), 30, this::newAppointment));
+        assertThrows(IllegalArgumentException.class,
+            () -> index.book(1L, LocalDateTime.now().minusDays(3), 30, this::newAppointment));
+    }
+
+    @Test
+    void book_ShouldFreeTheSlotWhenTheTransactionRollsBackOrTheAppointmentIsCancelled() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertNotNull(index.book(1L, TOMORROW_NINE, 60, this::newAppointment));
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Appointment booked = index.book(1L, TOMORROW_NINE, 60, this::newAppointment);
+        assertNotNull(booked);
+        assertFalse(index.isFree(1L, TOMORROW_NINE.plusMinutes(30), 60));
+
+        booked.setExpert(expert(1L));
+        booked.setStatus(Appointment.AppointmentStatus.CANCELLED);
+        index.release(booked);
+        assertTrue(index.isFree(1L, TOMORROW_NINE, 60));
+    }
+
+    @Test
+    void trackBreak_ShouldApplyAfterCommit() {
+        ExpertBreak expertBreak = new ExpertBreak();
+        expertBreak.setId(5L);
+        expertBreak.setExpert(expert(1L));
+        expertBreak.setBreakDate(TOMORROW_NINE.toLocalDate());
+        expertBreak.setStartTime(LocalTime.of(9, 0));
+        expertBreak.setEndTime(LocalTime.of(10, 0));
+        assertTrue(index.isFree(1L, TOMORROW_NINE, 60));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.trackBreak(expertBreak);
+            assertTrue(index.isFree(1L, TOMORROW_NINE, 60));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertFalse(index.isFree(1L, TOMORROW_NINE, 60));
+
+        index.releaseBreak(expertBreak);
+        assertTrue(index.isFree(1L, TOMORROW_NINE, 60));
+    }
+
+    @Test
+    void prune_ShouldDropIntervalsThatEndedBeforeYesterday() {
+        LocalDateTime lastWeek = TOMORROW_NINE.minusDays(8);
+        when(appointmentRepository.findBusyIntervalsFrom(eq(1L), any())).thenReturn(List.<Object[]>of(
+            new Object[]{1L, 10L, lastWeek, 60},
+            new Object[]{1L, 11L, TOMORROW_NINE, 60}));
+        assertFalse(index.isFree(1L, lastWeek, 30));
+
+        index.prune();
+
+        assertTrue(index.isFree(1L, lastWeek, 30));
+        assertFalse(index.isFree(1L, TOMORROW_NINE, 30));
+    }
+
+    @Test
+    void concurrentBookings_ShouldNeverDoubleBook() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 2_000;
+        long[] experts = {1L, 2L, 3L, 65L};
+        Map<Long, List<Appointment>> booked = new ConcurrentHashMap<>();
+        for (long expertId : experts) {
+            booked.put(expertId, Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    long expertId = experts[random.nextInt(experts.length)];
+                    // Few distinct slots so threads keep colliding
+                    LocalDateTime slot = TOMORROW_NINE.plusMinutes(15L * random.nextInt(64));
+                    int duration = 15 + 15 * random.nextInt(4);
+                    index.book(expertId, slot, duration, () -> {
+                        Appointment appointment = newAppointment();
+                        appointment.setAppointmentDate(slot);
+                        appointment.setDurationMinutes(duration);
+                        // Widen the race window between the check and the insert
+                        Thread.yield();
+                        booked.get(expertId).add(appointment);
+                        return appointment;
+                    });
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int total = 0;
+        for (List<Appointment> appointments : booked.values()) {
+            List<Appointment> sorted = new ArrayList<>(appointments);
+            sorted.sort((a, b) -> a.getAppointmentDate().compareTo(b.getAppointmentDate()));
+            for (int i = 1; i < sorted.size(); i++) {
+                LocalDateTime previousEnd = sorted.get(i - 1).getAppointmentDate()
+                    .plusMinutes(sorted.get(i - 1).getDurationMinutes());
+                assertTrue(sorted.get(i).getAppointmentDate().isAfter(previousEnd),
+                    "double booking: " + sorted.get(i - 1).getAppointmentDate() + " and " + sorted.get(i).getAppointmentDate());
+            }
+            total += sorted.size();
+        }
+        assertTrue(total > experts.length, "nothing was booked");
+    }
+
+    private Appointment newAppointment() {
+        Appointment appointment = new Appointment();
+        appointment.setId(ids.incrementAndGet());
+        return appointment;
+    }
+
+    private static User expert(Long id) {
+        User expert = new User();
+        expert.setId(id);
+        return expert;
+    }
+
+    private static void complete(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(status));
+    }
+}
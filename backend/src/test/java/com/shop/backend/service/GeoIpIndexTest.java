@@ -0,0 +1,113 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoIpIndexTest {
+
+    private static final List<String> FIXTURE = List.of(
+        "# start,end,country",
+        "1.0.0.0,1.0.0.255,AU",
+        "\"16777472\",\"16778239\",\"CN\",\"China\"",
+        "14.160.0.0,14.191.255.255,VN",
+        "8.8.8.0,8.8.8.255,US",
+        "223.255.255.0,255.255.255.255,-",
+        "2001:ee0::,2001:ee0:ffff:ffff:ffff:ffff:ffff:ffff,vn",
+        "2a00:1450::,2a00:1450:ffff:ffff:ffff:ffff:ffff:ffff,IE"
+    );
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void country_ShouldFindTheRangeHoldingTheAddress() throws IOException {
+        GeoIpIndex index = GeoIpIndex.open(write("ranges.csv", FIXTURE));
+
+        assertEquals(4, index.getIpv4Ranges());
+        assertEquals(2, index.getIpv6Ranges());
+        assertEquals("AU", country(index, "1.0.0.0"));
+        assertEquals("AU", country(index, "1.0.0.255"));
+        // Decimal, quoted and with an extra column: 1.0.1.0-1.0.3.255
+        assertEquals("CN", country(index, "1.0.1.0"));
+        assertEquals("CN", country(index, "1.0.3.255"));
+        assertNull(country(index, "1.0.4.0"));
+        assertEquals("VN", country(index, "14.170.1.2"));
+        assertEquals("US", country(index, "::ffff:8.8.8.8"));
+        assertNull(country(index, "0.255.255.255"));
+        // Ranges without a country are left out
+        assertNull(country(index, "255.255.255.255"));
+
+        assertEquals("VN", country(index, "2001:ee0:1::1"));
+        assertEquals("IE", country(index, "2a00:1450:4001::200e"));
+        assertNull(country(index, "2a00:1451::1"));
+        assertNull(country(index, "::1"));
+    }
+
+    @Test
+    void open_ShouldMapACompiledIndexAsIs() throws IOException {
+        Path compiled = dir.resolve("ranges.idx");
+        GeoIpIndex.compile(write("ranges.csv", FIXTURE), compiled);
+
+        GeoIpIndex index = GeoIpIndex.open(compiled);
+        assertEquals(16 + 4 * 10 + 2 * 34, index.getSizeBytes());
+        assertEquals("VN", country(index, "14.160.0.1"));
+        assertEquals("IE", country(index, "2a00:1450::1"));
+    }
+
+    @Test
+    void compile_ShouldRejectOverlappingOrInvalidRanges() throws IOException {
+        Path overlapping = write("overlap.csv", List.of("10.0.0.0,10.0.0.255,US", "10.0.0.128,10.0.1.0,VN"));
+        IOException overlap = assertThrows(IOException.class, () -> GeoIpIndex.open(overlapping));
+        assertTrue(overlap.getMessage().contains("overlaps"));
+
+        Path invalid = write("invalid.csv", List.of("10.0.0.0,example.com,US"));
+        assertThrows(IOException.class, () -> GeoIpIndex.open(invalid));
+    }
+
+    @Test
+    void service_ShouldSwapInANewFileAndKeepTheOldOneIfItIsBroken() throws IOException {
+        Path database = write("geoip.csv", List.of("8.8.8.0,8.8.8.255,US"));
+        GeoIpService service = new GeoIpService();
+        ReflectionTestUtils.setField(service, "databasePath", database.toString());
+        assertTrue(service.reloadIfChanged());
+        assertFalse(service.reloadIfChanged());
+        assertEquals("US", country(service, "8.8.8.8"));
+
+        Path update = write("geoip.csv.new", List.of("8.8.8.0,8.8.8.255,CA"));
+        Files.setLastModifiedTime(update, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        Files.move(update, database, StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(service.reloadIfChanged());
+        assertEquals("CA", country(service, "8.8.8.8"));
+
+        Files.write(database, List.of("not,a,US"));
+        Files.setLastModifiedTime(database, FileTime.fromMillis(System.currentTimeMillis() + 120_000));
+        assertFalse(service.reloadIfChanged());
+        assertEquals("CA", country(service, "8.8.8.8"));
+    }
+
+    private Path write(String name, List<String> lines) throws IOException {
+        return Files.write(dir.resolve(name), lines);
+    }
+
+    private static String country(GeoIpIndex index, String ip) {
+        long[] address = new long[2];
+        int bits = IpPrefixTrie.parse(ip, address);
+        return index.country(address[0], address[1], bits);
+    }
+
+    private static String country(GeoIpService service, String ip) {
+        long[] address = new long[2];
+        int bits = IpPrefixTrie.parse(ip, address);
+        return service.getCountry(address[0], address[1], bits);
+    }
+}
@@ -0,0 +1,111 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Country lookups in a GeoIP index about the size of a full country database
+ * (3M IPv4 ranges, 500k IPv6 ranges), as nanoseconds per lookup on pre-parsed
+ * addresses and including the parse of the address string.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ *   mvn test -Dtest=GeoIpLookupBenchmark -Dbenchmark.ranges=3000000
+ */
+class GeoIpLookupBenchmark {
+
+    private static final String[] COUNTRIES = {"VN", "US", "GB", "CN", "RU", "DE", "JP", "SG"};
+
+    private static final long MEASURE_NANOS = 3_000_000_000L;
+
+    @Test
+    void lookupLatency() throws Exception {
+        int ipv4Ranges = Integer.getInteger("benchmark.ranges", 3_000_000);
+        int ipv6Ranges = ipv4Ranges / 6;
+        Path csv = Files.createTempFile("geoip-benchmark", ".csv");
+        try {
+            writeRanges(csv, ipv4Ranges, ipv6Ranges);
+
+            System.gc();
+            long heapBefore = usedHeap();
+            long startedAt = System.nanoTime();
+            GeoIpIndex index = GeoIpIndex.open(csv);
+            long openMillis = (System.nanoTime() - startedAt) / 1_000_000;
+            System.gc();
+            System.out.printf("compiled and mapped %d + %d ranges in %d ms: %d MB file, ~%d MB heap%n",
+                index.getIpv4Ranges(), index.getIpv6Ranges(), openMillis,
+                index.getSizeBytes() >> 20, Math.max(0, usedHeap() - heapBefore) >> 20);
+
+            Random random = new Random(42);
+            long[] his = new long[1 << 16];
+            String[] texts = new String[his.length];
+            for (int i = 0; i < his.length; i++) {
+                int address = random.nextInt();
+                his[i] = (long) address << 32;
+                texts[i] = (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+            }
+
+            // Warm up both paths
+            measure(index, his, texts, false);
+            measure(index, his, texts, true);
+            System.out.printf("%-24s %10.1f ns/lookup%n", "pre-parsed IPv4", measure(index, his, texts, false));
+            System.out.printf("%-24s %10.1f ns/lookup%n", "parse + lookup IPv4", measure(index, his, texts, true));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    private static double measure(GeoIpIndex index, long[] his, String[] texts, boolean parse) {
+        long[] address = new long[2];
+        long found = 0;
+        long lookups = 0;
+        long startedAt = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < his.length; i++) {
+                String country;
+                if (parse) {
+                    int bits = IpPrefixTrie.parse(texts[i], address);
+                    country = index.country(address[0], address[1], bits);
+                } else {
+                    country = index.country(his[i], 0, 32);
+                }
+                found += country != null ? 1 : 0;
+            }
+            lookups += his.length;
+            elapsed = System.nanoTime() - startedAt;
+        } while (elapsed < MEASURE_NANOS);
+        assertTrue(found > 0);
+        return (double) elapsed / lookups;
+    }
+
+    /**
+     * Contiguous IPv4 ranges over the whole space with small gaps, and IPv6 ranges under 2000::/3
+     */
+    private static void writeRanges(Path csv, int ipv4Ranges, int ipv6Ranges) throws Exception {
+        long step = (1L << 32) / ipv4Ranges;
+        try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+            for (int i = 0; i < ipv4Ranges; i++) {
+                long start = i * step;
+                long end = start + step - 1 - (i % 16 == 0 ? 1 : 0);
+                out.write(start + "," + end + "," + COUNTRIES[i % COUNTRIES.length]);
+                out.newLine();
+            }
+            for (int i = 0; i < ipv6Ranges; i++) {
+                out.write(String.format("2%03x:%04x::,2%03x:%04x:ffff:ffff:ffff:ffff:ffff:ffff,%s",
+                    i >>> 16, i & 0xFFFF, i >>> 16, i & 0xFFFF, COUNTRIES[i % COUNTRIES.length]));
+                out.newLine();
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
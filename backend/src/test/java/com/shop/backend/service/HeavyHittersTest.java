@@ -0,0 +1,109 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTest {
+
+    @Test
+    void top_ShouldFindHeavyKeysAmongMillionsOfDistinctKeys() {
+        HeavyHitters sketch = new HeavyHitters(2048, 4, 64);
+        long[] heavy = {50_000, 25_000, 20_000, 10_000, 5_000};
+
+        // Heavy keys interleaved with one million one-off keys (a scan)
+        int noise = 1_000_000;
+        for (int i = 0; i < noise; i++) {
+            sketch.add("10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF));
+            for (int h = 0; h < heavy.length; h++) {
+                if (i % (noise / heavy[h]) == 0) {
+                    sketch.add("203.0.113." + h);
+                }
+            }
+        }
+
+        List<HeavyHitters.Estimate> top = sketch.top(5);
+        long error = sketch.errorBound();
+        assertEquals(5, top.size());
+        for (int h = 0; h < heavy.length; h++) {
+            HeavyHitters.Estimate estimate = top.get(h);
+            assertEquals("203.0.113." + h, estimate.key());
+            assertTrue(estimate.count() >= heavy[h], estimate.toString());
+            assertTrue(estimate.count() <= heavy[h] + error, estimate.toString());
+            assertTrue(estimate.lowerBound() <= heavy[h]);
+        }
+        assertEquals(noise + 110_000, sketch.total());
+        assertTrue(sketch.trackedKeys() <= 64);
+    }
+
+    @Test
+    void estimate_ShouldNeverUndercount() {
+        HeavyHitters sketch = new HeavyHitters(64, 4, 8);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("key-" + (i % 100), i % 7 + 1);
+        }
+        for (int k = 0; k < 100; k++) {
+            long exact = 0;
+            for (int i = k; i < 1000; i += 100) {
+                exact += i % 7 + 1;
+            }
+            assertTrue(sketch.estimate("key-" + k) >= exact);
+        }
+        assertEquals(8, sketch.trackedKeys());
+    }
+
+    @Test
+    void trackedKeys_ShouldCountDistinctKeysBelowCapacity() {
+        HeavyHitters sketch = new HeavyHitters(2048, 4, 64);
+        for (int i = 0; i < 30; i++) {
+            sketch.add("192.0.2." + (i % 12));
+        }
+        assertEquals(12, sketch.trackedKeys());
+
+        sketch.clear();
+        assertEquals(0, sketch.trackedKeys());
+        assertEquals(0, sketch.total());
+        assertEquals(0, sketch.estimate("192.0.2.1"));
+    }
+
+    @Test
+    void add_ShouldCountExactlyUnderContention() throws Exception {
+        HeavyHitters sketch = new HeavyHitters(2048, 4, 16);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        sketch.add("/api/hot");
+                        sketch.add("/api/cold/" + thread + "/" + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(320_000, sketch.total());
+        HeavyHitters.Estimate hottest = sketch.top(1).get(0);
+        assertEquals("/api/hot", hottest.key());
+        assertTrue(hottest.count() >= 160_000 && hottest.count() <= 160_000 + sketch.errorBound());
+        assertTrue(sketch.trackedKeys() <= 16);
+    }
+}
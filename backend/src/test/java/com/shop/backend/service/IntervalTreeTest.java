@@ -0,0 +1,82 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    private record Entry(long start, long end, long id, boolean closed) {
+
+        boolean conflicts(long from, long to) {
+            return closed ? start <= to && end >= from : start < to && end > from;
+        }
+    }
+
+    @Test
+    void overlaps_ShouldTreatClosedIntervalsAsTouchingAndOpenOnesAsNot() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(100, 200, 1, true);
+        tree.insert(300, 400, -1, false);
+
+        assertTrue(tree.overlaps(50, 100));
+        assertTrue(tree.overlaps(200, 250));
+        assertFalse(tree.overlaps(201, 299));
+        assertFalse(tree.overlaps(250, 300));
+        assertFalse(tree.overlaps(400, 450));
+        assertTrue(tree.overlaps(399, 450));
+
+        assertTrue(tree.remove(1));
+        assertFalse(tree.remove(1));
+        assertFalse(tree.overlaps(50, 250));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void removeEndingBefore_ShouldDropOnlyIntervalsThatEnded() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(100, 200, 1, true);
+        tree.insert(150, 400, 2, true);
+        tree.insert(250, 300, -3, false);
+        tree.insert(500, 600, 4, true);
+
+        assertEquals(2, tree.removeEndingBefore(350));
+
+        assertEquals(2, tree.size());
+        assertTrue(tree.contains(2));
+        assertTrue(tree.contains(4));
+        assertFalse(tree.overlaps(100, 140));
+        assertEquals(0, tree.removeEndingBefore(350));
+    }
+
+    @Test
+    void overlaps_ShouldMatchAScanOfAllIntervals() {
+        Random random = new Random(7);
+        IntervalTree tree = new IntervalTree();
+        List<Entry> entries = new ArrayList<>();
+        long nextId = 1;
+
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 4 || entries.isEmpty()) {
+                long start = random.nextInt(10_000);
+                Entry entry = new Entry(start, start + 1 + random.nextInt(300), nextId++, random.nextBoolean());
+                tree.insert(entry.start(), entry.end(), entry.id(), entry.closed());
+                entries.add(entry);
+            } else if (action < 6) {
+                Entry removed = entries.remove(random.nextInt(entries.size()));
+                assertTrue(tree.remove(removed.id()));
+            } else {
+                long from = random.nextInt(10_300);
+                long to = from + random.nextInt(200);
+                boolean expected = entries.stream().anyMatch(e -> e.conflicts(from, to));
+                assertEquals(expected, tree.overlaps(from, to), "step " + step + ": [" + from + ", " + to + "]");
+            }
+            assertEquals(entries.size(), tree.size());
+        }
+    }
+}
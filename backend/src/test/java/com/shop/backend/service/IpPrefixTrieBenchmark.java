@@ -0,0 +1,186 @@
+package com.shop.backend.service;
+
+import com.shop.backend.service.IpPrefixTrie.Prefix;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups against one million prefixes (90% IPv4 /16-/32, 10% IPv6 /32-/64):
+ * the old exact-match path (split, InetAddress, startsWith chain, set lookup) vs.
+ * parse + trie walk, single-threaded and one thread per core, the latter while an
+ * admin thread keeps publishing copy-on-write updates.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ *   mvn test -Dtest=IpPrefixTrieBenchmark -Dbenchmark.prefixes=1000000
+ */
+class IpPrefixTrieBenchmark {
+
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+
+    private static final long MEASURE_NANOS = 3_000_000_000L;
+
+    private static final ThreadLocal<long[]> ADDRESS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private volatile IpPrefixTrie trie = IpPrefixTrie.EMPTY;
+
+    @Test
+    void lookupAtOneMillionPrefixes() throws Exception {
+        int count = Integer.getInteger("benchmark.prefixes", 1_000_000);
+        Random random = new Random(42);
+        List<Prefix> prefixes = new ArrayList<>(count);
+        Set<String> exact = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < count; i++) {
+            Prefix prefix = i % 10 == 9 ? randomIpv6(random) : randomIpv4(random);
+            prefixes.add(prefix);
+            exact.add(prefix.toString().replaceAll("/.*", ""));
+        }
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long startedAt = System.nanoTime();
+        IpPrefixTrie built = IpPrefixTrie.EMPTY;
+        for (Prefix prefix : prefixes) {
+            built = built.with(prefix, 1);
+        }
+        trie = built;
+        long buildMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        System.gc();
+        System.out.printf("built %d prefixes in %d ms, ~%d MB heap%n",
+            count, buildMillis, (usedHeap() - heapBefore) >> 20);
+
+        // Half the probes fall inside a stored prefix
+        String[] probes = new String[100_000];
+        for (int i = 0; i < probes.length; i++) {
+            Prefix prefix = i % 2 == 0 ? prefixes.get(random.nextInt(count)) : randomIpv4(random);
+            probes[i] = prefix.toString().replaceAll("/.*", "");
+        }
+        int hits = 0;
+        for (String probe : probes) {
+            hits += lookup(probe) > 0 ? 1 : 0;
+        }
+        assertTrue(hits >= probes.length / 2);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-8s %16s %16s %9s%n", "threads", "legacy ops/s", "trie ops/s", "speedup");
+        for (int threads : new int[] {1, cores}) {
+            double legacyOps = throughput(threads, probes, ip -> legacyLookup(exact, ip) ? 1 : 0);
+            AtomicBoolean running = new AtomicBoolean(threads > 1);
+            Thread admin = new Thread(() -> {
+                Random updates = new Random(7);
+                while (running.get()) {
+                    trie = trie.with(randomIpv4(updates), 2);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            admin.start();
+            double trieOps = throughput(threads, probes, this::lookup);
+            running.set(false);
+            admin.join();
+            System.out.printf("%-8d %16.0f %16.0f %8.1fx%n", threads, legacyOps, trieOps, trieOps / legacyOps);
+        }
+    }
+
+    private int lookup(String ip) {
+        long[] address = ADDRESS.get();
+        int bits = IpPrefixTrie.parse(ip, address);
+        return bits == IpPrefixTrie.INVALID ? -1 : trie.match(address[0], address[1], bits);
+    }
+
+    /**
+     * The steps the old IpFilteringService took, exact matches only
+     */
+    private static boolean legacyLookup(Set<String> exact, String ip) {
+        String cleanIp = ip.split(":")[0].trim();
+        try {
+            InetAddress.getByName(cleanIp);
+        } catch (UnknownHostException e) {
+            return true;
+        }
+        if (cleanIp.equals("127.0.0.1") || cleanIp.startsWith("192.168.") || cleanIp.startsWith("10.")) {
+            return false;
+        }
+        for (int second = 16; second <= 31; second++) {
+            if (cleanIp.startsWith("172." + second + ".")) {
+                return false;
+            }
+        }
+        return exact.contains(cleanIp);
+    }
+
+    private static Prefix randomIpv4(Random random) {
+        int address = random.nextInt();
+        int length = 16 + random.nextInt(17);
+        return Prefix.parse((address >>> 24) + "." + (address >>> 16 & 0xFF) + "."
+            + (address >>> 8 & 0xFF) + "." + (address & 0xFF) + "/" + length);
+    }
+
+    private static Prefix randomIpv6(Random random) {
+        long hi = 0x2000_0000_0000_0000L | (random.nextLong() >>> 4);
+        int length = 32 + random.nextInt(33);
+        return Prefix.parse(new Prefix(hi, random.nextLong(), 128, true) + "/" + length);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double throughput(int threads, String[] ips, ToIntFunction<String> check) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long sink = 0;
+                    long warmUntil = System.nanoTime() + WARMUP_NANOS;
+                    while (System.nanoTime() < warmUntil) {
+                        sink += check.applyAsInt(ips[random.nextInt(ips.length)]);
+                    }
+
+                    long operations = 0;
+                    long startedAt = System.nanoTime();
+                    long elapsed;
+                    do {
+                        sink += check.applyAsInt(ips[random.nextInt(ips.length)]);
+                        operations++;
+                        elapsed = System.nanoTime() - startedAt;
+                    } while (elapsed < MEASURE_NANOS);
+                    return new long[] {operations, elapsed, sink};
+                }));
+            }
+            start.countDown();
+
+            double opsPerSecond = 0;
+            for (Future<long[]> result : results) {
+                long[] measured = result.get();
+                opsPerSecond += measured[0] * 1e9 / measured[1];
+            }
+            return opsPerSecond;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.shop.backend.service;
+
+import com.shop.backend.service.IpPrefixTrie.Prefix;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpPrefixTrieTest {
+
+    private static final int BLOCK = 1;
+    private static final int ALLOW = 2;
+
+    @Test
+    void parse_ShouldAgreeWithInetAddressForLiterals() throws Exception {
+        String[] literals = {
+            "8.8.8.8", "0.0.0.0", "255.255.255.255", "::", "::1", "1::", "2001:db8::1",
+            "1:2:3:4:5:6:7:8", "1:2:3:4:5:6:7::", "::2:3:4:5:6:7:8", "ABCD:ef01::9", "1:2:3:4:5:6:1.2.3.4"
+        };
+        long[] address = new long[2];
+        for (String literal : literals) {
+            byte[] bytes = InetAddress.getByName(literal).getAddress();
+            assertEquals(bytes.length * 8, IpPrefixTrie.parse(literal, address), literal);
+            long hi = 0;
+            long lo = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (i < 8) {
+                    hi = (hi << 8) | (bytes[i] & 0xFF);
+                } else {
+                    lo = (lo << 8) | (bytes[i] & 0xFF);
+                }
+            }
+            if (bytes.length == 4) {
+                hi <<= 32;
+            }
+            assertEquals(hi, address[0], literal);
+            assertEquals(lo, address[1], literal);
+        }
+    }
+
+    @Test
+    void parse_ShouldStripPortsBracketsAndZones() {
+        long[] address = new long[2];
+        assertEquals(32, IpPrefixTrie.parse(" 203.0.113.9:8080 ", address));
+        assertEquals(0xCB00_7109L << 32, address[0]);
+        assertEquals(128, IpPrefixTrie.parse("[2001:db8::1]:443", address));
+        assertEquals(128, IpPrefixTrie.parse("fe80::1%eth0", address));
+        // IPv4-mapped addresses are matched as IPv4
+        assertEquals(32, IpPrefixTrie.parse("::ffff:203.0.113.9", address));
+        assertEquals(0xCB00_7109L << 32, address[0]);
+    }
+
+    @Test
+    void parse_ShouldRejectNonLiteralsWithoutResolving() {
+        String[] invalid = {
+            null, "", " ", "localhost", "example.com", "1.2.3", "1.2.3.4.5", "256.1.1.1", ":", "1:2",
+            "1:::2", "1::2::3", ":1::", "1::2:", "12345::", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::",
+            "1:2:3:4:5:6:7:1.2.3.4", "[::1"
+        };
+        long[] address = new long[2];
+        for (String ip : invalid) {
+            assertEquals(IpPrefixTrie.INVALID, IpPrefixTrie.parse(ip, address), ip);
+        }
+    }
+
+    @Test
+    void prefix_ShouldNormalizeToCanonicalCidr() {
+        assertEquals("10.0.0.0/8", Prefix.parse("10.1.2.3/8").toString());
+        assertEquals("203.0.113.9", Prefix.parse("203.0.113.9/32").toString());
+        assertEquals("2001:db8::/32", Prefix.parse("2001:0DB8:0:0::/32").toString());
+        assertEquals("2001:db8::1:0:0:1", Prefix.parse("2001:db8:0:0:1:0:0:1").toString());
+        assertEquals("::/0", Prefix.parse("::/0").toString());
+        assertNull(Prefix.parse("10.0.0.0/33"));
+        assertNull(Prefix.parse("10.0.0.0/x"));
+        assertNull(Prefix.parse("example.com/24"));
+    }
+
+    @Test
+    void match_ShouldCombineFlagsOfAllContainingPrefixes() {
+        IpPrefixTrie trie = IpPrefixTrie.EMPTY
+            .with(Prefix.parse("10.0.0.0/8"), BLOCK)
+            .with(Prefix.parse("10.1.0.0/16"), ALLOW)
+            .with(Prefix.parse("10.1.2.3"), BLOCK)
+            .with(Prefix.parse("2001:db8::/32"), BLOCK);
+
+        assertEquals(BLOCK, match(trie, "10.200.0.1"));
+        assertEquals(BLOCK | ALLOW, match(trie, "10.1.9.9"));
+        assertEquals(BLOCK | ALLOW, match(trie, "10.1.2.3"));
+        assertEquals(0, match(trie, "11.0.0.1"));
+        assertEquals(BLOCK, match(trie, "2001:db8:ffff::1"));
+        assertEquals(0, match(trie, "2001:db9::1"));
+        // IPv4 prefixes never match IPv6 addresses with the same leading bits
+        assertEquals(0, match(trie, "a00::1"));
+    }
+
+    @Test
+    void without_ShouldOnlyClearTheExactPrefix() {
+        IpPrefixTrie trie = IpPrefixTrie.EMPTY
+            .with(Prefix.parse("192.0.2.0/24"), BLOCK)
+            .with(Prefix.parse("192.0.2.128/25"), BLOCK | ALLOW);
+
+        IpPrefixTrie updated = trie.without(Prefix.parse("192.0.2.128/25"), BLOCK);
+        assertEquals(BLOCK | ALLOW, match(updated, "192.0.2.200"));
+        updated = updated.without(Prefix.parse("192.0.2.128/25"), ALLOW);
+        assertEquals(BLOCK, match(updated, "192.0.2.200"));
+        updated = updated.without(Prefix.parse("192.0.2.0/24"), BLOCK);
+        assertEquals(0, match(updated, "192.0.2.1"));
+
+        // Removing something absent returns the same trie
+        assertSame(updated, updated.without(Prefix.parse("198.51.100.0/24"), BLOCK));
+    }
+
+    @Test
+    void updates_ShouldLeaveEarlierSnapshotsUnchanged() {
+        IpPrefixTrie before = IpPrefixTrie.EMPTY.with(Prefix.parse("198.51.100.0/24"), BLOCK);
+        IpPrefixTrie after = before
+            .with(Prefix.parse("198.51.100.7"), ALLOW)
+            .without(Prefix.parse("198.51.100.0/24"), BLOCK);
+
+        assertEquals(BLOCK, match(before, "198.51.100.7"));
+        assertEquals(ALLOW, match(after, "198.51.100.7"));
+        assertEquals(0, match(after, "198.51.100.8"));
+    }
+
+    private static int match(IpPrefixTrie trie, String ip) {
+        long[] address = new long[2];
+        int bits = IpPrefixTrie.parse(ip, address);
+        assertNotEquals(IpPrefixTrie.INVALID, bits, ip);
+        return trie.match(address[0], address[1], bits);
+    }
+}
@@ -0,0 +1,127 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.Appointment;
+import com.shop.backend.model.ExpertBreak;
+import com.shop.backend.model.ExpertSchedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The per-day, per-slot findAvailableSlots / isTimeSlotAvailable that
+ * AppointmentService used before AvailabilityEngine, kept as the reference for
+ * the differential test. Loops and checks are verbatim; each repository call is
+ * replaced by the same filter over in-memory lists.
+ */
+class LegacyAvailableSlots {
+
+    private final List<ExpertSchedule> schedules;
+    private final List<ExpertBreak> breaks;
+    private final List<Appointment> appointments;
+
+    LegacyAvailableSlots(List<ExpertSchedule> schedules, List<ExpertBreak> breaks, List<Appointment> appointments) {
+        this.schedules = schedules;
+        this.breaks = breaks;
+        this.appointments = appointments;
+    }
+
+    List<LocalDateTime> findAvailableSlots(LocalDate startDate, LocalDate endDate, int durationMinutes) {
+        List<LocalDateTime> availableSlots = new ArrayList<>();
+
+        LocalDate currentDate = startDate;
+
+        while (!currentDate.isAfter(endDate)) {
+            DayOfWeek dayOfWeek = currentDate.getDayOfWeek();
+
+            Optional<ExpertSchedule> schedule = findByDayOfWeekAndIsAvailable(dayOfWeek);
+
+            if (schedule.isPresent()) {
+                ExpertSchedule expertSchedule = schedule.get();
+                LocalTime startTime = expertSchedule.getStartTime();
+                LocalTime endTime = expertSchedule.getEndTime();
+
+                LocalTime currentTime = startTime;
+                while (currentTime.plusMinutes(durationMinutes).isBefore(endTime) ||
+                       currentTime.plusMinutes(durationMinutes).equals(endTime)) {
+
+                    LocalDateTime slotStart = LocalDateTime.of(currentDate, currentTime);
+
+                    if (isTimeSlotAvailable(slotStart, durationMinutes)) {
+                        availableSlots.add(slotStart);
+                    }
+
+                    int breakDuration = expertSchedule.getBreakDurationMinutes() != null
+                        ? expertSchedule.getBreakDurationMinutes()
+                        : 15;
+                    currentTime = currentTime.plusMinutes(durationMinutes + breakDuration);
+                }
+            }
+
+            currentDate = currentDate.plusDays(1);
+        }
+
+        return availableSlots;
+    }
+
+    private boolean isTimeSlotAvailable(LocalDateTime startTime, Integer durationMinutes) {
+        LocalDateTime endTime = startTime.plusMinutes(durationMinutes);
+
+        LocalDate appointmentDate = startTime.toLocalDate();
+        LocalDateTime dayStart = appointmentDate.atStartOfDay();
+        LocalDateTime dayEnd = appointmentDate.atTime(23, 59, 59);
+
+        List<Appointment> existingAppointments = findByAppointmentDateBetween(dayStart, dayEnd);
+
+        for (Appointment existing : existingAppointments) {
+            if (existing.getStatus() == Appointment.AppointmentStatus.CANCELLED ||
+                existing.getStatus() == Appointment.AppointmentStatus.NO_SHOW) {
+                continue;
+            }
+
+            LocalDateTime existingStart = existing.getAppointmentDate();
+            LocalDateTime existingEnd = existingStart.plusMinutes(existing.getDurationMinutes());
+
+            if (!(endTime.isBefore(existingStart) || startTime.isAfter(existingEnd))) {
+                return false;
+            }
+        }
+
+        LocalDate breakDate = startTime.toLocalDate();
+        LocalTime startTimeOfDay = startTime.toLocalTime();
+        LocalTime endTimeOfDay = endTime.toLocalTime();
+
+        return findConflictingBreaks(breakDate, startTimeOfDay, endTimeOfDay).isEmpty();
+    }
+
+    // ExpertScheduleRepository.findByExpertAndDayOfWeekAndIsAvailable (at most one row per day in the fixtures)
+    private Optional<ExpertSchedule> findByDayOfWeekAndIsAvailable(DayOfWeek dayOfWeek) {
+        return schedules.stream()
+            .filter(s -> s.getDayOfWeek() == dayOfWeek && Boolean.TRUE.equals(s.getIsAvailable()))
+            .reduce((a, b) -> {
+                throw new IllegalStateException("More than one schedule for " + dayOfWeek);
+            });
+    }
+
+    // AppointmentRepository.findByExpertAndAppointmentDateBetweenOrderByAppointmentDate
+    private List<Appointment> findByAppointmentDateBetween(LocalDateTime start, LocalDateTime end) {
+        return appointments.stream()
+            .filter(a -> !a.getAppointmentDate().isBefore(start) && !a.getAppointmentDate().isAfter(end))
+            .sorted((a, b) -> a.getAppointmentDate().compareTo(b.getAppointmentDate()))
+            .toList();
+    }
+
+    // ExpertBreakRepository.findConflictingBreaks
+    private List<ExpertBreak> findConflictingBreaks(LocalDate breakDate, LocalTime startTime, LocalTime endTime) {
+        return breaks.stream()
+            .filter(eb -> eb.getBreakDate().equals(breakDate))
+            .filter(eb -> (!eb.getStartTime().isAfter(startTime) && eb.getEndTime().isAfter(startTime))
+                || (eb.getStartTime().isBefore(endTime) && !eb.getEndTime().isBefore(endTime))
+                || (!eb.getStartTime().isBefore(startTime) && !eb.getEndTime().isAfter(endTime)))
+            .toList();
+    }
+}
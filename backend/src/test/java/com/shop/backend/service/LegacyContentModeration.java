@@ -0,0 +1,389 @@
+package com.shop.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-based checkContent that ContentModerationService used before the
+ * Aho–Corasick matcher, kept verbatim as the reference for equivalence tests and
+ * the benchmark. Reads the dictionaries from the service so both see the same words.
+ */
+@Slf4j
+class LegacyContentModeration {
+
+    private final Set<String> profanityWords;
+    private final Set<String> racistWords;
+    private final Pattern profanityPattern;
+    private final Pattern racistPattern;
+    private final Pattern profanityPatternNoDiacritics;
+
+    @SuppressWarnings("unchecked")
+    LegacyContentModeration() {
+        profanityWords = (Set<String>) ReflectionTestUtils.getField(ContentModerationService.class, "PROFANITY_WORDS");
+        racistWords = (Set<String>) ReflectionTestUtils.getField(ContentModerationService.class, "RACIST_WORDS");
+        profanityPattern = createPattern(profanityWords);
+        racistPattern = createPattern(racistWords);
+        profanityPatternNoDiacritics = createPatternNoDiacritics(profanityWords);
+    }
+
+    Set<String> getProfanityWords() {
+        return profanityWords;
+    }
+
+    Set<String> getRacistWords() {
+        return racistWords;
+    }
+
+    /**
+     * Tạo pattern từ set các từ với word boundaries
+     * Hỗ trợ cả từ đơn và cụm từ có khoảng trắng
+     */
+    private static Pattern createPattern(Set<String> words) {
+        StringBuilder singleWords = new StringBuilder();
+        StringBuilder multiWords = new StringBuilder();
+        
+        boolean firstSingle = true;
+        boolean firstMulti = true;
+        
+        for (String word : words) {
+            // Tách từ đơn và cụm từ (có khoảng trắng)
+            if (word.contains(" ")) {
+                // Cụm từ: không dùng \b ở giữa, chỉ ở đầu và cuối
+                if (!firstMulti) {
+                    multiWords.append("|");
+                }
+                multiWords.append("\\b").append(Pattern.quote(word)).append("\\b");
+                firstMulti = false;
+            } else {
+                // Từ đơn: dùng \b ở cả đầu và cuối
+                if (!firstSingle) {
+                    singleWords.append("|");
+                }
+                singleWords.append(Pattern.quote(word));
+                firstSingle = false;
+            }
+        }
+        
+        StringBuilder patternBuilder = new StringBuilder();
+        patternBuilder.append("(?i)"); // Case-insensitive
+        
+        // Kết hợp pattern cho từ đơn và cụm từ
+        if (singleWords.length() > 0 && multiWords.length() > 0) {
+            patternBuilder.append("(\\b(").append(singleWords).append(")\\b|").append(multiWords).append(")");
+        } else if (singleWords.length() > 0) {
+            patternBuilder.append("\\b(").append(singleWords).append(")\\b");
+        } else if (multiWords.length() > 0) {
+            patternBuilder.append(multiWords);
+        } else {
+            // Fallback nếu không có từ nào
+            patternBuilder.append("(?!.*)");
+        }
+        
+        return Pattern.compile(patternBuilder.toString());
+    }
+    
+    /**
+     * Tạo pattern từ set các từ không dấu (sau khi remove diacritics)
+     * Sử dụng để phát hiện từ không dấu trong nội dung
+     * Hỗ trợ cả từ đơn và cụm từ có khoảng trắng
+     */
+    private static Pattern createPatternNoDiacritics(Set<String> words) {
+        Set<String> wordsNoDiacritics = new HashSet<>();
+        for (String word : words) {
+            String wordNoDiacritics = word
+                .replace("à", "a").replace("á", "a").replace("ạ", "a").replace("ả", "a").replace("ã", "a")
+                .replace("â", "a").replace("ầ", "a").replace("ấ", "a").replace("ậ", "a").replace("ẩ", "a").replace("ẫ", "a")
+                .replace("ă", "a").replace("ằ", "a").replace("ắ", "a").replace("ặ", "a").replace("ẳ", "a").replace("ẵ", "a")
+                .replace("è", "e").replace("é", "e").replace("ẹ", "e").replace("ẻ", "e").replace("ẽ", "e")
+                .replace("ê", "e").replace("ề", "e").replace("ế", "e").replace("ệ", "e").replace("ể", "e").replace("ễ", "e")
+                .replace("ì", "i").replace("í", "i").replace("ị", "i").replace("ỉ", "i").replace("ĩ", "i")
+                .replace("ò", "o").replace("ó", "o").replace("ọ", "o").replace("ỏ", "o").replace("õ", "o")
+                .replace("ô", "o").replace("ồ", "o").replace("ố", "o").replace("ộ", "o").replace("ổ", "o").replace("ỗ", "o")
+                .replace("ơ", "o").replace("ờ", "o").replace("ớ", "o").replace("ợ", "o").replace("ở", "o").replace("ỡ", "o")
+                .replace("ù", "u").replace("ú", "u").replace("ụ", "u").replace("ủ", "u").replace("ũ", "u")
+                .replace("ư", "u").replace("ừ", "u").replace("ứ", "u").replace("ự", "u").replace("ử", "u").replace("ữ", "u")
+                .replace("ỳ", "y").replace("ý", "y").replace("ỵ", "y").replace("ỷ", "y").replace("ỹ", "y")
+                .replace("đ", "d")
+                .toLowerCase();
+            wordsNoDiacritics.add(wordNoDiacritics);
+        }
+        
+        StringBuilder singleWords = new StringBuilder();
+        StringBuilder multiWords = new StringBuilder();
+        
+        boolean firstSingle = true;
+        boolean firstMulti = true;
+        
+        for (String word : wordsNoDiacritics) {
+            // Tách từ đơn và cụm từ (có khoảng trắng)
+            if (word.contains(" ")) {
+                // Cụm từ: không dùng \b ở giữa, chỉ ở đầu và cuối
+                if (!firstMulti) {
+                    multiWords.append("|");
+                }
+                multiWords.append("\\b").append(Pattern.quote(word)).append("\\b");
+                firstMulti = false;
+            } else {
+                // Từ đơn: dùng \b ở cả đầu và cuối
+                if (!firstSingle) {
+                    singleWords.append("|");
+                }
+                singleWords.append(Pattern.quote(word));
+                firstSingle = false;
+            }
+        }
+        
+        StringBuilder patternBuilder = new StringBuilder();
+        patternBuilder.append("(?i)"); // Case-insensitive
+        
+        // Kết hợp pattern cho từ đơn và cụm từ
+        if (singleWords.length() > 0 && multiWords.length() > 0) {
+            patternBuilder.append("(\\b(").append(singleWords).append(")\\b|").append(multiWords).append(")");
+        } else if (singleWords.length() > 0) {
+            patternBuilder.append("\\b(").append(singleWords).append(")\\b");
+        } else if (multiWords.length() > 0) {
+            patternBuilder.append(multiWords);
+        } else {
+            // Fallback nếu không có từ nào
+            patternBuilder.append("(?!.*)");
+        }
+        
+        return Pattern.compile(patternBuilder.toString());
+    }
+
+    /**
+     * Loại bỏ dấu tiếng Việt để so sánh từ không dấu
+     */
+    static String removeVietnameseDiacritics(String text) {
+        if (text == null) return null;
+        
+        return text
+            .replace("à", "a").replace("á", "a").replace("ạ", "a").replace("ả", "a").replace("ã", "a")
+            .replace("â", "a").replace("ầ", "a").replace("ấ", "a").replace("ậ", "a").replace("ẩ", "a").replace("ẫ", "a")
+            .replace("ă", "a").replace("ằ", "a").replace("ắ", "a").replace("ặ", "a").replace("ẳ", "a").replace("ẵ", "a")
+            .replace("è", "e").replace("é", "e").replace("ẹ", "e").replace("ẻ", "e").replace("ẽ", "e")
+            .replace("ê", "e").replace("ề", "e").replace("ế", "e").replace("ệ", "e").replace("ể", "e").replace("ễ", "e")
+            .replace("ì", "i").replace("í", "i").replace("ị", "i").replace("ỉ", "i").replace("ĩ", "i")
+            .replace("ò", "o").replace("ó", "o").replace("ọ", "o").replace("ỏ", "o").replace("õ", "o")
+            .replace("ô", "o").replace("ồ", "o").replace("ố", "o").replace("ộ", "o").replace("ổ", "o").replace("ỗ", "o")
+            .replace("ơ", "o").replace("ờ", "o").replace("ớ", "o").replace("ợ", "o").replace("ở", "o").replace("ỡ", "o")
+            .replace("ù", "u").replace("ú", "u").replace("ụ", "u").replace("ủ", "u").replace("ũ", "u")
+            .replace("ư", "u").replace("ừ", "u").replace("ứ", "u").replace("ự", "u").replace("ử", "u").replace("ữ", "u")
+            .replace("ỳ", "y").replace("ý", "y").replace("ỵ", "y").replace("ỷ", "y").replace("ỹ", "y")
+            .replace("đ", "d")
+            .replace("À", "A").replace("Á", "A").replace("Ạ", "A").replace("Ả", "A").replace("Ã", "A")
+            .replace("Â", "A").replace("Ầ", "A").replace("Ấ", "A").replace("Ậ", "A").replace("Ẩ", "A").replace("Ẫ", "A")
+            .replace("Ă", "A").replace("Ằ", "A").replace("Ắ", "A").replace("Ặ", "A").replace("Ẳ", "A").replace("Ẵ", "A")
+            .replace("È", "E").replace("É", "E").replace("Ẹ", "E").replace("Ẻ", "E").replace("Ẽ", "E")
+            .replace("Ê", "E").replace("Ề", "E").replace("Ế", "E").replace("Ệ", "E").replace("Ể", "E").replace("Ễ", "E")
+            .replace("Ì", "I").replace("Í", "I").replace("Ị", "I").replace("Ỉ", "I").replace("Ĩ", "I")
+            .replace("Ò", "O").replace("Ó", "O").replace("Ọ", "O").replace("Ỏ", "O").replace("Õ", "O")
+            .replace("Ô", "O").replace("Ồ", "O").replace("Ố", "O").replace("Ộ", "O").replace("Ổ", "O").replace("Ỗ", "O")
+            .replace("Ơ", "O").replace("Ờ", "O").replace("Ớ", "O").replace("Ợ", "O").replace("Ở", "O").replace("Ỡ", "O")
+            .replace("Ù", "U").replace("Ú", "U").replace("Ụ", "U").replace("Ủ", "U").replace("Ũ", "U")
+            .replace("Ư", "U").replace("Ừ", "U").replace("Ứ", "U").replace("Ự", "U").replace("Ử", "U").replace("Ữ", "U")
+            .replace("Ỳ", "Y").replace("Ý", "Y").replace("Ỵ", "Y").replace("Ỷ", "Y").replace("Ỹ", "Y")
+            .replace("Đ", "D");
+    }
+
+    /**
+     * Kiểm tra nội dung comment có vi phạm không
+     * 
+     * @param content Nội dung comment cần kiểm tra
+     * @return ContentModerationService.ModerationResult chứa thông tin vi phạm
+     */
+    public ContentModerationService.ModerationResult checkContent(String content) {
+        if (content == null || content.trim().isEmpty()) {
+            log.debug("Content moderation: Empty content, returning not flagged");
+            return new ContentModerationService.ModerationResult(false, null, null, null);
+        }
+
+        // Chuẩn hóa nội dung: lowercase, loại bỏ khoảng trắng thừa
+        String normalizedContent = content.toLowerCase().trim();
+        log.debug("Content moderation: Checking content: '{}'", normalizedContent);
+        
+        // Loại bỏ dấu để kiểm tra cả từ không dấu
+        String contentWithoutDiacritics = removeVietnameseDiacritics(normalizedContent);
+        
+        List<String> detectedWords = new ArrayList<>();
+        List<ContentModerationService.ViolationType> violations = new ArrayList<>();
+
+        // Kiểm tra thô tục, tục tĩu - sử dụng pattern với word boundaries để tránh false positive
+        java.util.regex.Matcher profanityMatcher = profanityPattern.matcher(normalizedContent);
+        boolean hasProfanity = profanityMatcher.find();
+        
+        // Nếu không tìm thấy với pattern có dấu, kiểm tra với pattern không dấu
+        if (!hasProfanity) {
+            java.util.regex.Matcher profanityMatcherNoDiacritics = profanityPatternNoDiacritics.matcher(contentWithoutDiacritics);
+            hasProfanity = profanityMatcherNoDiacritics.find();
+            if (hasProfanity) {
+                profanityMatcher = profanityMatcherNoDiacritics;
+            }
+        }
+        
+        if (hasProfanity) {
+            violations.add(ContentModerationService.ViolationType.PROFANITY);
+            // Tìm tất cả các từ vi phạm được phát hiện
+            profanityMatcher.reset();
+            while (profanityMatcher.find()) {
+                // Lấy toàn bộ text được match (group 0)
+                String matchedText = profanityMatcher.group(0).toLowerCase().trim();
+                // Tìm từ gốc tương ứng trong profanityWords
+                for (String word : profanityWords) {
+                    String wordLower = word.toLowerCase();
+                    String wordWithoutDiacritics = removeVietnameseDiacritics(wordLower);
+                    // So sánh với từ gốc (có dấu hoặc không dấu)
+                    if (matchedText.equals(wordLower) || matchedText.equals(wordWithoutDiacritics)) {
+                        if (!detectedWords.contains(word)) {
+                            detectedWords.add(word);
+                            log.debug("Content moderation: Detected profanity word '{}' in content (matched: '{}')", word, matchedText);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Kiểm tra phân biệt chủng tộc (cần kiểm tra context kỹ hơn)
+        java.util.regex.Matcher racistMatcher = racistPattern.matcher(normalizedContent);
+        if (racistMatcher.find()) {
+            // Tạo matcher mới để kiểm tra context (vì matcher hiện tại đã được sử dụng)
+            java.util.regex.Matcher contextMatcher = racistPattern.matcher(normalizedContent);
+            // Kiểm tra context để tránh false positive
+            if (isRacistContext(normalizedContent, contextMatcher)) {
+                violations.add(ContentModerationService.ViolationType.RACISM);
+                // Tìm tất cả các từ vi phạm được phát hiện
+                contextMatcher.reset();
+                while (contextMatcher.find()) {
+                    // Lấy toàn bộ text được match (group 0)
+                    String matchedText = contextMatcher.group(0).toLowerCase().trim();
+                    // Tìm từ gốc tương ứng trong racistWords
+                    for (String word : racistWords) {
+                        if (matchedText.equals(word.toLowerCase())) {
+                            if (!detectedWords.contains(word)) {
+                                detectedWords.add(word);
+                                log.debug("Content moderation: Detected racist word '{}' in content (matched: '{}')", word, matchedText);
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Xác định kết quả
+        if (violations.isEmpty()) {
+            log.debug("Content moderation: No violations found, content is clean");
+            return new ContentModerationService.ModerationResult(false, null, null, null);
+        }
+
+        ContentModerationService.ViolationType violationType = violations.size() > 1 
+            ? ContentModerationService.ViolationType.MULTIPLE 
+            : violations.get(0);
+
+        String reason = buildReason(violationType, detectedWords);
+        
+        log.warn("Content moderation: Content flagged! Type: {}, Reason: {}, Detected words: {}", 
+            violationType, reason, detectedWords);
+
+        return new ContentModerationService.ModerationResult(true, violationType, reason, detectedWords);
+    }
+
+    /**
+     * Kiểm tra context để xác định có phải phân biệt chủng tộc không
+     * (Tránh false positive khi nói về quốc gia một cách tích cực)
+     */
+    private boolean isRacistContext(String content, java.util.regex.Matcher matcher) {
+        // Các từ chỉ context tiêu cực (tiếng Việt)
+        String[] negativeContextVi = {
+            "ghét", "xấu", "tệ", "dở", "kém", "thấp kém", "hạ đẳng",
+            "không bằng", "thua", "kém cỏi", "đồ", "thằng", "con",
+            "xấu xa", "tệ hại", "dở tệ", "kém cỏi", "thấp hèn"
+        };
+        
+        // Các từ chỉ context tiêu cực (tiếng Anh)
+        String[] negativeContextEn = {
+            "hate", "bad", "worst", "stupid", "inferior", "low",
+            "disgusting", "terrible", "awful", "pathetic", "worthless"
+        };
+        
+        // Tìm từ racist được phát hiện
+        matcher.reset();
+        while (matcher.find()) {
+            // Lấy toàn bộ text được match (group 0)
+            String matchedWord = matcher.group(0).toLowerCase().trim();
+            int matchStart = matcher.start();
+            int matchEnd = matcher.end();
+            
+            // Kiểm tra context xung quanh từ được phát hiện (50 ký tự trước và sau)
+            int contextStart = Math.max(0, matchStart - 50);
+            int contextEnd = Math.min(content.length(), matchEnd + 50);
+            String context = content.substring(contextStart, contextEnd).toLowerCase();
+            
+            // Kiểm tra context tiêu cực tiếng Việt
+            for (String negativeWord : negativeContextVi) {
+                if (context.contains(negativeWord)) {
+                    log.debug("Content moderation: Negative context detected (Vietnamese): '{}' around word '{}'", 
+                        negativeWord, matchedWord);
+                    return true;
+                }
+            }
+            
+            // Kiểm tra context tiêu cực tiếng Anh
+            for (String negativeWord : negativeContextEn) {
+                if (context.contains(negativeWord)) {
+                    log.debug("Content moderation: Negative context detected (English): '{}' around word '{}'", 
+                        negativeWord, matchedWord);
+                    return true;
+                }
+            }
+            
+            // Kiểm tra các từ racist cụ thể (luôn flag bất kể context)
+            String[] alwaysFlagWords = {
+                "nigger", "ngger", "nigga", "ngga", "coon", "spic", "wetback",
+                "chink", "gook", "jap", "nip", "kike", "heeb", "yid",
+                "mọi rợ", "moi ro", "tàu khựa", "tau khua"
+            };
+            
+            for (String alwaysFlagWord : alwaysFlagWords) {
+                if (matchedWord.toLowerCase().contains(alwaysFlagWord.toLowerCase())) {
+                    log.debug("Content moderation: Always-flag racist word detected: '{}'", matchedWord);
+                    return true;
+                }
+            }
+        }
+        
+        // Nếu không có context tiêu cực và không phải từ luôn flag, không đánh dấu
+        // (tránh false positive khi nói về quốc gia/dân tộc một cách tích cực)
+        log.debug("Content moderation: No negative context found, not flagging as racist");
+        return false;
+    }
+
+    /**
+     * Xây dựng lý do vi phạm
+     */
+    private String buildReason(ContentModerationService.ViolationType violationType, List<String> detectedWords) {
+        StringBuilder reason = new StringBuilder();
+        
+        switch (violationType) {
+            case PROFANITY:
+                reason.append("Comment chứa từ ngữ thô tục, tục tĩu");
+                break;
+            case RACISM:
+                reason.append("Comment có nội dung phân biệt chủng tộc");
+                break;
+            case MULTIPLE:
+                reason.append("Comment vi phạm nhiều quy tắc cộng đồng");
+                break;
+        }
+
+        if (!detectedWords.isEmpty()) {
+            reason.append(": ").append(String.join(", ", detectedWords));
+        }
+
+        return reason.toString();
+    }
+}
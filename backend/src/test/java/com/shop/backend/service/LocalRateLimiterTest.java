@@ -0,0 +1,189 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    private static final int THREADS = 16;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void tryAcquire_ShouldAdmitExactlyLimitUnderContention() throws Exception {
+        LocalRateLimiter limiter = new LocalRateLimiter(100, Duration.ofMinutes(1), clock::get);
+        long key = IpAddressKey.of("203.0.113.7");
+
+        int allowed = hammer(THREADS, 1_000, i -> limiter.tryAcquire(key).allowed());
+
+        assertEquals(100, allowed);
+        assertFalse(limiter.tryAcquire(key).allowed());
+    }
+
+    @Test
+    void tryAcquire_ShouldEnforceEachClientSeparatelyUnderContention() throws Exception {
+        LocalRateLimiter limiter = new LocalRateLimiter(30, Duration.ofMinutes(1), clock::get);
+        int clients = 64;
+
+        int allowed = hammer(THREADS, 200, i -> limiter.tryAcquire(IpAddressKey.of("10.0.0." + (i % clients))).allowed());
+
+        assertEquals(clients * 30, allowed);
+        assertEquals(clients, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_ShouldStayExactWhileSweepRuns() throws Exception {
+        LocalRateLimiter limiter = new LocalRateLimiter(50, Duration.ofMinutes(1), clock::get);
+        AtomicInteger sweeps = new AtomicInteger();
+        Thread sweeper = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                limiter.expire();
+                sweeps.incrementAndGet();
+            }
+        });
+        sweeper.start();
+        try {
+            int allowed = hammer(THREADS, 500, i -> limiter.tryAcquire(IpAddressKey.of("192.0.2." + (i % 8))).allowed());
+            assertEquals(8 * 50, allowed);
+        } finally {
+            sweeper.interrupt();
+            sweeper.join();
+        }
+        assertTrue(sweeps.get() > 0);
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillAtLimitPerWindow() {
+        LocalRateLimiter limiter = new LocalRateLimiter(60, Duration.ofMinutes(1), clock::get);
+        long key = IpAddressKey.of("198.51.100.1");
+        for (int i = 0; i < 60; i++) {
+            assertEquals(59 - i, limiter.tryAcquire(key).remaining());
+        }
+
+        RateLimitDecision denied = limiter.tryAcquire(key);
+        assertFalse(denied.allowed());
+        assertEquals(1000, denied.retryAfterMillis());
+        assertEquals(60_000, denied.resetAfterMillis());
+
+        // One request's worth of time later exactly one more request fits
+        advance(Duration.ofSeconds(1));
+        assertTrue(limiter.tryAcquire(key).allowed());
+        assertFalse(limiter.tryAcquire(key).allowed());
+
+        advance(Duration.ofMinutes(1));
+        assertEquals(60, limiter.peek(key).remaining());
+    }
+
+    @Test
+    void peek_ShouldNotConsumeQuota() {
+        LocalRateLimiter limiter = new LocalRateLimiter(3, Duration.ofSeconds(3), clock::get);
+        long key = IpAddressKey.of("198.51.100.2");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(3, limiter.peek(key).remaining());
+        }
+        limiter.tryAcquire(key);
+        limiter.tryAcquire(key);
+        limiter.tryAcquire(key);
+
+        RateLimitDecision status = limiter.peek(key);
+        assertFalse(status.allowed());
+        assertEquals(0, status.remaining());
+        assertEquals(1000, status.retryAfterMillis());
+    }
+
+    @Test
+    void expire_ShouldDropOnlyClientsBackAtFullQuota() {
+        LocalRateLimiter limiter = new LocalRateLimiter(10, Duration.ofSeconds(10), clock::get);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire(IpAddressKey.of("172.16." + (i / 256) + "." + (i % 256)));
+        }
+        advance(Duration.ofMillis(500));
+        long busy = IpAddressKey.of("172.31.0.1");
+        limiter.tryAcquire(busy);
+        limiter.tryAcquire(busy);
+
+        assertEquals(0, limiter.expire());
+
+        advance(Duration.ofMillis(600));
+        assertEquals(1000, limiter.expire());
+        assertEquals(1, limiter.size());
+
+        // A swept client starts over with a full quota
+        assertEquals(9, limiter.tryAcquire(IpAddressKey.of("172.16.0.1")).remaining());
+    }
+
+    @Test
+    void ipAddressKey_ShouldPackAddresses() {
+        assertEquals(0xC0A8_0101L, IpAddressKey.parseIpv4("192.168.1.1"));
+        assertEquals(-1, IpAddressKey.parseIpv4("192.168.1"));
+        assertEquals(-1, IpAddressKey.parseIpv4("192.168.1.256"));
+        assertEquals(-1, IpAddressKey.parseIpv4("1..2.3"));
+        assertEquals(-1, IpAddressKey.parseIpv4("localhost"));
+
+        assertNotEquals(IpAddressKey.of("10.0.0.1"), IpAddressKey.of("10.0.0.2"));
+        assertEquals(IpAddressKey.of("10.0.0.1"), IpAddressKey.of("::ffff:10.0.0.1"));
+
+        // Same /64, same client
+        assertEquals(IpAddressKey.of("2001:db8:1:2::1"), IpAddressKey.of("2001:db8:1:2:abcd::99"));
+        assertEquals(IpAddressKey.of("fe80::1"), IpAddressKey.of("fe80::2%eth0"));
+        assertNotEquals(IpAddressKey.of("2001:db8:1:2::1"), IpAddressKey.of("2001:db8:1:3::1"));
+
+        assertEquals(IpAddressKey.of("unknown"), IpAddressKey.of("unknown"));
+        assertNotEquals(IpAddressKey.of("unknown"), IpAddressKey.of("10.0.0.1"));
+    }
+
+    private interface Attempt {
+        boolean run(int i);
+    }
+
+    /**
+     * Run "perThread" attempts on each of "threads" threads, all released at once
+     *
+     * @return how many attempts returned true
+     */
+    private static int hammer(int threads, int perThread, Attempt attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        if (attempt.run(offset + i)) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+}
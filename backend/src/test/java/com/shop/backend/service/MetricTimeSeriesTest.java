@@ -0,0 +1,117 @@
+package com.shop.backend.service;
+
+import com.shop.backend.service.MetricTimeSeries.Resolution;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricTimeSeriesTest {
+
+    // 2026-01-01T00:00:00Z, on an hour boundary
+    private static final long START = 1_767_225_600_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    private final MetricTimeSeries series = new MetricTimeSeries(clock::get);
+
+    @Test
+    void increment_ShouldNotLoseCountsUnderContention() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 50_000; i++) {
+                        series.increment();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(400_000, series.get(Resolution.SECOND, START / 1000));
+        assertEquals(400_000, series.get(Resolution.MINUTE, START / 60_000));
+    }
+
+    @Test
+    void rollup_ShouldAgreeWithUnrolledReads() {
+        // 3 events every 10 seconds for 2 hours
+        for (int second = 0; second < 7200; second += 10) {
+            clock.set(START + second * 1000L);
+            series.add(3);
+            if (second % 60 == 0) {
+                series.rollup();
+            }
+        }
+        clock.set(START + 7200 * 1000L + 5_000);
+        series.rollup();
+
+        long firstMinute = START / 60_000;
+        for (long minute = firstMinute; minute < firstMinute + 120; minute++) {
+            assertEquals(18, series.get(Resolution.MINUTE, minute), "minute " + (minute - firstMinute));
+        }
+        assertEquals(3 * 360, series.get(Resolution.HOUR, START / 3_600_000));
+        assertEquals(3 * 360, series.get(Resolution.HOUR, START / 3_600_000 + 1));
+    }
+
+    @Test
+    void currentBuckets_ShouldBeReadableBeforeRollup() {
+        clock.set(START + 30_000);
+        series.add(5);
+        clock.set(START + 90_000);
+        series.add(7);
+
+        MetricTimeSeries.Snapshot minutes = series.snapshot(Resolution.MINUTE, 3);
+        assertArrayEquals(new long[] {0, 5, 7}, minutes.values());
+        assertEquals(START, minutes.startMillis(1));
+
+        assertEquals(12, series.snapshot(Resolution.HOUR, 1).values()[0]);
+    }
+
+    @Test
+    void oldBuckets_ShouldBeReplacedWhenTheirSlotIsReused() {
+        long firstSecond = START / 1000;
+        long firstMinute = START / 60_000;
+        long firstHour = START / 3_600_000;
+        series.add(4);
+        clock.set(START + 61_000);
+        series.rollup();
+
+        // The seconds ring holds 5 minutes: second 300 takes second 0's slot
+        clock.set(START + 300_000);
+        series.add(1);
+        assertEquals(0, series.get(Resolution.SECOND, firstSecond));
+        assertEquals(1, series.get(Resolution.SECOND, firstSecond + 300));
+        assertEquals(4, series.get(Resolution.MINUTE, firstMinute));
+
+        clock.set(START + 3_661_000);
+        series.rollup();
+        assertEquals(5, series.get(Resolution.HOUR, firstHour));
+
+        // The minutes ring holds a day; the hour total outlives its minutes
+        clock.set(START + 24 * 3_600_000L);
+        series.add(2);
+        clock.set(START + 24 * 3_600_000L + 61_000);
+        series.rollup();
+        assertEquals(0, series.get(Resolution.MINUTE, firstMinute));
+        assertEquals(2, series.get(Resolution.MINUTE, firstMinute + 1440));
+        assertEquals(5, series.get(Resolution.HOUR, firstHour));
+    }
+}
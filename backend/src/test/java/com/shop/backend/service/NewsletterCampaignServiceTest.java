@@ -0,0 +1,150 @@
+package com.shop.backend.service;
+
+import com.shop.backend.BeanFixture;
+import com.shop.backend.model.EmailOutbox;
+import com.shop.backend.model.NewsletterCampaign;
+import com.shop.backend.repository.EmailOutboxRepository;
+import com.shop.backend.repository.NewsletterCampaignRepository;
+import com.shop.backend.repository.NewsletterSubscriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NewsletterCampaignServiceTest {
+
+    private static final NewsletterTemplate TEMPLATE =
+        NewsletterTemplate.compile("<p>Xin chào {{name}}</p><a href='/unsubscribe?email={{email}}'>{{other}}</a>");
+
+    @Mock
+    private NewsletterCampaignRepository campaignRepository;
+
+    @Mock
+    private NewsletterSubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BeanFixture<NewsletterCampaignService> fixture;
+
+    private NewsletterCampaignService service;
+
+    private SimpleTransactionStatus transaction;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        fixture = BeanFixture.of(NewsletterCampaignService.class)
+            .property("newsletter.campaign.enabled", false)
+            .property("newsletter.campaign.threads", 1)
+            .property("newsletter.campaign.chunk-size", 3)
+            .property("newsletter.campaign.lease-ms", 300_000L)
+            .with(NewsletterCampaignRepository.class, campaignRepository)
+            .with(NewsletterSubscriptionRepository.class, subscriptionRepository)
+            .with(EmailOutboxRepository.class, emailOutboxRepository)
+            .with(EmailOutboxService.class, emailOutboxService)
+            .with(PlatformTransactionManager.class, transactionManager);
+        service = fixture.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void processChunk_ShouldQueueTheChunkAfterTheCheckpointAndMoveIt() {
+        campaign(7L, 100L);
+        when(subscriptionRepository.findRecipientsAfter(eq(100L), any(Pageable.class))).thenReturn(List.of(
+            new Object[]{101L, "an@example.com", "An"},
+            new Object[]{102L, "b+news@example.com", null},
+            new Object[]{103L, "c@example.com", "<b>Chi</b>"}));
+        when(emailOutboxService.enqueueAll(anyList())).thenReturn(2);
+        when(campaignRepository.checkpoint(eq(7L), anyString(), eq(103L), eq(2L), eq(1L), any())).thenReturn(1);
+
+        assertTrue(service.processChunk(7L, TEMPLATE));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmailOutbox>> queued = ArgumentCaptor.forClass(List.class);
+        verify(emailOutboxService).enqueueAll(queued.capture());
+        List<EmailOutbox> emails = queued.getValue();
+        assertEquals(3, emails.size());
+        assertEquals("[MindMeter Newsletter] Bản tin tháng 10", emails.get(0).getSubject());
+        assertEquals("<p>Xin chào An</p><a href='/unsubscribe?email=an%40example.com'>{{other}}</a>",
+            emails.get(0).getHtmlBody());
+        assertTrue(emails.get(1).getHtmlBody().contains("Xin chào Bạn"));
+        assertTrue(emails.get(1).getHtmlBody().contains("email=b%2Bnews%40example.com"));
+        assertTrue(emails.get(2).getHtmlBody().contains("Xin chào &lt;b&gt;Chi&lt;/b&gt;"));
+        assertEquals("newsletter:42:c@example.com", emails.get(2).getDedupKey());
+        assertEquals(7L, emails.get(2).getCampaignId());
+        assertFalse(transaction.isRollbackOnly());
+    }
+
+    @Test
+    void processChunk_ShouldMarkTheCampaignQueuedWhenNoSubscriberIsLeft() {
+        campaign(7L, 103L);
+        when(subscriptionRepository.findRecipientsAfter(eq(103L), any(Pageable.class))).thenReturn(List.of());
+
+        assertFalse(service.processChunk(7L, TEMPLATE));
+
+        verify(campaignRepository).markQueued(eq(7L), anyString(), eq(NewsletterCampaign.Status.SENDING), any());
+        verifyNoInteractions(emailOutboxService);
+    }
+
+    @Test
+    void processChunk_ShouldRollBackTheChunkWhenTheCampaignIsNoLongerOurs() {
+        campaign(7L, 0L);
+        when(subscriptionRepository.findRecipientsAfter(eq(0L), any(Pageable.class))).thenReturn(List.<Object[]>of(
+            new Object[]{1L, "an@example.com", "An"}));
+        when(emailOutboxService.enqueueAll(anyList())).thenReturn(1);
+        // Cancelled, or resumed by another node, while this chunk was being queued
+        when(campaignRepository.checkpoint(anyLong(), anyString(), anyLong(), anyLong(), anyLong(), any())).thenReturn(0);
+
+        assertFalse(service.processChunk(7L, TEMPLATE));
+
+        assertTrue(transaction.isRollbackOnly());
+    }
+
+    @Test
+    void processChunk_ShouldDoNothingForAFinishedCampaign() {
+        NewsletterCampaign campaign = campaign(7L, 0L);
+        campaign.setStatus(NewsletterCampaign.Status.CANCELLED);
+
+        assertFalse(service.processChunk(7L, TEMPLATE));
+
+        verifyNoInteractions(subscriptionRepository, emailOutboxService);
+    }
+
+    private NewsletterCampaign campaign(Long id, Long lastSubscriberId) {
+        NewsletterCampaign campaign = new NewsletterCampaign();
+        campaign.setId(id);
+        campaign.setSubject("Bản tin tháng 10");
+        campaign.setContent("<p>Nội dung</p>");
+        campaign.setBlogPostId(42L);
+        campaign.setStatus(NewsletterCampaign.Status.RUNNING);
+        campaign.setLastSubscriberId(lastSubscriberId);
+        when(campaignRepository.findById(id)).thenReturn(Optional.of(campaign));
+        return campaign;
+    }
+}
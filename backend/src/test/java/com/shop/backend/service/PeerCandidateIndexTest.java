@@ -0,0 +1,170 @@
+package com.shop.backend.service;
+
+import com.shop.backend.model.DepressionTestResult.SeverityLevel;
+import com.shop.backend.model.PeerMatchPreferences;
+import com.shop.backend.model.PeerMatchPreferences.PreferredGender;
+import com.shop.backend.model.PeerMatchPreferences.PreferredLanguage;
+import com.shop.backend.repository.DepressionTestResultRepository;
+import com.shop.backend.repository.PeerMatchPreferencesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PeerCandidateIndexTest {
+
+    private static final String[] INTERESTS = {
+        "Thiền định", "Yoga", "Đọc sách", "Âm nhạc", "Viết lách", "Tình nguyện", "Thể thao", "Du lịch",
+        "Nhiếp ảnh", "Công nghệ", "Lập trình", "Game", "Học tập", "Nghiên cứu", "Khoa học"
+    };
+
+    private PeerMatchPreferencesRepository repository;
+    private DepressionTestResultRepository testResultRepository;
+    private PeerCandidateIndex index;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PeerMatchPreferencesRepository.class);
+        testResultRepository = mock(DepressionTestResultRepository.class);
+        when(repository.findMatchingCriteria()).thenReturn(rows);
+        index = new PeerCandidateIndex(repository, testResultRepository);
+    }
+
+    @Test
+    void findTop_ShouldRankSharedInterestsFirstAndSkipIncompatibleCandidates() {
+        rows.add(row(1L, 18, 25, PreferredGender.ANY, PreferredLanguage.vi, "Yoga, Đọc sách"));
+        rows.add(row(2L, 18, 25, PreferredGender.ANY, PreferredLanguage.both, "Thiền định, yoga, Doc sach"));
+        rows.add(row(3L, 18, 25, PreferredGender.ANY, PreferredLanguage.vi, "Game"));
+        // English only, and ages that do not overlap
+        rows.add(row(4L, 18, 25, PreferredGender.ANY, PreferredLanguage.en, "Thiền định, Yoga, Đọc sách"));
+        rows.add(row(5L, 40, 50, PreferredGender.ANY, PreferredLanguage.vi, "Thiền định, Yoga, Đọc sách"));
+        index.refresh();
+
+        List<PeerCandidateIndex.Scored> top = index.findTop(9L,
+            preferences(18, 25, PreferredGender.ANY, PreferredLanguage.vi, "thiền định, YOGA, đọc sách"), Set.of(9L), 10);
+
+        assertEquals(List.of(2L, 1L, 3L), top.stream().map(PeerCandidateIndex.Scored::userId).toList());
+        // All three interests shared, same age range and gender preference, language "both", no tests: 45 + 20 + 10 + 5 + 7.5
+        assertEquals(8750, top.get(0).score());
+        assertEquals(9250, index.score(
+            10L, preferences(18, 25, PreferredGender.ANY, PreferredLanguage.vi, "Yoga, Đọc sách"),
+            11L, preferences(18, 25, PreferredGender.ANY, PreferredLanguage.vi, "Đọc sách; yoga")));
+    }
+
+    @Test
+    void findTopFor_ShouldPreferPeersAtASimilarSeverityWhoAreGettingBetter() {
+        for (long id : new long[]{1L, 2L, 3L, 4L, 9L}) {
+            rows.add(row(id, 18, 25, PreferredGender.ANY, PreferredLanguage.vi, "Yoga"));
+        }
+        when(testResultRepository.findSeverityHistorySince(any())).thenReturn(List.of(
+            new Object[]{1L, SeverityLevel.MODERATE},
+            new Object[]{2L, SeverityLevel.SEVERE},
+            new Object[]{2L, SeverityLevel.MODERATE},
+            new Object[]{3L, SeverityLevel.MINIMAL},
+            new Object[]{9L, SeverityLevel.MODERATE}));
+        index.refresh();
+
+        List<PeerCandidateIndex.Scored> top = index.findTopFor(9L, Set.of(9L), 10);
+
+        // Same level and improving, same level, no tests (half), two levels apart
+        assertEquals(List.of(2L, 1L, 4L, 3L), top.stream().map(PeerCandidateIndex.Scored::userId).toList());
+        assertEquals(8500 + 1500, top.get(0).score());
+        assertEquals(8500 + 583, top.get(3).score());
+        assertTrue(index.findTopFor(42L, Set.of(), 10).isEmpty());
+    }
+
+    @Test
+    void findTop_ShouldFollowPreferenceUpdatesAndExclusions() {
+        rows.add(row(1L, 18, 30, PreferredGender.ANY, PreferredLanguage.both, "Yoga"));
+        rows.add(row(2L, 18, 30, PreferredGender.ANY, PreferredLanguage.both, "Game"));
+        index.refresh();
+        PeerMatchPreferences searcher = preferences(18, 30, PreferredGender.ANY, PreferredLanguage.both, "Game, Du lịch");
+
+        assertEquals(2L, index.findTop(9L, searcher, Set.of(9L), 1).get(0).userId());
+        assertEquals(1L, index.findTop(9L, searcher, Set.of(9L, 2L), 1).get(0).userId());
+
+        // A new user with an interest not seen at load time, and user 2 turning matching off
+        index.update(3L, preferences(18, 30, PreferredGender.ANY, PreferredLanguage.both, "Du lịch, Game"));
+        PeerMatchPreferences disabled = preferences(18, 30, PreferredGender.ANY, PreferredLanguage.both, "Game");
+        disabled.setMatchingEnabled(false);
+        index.update(2L, disabled);
+
+        assertEquals(List.of(3L, 1L), index.findTop(9L, searcher, Set.of(9L), 5).stream()
+            .map(PeerCandidateIndex.Scored::userId).toList());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void findTop_ShouldMatchAFullScanOnALargeIndex() {
+        Random random = new Random(7);
+        List<PeerMatchPreferences> all = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            int ageMin = 16 + random.nextInt(20);
+            PeerMatchPreferences preferences = preferences(ageMin, ageMin + random.nextInt(15),
+                PreferredGender.values()[random.nextInt(4)], PreferredLanguage.values()[random.nextInt(3)],
+                randomInterests(random));
+            all.add(preferences);
+            rows.add(row(id, preferences.getAgeRangeMin(), preferences.getAgeRangeMax(),
+                preferences.getPreferredGender(), preferences.getPreferredLanguage(), preferences.getInterests()));
+        }
+        index.refresh();
+
+        for (int i = 0; i < 10; i++) {
+            // By position: users with the same preferences are equal()
+            int searcherIndex = random.nextInt(all.size());
+            PeerMatchPreferences searcher = all.get(searcherIndex);
+            long searcherId = searcherIndex + 1;
+            List<PeerCandidateIndex.Scored> expected = new ArrayList<>();
+            for (int j = 0; j < all.size(); j++) {
+                PeerMatchPreferences candidate = all.get(j);
+                boolean languageOk = searcher.getPreferredLanguage() == candidate.getPreferredLanguage()
+                    || searcher.getPreferredLanguage() == PreferredLanguage.both
+                    || candidate.getPreferredLanguage() == PreferredLanguage.both;
+                boolean ageOk = candidate.getAgeRangeMin() <= searcher.getAgeRangeMax()
+                    && candidate.getAgeRangeMax() >= searcher.getAgeRangeMin();
+                if (languageOk && ageOk && j != searcherIndex) {
+                    expected.add(new PeerCandidateIndex.Scored(j + 1, index.score(searcherId, searcher, j + 1, candidate)));
+                }
+            }
+            expected.sort(Comparator.comparingInt(PeerCandidateIndex.Scored::score).reversed()
+                .thenComparingLong(PeerCandidateIndex.Scored::userId));
+
+            assertEquals(expected.subList(0, 10), index.findTop(searcherId, searcher, Set.of(searcherId), 10));
+        }
+    }
+
+    private static String randomInterests(Random random) {
+        StringBuilder interests = new StringBuilder();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            // Some rare interests too, so they spread over many bitset words
+            String interest = random.nextInt(4) == 0 ? "Sở thích " + random.nextInt(5000) : INTERESTS[random.nextInt(INTERESTS.length)];
+            interests.append(interest).append(", ");
+        }
+        return interests.toString();
+    }
+
+    private static PeerMatchPreferences preferences(int ageMin, int ageMax, PreferredGender gender,
+                                                    PreferredLanguage language, String interests) {
+        PeerMatchPreferences preferences = new PeerMatchPreferences();
+        preferences.setAgeRangeMin(ageMin);
+        preferences.setAgeRangeMax(ageMax);
+        preferences.setPreferredGender(gender);
+        preferences.setPreferredLanguage(language);
+        preferences.setInterests(interests);
+        return preferences;
+    }
+
+    private static Object[] row(Long userId, Integer ageMin, Integer ageMax, PreferredGender gender,
+                                PreferredLanguage language, String interests) {
+        return new Object[]{userId, ageMin, ageMax, gender, language, interests};
+    }
+}
@@ -0,0 +1,186 @@
+package com.shop.backend.service;
+
+import com.shop.backend.BeanFixture;
+import com.shop.backend.model.PeerMatchPreferences.PreferredGender;
+import com.shop.backend.model.PeerMatchPreferences.PreferredLanguage;
+import com.shop.backend.model.PeerMatchRecommendation;
+import com.shop.backend.repository.DepressionTestResultRepository;
+import com.shop.backend.repository.PeerMatchPreferencesRepository;
+import com.shop.backend.repository.PeerMatchRecommendationRepository;
+import com.shop.backend.repository.PeerMatchRecommendationRunRepository;
+import com.shop.backend.repository.PeerMatchRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PeerRecommendationServiceTest {
+
+    private final List<Object[]> preferenceRows = new ArrayList<>();
+
+    @Mock
+    private PeerMatchPreferencesRepository preferencesRepository;
+
+    @Mock
+    private DepressionTestResultRepository depressionTestResultRepository;
+
+    @Mock
+    private PeerMatchRecommendationRepository recommendationRepository;
+
+    @Mock
+    private PeerMatchRecommendationRunRepository runRepository;
+
+    @Mock
+    private PeerMatchRepository peerMatchRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BeanFixture<PeerRecommendationService> fixture;
+
+    private PeerRecommendationService service;
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void recomputeAll_ShouldWriteEveryUsersBestPeersExceptThoseAlreadyMatched() {
+        startService(3, 1);
+        when(runRepository.claim(anyString(), anyString(), any(), any(), any())).thenReturn(1);
+        addUser(1L, "Yoga");
+        addUser(2L, "Yoga");
+        addUser(3L, "Yoga, Game");
+        addUser(4L, "Game");
+        when(peerMatchRepository.findMatchedPairs()).thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+
+        service.recomputeAll();
+
+        Map<Long, List<Long>> lists = writtenLists(4);
+        assertEquals(List.of(3L, 4L), lists.get(1L));
+        assertEquals(List.of(3L, 4L), lists.get(2L));
+        assertEquals(List.of(1L, 2L, 4L), lists.get(3L));
+        assertEquals(List.of(3L, 1L, 2L), lists.get(4L));
+        verify(recommendationRepository).deleteComputedBefore(any(LocalDateTime.class));
+        verify(runRepository).complete(eq("nightly"), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void recomputeAll_ShouldSkipWhileAnotherNodeHoldsTheRun() {
+        startService(20, 256);
+        when(runRepository.claim(anyString(), anyString(), any(), any(), any())).thenReturn(0);
+        when(runRepository.existsById("nightly")).thenReturn(true);
+
+        service.recomputeAll();
+
+        verifyNoInteractions(jdbcTemplate, peerMatchRepository, preferencesRepository);
+        verify(recommendationRepository, never()).deleteComputedBefore(any());
+        verify(runRepository, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void recomputeAround_ShouldOnlyRecomputeTheUsersAChangeCanAffect() {
+        startService(2, 50);
+        addUser(1L, "Yoga");
+        addUser(2L, "Yoga");
+        addUser(3L, "Yoga");
+        addUser(4L, "Game");
+        addUser(5L, "Game");
+        addUser(6L, "Game");
+        // User 1 now scores 92.50 for users 2 and 3, and 47.50 for users 4 to 6
+        when(recommendationRepository.findUserIdsRecommending(1L)).thenReturn(List.of(4L));
+        when(recommendationRepository.findScoresAtRank(eq(1), anyCollection())).thenReturn(List.of(
+            new Object[]{2L, 9300},
+            new Object[]{3L, 9000},
+            new Object[]{4L, 5000},
+            new Object[]{6L, 5000}));
+
+        service.recomputeAround(1L, true);
+
+        // 1 itself, 4 has it listed, 3 is beaten and 5 is not full; 2 and 6 keep their lists
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> recomputed = ArgumentCaptor.forClass(Collection.class);
+        verify(recommendationRepository).deleteByUserIds(recomputed.capture());
+        assertEquals(Set.of(1L, 3L, 4L, 5L), new HashSet<>(recomputed.getValue()));
+        assertEquals(List.of(2L, 3L), writtenLists(1).get(1L));
+        // Only the users compatible with 1 were looked up
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> lookedUp = ArgumentCaptor.forClass(Collection.class);
+        verify(recommendationRepository).findScoresAtRank(eq(1), lookedUp.capture());
+        assertEquals(Set.of(2L, 3L, 4L, 5L, 6L), new HashSet<>(lookedUp.getValue()));
+    }
+
+    @Test
+    void getRecommendations_ShouldReadTheStoredListOrNothing() {
+        startService(20, 256);
+        when(recommendationRepository.findByUserIdOrderByRankPositionAsc(1L)).thenReturn(List.of(
+            new PeerMatchRecommendation(1L, 0, 7L, 9100, LocalDateTime.now()),
+            new PeerMatchRecommendation(1L, 1, 3L, 8000, LocalDateTime.now())));
+
+        assertEquals(List.of(new PeerCandidateIndex.Scored(7L, 9100), new PeerCandidateIndex.Scored(3L, 8000)),
+            service.getRecommendations(1L));
+        assertNull(service.getRecommendations(2L));
+    }
+
+    // Candidate ids written per user, in rank order
+    private Map<Long, List<Long>> writtenLists(int batches) {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> written = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(batches)).batchUpdate(anyString(), written.capture());
+        Map<Long, List<Long>> lists = new HashMap<>();
+        for (List<Object[]> batch : written.getAllValues()) {
+            for (Object[] row : batch) {
+                List<Long> list = lists.computeIfAbsent((Long) row[0], id -> new ArrayList<>());
+                assertEquals(list.size(), row[1]);
+                list.add((Long) row[2]);
+            }
+        }
+        return lists;
+    }
+
+    private void startService(int size, int batchSize) {
+        fixture = BeanFixture.of(PeerRecommendationService.class)
+            .bean(PeerCandidateIndex.class)
+            .property("peer-matching.recommendations.threads", 2)
+            .property("peer-matching.recommendations.size", size)
+            .property("peer-matching.recommendations.batch-size", batchSize)
+            .with(PeerMatchPreferencesRepository.class, preferencesRepository)
+            .with(DepressionTestResultRepository.class, depressionTestResultRepository)
+            .with(PeerMatchRecommendationRepository.class, recommendationRepository)
+            .with(PeerMatchRecommendationRunRepository.class, runRepository)
+            .with(PeerMatchRepository.class, peerMatchRepository)
+            .with(JdbcTemplate.class, jdbcTemplate)
+            .with(PlatformTransactionManager.class, transactionManager);
+        service = fixture.start();
+    }
+
+    // The index reads the rows added so far whenever it loads
+    private void addUser(Long userId, String interests) {
+        if (preferenceRows.isEmpty()) {
+            when(preferencesRepository.findMatchingCriteria()).thenReturn(preferenceRows);
+        }
+        preferenceRows.add(new Object[]{userId, 18, 25, PreferredGender.ANY, PreferredLanguage.vi, interests});
+    }
+}
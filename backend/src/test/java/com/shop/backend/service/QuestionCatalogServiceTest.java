@@ -0,0 +1,205 @@
+package com.shop.backend.service;
+
+import com.shop.backend.dto.depression.DepressionQuestionDTO;
+import com.shop.backend.model.DepressionQuestionEn;
+import com.shop.backend.model.DepressionQuestionOptionEn;
+import com.shop.backend.model.DepressionQuestionOptionVi;
+import com.shop.backend.model.DepressionQuestionVi;
+import com.shop.backend.repository.DepressionQuestionEnRepository;
+import com.shop.backend.repository.DepressionQuestionOptionEnRepository;
+import com.shop.backend.repository.DepressionQuestionOptionViRepository;
+import com.shop.backend.repository.DepressionQuestionViRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuestionCatalogServiceTest {
+
+    @Mock
+    private DepressionQuestionViRepository questionViRepository;
+
+    @Mock
+    private DepressionQuestionEnRepository questionEnRepository;
+
+    @Mock
+    private DepressionQuestionOptionViRepository optionViRepository;
+
+    @Mock
+    private DepressionQuestionOptionEnRepository optionEnRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private QuestionCatalogService catalogService;
+
+    private List<DepressionQuestionVi> questionsVi;
+
+    private List<DepressionQuestionOptionVi> optionsVi;
+
+    @BeforeEach
+    void setUp() {
+        catalogService.init();
+
+        DepressionQuestionVi sad = questionVi(1L, "Tôi cảm thấy buồn bã", "DASS-21", true);
+        DepressionQuestionVi tired = questionVi(2L, "Tôi thấy mệt mỏi", "DASS-21", true);
+        DepressionQuestionVi retired = questionVi(3L, "Câu hỏi cũ", "DASS-21", false);
+        DepressionQuestionVi phq = questionVi(4L, "Ít hứng thú", "PHQ-9", true);
+        questionsVi = new ArrayList<>(List.of(tired, sad, retired, phq));
+        optionsVi = new ArrayList<>(List.of(
+            optionVi(11L, sad, "Thường xuyên", 2, 3),
+            optionVi(10L, sad, "Không bao giờ", 0, 1),
+            optionVi(12L, tired, "Thỉnh thoảng", 1, 2)));
+
+        DepressionQuestionEn sadEn = new DepressionQuestionEn();
+        sadEn.setId(101L);
+        sadEn.setQuestionText("I felt sad");
+        sadEn.setCategory("Mood");
+        sadEn.setTestKey("DASS-21-EN");
+        sadEn.setIsActive(true);
+        DepressionQuestionOptionEn neverEn = new DepressionQuestionOptionEn();
+        neverEn.setId(110L);
+        neverEn.setQuestion(sadEn);
+        neverEn.setOptionText("Never");
+        neverEn.setOptionValue(0);
+        neverEn.setOrder(1);
+
+        when(questionViRepository.findAll()).thenAnswer(invocation -> questionsVi);
+        when(optionViRepository.findAll()).thenAnswer(invocation -> optionsVi);
+        when(questionEnRepository.findAll()).thenReturn(List.of(sadEn));
+        when(optionEnRepository.findAll()).thenReturn(List.of(neverEn));
+        fingerprint("v1");
+
+        catalogService.reload();
+    }
+
+    @Test
+    void getActiveQuestions_ShouldIndexByTestKeyAndLanguage() {
+        List<DepressionQuestionDTO> dass = catalogService.getActiveQuestions("DASS-21", "vi").questions();
+
+        assertEquals(List.of(1L, 2L), dass.stream().map(DepressionQuestionDTO::getId).toList());
+        assertEquals("Tôi cảm thấy buồn bã", dass.get(0).getQuestionTextVi());
+        assertEquals(List.of(10L, 11L), dass.get(0).getOptionsVi().stream().map(o -> o.getId()).toList());
+        assertNull(dass.get(0).getOptionsEn());
+
+        // Language decides the key suffix, as the old repository path did
+        assertEquals(dass, catalogService.getActiveQuestions("DASS-21-EN", "vi").questions());
+        List<DepressionQuestionDTO> dassEn = catalogService.getActiveQuestions("DASS-21", "en").questions();
+        assertEquals(List.of(101L), dassEn.stream().map(DepressionQuestionDTO::getId).toList());
+        assertEquals("I felt sad", dassEn.get(0).getQuestionTextEn());
+        assertEquals(1, dassEn.get(0).getOptionsEn().size());
+
+        assertEquals(3, catalogService.getActiveQuestions("vi").questions().size());
+        assertTrue(catalogService.getActiveQuestions("UNKNOWN", "vi").questions().isEmpty());
+    }
+
+    @Test
+    void getActiveQuestions_ShouldReturnImmutableLists() {
+        List<DepressionQuestionDTO> dass = catalogService.getActiveQuestions("DASS-21", "vi").questions();
+
+        assertThrows(UnsupportedOperationException.class, () -> dass.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> dass.get(0).getOptionsVi().clear());
+    }
+
+    @Test
+    void hotReads_ShouldNotTouchTheDatabase() {
+        clearInvocations(questionViRepository, questionEnRepository, optionViRepository, optionEnRepository, jdbcTemplate);
+
+        for (int i = 0; i < 100; i++) {
+            catalogService.getActiveQuestions("DASS-21", i % 2 == 0 ? "vi" : "en");
+            catalogService.getActiveQuestions("vi");
+            catalogService.getQuestionInfo(1L, false);
+        }
+
+        verifyNoInteractions(questionViRepository, questionEnRepository, optionViRepository, optionEnRepository, jdbcTemplate);
+    }
+
+    @Test
+    void getQuestionInfo_ShouldIncludeInactiveQuestions() {
+        assertEquals("Câu hỏi cũ", catalogService.getQuestionInfo(3L, false).questionText());
+        assertEquals("Mood", catalogService.getQuestionInfo(101L, true).category());
+        assertNull(catalogService.getQuestionInfo(999L, false));
+    }
+
+    @Test
+    void reload_ShouldKeepEtagUntilContentChanges() {
+        long version = catalogService.getVersion();
+        String etag = catalogService.getActiveQuestions("DASS-21", "vi").etag();
+        String phqEtag = catalogService.getActiveQuestions("PHQ-9", "vi").etag();
+
+        catalogService.reload();
+        assertEquals(version + 1, catalogService.getVersion());
+        assertEquals(etag, catalogService.getActiveQuestions("DASS-21", "vi").etag());
+
+        questionsVi.get(0).setQuestionText("Tôi thấy rất mệt mỏi");
+        catalogService.reload();
+        assertNotEquals(etag, catalogService.getActiveQuestions("DASS-21", "vi").etag());
+        assertEquals("Tôi thấy rất mệt mỏi", catalogService.getActiveQuestions("DASS-21", "vi").questions().get(1).getQuestionText());
+        // Other tests keep their ETag, so their clients still get 304
+        assertEquals(phqEtag, catalogService.getActiveQuestions("PHQ-9", "vi").etag());
+    }
+
+    @Test
+    void refreshAfterCommit_ShouldSwapInNewOptions() {
+        optionsVi.add(optionVi(13L, questionsVi.get(0), "Luôn luôn", 3, 4));
+
+        catalogService.refreshAfterCommit();
+
+        assertEquals(2, catalogService.getActiveQuestions("DASS-21", "vi").questions().get(1).getOptionsVi().size());
+    }
+
+    @Test
+    void checkForChanges_ShouldReloadOnlyWhenFingerprintChanges() {
+        long version = catalogService.getVersion();
+
+        catalogService.checkForChanges();
+        assertEquals(version, catalogService.getVersion());
+
+        fingerprint("v2");
+        catalogService.checkForChanges();
+        assertEquals(version + 1, catalogService.getVersion());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fingerprint(String value) {
+        when(jdbcTemplate.queryForObject(anyString(), any(RowMapper.class))).thenReturn(value);
+    }
+
+    private static DepressionQuestionVi questionVi(Long id, String text, String testKey, boolean active) {
+        DepressionQuestionVi question = new DepressionQuestionVi();
+        question.setId(id);
+        question.setQuestionText(text);
+        question.setCategory("Cảm xúc");
+        question.setTestKey(testKey);
+        question.setIsActive(active);
+        question.setOrder(id.intValue());
+        return question;
+    }
+
+    private static DepressionQuestionOptionVi optionVi(Long id, DepressionQuestionVi question, String text, int value, int order) {
+        DepressionQuestionOptionVi option = new DepressionQuestionOptionVi();
+        option.setId(id);
+        option.setQuestion(question);
+        option.setOptionText(text);
+        option.setOptionValue(value);
+        option.setOrder(order);
+        return option;
+    }
+}
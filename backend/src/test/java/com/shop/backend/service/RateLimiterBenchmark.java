@@ -0,0 +1,100 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Old fixed-window RateLimitService vs. the GCRA limiter with many distinct client IPs,
+ * single-threaded and with one thread per core.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ *   mvn test -Dtest=RateLimiterBenchmark -Dbenchmark.clients=100000
+ */
+class RateLimiterBenchmark {
+
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+
+    private static final long MEASURE_NANOS = 3_000_000_000L;
+
+    @Test
+    void compareLegacyAndGcra() throws Exception {
+        int clients = Integer.getInteger("benchmark.clients", 100_000);
+        String[] ips = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            ips[i] = "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%-8s %8s %16s %16s %9s%n", "threads", "clients", "legacy ops/s", "gcra ops/s", "speedup");
+        for (int threads : new int[] {1, cores}) {
+            LegacyRateLimitService legacy = new LegacyRateLimitService();
+            LocalRateLimiter gcra = new LocalRateLimiter(50, Duration.ofMinutes(1));
+            prefill(ips, legacy::isApiRateLimited, ip -> gcra.tryAcquire(IpAddressKey.of(ip)).allowed());
+
+            double legacyOps = throughput(threads, ips, legacy::isApiRateLimited);
+            double gcraOps = throughput(threads, ips, ip -> gcra.tryAcquire(IpAddressKey.of(ip)).allowed());
+            System.out.printf("%-8d %8d %16.0f %16.0f %8.1fx%n", threads, clients, legacyOps, gcraOps, gcraOps / legacyOps);
+        }
+    }
+
+    /**
+     * Give every client an entry first, so both limiters are measured at full size
+     */
+    private static void prefill(String[] ips, Predicate<String> legacy, Predicate<String> gcra) {
+        for (String ip : ips) {
+            legacy.test(ip);
+            gcra.test(ip);
+        }
+    }
+
+    private static double throughput(int threads, String[] ips, Predicate<String> check) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long sink = 0;
+                    long warmUntil = System.nanoTime() + WARMUP_NANOS;
+                    while (System.nanoTime() < warmUntil) {
+                        sink += check.test(ips[random.nextInt(ips.length)]) ? 1 : 0;
+                    }
+
+                    long operations = 0;
+                    long startedAt = System.nanoTime();
+                    long elapsed;
+                    do {
+                        sink += check.test(ips[random.nextInt(ips.length)]) ? 1 : 0;
+                        operations++;
+                        elapsed = System.nanoTime() - startedAt;
+                    } while (elapsed < MEASURE_NANOS);
+                    return new long[] {operations, elapsed, sink};
+                }));
+            }
+            start.countDown();
+
+            double opsPerSecond = 0;
+            for (Future<long[]> result : results) {
+                long[] measured = result.get();
+                assertTrue(measured[2] >= 0);
+                opsPerSecond += measured[0] * 1e9 / measured[1];
+            }
+            return opsPerSecond;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
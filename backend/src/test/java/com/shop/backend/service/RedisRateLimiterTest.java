@@ -0,0 +1,195 @@
+package com.shop.backend.service;
+
+import com.shop.backend.config.RateLimitProperties;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two limiters sharing one Redis act as two backend replicas
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    @Container
+    private static final GenericContainer<?> REDIS =
+        new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+
+    private final List<RedisRateLimiter> limiters = new ArrayList<>();
+
+    private RedisRateLimiter nodeA;
+
+    private RedisRateLimiter nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = startNode(REDIS.getHost(), REDIS.getMappedPort(6379));
+        nodeB = startNode(REDIS.getHost(), REDIS.getMappedPort(6379));
+        try (RedisConnection connection = connectionFactories.get(0).getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiters.forEach(RedisRateLimiter::close);
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    @Test
+    void quota_ShouldBeSharedAcrossNodesUnderContention() throws Exception {
+        long client = IpAddressKey.of("203.0.113.7");
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                RedisRateLimiter node = t % 2 == 0 ? nodeA : nodeB;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < 20; i++) {
+                        RateLimitDecision decision = node.tryAcquire("auth", 30, WINDOW, client);
+                        assertNotNull(decision);
+                        if (decision.allowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(30, allowed);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        RateLimitDecision denied = nodeB.tryAcquire("auth", 30, WINDOW, client);
+        assertFalse(denied.allowed());
+        // One request's worth (2 s) minus the time the burst took
+        assertTrue(denied.retryAfterMillis() > 0 && denied.retryAfterMillis() <= 2000);
+        assertEquals(0, nodeA.peek("auth", 30, WINDOW, client).remaining());
+    }
+
+    @Test
+    void policiesAndClients_ShouldHaveSeparateQuotas() {
+        long client = IpAddressKey.of("198.51.100.1");
+
+        assertEquals(1, nodeA.tryAcquire("auth", 2, WINDOW, client).remaining());
+        assertEquals(0, nodeB.tryAcquire("auth", 2, WINDOW, client).remaining());
+        assertFalse(nodeA.tryAcquire("auth", 2, WINDOW, client).allowed());
+
+        assertTrue(nodeA.tryAcquire("api", 2, WINDOW, client).allowed());
+        assertTrue(nodeB.tryAcquire("auth", 2, WINDOW, IpAddressKey.of("198.51.100.2")).allowed());
+    }
+
+    @Test
+    void peek_ShouldNotConsumeQuota() {
+        long client = IpAddressKey.of("198.51.100.3");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(3, nodeA.peek("api", 3, WINDOW, client).remaining());
+        }
+        assertEquals(2, nodeB.tryAcquire("api", 3, WINDOW, client).remaining());
+        assertEquals(2, nodeA.peek("api", 3, WINDOW, client).remaining());
+    }
+
+    @Test
+    void scriptFlush_ShouldReloadScript() {
+        long client = IpAddressKey.of("198.51.100.4");
+        assertTrue(nodeA.tryAcquire("api", 5, WINDOW, client).allowed());
+
+        try (RedisConnection connection = connectionFactories.get(0).getConnection()) {
+            connection.scriptingCommands().scriptFlush();
+        }
+
+        RateLimitDecision decision = nodeA.tryAcquire("api", 5, WINDOW, client);
+        assertNotNull(decision);
+        assertEquals(3, decision.remaining());
+        assertTrue(nodeA.isAvailable());
+    }
+
+    @Test
+    void tryAcquire_ShouldAnswerWithinOneMillisecondAtP99() {
+        long client = IpAddressKey.of("198.51.100.9");
+        // Warm up the connection, the script cache and the JIT
+        for (int i = 0; i < 2_000; i++) {
+            nodeA.tryAcquire("api", 1_000_000, WINDOW, client);
+        }
+        long[] nanos = new long[10_000];
+        for (int i = 0; i < nanos.length; i++) {
+            long startedAt = System.nanoTime();
+            assertNotNull(nodeA.tryAcquire("api", 1_000_000, WINDOW, client));
+            nanos[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[nanos.length / 2] / 1_000;
+        long p99 = nanos[nanos.length * 99 / 100] / 1_000;
+        System.out.printf("Redis rate limit check: p50 %d us, p99 %d us%n", p50, p99);
+        assertTrue(p99 < 1_000, "p99 " + p99 + " us");
+    }
+
+    @Test
+    void redisDown_ShouldReturnNullForLocalFallback() {
+        // Nothing listens on port 1
+        RedisRateLimiter isolated = startNode("localhost", 1);
+
+        assertNull(isolated.tryAcquire("api", 5, WINDOW, IpAddressKey.of("10.0.0.1")));
+        assertFalse(isolated.isAvailable());
+
+        // Skipped without waiting while Redis is marked down
+        long startedAt = System.nanoTime();
+        assertNull(isolated.tryAcquire("api", 5, WINDOW, IpAddressKey.of("10.0.0.1")));
+        assertTrue(System.nanoTime() - startedAt < TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    private RedisRateLimiter startNode(String host, int port) {
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+            .commandTimeout(Duration.ofMillis(500))
+            .clientOptions(ClientOptions.builder()
+                .socketOptions(SocketOptions.builder().connectTimeout(Duration.ofMillis(500)).build())
+                .build())
+            .build();
+        LettuceConnectionFactory connectionFactory =
+            new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        connectionFactories.add(connectionFactory);
+
+        RateLimitProperties.Redis properties = new RateLimitProperties.Redis();
+        // Generous so a cold container or connection setup does not count as an outage
+        properties.setTimeout(Duration.ofSeconds(2));
+        RedisRateLimiter limiter = new RedisRateLimiter(properties, connectionFactory);
+        limiters.add(limiter);
+        return limiter;
+    }
+}
@@ -0,0 +1,248 @@
+package com.shop.backend.service;
+
+import com.shop.backend.BeanFixture;
+import com.shop.backend.dto.depression.DepressionTestResponse;
+import com.shop.backend.model.DepressionQuestionVi;
+import com.shop.backend.model.DepressionTestAnswer;
+import com.shop.backend.model.DepressionTestResult;
+import com.shop.backend.model.User;
+import com.shop.backend.repository.DepressionQuestionEnRepository;
+import com.shop.backend.repository.DepressionQuestionViRepository;
+import com.shop.backend.repository.DepressionTestAnswerRepository;
+import com.shop.backend.repository.DepressionTestResultRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestResultAnalysisServiceTest {
+
+    @Mock
+    private DepressionTestResultRepository testResultRepository;
+
+    @Mock
+    private DepressionTestAnswerRepository testAnswerRepository;
+
+    @Mock
+    private DepressionQuestionViRepository questionViRepository;
+
+    @Mock
+    private DepressionQuestionEnRepository questionEnRepository;
+
+    @Mock
+    private QuestionCatalogService questionCatalogService;
+
+    @Mock
+    private OpenAITestResultService openAITestResultService;
+
+    @Mock
+    private TestResultEmailService emailService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BeanFixture<TestResultAnalysisService> fixture;
+
+    private TestResultAnalysisService analysisService;
+
+    private DepressionTestResult pending;
+
+    private DepressionTestAnswer answer;
+
+    private DepressionQuestionVi question;
+
+    @BeforeEach
+    void setUp() {
+        fixture = BeanFixture.of(TestResultAnalysisService.class)
+            .property("depression-test.analysis.threads", 1)
+            .property("depression-test.analysis.queue-capacity", 10)
+            .with(DepressionTestResultRepository.class, testResultRepository)
+            .with(DepressionTestAnswerRepository.class, testAnswerRepository)
+            .with(DepressionQuestionViRepository.class, questionViRepository)
+            .with(DepressionQuestionEnRepository.class, questionEnRepository)
+            .with(QuestionCatalogService.class, questionCatalogService)
+            .with(OpenAITestResultService.class, openAITestResultService)
+            .with(TestResultEmailService.class, emailService)
+            .with(NotificationService.class, notificationService)
+            .with(PlatformTransactionManager.class, transactionManager);
+        analysisService = fixture.start();
+
+        User user = new User();
+        user.setId(7L);
+        user.setFirstName("Lan");
+        user.setLastName("Nguyen");
+
+        pending = new DepressionTestResult();
+        pending.setId(42L);
+        pending.setUser(user);
+        pending.setTotalScore(8);
+        pending.setDiagnosis("MILD_DEPRESSION");
+        pending.setSeverityLevel(DepressionTestResult.SeverityLevel.MILD);
+        pending.setRecommendation("MILD_DEPRESSION_RECOMMENDATION");
+        pending.setTestType("DASS-21");
+        pending.setAnalysisStatus(DepressionTestResult.AnalysisStatus.PENDING);
+
+        answer = new DepressionTestAnswer();
+        answer.setQuestionId(3L);
+        answer.setAnswerValue(2);
+        question = new DepressionQuestionVi();
+        question.setId(3L);
+        question.setQuestionText("Tôi cảm thấy buồn bã");
+        question.setCategory("Cảm xúc");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void analyze_ShouldStoreAiVerdictThenEmailAndPush() {
+        givenClaimedResult();
+        givenAnswerWithQuestionInDatabase();
+        when(openAITestResultService.generateTestResultAnalysis(eq("DASS-21"), eq(8), anyList()))
+            .thenReturn(Map.of("diagnosis", "Trầm cảm nặng", "severity", "SEVERE", "recommendation", "Liên hệ chuyên gia"));
+        when(testResultRepository.completeAnalysis(eq(42L), any(), any(), any(), any(), any())).thenReturn(1);
+
+        analysisService.analyze(42L);
+
+        verify(testResultRepository).completeAnalysis(eq(42L), eq("Trầm cảm nặng"),
+            eq(DepressionTestResult.SeverityLevel.SEVERE), eq("Liên hệ chuyên gia"),
+            eq(DepressionTestResult.AnalysisStatus.COMPLETED), any());
+
+        ArgumentCaptor<DepressionTestResponse> pushed = ArgumentCaptor.forClass(DepressionTestResponse.class);
+        verify(notificationService).sendTestAnalysisUpdate(eq(7L), eq("DASS-21"), pushed.capture());
+        assertEquals("SEVERE", pushed.getValue().getSeverity());
+        assertEquals("COMPLETED", pushed.getValue().getAnalysisStatus());
+        assertTrue(pushed.getValue().getShouldContactExpert());
+        verify(emailService).sendTestResultEmail(eq(7L), same(pushed.getValue()), eq("DASS-21"));
+
+        // Rule-based severity was MILD, so the controller never raised the alert
+        verify(notificationService).sendSevereTestAlert(eq(7L), eq("DASS-21"), contains("Lan Nguyen"));
+    }
+
+    @Test
+    void analyze_ShouldSendQuestionContextToAi() {
+        givenClaimedResult();
+        givenAnswerWithQuestionInDatabase();
+        when(testResultRepository.completeAnalysis(eq(42L), any(), any(), any(), any(), any())).thenReturn(1);
+
+        analysisService.analyze(42L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Map<String, Object>>> answers = ArgumentCaptor.forClass(List.class);
+        verify(openAITestResultService).generateTestResultAnalysis(eq("DASS-21"), eq(8), answers.capture());
+        assertEquals(1, answers.getValue().size());
+        assertEquals("Tôi cảm thấy buồn bã", answers.getValue().get(0).get("questionText"));
+        assertEquals("Cảm xúc", answers.getValue().get(0).get("category"));
+        assertEquals(2, answers.getValue().get(0).get("answerValue"));
+    }
+
+    @Test
+    void analyze_ShouldTakeQuestionContextFromCatalogWhenLoaded() {
+        givenClaimedResult();
+        when(testAnswerRepository.findByTestResultId(42L)).thenReturn(List.of(answer));
+        when(questionCatalogService.getQuestionInfo(3L, false))
+            .thenReturn(new QuestionCatalogService.QuestionInfo("Tôi thấy mệt mỏi", "Năng lượng"));
+
+        analysisService.analyze(42L);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Map<String, Object>>> answers = ArgumentCaptor.forClass(List.class);
+        verify(openAITestResultService).generateTestResultAnalysis(eq("DASS-21"), eq(8), answers.capture());
+        assertEquals("Tôi thấy mệt mỏi", answers.getValue().get(0).get("questionText"));
+        verifyNoInteractions(questionViRepository);
+    }
+
+    @Test
+    void analyze_ShouldNotNotifyTwiceWhenAnotherJobFinishedFirst() {
+        givenClaimedResult();
+        givenAnswerWithQuestionInDatabase();
+        when(openAITestResultService.generateTestResultAnalysis(any(), any(), anyList()))
+            .thenReturn(Map.of("diagnosis", "Nhẹ", "severity", "MILD", "recommendation", "Nghỉ ngơi"));
+        when(testResultRepository.completeAnalysis(eq(42L), any(), any(), any(), any(), any())).thenReturn(0);
+
+        analysisService.analyze(42L);
+
+        verifyNoInteractions(emailService, notificationService);
+    }
+
+    @Test
+    void analyze_ShouldSkipResultsThatAreNoLongerPending() {
+        givenClaimedResult();
+        pending.setAnalysisStatus(DepressionTestResult.AnalysisStatus.COMPLETED);
+
+        analysisService.analyze(42L);
+
+        verifyNoInteractions(openAITestResultService, emailService, notificationService);
+    }
+
+    @Test
+    void analyze_ShouldSkipResultsClaimedByAnotherNode() {
+        when(testResultRepository.claimAnalysis(eq(42L), anyString(), any(), any())).thenReturn(0);
+
+        analysisService.analyze(42L);
+
+        verifyNoInteractions(openAITestResultService, emailService, notificationService);
+    }
+
+    @Test
+    void sweepPending_ShouldQueueOnlyTheResultsItClaims() {
+        givenClaimedResult();
+        givenAnswerWithQuestionInDatabase();
+        when(testResultRepository.findClaimableAnalysisIds(any(), any(), any(), any())).thenReturn(List.of(42L, 43L));
+        when(testResultRepository.claimAnalysis(eq(43L), anyString(), any(), any())).thenReturn(0);
+        when(testResultRepository.completeAnalysis(eq(42L), any(), any(), any(), any(), any())).thenReturn(1);
+
+        analysisService.sweepPending();
+
+        verify(openAITestResultService, timeout(2000).times(1)).generateTestResultAnalysis(any(), any(), anyList());
+        verify(notificationService, timeout(2000)).sendTestAnalysisUpdate(eq(7L), any(), any());
+        verify(testResultRepository, never()).findById(43L);
+    }
+
+    @Test
+    void analyze_ShouldKeepRuleVerdictAndStillEmailWhenAiFails() {
+        givenClaimedResult();
+        givenAnswerWithQuestionInDatabase();
+        when(openAITestResultService.generateTestResultAnalysis(any(), any(), anyList()))
+            .thenThrow(new RuntimeException("timeout"));
+        when(testResultRepository.completeAnalysis(eq(42L), any(), any(), any(), any(), any())).thenReturn(1);
+
+        analysisService.analyze(42L);
+
+        verify(testResultRepository).completeAnalysis(eq(42L), eq("MILD_DEPRESSION"),
+            eq(DepressionTestResult.SeverityLevel.MILD), eq("MILD_DEPRESSION_RECOMMENDATION"),
+            eq(DepressionTestResult.AnalysisStatus.FAILED), any());
+        verify(emailService).sendTestResultEmail(eq(7L), any(), eq("DASS-21"));
+        verify(notificationService, never()).sendSevereTestAlert(any(), any(), any());
+    }
+
+    private void givenClaimedResult() {
+        when(testResultRepository.claimAnalysis(eq(42L), anyString(), any(), any())).thenReturn(1);
+        when(testResultRepository.findById(42L)).thenReturn(Optional.of(pending));
+    }
+
+    // Not in the question catalog, so read from the database
+    private void givenAnswerWithQuestionInDatabase() {
+        when(testAnswerRepository.findByTestResultId(42L)).thenReturn(List.of(answer));
+        when(questionViRepository.findAllById(Set.of(3L))).thenReturn(List.of(question));
+    }
+}
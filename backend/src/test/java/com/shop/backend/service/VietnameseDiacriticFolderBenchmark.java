@@ -0,0 +1,52 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The old ~140-call String.replace chain vs. the table-driven folder.
+ *
+ * Not picked up by the default surefire includes; run it explicitly:
+ *   mvn test -Dtest=VietnameseDiacriticFolderBenchmark
+ */
+class VietnameseDiacriticFolderBenchmark {
+
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    private static final String SENTENCE = "Mình đã đọc bài này nhiều lần và thấy rất đồng cảm với tác giả. ";
+
+    @Test
+    void compareReplaceChainAndLookupTable() {
+        System.out.printf("%8s %18s %18s %9s%n", "chars", "replace ops/s", "table ops/s", "speedup");
+        for (String text : new String[] {SENTENCE, SENTENCE.repeat(32), SENTENCE.repeat(256)}) {
+            assertEquals(LegacyContentModeration.removeVietnameseDiacritics(text), VietnameseDiacriticFolder.fold(text));
+
+            double replaceOps = throughput(text, LegacyContentModeration::removeVietnameseDiacritics);
+            double tableOps = throughput(text, VietnameseDiacriticFolder::fold);
+            System.out.printf("%8d %18.0f %18.0f %8.1fx%n", text.length(), replaceOps, tableOps, tableOps / replaceOps);
+        }
+    }
+
+    private double throughput(String text, UnaryOperator<String> fold) {
+        int sink = 0;
+        long warmUntil = System.nanoTime() + MEASURE_NANOS / 2;
+        while (System.nanoTime() < warmUntil) {
+            sink += fold.apply(text).length();
+        }
+
+        long operations = 0;
+        long startedAt = System.nanoTime();
+        long elapsed;
+        do {
+            sink += fold.apply(text).length();
+            operations++;
+            elapsed = System.nanoTime() - startedAt;
+        } while (elapsed < MEASURE_NANOS);
+
+        assertTrue(sink > 0);
+        return operations * 1e9 / elapsed;
+    }
+}
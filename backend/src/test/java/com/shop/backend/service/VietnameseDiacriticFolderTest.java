@@ -0,0 +1,80 @@
+package com.shop.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VietnameseDiacriticFolderTest {
+
+    // The twelve Vietnamese vowels and their unaccented base
+    private static final String VOWELS = "aăâeêioôơuưy";
+    private static final String BASES = "aaaeeiooouuy";
+
+    // No tone, huyền, sắc, hỏi, ngã, nặng
+    private static final String[] TONES = {"", "\u0300", "\u0301", "\u0309", "\u0303", "\u0323"};
+
+    @Test
+    void fold_ShouldCoverEveryVowelAndTone_InBothCases() {
+        int checked = 0;
+        for (int v = 0; v < VOWELS.length(); v++) {
+            for (String tone : TONES) {
+                String lower = Normalizer.normalize(VOWELS.charAt(v) + tone, Normalizer.Form.NFC);
+                String upper = lower.toUpperCase();
+                assertEquals(1, lower.length(), "precomposed form expected for " + lower);
+
+                String base = String.valueOf(BASES.charAt(v));
+                assertEquals(base, VietnameseDiacriticFolder.fold(lower), lower);
+                assertEquals(base.toUpperCase(), VietnameseDiacriticFolder.fold(upper), upper);
+
+                // Decomposed input: base letter followed by one or two combining marks
+                assertEquals(base, VietnameseDiacriticFolder.fold(Normalizer.normalize(lower, Normalizer.Form.NFD)));
+                assertEquals(base.toUpperCase(), VietnameseDiacriticFolder.fold(Normalizer.normalize(upper, Normalizer.Form.NFD)));
+                checked++;
+            }
+        }
+        assertEquals(72, checked);
+        assertEquals("dD", VietnameseDiacriticFolder.fold("đĐ"));
+    }
+
+    @Test
+    void fold_ShouldAgreeWithReplaceChain_ForEveryPrecomposedChar() {
+        for (char c = 0; c < 0x2000; c++) {
+            String text = String.valueOf(c);
+            assertEquals(LegacyContentModeration.removeVietnameseDiacritics(text), VietnameseDiacriticFolder.fold(text),
+                () -> String.format("U+%04X", (int) text.charAt(0)));
+        }
+    }
+
+    @Test
+    void fold_ShouldFoldSentences_InComposedAndDecomposedForm() {
+        String composed = "Đường phố Hà Nội, nơi tôi lớn lên!";
+        String decomposed = Normalizer.normalize(composed, Normalizer.Form.NFD);
+
+        assertEquals("Duong pho Ha Noi, noi toi lon len!", VietnameseDiacriticFolder.fold(composed));
+        assertEquals("Duong pho Ha Noi, noi toi lon len!", VietnameseDiacriticFolder.fold(decomposed));
+
+        StringBuilder out = new StringBuilder();
+        VietnameseDiacriticFolder.fold(decomposed, out);
+        assertEquals("Duong pho Ha Noi, noi toi lon len!", out.toString());
+    }
+
+    @Test
+    void fold_ShouldOnlyTouchVietnameseLetters() {
+        String ascii = "plain ascii";
+
+        assertSame(ascii, VietnameseDiacriticFolder.fold(ascii));
+        // é is a Vietnamese letter, ç, ñ and ü are not
+        assertEquals("cafe ç ñ ü", VietnameseDiacriticFolder.fold("café ç ñ ü"));
+        assertNull(VietnameseDiacriticFolder.fold(null));
+    }
+
+    @Test
+    void fold_ShouldHandleInputLargerThanTheBuffer() {
+        String longText = "Đường phố ".repeat(5_000);
+
+        assertEquals("Duong pho ".repeat(5_000), VietnameseDiacriticFolder.fold(longText));
+        assertEquals("Duong pho", VietnameseDiacriticFolder.fold("Đường phố"));
+    }
+}
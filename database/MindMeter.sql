@@ -107,7 +107,12 @@ CREATE TABLE depression_test_results (
     recommendation VARCHAR(255),
     test_type VARCHAR(50),
     language ENUM('vi', 'en') NOT NULL DEFAULT 'vi',
-    FOREIGN KEY (user_id) REFERENCES users(id)
+    analysis_status VARCHAR(20) NOT NULL DEFAULT 'COMPLETED',
+    analyzed_at TIMESTAMP NULL,
+    analysis_claim_token VARCHAR(36) NULL,
+    analysis_locked_until TIMESTAMP NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    INDEX idx_test_results_analysis (analysis_status, tested_at)
 );
 
 CREATE TABLE depression_test_answers (
@@ -205,6 +210,50 @@ CREATE TABLE newsletter_subscriptions (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE SET NULL
 );
 
+-- Outgoing emails, written in the sender's transaction and delivered by the outbox dispatcher
+CREATE TABLE email_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    html_body TEXT NOT NULL,
+    dedup_key VARCHAR(255),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    claim_token VARCHAR(36),
+    locked_until TIMESTAMP NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    campaign_id BIGINT NULL,
+    INDEX idx_email_outbox_due (status, next_attempt_at),
+    INDEX idx_email_outbox_claim (claim_token),
+    UNIQUE KEY uk_email_outbox_dedup (dedup_key),
+    INDEX idx_email_outbox_campaign (campaign_id, status)
+);
+
+-- Newsletter sends, queued into email_outbox in chunks; last_subscriber_id is the resume point
+CREATE TABLE newsletter_campaigns (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    subject VARCHAR(500) NOT NULL,
+    content TEXT NOT NULL,
+    blog_post_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING',
+    total_recipients BIGINT DEFAULT 0,
+    last_subscriber_id BIGINT NOT NULL DEFAULT 0,
+    queued_count BIGINT NOT NULL DEFAULT 0,
+    skipped_count BIGINT NOT NULL DEFAULT 0,
+    sent_count BIGINT NULL,
+    failed_count BIGINT NULL,
+    owner VARCHAR(36),
+    locked_until TIMESTAMP NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    queued_at TIMESTAMP NULL,
+    completed_at TIMESTAMP NULL,
+    INDEX idx_newsletter_campaigns_status (status, locked_until)
+);
+
 -- ========================================
 -- 5. SAMPLE DATA
 -- ========================================
@@ -3308,6 +3357,27 @@ CREATE TABLE appointment_notifications (
     INDEX idx_is_read (is_read)
 );
 
+-- Nhắc lịch hẹn cần gửi: mỗi lịch hẹn đã xác nhận một dòng cho mỗi mốc (24 giờ, 1 giờ trước)
+CREATE TABLE appointment_reminders (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    appointment_id BIGINT NOT NULL,
+    hours_before INT NOT NULL,
+    due_at TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    email_sent_at TIMESTAMP NULL,
+    sms_sent_at TIMESTAMP NULL,
+    push_sent_at TIMESTAMP NULL,
+    claim_token VARCHAR(36),
+    locked_until TIMESTAMP NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP NULL,
+    FOREIGN KEY (appointment_id) REFERENCES appointments(id) ON DELETE CASCADE,
+    UNIQUE KEY uk_appointment_reminders (appointment_id, hours_before),
+    INDEX idx_appointment_reminders_due (status, due_at)
+);
+
 -- ========================================
 -- 12. APPOINTMENT SAMPLE DATA
 -- ========================================
@@ -4020,6 +4090,38 @@ CREATE TABLE blog_reports (
     INDEX idx_status (status)
 );
 
+-- Blog statistics snapshot (single row, rewritten by the periodic rollup)
+CREATE TABLE blog_stats_snapshot (
+    id BIGINT PRIMARY KEY,
+    total_posts BIGINT NOT NULL DEFAULT 0,
+    published_posts BIGINT NOT NULL DEFAULT 0,
+    pending_posts BIGINT NOT NULL DEFAULT 0,
+    draft_posts BIGINT NOT NULL DEFAULT 0,
+    total_comments BIGINT NOT NULL DEFAULT 0,
+    pending_comments BIGINT NOT NULL DEFAULT 0,
+    total_likes BIGINT NOT NULL DEFAULT 0,
+    total_shares BIGINT NOT NULL DEFAULT 0,
+    total_views BIGINT NOT NULL DEFAULT 0,
+    total_reports BIGINT NOT NULL DEFAULT 0,
+    pending_reports BIGINT NOT NULL DEFAULT 0,
+    total_categories BIGINT NOT NULL DEFAULT 0,
+    total_tags BIGINT NOT NULL DEFAULT 0,
+    most_popular_post VARCHAR(255),
+    most_active_author VARCHAR(255),
+    most_used_category VARCHAR(255),
+    most_used_tag VARCHAR(255),
+    computed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Blog activity per day (rolled up from posts, comments and views)
+CREATE TABLE blog_daily_stats (
+    stat_date DATE PRIMARY KEY,
+    posts_created BIGINT NOT NULL DEFAULT 0,
+    comments_created BIGINT NOT NULL DEFAULT 0,
+    views_recorded BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
 -- ========================================
 -- 8. SOCIAL & COMMUNITY TABLES
 -- ========================================
@@ -4172,6 +4274,28 @@ CREATE TABLE peer_match_preferences (
     INDEX idx_enabled (matching_enabled)
 );
 
+-- Gợi ý ghép cặp tính sẵn hằng đêm (và tính lại khi người dùng đổi tiêu chí): top K ứng viên của mỗi người dùng
+CREATE TABLE peer_match_recommendations (
+    user_id BIGINT NOT NULL,
+    rank_position SMALLINT NOT NULL,
+    candidate_id BIGINT NOT NULL,
+    score SMALLINT NOT NULL,
+    computed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, rank_position),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (candidate_id) REFERENCES users(id) ON DELETE CASCADE,
+    INDEX idx_peer_rec_candidate (candidate_id),
+    INDEX idx_peer_rec_rank (rank_position, user_id, score)
+);
+
+-- Lease của lượt tính gợi ý hằng đêm, để chỉ một node chạy
+CREATE TABLE peer_match_recommendation_runs (
+    job VARCHAR(50) PRIMARY KEY,
+    owner VARCHAR(36),
+    locked_until TIMESTAMP NULL,
+    completed_at TIMESTAMP NULL
+);
+
 -- Success stories table
 CREATE TABLE success_stories (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -5332,6 +5456,7 @@ CREATE INDEX idx_blog_comments_post_created_perf ON blog_comments(post_id, statu
 CREATE INDEX idx_blog_comments_parent_perf ON blog_comments(parent_id, status, created_at ASC);
 CREATE INDEX idx_blog_comments_user_perf ON blog_comments(user_id, created_at DESC);
 CREATE INDEX idx_blog_comments_status_perf ON blog_comments(status, created_at DESC);
+CREATE INDEX idx_blog_comments_created_perf ON blog_comments(created_at);
 
 
 -- Blog interactions indexes